@@ -0,0 +1,47 @@
+package com.joel.br.AutoClipster.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Andamento de um clip no pipeline do workflow: em que estágio está e como terminou
+ */
+@Data
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class ClipProgress {
+
+    public enum Stage {
+        DOWNLOAD, PROBE, ANALYSIS, UPLOAD
+    }
+
+    public enum Status {
+        /**
+         * Aguardando no buffer antes do estágio
+         */
+        PENDING,
+        RUNNING,
+        /**
+         * Terminou o pipeline (o estágio indica o último executado)
+         */
+        COMPLETED,
+        SKIPPED,
+        FAILED
+    }
+
+    private String clipId;
+    private String title;
+    private Integer viewCount;
+    private Stage stage;
+    private Status status;
+    private String message;
+    private Double viralScore;
+    private Integer estimatedViews;
+    private String youtubeId;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,25 @@
+package com.joel.br.AutoClipster.DTO;
+
+import com.joel.br.AutoClipster.enums.DownloadState;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Andamento de um download em curso, atualizado a partir da saída do yt-dlp
+ */
+@Data
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class DownloadProgress {
+    private String url;
+    private String outputPath;
+    private DownloadState state;
+    private double percent; // 0-100, do stream atual (vídeo e áudio podem ser baixados separadamente)
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,27 @@
+package com.joel.br.AutoClipster.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Duration;
+
+/**
+ * Resultado do download de um clip, emitido assim que o download termina
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class DownloadResult {
+    private String clipId;
+    private String title;
+    private String broadcasterId;
+    private boolean success;
+    private boolean alreadyDownloaded;
+    private Long downloadedClipId; // ID da entidade DownloadedClip, quando salva
+    private String filePath;
+    private String errorMessage;
+    private Duration elapsed;
+}
@@ -0,0 +1,31 @@
+package com.joel.br.AutoClipster.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Estado de um executor de estágio (download, análise, upload, webhook)
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExecutorStats {
+    private String stage;
+    private String queueFullPolicy;
+    private boolean virtualThreads;
+    private int poolSize;
+    private int maxPoolSize;
+    private int activeThreads;
+    private int queued;
+    private int queueRemainingCapacity;
+    private long submitted;
+    private long completed;
+    private long failed;
+    private long rejected; // Recusadas (ABORT) ou executadas na thread de quem submeteu (CALLER_RUNS)
+    private double averageQueueWaitMs;
+    private double maxQueueWaitMs;
+    private double averageRunMs;
+}
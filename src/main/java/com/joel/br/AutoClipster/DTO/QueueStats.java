@@ -0,0 +1,21 @@
+package com.joel.br.AutoClipster.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Estado da fila de análise vista por este nó
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class QueueStats {
+    private String workerId;
+    private int inFlight; // Clips reservados e em análise neste nó
+    private int maxInFlight;
+    private int maxAttempts;
+    private long pending; // Clips não processados em todos os nós
+}
@@ -16,6 +16,7 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 public class WorkflowResult {
+    private String runId;
     private String channelName;
     private String channelId;
     private Integer clipsDownloaded;
@@ -28,4 +29,5 @@ public class WorkflowResult {
     private List<String> processedClipTitles;
     private Double averageViralScore;
     private Integer totalEstimatedViews;
+    private List<ClipProgress> clips;
 } 
\ No newline at end of file
@@ -0,0 +1,117 @@
+package com.joel.br.AutoClipster.config;
+
+import com.joel.br.AutoClipster.config.InstrumentedTaskExecutor.QueueFullPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Executores separados por estágio do pipeline, cada um com número de threads e fila limitados.
+ *
+ * Um estágio lento (ex: upload) não ocupa as threads dos outros, e os estágios rodam em paralelo
+ * em vez de se enfileirarem na thread da requisição HTTP. Todo @Async deve indicar o executor
+ * do seu estágio; o workflowExecutor é o padrão para os que não indicarem.
+ *
+ * Com app.executor.virtual-threads=true (Java 21) os estágios rodam em threads virtuais, uma por
+ * tarefa, até app.executor.virtual.max-in-flight tarefas por estágio; o número de threads e o
+ * tamanho da fila deixam de valer e a concorrência com cada serviço externo é limitada pelos
+ * semáforos do ConcurrencyLimiter (app.limits.*).
+ */
+@Configuration
+@Slf4j
+public class AsyncConfig implements AsyncConfigurer {
+
+    public static final String DOWNLOAD_EXECUTOR = "downloadExecutor";
+    public static final String ANALYSIS_EXECUTOR = "analysisExecutor";
+    public static final String UPLOAD_EXECUTOR = "uploadExecutor";
+    public static final String WEBHOOK_EXECUTOR = "webhookExecutor";
+    public static final String WORKFLOW_EXECUTOR = "workflowExecutor";
+
+    private final boolean virtualThreads;
+    private final int maxInFlight;
+    private final InstrumentedTaskExecutor workflowExecutor;
+
+    public AsyncConfig(@Value("${app.executor.virtual-threads:false}") boolean virtualThreads,
+                       @Value("${app.executor.virtual.max-in-flight:10000}") int maxInFlight,
+                       @Value("${app.executor.workflow.threads:2}") int workflowThreads,
+                       @Value("${app.executor.workflow.queue-capacity:20}") int workflowQueueCapacity) {
+        this.virtualThreads = virtualThreads;
+        this.maxInFlight = maxInFlight;
+        // Orquestrações aguardam os outros estágios; recusar é melhor que acumular workflows
+        this.workflowExecutor = stageExecutor("workflow", workflowThreads, workflowQueueCapacity,
+                QueueFullPolicy.ABORT);
+        if (virtualThreads) {
+            log.info("Executores dos estágios em threads virtuais (até {} tarefas por estágio)", maxInFlight);
+        }
+    }
+
+    /**
+     * Downloads de clips; o número de threads é o limite global de downloads simultâneos.
+     * Com a fila cheia o clip falha e volta a ser candidato na próxima execução.
+     */
+    @Bean(name = DOWNLOAD_EXECUTOR)
+    public InstrumentedTaskExecutor downloadExecutor(
+            @Value("${app.download.max-concurrent:3}") int threads,
+            @Value("${app.executor.download.queue-capacity:1000}") int queueCapacity) {
+        return stageExecutor("download", threads, queueCapacity, QueueFullPolicy.ABORT);
+    }
+
+    /**
+     * Análise com o Gemini; com a fila cheia quem baixou o clip faz a análise, segurando novos downloads
+     */
+    @Bean(name = ANALYSIS_EXECUTOR)
+    public InstrumentedTaskExecutor analysisExecutor(
+            @Value("${app.executor.analysis.threads:2}") int threads,
+            @Value("${app.executor.analysis.queue-capacity:100}") int queueCapacity) {
+        return stageExecutor("analysis", threads, queueCapacity, QueueFullPolicy.CALLER_RUNS);
+    }
+
+    /**
+     * Uploads para o YouTube (limitados por banda e cota); com a fila cheia o pedido é recusado
+     */
+    @Bean(name = UPLOAD_EXECUTOR)
+    public InstrumentedTaskExecutor uploadExecutor(
+            @Value("${app.executor.upload.threads:1}") int threads,
+            @Value("${app.executor.upload.queue-capacity:20}") int queueCapacity) {
+        return stageExecutor("upload", threads, queueCapacity, QueueFullPolicy.ABORT);
+    }
+
+    /**
+     * Notificações para o n8n; com a fila cheia quem notifica envia diretamente, sem perder eventos
+     */
+    @Bean(name = WEBHOOK_EXECUTOR)
+    public InstrumentedTaskExecutor webhookExecutor(
+            @Value("${app.executor.webhook.threads:2}") int threads,
+            @Value("${app.executor.webhook.queue-capacity:500}") int queueCapacity) {
+        return stageExecutor("webhook", threads, queueCapacity, QueueFullPolicy.CALLER_RUNS);
+    }
+
+    @Bean(name = WORKFLOW_EXECUTOR)
+    public InstrumentedTaskExecutor workflowExecutor() {
+        return workflowExecutor;
+    }
+
+    private InstrumentedTaskExecutor stageExecutor(String stage, int threads, int queueCapacity,
+                                                   QueueFullPolicy policy) {
+        return virtualThreads
+                ? InstrumentedTaskExecutor.virtualThreads(stage, maxInFlight, policy)
+                : new InstrumentedTaskExecutor(stage, threads, queueCapacity, policy);
+    }
+
+    @Override
+    public Executor getAsyncExecutor() {
+        return workflowExecutor;
+    }
+
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (error, method, params) ->
+                log.error("Erro em tarefa assíncrona {}.{}: {}", method.getDeclaringClass().getSimpleName(),
+                        method.getName(), error.getMessage(), error);
+    }
+}
@@ -0,0 +1,141 @@
+package com.joel.br.AutoClipster.config;
+
+import com.joel.br.AutoClipster.DTO.ExecutorStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executor de tamanho e fila fixos para um estágio do pipeline, com política explícita para
+ * fila cheia e medição do tempo de espera na fila e de execução de cada tarefa.
+ *
+ * Com {@link #virtualThreads} cada tarefa roda na sua própria thread virtual, sem fila: o
+ * tamanho máximo vira apenas um teto de tarefas em andamento e a concorrência real de cada
+ * dependência externa fica a cargo do ConcurrencyLimiter.
+ */
+@Slf4j
+public class InstrumentedTaskExecutor extends ThreadPoolTaskExecutor {
+
+    /**
+     * O que fazer quando todas as threads estão ocupadas e a fila está cheia
+     */
+    public enum QueueFullPolicy {
+        /**
+         * Quem submeteu executa a tarefa, desacelerando o estágio anterior
+         */
+        CALLER_RUNS,
+
+        /**
+         * A submissão falha com TaskRejectedException
+         */
+        ABORT
+    }
+
+    private final String stage;
+    private final QueueFullPolicy queueFullPolicy;
+    private boolean virtual;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder totalRunNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public InstrumentedTaskExecutor(String stage, int threads, int queueCapacity, QueueFullPolicy queueFullPolicy) {
+        this.stage = stage;
+        this.queueFullPolicy = queueFullPolicy;
+
+        setThreadNamePrefix(stage + "-");
+        setCorePoolSize(threads);
+        setMaxPoolSize(threads);
+        setQueueCapacity(queueCapacity);
+        setAllowCoreThreadTimeOut(true);
+        setKeepAliveSeconds(60);
+        setWaitForTasksToCompleteOnShutdown(true);
+        setAwaitTerminationSeconds(30);
+        setRejectedExecutionHandler(countingHandler(queueFullPolicy));
+        setTaskDecorator(this::instrument);
+    }
+
+    /**
+     * Executor de threads virtuais, uma por tarefa, com até maxInFlight tarefas em andamento
+     */
+    public static InstrumentedTaskExecutor virtualThreads(String stage, int maxInFlight, QueueFullPolicy queueFullPolicy) {
+        InstrumentedTaskExecutor executor = new InstrumentedTaskExecutor(stage, maxInFlight, 0, queueFullPolicy);
+        executor.virtual = true;
+        // Sem threads fixas nem reaproveitamento: threads virtuais não devem ficar em pool
+        executor.setCorePoolSize(0);
+        executor.setAllowCoreThreadTimeOut(false);
+        executor.setKeepAliveSeconds(0);
+        executor.setThreadFactory(Thread.ofVirtual().name(stage + "-vt-", 1).factory());
+        return executor;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public ExecutorStats getStats() {
+        ThreadPoolExecutor executor = getThreadPoolExecutor();
+        long finished = completed.sum() + failed.sum();
+        return ExecutorStats.builder()
+                .stage(stage)
+                .queueFullPolicy(queueFullPolicy.name())
+                .virtualThreads(virtual)
+                .poolSize(executor.getPoolSize())
+                .maxPoolSize(executor.getMaximumPoolSize())
+                .activeThreads(executor.getActiveCount())
+                .queued(executor.getQueue().size())
+                .queueRemainingCapacity(executor.getQueue().remainingCapacity())
+                .submitted(submitted.sum())
+                .completed(completed.sum())
+                .failed(failed.sum())
+                .rejected(rejected.sum())
+                .averageQueueWaitMs(finished > 0 ? nanosToMillis(totalWaitNanos.sum()) / finished : 0)
+                .maxQueueWaitMs(nanosToMillis(maxWaitNanos.get()))
+                .averageRunMs(finished > 0 ? nanosToMillis(totalRunNanos.sum()) / finished : 0)
+                .build();
+    }
+
+    private Runnable instrument(Runnable task) {
+        submitted.increment();
+        long enqueuedAt = System.nanoTime();
+        return () -> {
+            long startedAt = System.nanoTime();
+            long waited = startedAt - enqueuedAt;
+            totalWaitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            try {
+                task.run();
+                completed.increment();
+            } catch (RuntimeException | Error e) {
+                failed.increment();
+                throw e;
+            } finally {
+                totalRunNanos.add(System.nanoTime() - startedAt);
+            }
+        };
+    }
+
+    private RejectedExecutionHandler countingHandler(QueueFullPolicy policy) {
+        RejectedExecutionHandler delegate = policy == QueueFullPolicy.CALLER_RUNS
+                ? new ThreadPoolExecutor.CallerRunsPolicy()
+                : new ThreadPoolExecutor.AbortPolicy();
+        return (task, executor) -> {
+            rejected.increment();
+            log.warn("Fila do executor '{}' cheia ({} tarefas), política {}", stage, executor.getQueue().size(), policy);
+            delegate.rejectedExecution(task, executor);
+        };
+    }
+
+    private static double nanosToMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -1,9 +1,14 @@
 package com.joel.br.AutoClipster.controller;
 
 import com.joel.br.AutoClipster.DTO.AutomationStatus;
+import com.joel.br.AutoClipster.DTO.ExecutorStats;
+import com.joel.br.AutoClipster.DTO.QueueStats;
 import com.joel.br.AutoClipster.DTO.WorkflowResult;
+import com.joel.br.AutoClipster.config.InstrumentedTaskExecutor;
+import com.joel.br.AutoClipster.limiter.ConcurrencyLimiter;
 import com.joel.br.AutoClipster.services.WorkflowOrchestrationService;
 import com.joel.br.AutoClipster.services.AutomatedClipProcessingService;
+import com.joel.br.AutoClipster.services.ClipAnalysisQueue;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -25,6 +30,9 @@ public class AutomationController {
 
     private final WorkflowOrchestrationService workflowService;
     private final AutomatedClipProcessingService processingService;
+    private final List<InstrumentedTaskExecutor> executors;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final ClipAnalysisQueue clipAnalysisQueue;
 
     /**
      * Executa o workflow completo para um canal
@@ -108,6 +116,52 @@ public class AutomationController {
         }
     }
 
+    /**
+     * Chamadas em andamento e em espera para cada serviço externo
+     */
+    @GetMapping("/limits")
+    public ResponseEntity<List<ConcurrencyLimiter.Usage>> getConcurrencyLimits() {
+        return ResponseEntity.ok(concurrencyLimiter.getUsage());
+    }
+
+    /**
+     * Fila de análise: identificação deste nó, clips em análise nele e pendentes no total
+     */
+    @GetMapping("/queue")
+    public ResponseEntity<QueueStats> getQueueStats() {
+        return ResponseEntity.ok(clipAnalysisQueue.getStats());
+    }
+
+    /**
+     * Execuções do pipeline em curso e as últimas concluídas, com o andamento de cada clip
+     */
+    @GetMapping("/runs")
+    public ResponseEntity<List<WorkflowResult>> getWorkflowRuns() {
+        return ResponseEntity.ok(workflowService.getWorkflowRuns());
+    }
+
+    /**
+     * Andamento por clip de uma execução do pipeline
+     *
+     * @param runId ID da execução (WorkflowResult.runId)
+     */
+    @GetMapping("/runs/{runId}")
+    public ResponseEntity<WorkflowResult> getWorkflowRun(@PathVariable String runId) {
+        return workflowService.getWorkflowRun(runId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Ocupação, fila, recusas e tempos de espera/execução dos executores de cada estágio
+     */
+    @GetMapping("/executors")
+    public ResponseEntity<List<ExecutorStats>> getExecutorStats() {
+        return ResponseEntity.ok(executors.stream()
+                .map(InstrumentedTaskExecutor::getStats)
+                .toList());
+    }
+
     /**
      * Força o reprocessamento de clips que falharam
      */
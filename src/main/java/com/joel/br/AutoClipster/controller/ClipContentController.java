@@ -0,0 +1,154 @@
+package com.joel.br.AutoClipster.controller;
+
+import com.joel.br.AutoClipster.services.ClipContentService;
+import com.joel.br.AutoClipster.services.ClipContentService.ClipContent;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Entrega o vídeo dos clips baixados (n8n, pré-visualização), com suporte a Range e ETag.
+ *
+ * O corpo não passa pelo heap: com o Tomcat o envio é delegado ao sendfile do sistema operacional;
+ * nos demais containers o arquivo é copiado com {@link FileChannel#transferTo}.
+ */
+@RestController
+@RequestMapping("/api/clips")
+@RequiredArgsConstructor
+@Slf4j
+public class ClipContentController {
+
+    private static final String VIDEO_MIME_TYPE = "video/mp4";
+
+    // Atributos de requisição do Tomcat (org.apache.catalina.Globals)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final ClipContentService clipContentService;
+
+    /**
+     * Endpoint para obter o arquivo de vídeo de um clip
+     *
+     * @param clipId ID do clip na Twitch
+     */
+    @GetMapping("/{clipId}/content")
+    public void getContent(@PathVariable String clipId, HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        ClipContent content = clipContentService.find(clipId).orElse(null);
+        if (content == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Arquivo do clip não encontrado: " + clipId);
+            return;
+        }
+
+        // Responde 304 (If-None-Match / If-Modified-Since) ou 412 (If-Match) e define ETag e Last-Modified
+        if (new ServletWebRequest(request, response).checkNotModified(content.getETag(), content.getLastModified())) {
+            return;
+        }
+
+        response.setContentType(VIDEO_MIME_TYPE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        long size = content.getSize();
+        long start = 0;
+        long end = size - 1;
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && rangeApplies(request, content)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+
+            // Vários intervalos (multipart/byteranges) não são usados por players; o arquivo inteiro é enviado
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.get(0);
+                try {
+                    start = range.getRangeStart(size);
+                    end = range.getRangeEnd(size);
+                } catch (IllegalArgumentException e) {
+                    start = size;
+                }
+                if (start >= size || start > end) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+
+        long length = end - start + 1;
+        response.setContentLengthLong(length);
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+        if (start == 0) {
+            clipContentService.recordAccess(content);
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, content.getPath().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel file = FileChannel.open(content.getPath(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long sent = file.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        } catch (IOException e) {
+            // Cliente fechou a conexão (comum em players que pulam para outro trecho)
+            log.debug("Envio do clip {} interrompido: {}", clipId, e.getMessage());
+        }
+    }
+
+    /**
+     * Com If-Range, o intervalo só vale se o arquivo ainda for o mesmo que o cliente tem
+     */
+    private boolean rangeApplies(HttpServletRequest request, ClipContent content) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Comparação forte: ETags fracos nunca satisfazem If-Range
+            return ifRange.equals(content.getETag());
+        }
+        try {
+            long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return date >= 0 && content.getLastModified() / 1000 <= date / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.joel.br.AutoClipster.controller;
 
+import com.joel.br.AutoClipster.DTO.DownloadProgress;
 import com.joel.br.AutoClipster.DTO.TwitchClipDTO;
 import com.joel.br.AutoClipster.DTO.TwitchUserDTO;
 import com.joel.br.AutoClipster.model.DownloadedClip;
@@ -52,6 +53,14 @@ public class ClipController {
         return ResponseEntity.ok("Download iniciado para " + clipUrl);
     }
     
+    /**
+     * Endpoint para acompanhar os downloads enfileirados ou em andamento
+     */
+    @GetMapping("/downloads/active")
+    public ResponseEntity<List<DownloadProgress>> getActiveDownloads() {
+        return ResponseEntity.ok(clipDownloadService.getActiveDownloads());
+    }
+    
     /**
      * Endpoint para baixar os N clips mais vistos de um canal
      */
@@ -73,10 +82,7 @@ public class ClipController {
         log.info("Baixando os {} clips mais vistos do canal {} entre {} e {}", 
                 limit, channelId, startDate, endDate);
                 
-        return twitchService.getClipsFromChannel(channelId, startDate, endDate)
-                .collectList()
-                .flatMapMany(clips -> clipDownloadService.downloadTopClips(Flux.fromIterable(clips), limit))
-                .next()
+        return clipDownloadService.downloadTopClips(twitchService.getClipsFromChannel(channelId, startDate, endDate), limit)
                 .map(downloadedCount -> ResponseEntity.ok("Download concluído! " + downloadedCount + " clips baixados"))
                 .doOnSuccess(response -> log.info("Download concluído"))
                 .doOnError(error -> log.error("Erro ao baixar clips: {}", error.getMessage()));
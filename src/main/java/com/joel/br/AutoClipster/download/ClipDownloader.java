@@ -0,0 +1,30 @@
+package com.joel.br.AutoClipster.download;
+
+import com.joel.br.AutoClipster.DTO.DownloadProgress;
+import com.joel.br.AutoClipster.DTO.TwitchClipDTO;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Estratégia de download de clips usada pelo ClipDownloadService. A implementação ativa é escolhida
+ * pela propriedade app.download.downloader ("yt-dlp" ou "http").
+ */
+public interface ClipDownloader {
+
+    /**
+     * Baixa o clip para o caminho informado, bloqueando até o arquivo estar completo
+     *
+     * @return Caminho do arquivo baixado e o SHA-256 do seu conteúdo
+     * @throws IOException se o download falhar
+     */
+    DownloadedFile download(TwitchClipDTO clip, Path outputPath) throws IOException;
+
+    /**
+     * @return Andamento dos downloads enfileirados ou em curso
+     */
+    default List<DownloadProgress> getActiveDownloads() {
+        return List.of();
+    }
+}
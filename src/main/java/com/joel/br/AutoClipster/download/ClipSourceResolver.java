@@ -0,0 +1,15 @@
+package com.joel.br.AutoClipster.download;
+
+import com.joel.br.AutoClipster.DTO.TwitchClipDTO;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Descobre a URL direta do arquivo MP4 de um clip, usada pelo {@link HttpRangeClipDownloader}
+ */
+@FunctionalInterface
+public interface ClipSourceResolver {
+
+    URI resolve(TwitchClipDTO clip) throws IOException;
+}
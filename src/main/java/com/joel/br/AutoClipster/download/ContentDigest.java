@@ -0,0 +1,114 @@
+package com.joel.br.AutoClipster.download;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SHA-256 de um arquivo calculado enquanto ele é gravado, mesmo que os trechos cheguem fora de ordem.
+ *
+ * Os bytes que chegam exatamente na posição seguinte ao que já foi resumido entram direto no digest
+ * ({@link #update}), sem nova leitura. Os gravados mais à frente, por outros trechos ou antes de uma
+ * retomada, são lidos de volta do arquivo, ainda no cache de páginas, assim que o que vem antes
+ * deles fica completo ({@link #catchUp}).
+ */
+public final class ContentDigest {
+
+    private static final int READ_BUFFER_BYTES = 1024 * 1024;
+
+    private final MessageDigest digest = newSha256();
+    private long digestedBytes;
+
+    // Não usa synchronized: catchUp lê o arquivo e prenderia a thread portadora de uma thread virtual
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Resume os bytes se eles começam onde o digest parou
+     *
+     * @param position Posição no arquivo do primeiro byte de {@code bytes}
+     * @return false se os bytes estão à frente (ou atrás) do digest e foram ignorados
+     */
+    public boolean update(long position, ByteBuffer bytes) {
+        lock.lock();
+        try {
+            if (position != digestedBytes) {
+                return false;
+            }
+            digestedBytes += bytes.remaining();
+            digest.update(bytes);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lê do arquivo e resume os bytes já gravados entre onde o digest parou e {@code writtenUpTo}
+     *
+     * @param writtenUpTo Fim (exclusivo) do trecho contínuo já gravado a partir do início do arquivo
+     */
+    public void catchUp(FileChannel channel, long writtenUpTo) throws IOException {
+        lock.lock();
+        try {
+            if (writtenUpTo <= digestedBytes) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(READ_BUFFER_BYTES, writtenUpTo - digestedBytes));
+            while (digestedBytes < writtenUpTo) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), writtenUpTo - digestedBytes));
+                int read = channel.read(buffer, digestedBytes);
+                if (read <= 0) {
+                    throw new EOFException("Arquivo terminou no byte " + digestedBytes + " de " + writtenUpTo);
+                }
+                buffer.flip();
+                digest.update(buffer);
+                digestedBytes += read;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Completa o digest até {@code length} e retorna o hash em hexadecimal
+     *
+     * @throws IOException se o digest passou do tamanho do arquivo (bytes lidos e não gravados)
+     */
+    public String finish(FileChannel channel, long length) throws IOException {
+        lock.lock();
+        try {
+            catchUp(channel, length);
+            if (digestedBytes != length) {
+                throw new IOException("Hash cobriu " + digestedBytes + " bytes de um arquivo de " + length);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Calcula o SHA-256 de um arquivo já completo, lendo-o sequencialmente em blocos, sem carregá-lo na memória
+     */
+    public static String of(Path file) throws IOException {
+        ContentDigest digest = new ContentDigest();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return digest.finish(channel, channel.size());
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 não disponível", e);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.joel.br.AutoClipster.download;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Diário de um download em andamento, gravado ao lado do arquivo .part.
+ *
+ * Guarda o tamanho esperado e, para cada trecho, até onde os bytes já estão no disco,
+ * permitindo retomar o download depois de uma reinicialização. O diário só é gravado depois
+ * de sincronizar o .part, então nunca aponta para bytes que não chegaram ao disco.
+ *
+ * Formato (texto):
+ * <pre>
+ * length=3158073
+ * segment=0,789518,524288
+ * segment=789519,1579037,789519
+ * </pre>
+ */
+final class DownloadJournal {
+
+    static final String SUFFIX = ".journal";
+
+    private final Path path;
+
+    @Getter
+    private final long length;
+
+    @Getter
+    private final List<Segment> segments;
+
+    // Não usa synchronized: o checkpoint espera o fsync e prenderia a thread portadora de uma thread virtual
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+
+    private DownloadJournal(Path path, long length, List<Segment> segments) {
+        this.path = path;
+        this.length = length;
+        this.segments = segments;
+    }
+
+    static Path pathFor(Path partPath) {
+        return partPath.resolveSibling(partPath.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Cria um diário novo para os trechos [início, fim] informados
+     */
+    static DownloadJournal create(Path path, long length, List<long[]> ranges) {
+        List<Segment> segments = new ArrayList<>(ranges.size());
+        for (long[] range : ranges) {
+            segments.add(new Segment(range[0], range[1], range[0]));
+        }
+        return new DownloadJournal(path, length, segments);
+    }
+
+    /**
+     * Lê um diário existente
+     *
+     * @return vazio se o arquivo não existe ou está corrompido
+     */
+    static Optional<DownloadJournal> load(Path path) {
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+
+        try {
+            long length = -1;
+            List<Segment> segments = new ArrayList<>();
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                if (line.startsWith("length=")) {
+                    length = Long.parseLong(line.substring("length=".length()).trim());
+                } else if (line.startsWith("segment=")) {
+                    String[] fields = line.substring("segment=".length()).split(",");
+                    long start = Long.parseLong(fields[0].trim());
+                    long end = Long.parseLong(fields[1].trim());
+                    long position = Long.parseLong(fields[2].trim());
+                    if (position < start || position > end + 1) {
+                        return Optional.empty();
+                    }
+                    segments.add(new Segment(start, end, position));
+                }
+            }
+            return length > 0 && !segments.isEmpty()
+                    ? Optional.of(new DownloadJournal(path, length, segments))
+                    : Optional.empty();
+        } catch (IOException | RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return bytes já gravados em todos os trechos
+     */
+    long completedBytes() {
+        return segments.stream().mapToLong(segment -> segment.position - segment.start).sum();
+    }
+
+    /**
+     * Sincroniza os dados do .part e grava as posições atuais. As posições são lidas antes
+     * da sincronização, então o diário nunca fica à frente do que está no disco.
+     */
+    void checkpoint(FileChannel data) throws IOException {
+        checkpointLock.lock();
+        try {
+            write(data);
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    private void write(FileChannel data) throws IOException {
+        StringBuilder content = new StringBuilder("length=").append(length).append('\n');
+        for (Segment segment : segments) {
+            content.append("segment=").append(segment.start).append(',')
+                    .append(segment.end).append(',').append(segment.position).append('\n');
+        }
+
+        data.force(false);
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8)));
+            out.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Trecho [start, end] do arquivo; {@code position} é o próximo byte a gravar
+     */
+    static final class Segment {
+        final long start;
+        final long end;
+        volatile long position;
+
+        Segment(long start, long end, long position) {
+            this.start = start;
+            this.end = end;
+            this.position = position;
+        }
+
+        boolean isComplete() {
+            return position > end;
+        }
+    }
+}
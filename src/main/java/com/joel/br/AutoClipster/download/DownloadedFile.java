@@ -0,0 +1,16 @@
+package com.joel.br.AutoClipster.download;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+/**
+ * Arquivo entregue por um {@link ClipDownloader}, com o SHA-256 calculado durante o download
+ */
+@Getter
+@AllArgsConstructor
+public class DownloadedFile {
+    private final Path path;
+    private final String sha256;
+}
@@ -0,0 +1,46 @@
+package com.joel.br.AutoClipster.download;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Finalização de arquivos que sobrevive a uma queda da JVM ou da máquina:
+ * o conteúdo é sincronizado com o disco antes do rename atômico, e o diretório depois dele.
+ */
+@Slf4j
+public final class DurableFiles {
+
+    private DurableFiles() {
+    }
+
+    /**
+     * Move {@code source} para {@code target} de forma atômica, garantindo que quem enxergar
+     * o arquivo no destino sempre o veja completo
+     */
+    public static void moveDurably(Path source, Path target) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Sincroniza a entrada do diretório (necessário para o rename persistir). Nem todo sistema
+     * permite abrir diretórios (ex: Windows), então a falha é ignorada.
+     */
+    public static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.trace("Não foi possível sincronizar o diretório {}: {}", directory, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.joel.br.AutoClipster.download;
+
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.util.StringUtils;
+
+/**
+ * Ativa o download HTTP direto (app.download.downloader=http) só quando a consulta GQL da Twitch foi
+ * configurada explicitamente: twitch.gql.client-id e twitch.gql.clip-query-hash não têm valor padrão.
+ * Sem eles, {@link Fallback} mantém o yt-dlp.
+ */
+public class HttpDownloaderCondition extends SpringBootCondition {
+
+    @Override
+    public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        Environment environment = context.getEnvironment();
+        if (!"http".equals(environment.getProperty("app.download.downloader", "yt-dlp"))) {
+            return ConditionOutcome.noMatch("app.download.downloader não é http");
+        }
+        if (!StringUtils.hasText(environment.getProperty("twitch.gql.client-id"))
+                || !StringUtils.hasText(environment.getProperty("twitch.gql.clip-query-hash"))) {
+            return ConditionOutcome.noMatch("twitch.gql.client-id ou twitch.gql.clip-query-hash não configurado");
+        }
+        return ConditionOutcome.match("download HTTP configurado");
+    }
+
+    /**
+     * Usa o yt-dlp sempre que o download HTTP não estiver ativo
+     */
+    public static class Fallback extends SpringBootCondition {
+
+        private final HttpDownloaderCondition http = new HttpDownloaderCondition();
+
+        @Override
+        public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            ConditionOutcome outcome = http.getMatchOutcome(context, metadata);
+            return outcome.isMatch()
+                    ? ConditionOutcome.noMatch("download HTTP configurado")
+                    : ConditionOutcome.match(outcome.getMessage());
+        }
+    }
+}
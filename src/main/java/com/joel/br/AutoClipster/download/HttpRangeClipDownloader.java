@@ -0,0 +1,492 @@
+package com.joel.br.AutoClipster.download;
+
+import com.joel.br.AutoClipster.DTO.DownloadProgress;
+import com.joel.br.AutoClipster.DTO.TwitchClipDTO;
+import com.joel.br.AutoClipster.download.DownloadJournal.Segment;
+import com.joel.br.AutoClipster.enums.DownloadState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Baixa o MP4 do clip diretamente, sem processos externos. Ativado com app.download.downloader=http.
+ *
+ * O arquivo é pré-alocado e dividido em trechos baixados em paralelo com requisições HTTP Range,
+ * cada um gravado na sua posição com {@link FileChannel#transferFrom}. Não é zero-copy: o corpo chega
+ * pelo InputStream do HttpClient e o transferFrom o copia por um buffer na heap antes de gravar.
+ * Se a conexão de um trecho cair, o trecho é retomado a partir do último byte gravado.
+ *
+ * O SHA-256 é calculado durante o download por um {@link ContentDigest}: o trecho que está na frente do
+ * hash o alimenta com os bytes lidos da rede, e os demais são resumidos do cache de páginas logo que o
+ * trecho anterior termina, sem uma segunda leitura completa do arquivo depois do download.
+ *
+ * O download é feito em um arquivo .part acompanhado de um {@link DownloadJournal}; se a JVM
+ * reiniciar no meio, o próximo download do mesmo clip continua de onde o diário parou. O arquivo
+ * só aparece no destino final depois de completo, sincronizado e renomeado atomicamente.
+ */
+@Component
+@Conditional(HttpDownloaderCondition.class)
+@Slf4j
+public class HttpRangeClipDownloader implements ClipDownloader, AutoCloseable {
+
+    private static final Pattern CONTENT_RANGE_TOTAL = Pattern.compile("^bytes\\s+\\d+-\\d+/(\\d+)$");
+    /**
+     * Bytes por chamada a transferFrom. Se a conexão cair no meio de uma chamada, o que ela já gravou
+     * não é contabilizado, então no máximo esse volume é baixado de novo na retomada.
+     */
+    private static final long TRANSFER_CHUNK_BYTES = 64 * 1024;
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * Volume gravado entre atualizações do diário; é o máximo a baixar de novo após uma queda da JVM
+     */
+    private static final long CHECKPOINT_INTERVAL_BYTES = 4 * 1024 * 1024;
+
+    private final ClipSourceResolver sourceResolver;
+    private final int connections;
+    private final long minSegmentBytes;
+    private final int maxRetries;
+    private final Duration downloadTimeout;
+
+    private final HttpClient httpClient;
+    private final ExecutorService segmentExecutor;
+    // Andamento por download, e não por URL: dois pedidos do mesmo clip não se sobrescrevem
+    private final Map<Long, DownloadProgress> progress = new ConcurrentHashMap<>();
+    private final AtomicLong downloadIds = new AtomicLong();
+
+    /**
+     * @param sourceResolver Descobre a URL do MP4
+     * @param connections Máximo de requisições Range simultâneas por clip
+     * @param minSegmentBytes Tamanho mínimo de cada trecho; arquivos pequenos usam menos conexões
+     * @param maxRetries Quantas vezes cada trecho pode ser retomado após uma falha
+     * @param downloadTimeoutSeconds Tempo máximo do download completo
+     */
+    public HttpRangeClipDownloader(ClipSourceResolver sourceResolver,
+                                   @Value("${app.download.http.connections:4}") int connections,
+                                   @Value("${app.download.http.min-segment-bytes:1048576}") long minSegmentBytes,
+                                   @Value("${app.download.http.max-retries:3}") int maxRetries,
+                                   @Value("${app.download.timeout:300}") int downloadTimeoutSeconds) {
+        this.sourceResolver = sourceResolver;
+        this.connections = Math.max(1, connections);
+        this.minSegmentBytes = Math.max(1, minSegmentBytes);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.downloadTimeout = Duration.ofSeconds(downloadTimeoutSeconds);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.segmentExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "http-range-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .executor(segmentExecutor)
+                .build();
+    }
+
+    @Override
+    @PreDestroy
+    public void close() {
+        segmentExecutor.shutdownNow();
+    }
+
+    @Override
+    public DownloadedFile download(TwitchClipDTO clip, Path outputPath) throws IOException {
+        URI source = sourceResolver.resolve(clip);
+        Path partPath = outputPath.resolveSibling(outputPath.getFileName() + ".part");
+        Files.createDirectories(outputPath.toAbsolutePath().getParent());
+
+        String url = clip.getUrl() != null ? clip.getUrl() : source.toString();
+        long downloadId = downloadIds.incrementAndGet();
+        progress.put(downloadId, DownloadProgress.builder()
+                .url(url)
+                .outputPath(outputPath.toString())
+                .state(DownloadState.DOWNLOADING)
+                .startedAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build());
+
+        Path journalPath = DownloadJournal.pathFor(partPath);
+        ContentDigest digest = new ContentDigest();
+        String sha256;
+        try (FileChannel channel = FileChannel.open(partPath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long length = probeLength(source);
+
+            if (length > 0) {
+                DownloadJournal journal = resumeOrCreate(journalPath, channel, length);
+                Transfer transfer = new Transfer(source, channel, downloadId, url, length, journal,
+                        journal.getSegments(), digest);
+                transfer.run(journal.getSegments().stream().filter(segment -> !segment.isComplete()).toList());
+                sha256 = digest.finish(channel, length);
+            } else {
+                // Servidor sem suporte a Range ou sem tamanho conhecido: um único stream, sem retomada
+                Files.deleteIfExists(journalPath);
+                channel.truncate(0);
+                Segment whole = new Segment(0, Long.MAX_VALUE - 1, 0);
+                Transfer transfer = new Transfer(source, channel, downloadId, url, -1, null, List.of(whole), digest);
+                transfer.run(List.of(whole));
+                sha256 = digest.finish(channel, channel.size());
+            }
+        } finally {
+            progress.remove(downloadId);
+        }
+
+        // Se a JVM cair entre o rename e a remoção do diário, a reconciliação remove o diário órfão
+        DurableFiles.moveDurably(partPath, outputPath);
+        Files.deleteIfExists(journalPath);
+        log.info("Download concluído com sucesso: {} ({} bytes)", outputPath, Files.size(outputPath));
+        return new DownloadedFile(outputPath, sha256);
+    }
+
+    @Override
+    public List<DownloadProgress> getActiveDownloads() {
+        return new ArrayList<>(progress.values());
+    }
+
+    /**
+     * Descobre o tamanho do arquivo com um Range de 1 byte
+     *
+     * @return Tamanho em bytes, ou -1 se o servidor não aceitar Range
+     */
+    private long probeLength(URI source) throws IOException {
+        HttpResponse<InputStream> response = send(HttpRequest.newBuilder(source)
+                .header("Range", "bytes=0-0")
+                .timeout(CONNECT_TIMEOUT)
+                .build());
+        try (InputStream ignored = response.body()) {
+            if (response.statusCode() == 206) {
+                Matcher matcher = CONTENT_RANGE_TOTAL.matcher(
+                        response.headers().firstValue("Content-Range").orElse("").trim());
+                if (matcher.matches()) {
+                    return Long.parseLong(matcher.group(1));
+                }
+            } else if (response.statusCode() != 200) {
+                throw new IOException("HTTP " + response.statusCode() + " ao acessar " + source.getHost());
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Divide o arquivo em até {@code connections} trechos de pelo menos {@code minSegmentBytes}
+     *
+     * @return Pares [início, fim] inclusivos
+     */
+    private List<long[]> split(long length) {
+        int segments = (int) Math.max(1, Math.min(connections, (length + minSegmentBytes - 1) / minSegmentBytes));
+        long segmentSize = (length + segments - 1) / segments;
+
+        List<long[]> ranges = new ArrayList<>(segments);
+        for (long start = 0; start < length; start += segmentSize) {
+            ranges.add(new long[]{start, Math.min(length, start + segmentSize) - 1});
+        }
+        return ranges;
+    }
+
+    /**
+     * Retoma o download a partir do diário, se ele corresponder ao arquivo atual, ou começa do zero
+     */
+    private DownloadJournal resumeOrCreate(Path journalPath, FileChannel channel, long length) throws IOException {
+        Optional<DownloadJournal> existing = DownloadJournal.load(journalPath)
+                .filter(journal -> journal.getLength() == length);
+        if (existing.isPresent() && channel.size() == length) {
+            log.info("Retomando download de {}: {} de {} bytes já gravados",
+                    journalPath.getFileName(), existing.get().completedBytes(), length);
+            return existing.get();
+        }
+
+        preallocate(channel, length);
+        DownloadJournal journal = DownloadJournal.create(journalPath, length, split(length));
+        journal.checkpoint(channel);
+        return journal;
+    }
+
+    private void preallocate(FileChannel channel, long length) throws IOException {
+        if (channel.size() > length) {
+            channel.truncate(length);
+        } else if (channel.size() < length) {
+            // Estende o arquivo até o tamanho final; os trechos sobrescrevem cada posição
+            channel.write(ByteBuffer.allocate(1), length - 1);
+        }
+    }
+
+    private HttpResponse<InputStream> send(HttpRequest request) throws IOException {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Download interrompido: " + request.uri().getHost());
+        }
+    }
+
+    /**
+     * Download de um arquivo em andamento, compartilhado pelos trechos
+     */
+    private final class Transfer {
+        private final URI source;
+        private final FileChannel channel;
+        private final long downloadId;
+        private final String url;
+        private final long length;
+        private final DownloadJournal journal;
+        private final List<Segment> segments;
+        private final ContentDigest digest;
+        private final AtomicLong bytesWritten = new AtomicLong();
+        private final AtomicLong bytesSinceCheckpoint = new AtomicLong();
+        private final AtomicBoolean aborted = new AtomicBoolean();
+        private final Set<Closeable> openBodies = ConcurrentHashMap.newKeySet();
+
+        /**
+         * @param journal Diário do download, ou null quando o tamanho é desconhecido
+         * @param segments Todos os trechos do arquivo, em ordem, inclusive os já completos
+         */
+        private Transfer(URI source, FileChannel channel, long downloadId, String url, long length,
+                         DownloadJournal journal, List<Segment> segments, ContentDigest digest) {
+            this.source = source;
+            this.channel = channel;
+            this.downloadId = downloadId;
+            this.url = url;
+            this.length = length;
+            this.journal = journal;
+            this.segments = segments;
+            this.digest = digest;
+            if (journal != null) {
+                bytesWritten.set(journal.completedBytes());
+            }
+        }
+
+        private void run(List<Segment> pending) throws IOException {
+            // Bytes de uma execução anterior, retomada pelo diário
+            digest.catchUp(channel, contiguousEnd());
+            List<CompletableFuture<Void>> segments = pending.stream()
+                    .map(segment -> CompletableFuture.runAsync(() -> {
+                        try {
+                            downloadSegment(segment);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, segmentExecutor))
+                    .toList();
+
+            try {
+                CompletableFuture.allOf(segments.toArray(CompletableFuture[]::new))
+                        .get(downloadTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                abort();
+                checkpointQuietly();
+                throw new IOException("Timeout de " + downloadTimeout.toSeconds() + "s ao baixar " + url);
+            } catch (InterruptedException e) {
+                abort();
+                checkpointQuietly();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Download interrompido: " + url);
+            } catch (ExecutionException e) {
+                abort();
+                checkpointQuietly();
+                Throwable cause = e.getCause() instanceof UncheckedIOException unchecked ? unchecked.getCause() : e.getCause();
+                throw cause instanceof IOException io ? io : new IOException(cause.getMessage(), cause);
+            }
+        }
+
+        /**
+         * Baixa o trecho a partir da sua posição atual, retomando do último byte gravado quando a conexão falha
+         */
+        private void downloadSegment(Segment segment) throws IOException {
+            long start = segment.start;
+            long end = segment.end;
+            long position = segment.position;
+            int failures = 0;
+            boolean ranged = length > 0;
+
+            while (position <= end) {
+                try {
+                    HttpRequest.Builder request = HttpRequest.newBuilder(source).timeout(CONNECT_TIMEOUT);
+                    if (ranged) {
+                        request.header("Range", "bytes=" + position + "-" + end);
+                    }
+                    HttpResponse<InputStream> response = send(request.build());
+                    int expectedStatus = ranged ? 206 : 200;
+                    if (response.statusCode() != expectedStatus) {
+                        response.body().close();
+                        throw new IOException("HTTP " + response.statusCode() + " no trecho " + position + "-" + end);
+                    }
+
+                    InputStream body = response.body();
+                    openBodies.add(body);
+                    try (ReadableByteChannel in = new DigestingChannel(Channels.newChannel(body), position)) {
+                        while (position <= end && !aborted.get()) {
+                            long written = channel.transferFrom(in, position,
+                                    Math.min(TRANSFER_CHUNK_BYTES, end + 1 - position));
+                            if (written <= 0) {
+                                break;
+                            }
+                            position += written;
+                            segment.position = position;
+                            digest.catchUp(channel, contiguousEnd());
+                            reportProgress(bytesWritten.addAndGet(written));
+                            maybeCheckpoint(written);
+                        }
+                    } finally {
+                        openBodies.remove(body);
+                    }
+
+                    if (aborted.get()) {
+                        throw new IOException("Download cancelado");
+                    }
+                    if (!ranged) {
+                        return;
+                    }
+                    if (position <= end) {
+                        throw new IOException("Conexão encerrada no byte " + position + " do trecho " + start + "-" + end);
+                    }
+                } catch (IOException e) {
+                    if (aborted.get() || !ranged || ++failures > maxRetries) {
+                        throw e;
+                    }
+                    log.warn("Retomando trecho {}-{} de {} a partir do byte {} (tentativa {}): {}",
+                            start, end, url, position, failures, e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * Fim (exclusivo) da parte contínua já gravada a partir do início do arquivo
+         */
+        private long contiguousEnd() {
+            long end = 0;
+            for (Segment segment : segments) {
+                if (segment.start > end) {
+                    break;
+                }
+                end = segment.position;
+                if (!segment.isComplete()) {
+                    break;
+                }
+            }
+            return end;
+        }
+
+        /**
+         * Corpo da resposta que entrega ao digest os bytes lidos quando eles são os próximos do arquivo,
+         * antes mesmo de serem gravados
+         */
+        private final class DigestingChannel implements ReadableByteChannel {
+            private final ReadableByteChannel body;
+            private long position;
+
+            private DigestingChannel(ReadableByteChannel body, long position) {
+                this.body = body;
+                this.position = position;
+            }
+
+            @Override
+            public int read(ByteBuffer destination) throws IOException {
+                int start = destination.position();
+                int read = body.read(destination);
+                if (read > 0) {
+                    ByteBuffer bytes = destination.duplicate();
+                    bytes.limit(start + read).position(start);
+                    digest.update(position, bytes);
+                    position += read;
+                }
+                return read;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return body.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                body.close();
+            }
+        }
+
+        /**
+         * Atualiza o diário a cada {@link #CHECKPOINT_INTERVAL_BYTES} gravados, somando todos os trechos
+         */
+        private void maybeCheckpoint(long written) throws IOException {
+            if (journal != null && bytesSinceCheckpoint.addAndGet(written) >= CHECKPOINT_INTERVAL_BYTES) {
+                bytesSinceCheckpoint.set(0);
+                journal.checkpoint(channel);
+            }
+        }
+
+        /**
+         * Grava as posições alcançadas antes de uma falha, para que a próxima tentativa continue daí
+         */
+        private void checkpointQuietly() {
+            if (journal == null) {
+                return;
+            }
+            try {
+                journal.checkpoint(channel);
+            } catch (IOException e) {
+                log.warn("Não foi possível atualizar o diário de {}: {}", url, e.getMessage());
+            }
+        }
+
+        private void reportProgress(long written) {
+            double percent = length > 0 ? Math.min(100.0, written * 100.0 / length) : 0;
+            progress.computeIfPresent(downloadId, (id, current) -> current.toBuilder()
+                    .percent(percent)
+                    .updatedAt(LocalDateTime.now())
+                    .build());
+        }
+
+        /**
+         * Interrompe os trechos restantes, fechando as conexões bloqueadas em leitura
+         */
+        private void abort() {
+            aborted.set(true);
+            for (Closeable body : openBodies) {
+                try {
+                    body.close();
+                } catch (IOException ignored) {
+                    // A conexão já estava fechada
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.joel.br.AutoClipster.download;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Supervisiona processos externos sem bloquear quem os iniciou.
+ *
+ * A saída é lida por uma thread própria e entregue linha a linha, e o fim do processo é observado
+ * por {@link Process#onExit()}. Um watchdog encerra a árvore inteira do processo (incluindo filhos,
+ * como o ffmpeg iniciado pelo yt-dlp) quando o tempo total estoura ou quando nenhum progresso é
+ * reportado dentro do limite de travamento.
+ */
+@Slf4j
+public class ProcessSupervisor implements AutoCloseable {
+
+    /**
+     * Tempo máximo para terminar de ler a saída depois que o processo principal saiu.
+     * Um neto que herdou o pipe poderia mantê-lo aberto indefinidamente.
+     */
+    private static final Duration OUTPUT_DRAIN_TIMEOUT = Duration.ofSeconds(5);
+
+    private final ScheduledExecutorService watchdog;
+    private final AtomicInteger pumpCounter = new AtomicInteger();
+
+    public ProcessSupervisor() {
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "process-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Inicia o processo com stderr redirecionado para stdout
+     *
+     * @param builder Comando a executar
+     * @param onLine Recebe cada linha da saída, na thread de leitura
+     * @param wallClockTimeout Duração máxima do processo
+     * @param stallTimeout Tempo máximo sem chamadas a {@link SupervisedProcess#progress()}
+     */
+    public SupervisedProcess start(ProcessBuilder builder, Consumer<String> onLine,
+                                   Duration wallClockTimeout, Duration stallTimeout) throws IOException {
+        return supervise(builder.redirectErrorStream(true).start(), onLine, wallClockTimeout, stallTimeout);
+    }
+
+    /**
+     * Passa a supervisionar um processo já iniciado (ex: um que esperava a entrada padrão). Os prazos
+     * contam a partir daqui, e não do início do processo.
+     *
+     * @see #start(ProcessBuilder, Consumer, Duration, Duration)
+     */
+    public SupervisedProcess supervise(Process process, Consumer<String> onLine,
+                                       Duration wallClockTimeout, Duration stallTimeout) {
+        SupervisedProcess supervised = new SupervisedProcess(process);
+
+        CompletableFuture<Void> outputDrained = new CompletableFuture<>();
+        Thread pump = new Thread(() -> pumpOutput(process, onLine, outputDrained),
+                "process-output-" + pumpCounter.incrementAndGet());
+        pump.setDaemon(true);
+        pump.start();
+
+        long checkMillis = Math.max(50, Math.min(1000, stallTimeout.toMillis() / 4));
+        ScheduledFuture<?> check = watchdog.scheduleAtFixedRate(
+                () -> supervised.checkTimeouts(wallClockTimeout, stallTimeout),
+                checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+
+        process.onExit()
+                .thenCompose(exited -> outputDrained.completeOnTimeout(null,
+                        OUTPUT_DRAIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS))
+                .whenComplete((ignored, error) -> {
+                    check.cancel(false);
+                    Termination termination = supervised.killedFor != null ? supervised.killedFor : Termination.EXITED;
+                    supervised.outcome.complete(new Outcome(process.exitValue(), termination));
+                });
+
+        return supervised;
+    }
+
+    @Override
+    public void close() {
+        watchdog.shutdownNow();
+    }
+
+    private void pumpOutput(Process process, Consumer<String> onLine, CompletableFuture<Void> drained) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    onLine.accept(line);
+                } catch (Exception e) {
+                    log.warn("Erro ao processar saída do processo {}: {}", process.pid(), e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            // O pipe é fechado quando o processo é encerrado à força
+            log.debug("Leitura da saída do processo {} interrompida: {}", process.pid(), e.getMessage());
+        } finally {
+            drained.complete(null);
+        }
+    }
+
+    /**
+     * Motivo pelo qual o processo terminou
+     */
+    public enum Termination {
+        EXITED,
+        WALL_CLOCK_TIMEOUT,
+        STALLED,
+        KILLED
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Outcome {
+        private final int exitCode;
+        private final Termination termination;
+
+        /**
+         * @return true se o processo foi encerrado pelo supervisor
+         */
+        public boolean isKilled() {
+            return termination != Termination.EXITED;
+        }
+    }
+
+    public static class SupervisedProcess {
+        private final Process process;
+        private final long startedAt = System.nanoTime();
+        private final CompletableFuture<Outcome> outcome = new CompletableFuture<>();
+        private volatile long lastProgressAt = startedAt;
+        private volatile Termination killedFor;
+
+        private SupervisedProcess(Process process) {
+            this.process = process;
+        }
+
+        /**
+         * Registra que o processo avançou, reiniciando o prazo de travamento
+         */
+        public void progress() {
+            lastProgressAt = System.nanoTime();
+        }
+
+        /**
+         * @return Future completado quando o processo saiu e toda a saída foi entregue
+         */
+        public CompletableFuture<Outcome> onExit() {
+            return outcome;
+        }
+
+        public long pid() {
+            return process.pid();
+        }
+
+        /**
+         * Encerra à força o processo e todos os seus descendentes
+         */
+        public synchronized void kill(Termination reason) {
+            if (killedFor != null || !process.isAlive()) {
+                return;
+            }
+            killedFor = reason;
+
+            // Os descendentes precisam ser coletados antes: depois que o pai morre eles são reparentados
+            List<ProcessHandle> descendants = process.descendants().toList();
+            process.destroyForcibly();
+            descendants.forEach(ProcessHandle::destroyForcibly);
+            log.warn("Processo {} encerrado ({}) junto com {} descendentes", process.pid(), reason, descendants.size());
+        }
+
+        private void checkTimeouts(Duration wallClockTimeout, Duration stallTimeout) {
+            long now = System.nanoTime();
+            if (now - startedAt > wallClockTimeout.toNanos()) {
+                kill(Termination.WALL_CLOCK_TIMEOUT);
+            } else if (now - lastProgressAt > stallTimeout.toNanos()) {
+                kill(Termination.STALLED);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.joel.br.AutoClipster.download;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.joel.br.AutoClipster.DTO.TwitchClipDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Obtém a URL assinada do MP4 de um clip pela API GQL da Twitch (a mesma usada pelo player web),
+ * escolhendo a maior qualidade disponível. O Client-ID e o hash da consulta persistida precisam ser
+ * configurados (twitch.gql.*); ver {@link HttpDownloaderCondition}.
+ */
+@Component
+@Conditional(HttpDownloaderCondition.class)
+@Slf4j
+public class TwitchClipSourceResolver implements ClipSourceResolver {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(15);
+
+    private final WebClient webClient;
+    private final String clipQueryHash;
+
+    public TwitchClipSourceResolver(WebClient.Builder webClientBuilder,
+                                    @Value("${twitch.gql.client-id}") String gqlClientId,
+                                    @Value("${twitch.gql.clip-query-hash}") String clipQueryHash) {
+        this.clipQueryHash = clipQueryHash;
+        this.webClient = webClientBuilder
+                .baseUrl("https://gql.twitch.tv")
+                .defaultHeader("Client-ID", gqlClientId)
+                .build();
+    }
+
+    @Override
+    public URI resolve(TwitchClipDTO clip) throws IOException {
+        Map<String, Object> query = Map.of(
+                "operationName", "VideoAccessToken_Clip",
+                "variables", Map.of("slug", clip.getId()),
+                "extensions", Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", clipQueryHash)));
+
+        JsonNode response;
+        try {
+            response = webClient.post()
+                    .uri("/gql")
+                    .bodyValue(List.of(query))
+                    .retrieve()
+                    .bodyToMono(JsonNode.class)
+                    .block(REQUEST_TIMEOUT);
+        } catch (RuntimeException e) {
+            throw new IOException("Erro ao consultar a origem do clip " + clip.getId() + ": " + e.getMessage(), e);
+        }
+
+        JsonNode clipNode = response != null ? response.path(0).path("data").path("clip") : null;
+        if (clipNode == null || clipNode.isMissingNode() || clipNode.isNull()) {
+            throw new IOException("Clip não encontrado na Twitch: " + clip.getId());
+        }
+
+        JsonNode best = null;
+        for (JsonNode quality : clipNode.path("videoQualities")) {
+            if (best == null || quality.path("quality").asInt() > best.path("quality").asInt()) {
+                best = quality;
+            }
+        }
+        JsonNode token = clipNode.path("playbackAccessToken");
+        if (best == null || token.isMissingNode()) {
+            throw new IOException("Nenhuma fonte MP4 disponível para o clip " + clip.getId());
+        }
+
+        log.debug("Fonte do clip {}: {}p", clip.getId(), best.path("quality").asText());
+        return URI.create(best.path("sourceURL").asText()
+                + "?sig=" + token.path("signature").asText()
+                + "&token=" + URLEncoder.encode(token.path("value").asText(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,184 @@
+package com.joel.br.AutoClipster.download;
+
+import com.joel.br.AutoClipster.DTO.DownloadProgress;
+import com.joel.br.AutoClipster.DTO.TwitchClipDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Baixa clips com o yt-dlp, através de um {@link YtDlpWorkerPool}. Padrão quando
+ * app.download.downloader não é configurado, e usado também quando ele é http mas a consulta GQL da
+ * Twitch não foi configurada.
+ */
+@Component
+@Conditional(HttpDownloaderCondition.Fallback.class)
+@RequiredArgsConstructor
+@Slf4j
+public class YtDlpClipDownloader implements ClipDownloader {
+
+    private final ResourceLoader resourceLoader;
+
+    @Value("${app.clips.download-path:./downloads}")
+    private String downloadPath;
+
+    @Value("${app.download.downloader:yt-dlp}")
+    private String downloader;
+
+    @Value("${app.download.timeout:300}")
+    private int downloadTimeout;
+
+    @Value("${app.download.stall-timeout:60}")
+    private int downloadStallTimeout;
+
+    /**
+     * 0 = um processo por lote de downloads simultâneos (ver {@link #workerCount()})
+     */
+    @Value("${app.download.ytdlp.workers:0}")
+    private int workers;
+
+    @Value("${app.download.max-concurrent:3}")
+    private int maxConcurrentDownloads;
+
+    @Value("${app.limits.download.max-concurrent:16}")
+    private int downloadCallLimit;
+
+    @Value("${app.executor.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    @Value("${app.download.ytdlp.batch-size:5}")
+    private int batchSize;
+
+    @Value("${app.download.ytdlp.batch-window-ms:250}")
+    private long batchWindowMs;
+
+    @Value("${app.download.ytdlp.max-attempts:2}")
+    private int maxAttempts;
+
+    private YtDlpWorkerPool pool;
+
+    @PostConstruct
+    public void initialize() throws IOException {
+        if ("http".equals(downloader)) {
+            log.warn("app.download.downloader=http exige twitch.gql.client-id e twitch.gql.clip-query-hash; usando o yt-dlp");
+        }
+        pool = new YtDlpWorkerPool(setupYtDlp(), Paths.get(downloadPath, ".yt-dlp"), workerCount(), batchSize,
+                Duration.ofMillis(batchWindowMs), maxAttempts,
+                Duration.ofSeconds(downloadTimeout), Duration.ofSeconds(downloadStallTimeout));
+    }
+
+    /**
+     * Processos yt-dlp simultâneos. Por padrão, o suficiente para os downloads que podem chegar ao mesmo
+     * tempo caberem em lotes cheios: os threads do executor de downloads (app.download.max-concurrent), ou as
+     * threads virtuais, limitados pela vaga da dependência DOWNLOAD (app.limits.download.max-concurrent),
+     * divididos por batch-size. Com um worker por download, todo pedido encontraria um worker ocioso e
+     * nenhum lote teria mais de uma URL.
+     */
+    int workerCount() {
+        if (workers > 0) {
+            return workers;
+        }
+        int concurrent = virtualThreads ? downloadCallLimit : Math.min(maxConcurrentDownloads, downloadCallLimit);
+        return defaultWorkerCount(concurrent, batchSize);
+    }
+
+    static int defaultWorkerCount(int concurrentDownloads, int batchSize) {
+        int perProcess = Math.max(1, batchSize);
+        return Math.max(1, (concurrentDownloads + perProcess - 1) / perProcess);
+    }
+
+    /**
+     * Um clip pode esperar o lote inteiro do seu processo, em cada tentativa, mais uma janela na fila
+     */
+    Duration resultTimeout() {
+        return Duration.ofSeconds(downloadTimeout)
+                .multipliedBy(Math.max(1, batchSize))
+                .multipliedBy(Math.max(1, maxAttempts) + 1L);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    /**
+     * Os bytes são gravados pelo próprio yt-dlp e não passam pela aplicação: o SHA-256 é calculado aqui,
+     * logo depois do download, enquanto o arquivo ainda está no cache de páginas
+     */
+    @Override
+    public DownloadedFile download(TwitchClipDTO clip, Path outputPath) throws IOException {
+        log.info("Enviando para o yt-dlp: {} para {}", clip.getUrl(), outputPath);
+        CompletableFuture<Path> result = pool.submit(clip.getUrl(), outputPath);
+        try {
+            // O pool encerra processos que estouram app.download.timeout ou app.download.stall-timeout;
+            // o limite aqui cobre as tentativas mais uma janela de espera na fila, caso o pool trave
+            Path downloaded = result.get(resultTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            return new DownloadedFile(downloaded, ContentDigest.of(downloaded));
+        } catch (InterruptedException e) {
+            result.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Download interrompido: " + clip.getUrl());
+        } catch (TimeoutException e) {
+            // Um pedido ainda na fila é descartado pelo pool ao ser cancelado
+            result.cancel(false);
+            throw new IOException("yt-dlp não concluiu " + clip.getUrl() + " em " + resultTimeout().toSeconds() + "s");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Erro ao executar yt-dlp: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @Override
+    public List<DownloadProgress> getActiveDownloads() {
+        return pool != null ? pool.getActiveDownloads() : List.of();
+    }
+
+    /**
+     * Configura o yt-dlp.exe, copiando-o do classpath para um local temporário se necessário
+     *
+     * @return Caminho do executável
+     */
+    private String setupYtDlp() throws IOException {
+        // Tentar usar o yt-dlp.exe do classpath
+        Resource ytDlpResource = resourceLoader.getResource("classpath:yt-dlp.exe");
+        if (ytDlpResource.exists()) {
+            File tempDir = new File(System.getProperty("java.io.tmpdir"), "autoclipster");
+            tempDir.mkdirs();
+
+            File ytDlpFile = new File(tempDir, "yt-dlp.exe");
+            Files.copy(ytDlpResource.getInputStream(), ytDlpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            ytDlpFile.setExecutable(true);
+
+            log.info("yt-dlp.exe configurado em: {}", ytDlpFile.getAbsolutePath());
+            return ytDlpFile.getAbsolutePath();
+        }
+
+        // Fallback para 'yt-dlp' no PATH
+        log.warn("yt-dlp.exe não encontrado no classpath, usando comando 'yt-dlp' do PATH");
+        return "yt-dlp";
+    }
+}
@@ -0,0 +1,488 @@
+package com.joel.br.AutoClipster.download;
+
+import com.joel.br.AutoClipster.DTO.DownloadProgress;
+import com.joel.br.AutoClipster.download.ProcessSupervisor.Outcome;
+import com.joel.br.AutoClipster.download.ProcessSupervisor.SupervisedProcess;
+import com.joel.br.AutoClipster.download.ProcessSupervisor.Termination;
+import com.joel.br.AutoClipster.enums.DownloadState;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pool de workers do yt-dlp que agrupa vários clips em uma única execução.
+ *
+ * A inicialização do yt-dlp (interpretador + extratores) costuma levar mais tempo que o download
+ * de um clip curto, então cada worker junta os pedidos que chegam dentro de uma janela curta e
+ * os entrega de uma vez pela entrada padrão (--batch-file -). Um processo baixa as URLs do lote uma
+ * após a outra, então só entra no lote o excedente: enquanto houver worker ocioso, o próximo pedido
+ * fica para ele. Por isso o pool deve ter menos workers do que chamadores simultâneos.
+ *
+ * O yt-dlp lê o arquivo de lote inteiro antes de começar, então um processo não recebe URLs depois de
+ * iniciado. Em vez disso, cada worker inicia o seu próximo processo assim que fica livre: a inicialização
+ * acontece enquanto ele espera pedidos, e o processo fica parado lendo a entrada padrão até o lote chegar.
+ * A conclusão de cada URL é lida da saída do processo (--print after_move), permitindo completar
+ * cada pedido assim que o respectivo arquivo fica pronto.
+ * Cada processo é acompanhado por um {@link ProcessSupervisor}: as linhas "[download] xx%"
+ * alimentam o andamento de cada clip, e o processo é encerrado se estourar o tempo do lote ou
+ * ficar sem progresso. Se o processo morrer ou for encerrado no meio do lote, os pedidos pendentes
+ * voltam para a fila e o worker inicia um novo processo no próximo lote.
+ */
+@Slf4j
+public class YtDlpWorkerPool implements AutoCloseable {
+
+    static final String START_MARKER = "AUTOCLIPSTER_START";
+    static final String DONE_MARKER = "AUTOCLIPSTER_DONE";
+
+    private static final Pattern PROGRESS_PATTERN = Pattern.compile("^\\[download\\]\\s+(\\d+(?:\\.\\d+)?)%");
+
+    private static final String FORMAT = "bestvideo[ext=mp4]+bestaudio[ext=m4a]/best[ext=mp4]/best";
+
+    private final String executable;
+    private final Path workDir;
+    private final int batchSize;
+    private final Duration batchWindow;
+    private final int maxAttempts;
+    private final Duration jobTimeout;
+    private final Duration stallTimeout;
+    private final ProcessSupervisor supervisor = new ProcessSupervisor();
+
+    private final BlockingQueue<Job> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> workers = new ArrayList<>();
+    // Workers esperando o próximo pedido (ou ainda iniciando)
+    private final AtomicInteger idleWorkers = new AtomicInteger();
+    private final Map<Thread, SupervisedProcess> runningProcesses = new ConcurrentHashMap<>();
+    // Processos já iniciados, esperando o próximo lote na entrada padrão
+    private final Map<Thread, Process> warmProcesses = new ConcurrentHashMap<>();
+    // Por pedido, não por URL: a mesma URL pode ser pedida de novo (outro destino) antes de a primeira terminar
+    private final Map<Long, DownloadProgress> progress = new ConcurrentHashMap<>();
+    private final AtomicLong jobIds = new AtomicLong();
+    private volatile boolean running = true;
+
+    /**
+     * @param executable Caminho do yt-dlp
+     * @param workDir Diretório dos downloads em andamento; deve estar no mesmo disco do destino final
+     * @param workerCount Número de processos yt-dlp simultâneos
+     * @param batchSize Máximo de URLs entregues a um processo
+     * @param batchWindow Tempo máximo de espera por mais URLs antes de iniciar um lote
+     * @param maxAttempts Tentativas por URL quando o processo morre ou é encerrado no meio do lote
+     * @param jobTimeout Tempo máximo por clip; o lote tem jobTimeout vezes o número de clips
+     * @param stallTimeout Tempo máximo sem progresso antes de encerrar o processo
+     */
+    public YtDlpWorkerPool(String executable, Path workDir, int workerCount, int batchSize,
+                           Duration batchWindow, int maxAttempts,
+                           Duration jobTimeout, Duration stallTimeout) throws IOException {
+        this.executable = executable;
+        this.workDir = Files.createDirectories(workDir);
+        this.batchSize = Math.max(1, batchSize);
+        this.batchWindow = batchWindow;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.jobTimeout = jobTimeout;
+        this.stallTimeout = stallTimeout;
+
+        idleWorkers.set(Math.max(1, workerCount));
+        for (int i = 0; i < Math.max(1, workerCount); i++) {
+            Thread worker = new Thread(this::workerLoop, "yt-dlp-worker-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+
+        log.info("Pool do yt-dlp iniciado: {} workers, lotes de até {} URLs", workers.size(), this.batchSize);
+    }
+
+    /**
+     * Agenda o download de uma URL
+     *
+     * @param url URL do clip
+     * @param outputPath Caminho final do arquivo
+     * @return Future completado com o caminho do arquivo baixado
+     */
+    public CompletableFuture<Path> submit(String url, Path outputPath) {
+        CompletableFuture<Path> result = new CompletableFuture<>();
+        if (!running) {
+            result.completeExceptionally(new IllegalStateException("Pool do yt-dlp encerrado"));
+            return result;
+        }
+        long id = jobIds.incrementAndGet();
+        progress.put(id, DownloadProgress.builder()
+                .url(url)
+                .outputPath(outputPath.toString())
+                .state(DownloadState.QUEUED)
+                .updatedAt(LocalDateTime.now())
+                .build());
+        result.whenComplete((path, error) -> progress.remove(id));
+
+        queue.add(new Job(id, url, outputPath, result, 0));
+        return result;
+    }
+
+    /**
+     * @return Andamento dos downloads enfileirados ou em curso
+     */
+    public List<DownloadProgress> getActiveDownloads() {
+        return new ArrayList<>(progress.values());
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        runningProcesses.values().forEach(process -> process.kill(Termination.KILLED));
+        warmProcesses.values().forEach(Process::destroyForcibly);
+        supervisor.close();
+
+        List<Job> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        pending.forEach(job -> job.result.completeExceptionally(new IllegalStateException("Pool do yt-dlp encerrado")));
+    }
+
+    private void workerLoop() {
+        try {
+            while (running) {
+                try {
+                    warmUp();
+                    List<Job> batch = nextBatch();
+                    try {
+                        if (!batch.isEmpty()) {
+                            runBatch(takeWarmProcess(), batch);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        // O lote nem chegou a rodar (ex: pool encerrado enquanto o processo iniciava): ninguém
+                        // pode ficar esperando por ele
+                        batch.forEach(job -> fail(job, e.getMessage()));
+                        throw e;
+                    } finally {
+                        idleWorkers.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    // Um erro inesperado não pode derrubar o worker
+                    log.error("Erro no worker do yt-dlp: {}", e.getMessage(), e);
+                }
+            }
+        } finally {
+            Process warm = warmProcesses.remove(Thread.currentThread());
+            if (warm != null) {
+                warm.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * Inicia o próximo processo deste worker, se ainda não houver um vivo. Uma falha aqui não é fatal:
+     * o lote tenta iniciar o processo de novo e falha os pedidos se não conseguir.
+     */
+    private void warmUp() {
+        Process warm = warmProcesses.get(Thread.currentThread());
+        if (warm != null && warm.isAlive()) {
+            return;
+        }
+        try {
+            warmProcesses.put(Thread.currentThread(), command().start());
+        } catch (IOException e) {
+            warmProcesses.remove(Thread.currentThread());
+            log.warn("Não foi possível iniciar o yt-dlp antecipadamente: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return O processo já iniciado deste worker, ou um novo se ele não existir ou tiver morrido
+     */
+    private Process takeWarmProcess() throws IOException {
+        Process warm = warmProcesses.remove(Thread.currentThread());
+        if (warm != null && warm.isAlive()) {
+            return warm;
+        }
+        return command().start();
+    }
+
+    private ProcessBuilder command() {
+        return new ProcessBuilder(
+                executable,
+                "--batch-file", "-",
+                "--format", FORMAT,
+                // Diretório fixo: os .part do yt-dlp sobrevivem a uma reinicialização e são retomados (--continue)
+                "-o", workDir.resolve("%(id)s.%(ext)s").toString(),
+                "--continue",
+                "--no-playlist",
+                "--ignore-errors",
+                "--no-simulate",
+                "--newline",
+                "--print", "before_dl:" + START_MARKER + " %(original_url)s",
+                "--print", "after_move:" + DONE_MARKER + " %(original_url)s %(filepath)s"
+        ).redirectErrorStream(true);
+    }
+
+    /**
+     * Espera o primeiro pedido e agrupa os que chegarem dentro da janela, até o tamanho do lote,
+     * enquanto nenhum outro worker estiver ocioso
+     */
+    private List<Job> nextBatch() throws InterruptedException {
+        List<Job> batch = new ArrayList<>();
+        batch.add(queue.take());
+        idleWorkers.decrementAndGet();
+
+        long deadline = System.nanoTime() + batchWindow.toNanos();
+        while (batch.size() < batchSize && idleWorkers.get() == 0) {
+            long remaining = deadline - System.nanoTime();
+            Job job = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            if (job == null) {
+                break;
+            }
+            batch.add(job);
+        }
+
+        // Pedidos cancelados pelo chamador não precisam ser baixados
+        batch.removeIf(job -> job.result.isDone());
+        return batch;
+    }
+
+    private void runBatch(Process process, List<Job> batch) throws IOException, InterruptedException {
+        Map<String, Job> jobsByUrl = new LinkedHashMap<>();
+        for (Job job : batch) {
+            Job existing = jobsByUrl.putIfAbsent(job.url, job);
+            if (existing != null) {
+                // Mesma URL pedida duas vezes no lote: baixa uma vez e copia para o segundo destino
+                existing.result.whenComplete((path, error) -> {
+                    if (error != null) {
+                        job.result.completeExceptionally(error);
+                    } else {
+                        completeCopy(job, path);
+                    }
+                });
+            }
+        }
+
+        BatchRun run = new BatchRun(new ConcurrentHashMap<>(jobsByUrl));
+        try {
+            log.info("Executando yt-dlp para um lote de {} clips", jobsByUrl.size());
+            try {
+                feed(process, jobsByUrl.keySet());
+            } catch (IOException e) {
+                // O processo antecipado morreu sem ser notado; um novo recebe o lote
+                log.warn("yt-dlp iniciado antecipadamente não aceitou o lote ({}); iniciando outro", e.getMessage());
+                process.destroyForcibly();
+                process = command().start();
+                feed(process, jobsByUrl.keySet());
+            }
+
+            // O tempo total cresce com o lote; o limite de travamento vale para cada trecho sem progresso
+            SupervisedProcess supervised = supervisor.supervise(process, line -> onOutput(run, line),
+                    jobTimeout.multipliedBy(jobsByUrl.size()), stallTimeout);
+            run.process = supervised;
+            runningProcesses.put(Thread.currentThread(), supervised);
+
+            Outcome outcome;
+            try {
+                outcome = supervised.onExit().get();
+            } catch (InterruptedException e) {
+                supervised.kill(Termination.KILLED);
+                run.pending.values().forEach(job -> fail(job, "pool do yt-dlp encerrado"));
+                throw e;
+            } catch (ExecutionException e) {
+                throw new IOException("Falha ao supervisionar o yt-dlp", e.getCause());
+            }
+            onBatchFinished(outcome, run);
+        } finally {
+            runningProcesses.remove(Thread.currentThread());
+        }
+    }
+
+    /**
+     * Entrega as URLs pela entrada padrão e a fecha; o yt-dlp só começa a baixar ao ler o fim da entrada
+     */
+    private static void feed(Process process, Collection<String> urls) throws IOException {
+        try (Writer stdin = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8)) {
+            for (String url : urls) {
+                stdin.write(url);
+                stdin.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Interpreta uma linha da saída do yt-dlp; chamado na thread de leitura do processo
+     */
+    private void onOutput(BatchRun run, String line) {
+        if (line.startsWith(START_MARKER + " ")) {
+            run.currentUrl = line.substring(START_MARKER.length() + 1).trim();
+            run.reportProgress();
+            updateProgress(run.currentJob(), DownloadState.DOWNLOADING, 0);
+        } else if (line.startsWith(DONE_MARKER + " ")) {
+            run.reportProgress();
+            onUrlDone(line.substring(DONE_MARKER.length() + 1), run.pending);
+        } else if (line.startsWith("ERROR")) {
+            run.lastError = line;
+            log.warn("yt-dlp: {}", line);
+        } else if (line.startsWith("[Merger]") || line.startsWith("[Fixup")) {
+            run.reportProgress();
+            updateProgress(run.currentJob(), DownloadState.POST_PROCESSING, 100);
+        } else {
+            Matcher matcher = PROGRESS_PATTERN.matcher(line);
+            Job job = run.currentJob();
+            if (matcher.find() && job != null) {
+                double percent = Double.parseDouble(matcher.group(1));
+                DownloadProgress current = progress.get(job.id);
+                // Só conta como progresso se o percentual mudou; repetir a mesma linha não é avanço
+                if (current == null || current.getPercent() != percent) {
+                    run.reportProgress();
+                    updateProgress(job, DownloadState.DOWNLOADING, percent);
+                }
+            }
+            log.debug("yt-dlp output: {}", line);
+        }
+    }
+
+    private void updateProgress(Job job, DownloadState state, double percent) {
+        if (job == null) {
+            return;
+        }
+        progress.computeIfPresent(job.id, (key, current) -> current.toBuilder()
+                .state(state)
+                .percent(percent)
+                .startedAt(current.getStartedAt() != null ? current.getStartedAt() : LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build());
+    }
+
+    private void onUrlDone(String payload, Map<String, Job> jobsByUrl) {
+        int separator = payload.indexOf(' ');
+        if (separator < 0) {
+            log.warn("Linha de conclusão do yt-dlp inválida: {}", payload);
+            return;
+        }
+
+        Job job = jobsByUrl.remove(payload.substring(0, separator));
+        if (job == null) {
+            log.warn("yt-dlp concluiu uma URL desconhecida: {}", payload);
+            return;
+        }
+
+        try {
+            DurableFiles.moveDurably(Path.of(payload.substring(separator + 1)), job.outputPath);
+            log.info("Download concluído com sucesso: {}", job.outputPath);
+            job.result.complete(job.outputPath);
+        } catch (IOException e) {
+            job.result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Resolve as URLs que não foram concluídas. yt-dlp sai com 0 ou 1 (algum download falhou);
+     * qualquer outro código, ou um encerramento pelo supervisor, indica que o lote foi interrompido.
+     *
+     * Num lote interrompido, a URL em andamento consome uma tentativa e as demais voltam para a fila
+     * sem custo. Se não se sabe qual URL estava em andamento, todas consomem uma tentativa, para que
+     * uma URL problemática não faça o lote se repetir para sempre.
+     */
+    private void onBatchFinished(Outcome outcome, BatchRun run) {
+        int exitCode = outcome.getExitCode();
+        boolean interrupted = outcome.isKilled() || (exitCode != 0 && exitCode != 1);
+        Map<String, Job> pending = run.pending;
+
+        if (!interrupted) {
+            String reason = run.lastError != null ? run.lastError : "yt-dlp saiu com código " + exitCode;
+            pending.values().forEach(job -> fail(job, reason));
+            return;
+        }
+
+        String reason = switch (outcome.getTermination()) {
+            case WALL_CLOCK_TIMEOUT -> "timeout de " + jobTimeout.toSeconds() + "s por clip excedido";
+            case STALLED -> "nenhum progresso em " + stallTimeout.toSeconds() + "s";
+            case KILLED -> "pool do yt-dlp encerrado";
+            case EXITED -> "yt-dlp terminou inesperadamente (código " + exitCode + ")";
+        };
+        log.warn("Lote do yt-dlp interrompido: {}; {} clips pendentes", reason, pending.size());
+
+        boolean currentKnown = run.currentUrl != null && pending.containsKey(run.currentUrl);
+        for (Job job : pending.values()) {
+            boolean charged = !currentKnown || job.url.equals(run.currentUrl);
+            int attempts = charged ? job.attempts + 1 : job.attempts;
+            if (running && attempts < maxAttempts) {
+                queue.add(job.withAttempts(attempts));
+            } else {
+                fail(job, reason);
+            }
+        }
+    }
+
+    private void fail(Job job, String reason) {
+        job.result.completeExceptionally(new IOException("Falha ao baixar " + job.url + ": " + reason));
+    }
+
+    private void completeCopy(Job job, Path source) {
+        try {
+            Files.createDirectories(job.outputPath.toAbsolutePath().getParent());
+            Files.copy(source, job.outputPath, StandardCopyOption.REPLACE_EXISTING);
+            job.result.complete(job.outputPath);
+        } catch (IOException e) {
+            job.result.completeExceptionally(e);
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class Job {
+        private final long id;
+        private final String url;
+        private final Path outputPath;
+        private final CompletableFuture<Path> result;
+        private final int attempts;
+
+        private Job withAttempts(int attempts) {
+            return new Job(id, url, outputPath, result, attempts);
+        }
+    }
+
+    /**
+     * Estado de uma execução do yt-dlp, compartilhado entre o worker e a thread de leitura da saída
+     */
+    private static final class BatchRun {
+        private final Map<String, Job> pending;
+        private volatile SupervisedProcess process;
+        private volatile String currentUrl;
+        private volatile String lastError;
+
+        private BatchRun(Map<String, Job> pending) {
+            this.pending = pending;
+        }
+
+        private Job currentJob() {
+            String url = currentUrl;
+            return url != null ? pending.get(url) : null;
+        }
+
+        private void reportProgress() {
+            SupervisedProcess process = this.process;
+            if (process != null) {
+                process.progress();
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.joel.br.AutoClipster.enums;
+
+public enum DownloadState {
+    QUEUED,          // Aguardando um worker do yt-dlp
+    DOWNLOADING,     // Download em andamento
+    POST_PROCESSING  // Juntando áudio e vídeo / corrigindo o container
+}
@@ -4,7 +4,6 @@ import com.joel.br.AutoClipster.services.AutomatedClipProcessingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
 /**
@@ -19,18 +18,15 @@ public class ClipDownloadEventListener {
 
     /**
      * Executa quando um clip é baixado com sucesso
-     * Dispara o processamento automático de forma assíncrona
+     * Dispara o processamento automático no executor de análise; o evento só é publicado depois
+     * que o arquivo foi finalizado e o registro salvo, então não há o que esperar
      */
     @EventListener
-    @Async
     public void onClipDownloaded(ClipDownloadedEvent event) {
         log.info("🎬 Evento de clip baixado recebido: {} (Source: {})", 
                 event.getDownloadedClip().getTitle(), event.getSource());
         
         try {
-            // Pequeno delay para garantir que o download finalizou completamente
-            Thread.sleep(1000);
-            
             // Iniciar processamento automático
             processingService.processNewlyDownloadedClip(event.getDownloadedClip());
             
@@ -5,122 +5,182 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 
 /**
  * Implementa um limitador de taxa para APIs externas usando o algoritmo de token bucket.
  * Cada instância controla o limite de taxa para uma API específica.
+ *
+ * O estado (tokens disponíveis + instante do último reabastecimento) fica empacotado em um único
+ * long e é atualizado com CAS, sem locks. O reabastecimento é calculado sob demanda a cada tentativa
+ * de aquisição, então nenhuma thread ou tarefa agendada é necessária para devolver permissões.
+ * Os limites valem apenas para esta JVM; para compartilhar a cota entre réplicas use {@link RedisRateLimiter}.
  */
 @Slf4j
-public class ApiRateLimiter {
-    
+public class ApiRateLimiter implements RateLimiter {
+
+    /**
+     * Bits menos significativos do estado reservados para a contagem de tokens;
+     * os bits restantes guardam o instante do último reabastecimento em ms desde a criação
+     */
+    private static final int TOKEN_BITS = 22;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    public static final int MAX_SUPPORTED_PERMITS = (int) TOKEN_MASK;
+
     @Getter
     private final String apiKey;
-    
-    @Getter
-    private final Semaphore semaphore;
-    
+
     @Getter
-    private final int maxPermits;
-    
+    private volatile int maxPermits;
+
     @Getter
     private final Duration interval;
-    
-    @Getter
-    private volatile LocalDateTime lastReleaseTime;
-    
+
+    private final long intervalMillis;
+    private final LongSupplier nanoTime;
+    private final long originNanos;
+    private final AtomicLong state;
     private final AtomicLong totalRequestsMade = new AtomicLong(0);
+    private volatile long lastAcquireMillis;
     private final LocalDateTime createdAt = LocalDateTime.now();
-    
+
     /**
      * Cria um novo limitador de taxa para uma API
-     * 
+     *
      * @param apiKey Identificador único da API
      * @param maxPermits Número máximo de requisições permitidas no intervalo
      * @param interval Intervalo de tempo para o limite de requisições
      */
     public ApiRateLimiter(String apiKey, int maxPermits, Duration interval) {
+        this(apiKey, maxPermits, interval, System::nanoTime);
+    }
+
+    /**
+     * @param nanoTime Relógio monotônico (substituído nos testes)
+     */
+    ApiRateLimiter(String apiKey, int maxPermits, Duration interval, LongSupplier nanoTime) {
+        if (maxPermits <= 0 || maxPermits > MAX_SUPPORTED_PERMITS) {
+            throw new IllegalArgumentException("maxPermits deve estar entre 1 e " + MAX_SUPPORTED_PERMITS + ": " + maxPermits);
+        }
+        if (interval.toMillis() <= 0) {
+            throw new IllegalArgumentException("interval deve ser de pelo menos 1ms: " + interval);
+        }
+
         this.apiKey = apiKey;
         this.maxPermits = maxPermits;
         this.interval = interval;
-        // Usar um semáforo justo (fair) garante que as threads obtenham permissões na ordem de chegada
-        this.semaphore = new Semaphore(maxPermits, true);
-        this.lastReleaseTime = LocalDateTime.now();
-        
-        log.debug("Criado limitador de taxa para {}: {} requisições por {}", 
+        this.intervalMillis = interval.toMillis();
+        this.nanoTime = nanoTime;
+        this.originNanos = nanoTime.getAsLong();
+        // O bucket começa cheio, permitindo uma rajada de até maxPermits requisições
+        this.state = new AtomicLong(pack(0, maxPermits));
+
+        log.debug("Criado limitador de taxa para {}: {} requisições por {}",
                 apiKey, maxPermits, formatDuration(interval));
     }
-    
+
     /**
-     * Tenta adquirir uma permissão, bloqueando até que esteja disponível
-     * 
-     * @throws InterruptedException se a thread for interrompida enquanto aguarda
+     * Tenta adquirir uma permissão sem bloquear
+     *
+     * @return true se a permissão foi adquirida, false se o limite foi atingido
      */
-    public void acquire() throws InterruptedException {
-        semaphore.acquire();
-        log.trace("Permissão adquirida para {}. Restantes: {}/{}", 
-                apiKey, semaphore.availablePermits(), maxPermits);
+    @Override
+    public boolean tryAcquire() {
+        while (true) {
+            long current = state.get();
+            long now = nowMillis();
+            long refilled = refill(current, now);
+            long tokens = tokensOf(refilled);
+
+            if (tokens == 0) {
+                return false;
+            }
+
+            if (state.compareAndSet(current, pack(timestampOf(refilled), tokens - 1))) {
+                totalRequestsMade.incrementAndGet();
+                lastAcquireMillis = now;
+                log.trace("Permissão adquirida para {}. Restantes: {}/{}", apiKey, tokens - 1, maxPermits);
+                return true;
+            }
+        }
     }
-    
-    /**
-     * Tenta adquirir uma permissão, aguardando apenas pelo tempo especificado
-     * 
-     * @param timeout Tempo máximo de espera
-     * @return true se a permissão foi adquirida, false caso contrário
-     * @throws InterruptedException se a thread for interrompida enquanto aguarda
-     */
-    public boolean tryAcquire(Duration timeout) throws InterruptedException {
-        boolean acquired = semaphore.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS);
-        
-        if (acquired) {
-            log.trace("Permissão adquirida para {} após espera. Restantes: {}/{}", 
-                    apiKey, semaphore.availablePermits(), maxPermits);
-        } else {
-            log.debug("Timeout ao aguardar permissão para {}. Limite de taxa excedido.", apiKey);
-        }
-        
-        return acquired;
-    }
-    
+
     /**
-     * Libera uma permissão, tornando-a disponível para outras threads
+     * Ajusta o limitador ao orçamento real informado pela API (ex: cabeçalhos Ratelimit-* da Twitch).
+     * A capacidade passa a ser o limite informado, as permissões locais nunca ficam acima das
+     * restantes no servidor e, quando restarem apenas {@code reserve} permissões, o limitador
+     * pausa até o reset da janela.
+     *
+     * @param limit Limite total informado pelo servidor (ignorado se <= 0)
+     * @param remaining Permissões restantes no servidor (ignorado se < 0)
+     * @param resetDelay Tempo até o servidor reabastecer o bucket
+     * @param reserve Quantidade mínima de permissões a preservar antes de pausar
      */
-    public void release() {
-        semaphore.release();
-        updateLastReleaseTime();
+    @Override
+    public void applyServerBudget(int limit, int remaining, Duration resetDelay, int reserve) {
+        if (limit > 0 && limit != maxPermits && limit <= MAX_SUPPORTED_PERMITS) {
+            log.info("Ajustando limite de {} de {} para {} requisições por {}",
+                    apiKey, maxPermits, limit, formatDuration(interval));
+            maxPermits = limit;
+        }
+
+        if (remaining < 0) {
+            return;
+        }
+
+        if (remaining <= reserve && !resetDelay.isNegative() && !resetDelay.isZero()) {
+            log.debug("Apenas {} permissões restantes para {}, pausando por {}ms até o reset",
+                    remaining, apiKey, resetDelay.toMillis());
+            pause(resetDelay);
+            return;
+        }
+
+        while (true) {
+            long current = state.get();
+            long refilled = refill(current, nowMillis());
+            if (tokensOf(refilled) <= remaining
+                    || state.compareAndSet(current, pack(timestampOf(refilled), remaining))) {
+                return;
+            }
+        }
     }
-    
+
     /**
-     * Atualiza o timestamp da última liberação e incrementa o contador total
+     * Zera as permissões e suspende o reabastecimento pelo tempo informado.
+     * Usado quando o servidor responde 429, para que todos os chamadores aguardem juntos.
+     *
+     * @param delay Duração da pausa
      */
-    public void updateLastReleaseTime() {
-        this.lastReleaseTime = LocalDateTime.now();
-        this.totalRequestsMade.incrementAndGet();
+    @Override
+    public void pause(Duration delay) {
+        long resumeAt = nowMillis() + delay.toMillis();
+
+        while (true) {
+            long current = state.get();
+            if (timestampOf(current) >= resumeAt && tokensOf(current) == 0) {
+                return;
+            }
+            if (state.compareAndSet(current, pack(Math.max(resumeAt, timestampOf(current)), 0))) {
+                return;
+            }
+        }
     }
-    
+
     /**
      * Retorna o número de permissões disponíveis atualmente
-     * 
+     *
      * @return número de permissões disponíveis
      */
+    @Override
     public int getAvailablePermits() {
-        return semaphore.availablePermits();
+        return (int) tokensOf(refill(state.get(), nowMillis()));
     }
-    
-    /**
-     * Verifica se o limitador está atualmente saturado (sem permissões disponíveis)
-     * 
-     * @return true se não houver permissões disponíveis
-     */
-    public boolean isRateLimited() {
-        return semaphore.availablePermits() == 0;
-    }
-    
+
     /**
      * Calcula a taxa média de requisições por unidade de tempo
-     * 
+     *
      * @return taxa de requisições por segundo
      */
     public double getRequestRate() {
@@ -128,71 +188,132 @@ public class ApiRateLimiter {
         if (totalSeconds == 0) return 0;
         return (double) totalRequestsMade.get() / totalSeconds;
     }
-    
+
     /**
      * Calcula o tempo médio entre requisições
-     * 
+     *
      * @return duração média entre requisições
      */
     public Duration getAverageTimeBetweenRequests() {
         long total = totalRequestsMade.get();
         if (total <= 1) return Duration.ZERO;
-        
+
         long totalMillis = Duration.between(createdAt, LocalDateTime.now()).toMillis();
         return Duration.ofMillis(totalMillis / total);
     }
-    
+
     /**
      * Retorna o tempo estimado de espera para a próxima permissão disponível
-     * 
+     *
      * @return duração estimada de espera
      */
+    @Override
     public Duration getEstimatedWaitTime() {
-        if (semaphore.availablePermits() > 0) return Duration.ZERO;
-        
-        // Estimamos com base no intervalo total dividido pelo número máximo de requisições
-        return interval.dividedBy(maxPermits);
+        long now = nowMillis();
+        long refilled = refill(state.get(), now);
+        if (tokensOf(refilled) > 0) return Duration.ZERO;
+
+        // Durante uma pausa o instante do último reabastecimento fica no futuro, aumentando a espera
+        long elapsedSinceRefill = now - timestampOf(refilled);
+        return Duration.ofMillis(Math.max(1, millisPerToken() - elapsedSinceRefill));
     }
-    
+
     /**
      * Retorna um relatório de status do limitador
-     * 
+     *
      * @return String contendo estatísticas do limitador
      */
+    @Override
     public String getStatusReport() {
         return String.format(
-            "API: %s, Permits: %d/%d, Rate: %.2f req/s, Avg interval: %s, Last release: %s ago",
+            "API: %s, Permits: %d/%d, Rate: %.2f req/s, Avg interval: %s, Last acquire: %s ago",
             apiKey,
-            semaphore.availablePermits(),
+            getAvailablePermits(),
             maxPermits,
             getRequestRate(),
             formatDuration(getAverageTimeBetweenRequests()),
-            formatDuration(Duration.between(lastReleaseTime, LocalDateTime.now()))
+            formatDuration(Duration.ofMillis(nowMillis() - lastAcquireMillis))
         );
     }
-    
+
+    /**
+     * Calcula o estado após o reabastecimento preguiçoso, sem alterá-lo
+     */
+    private long refill(long current, long now) {
+        int maxPermits = this.maxPermits;
+        long tokens = tokensOf(current);
+        long last = timestampOf(current);
+        long elapsed = now - last;
+
+        if (tokens >= maxPermits) {
+            // Bucket cheio (ou com a capacidade reduzida depois do último reabastecimento) não acumula
+            // tempo: sem isso, o primeiro token consumido voltaria antes de millisPerToken
+            return pack(Math.max(now, last), maxPermits);
+        }
+        if (elapsed <= 0) {
+            return current;
+        }
+        if (elapsed >= intervalMillis) {
+            return pack(now, maxPermits);
+        }
+
+        long newTokens = elapsed * maxPermits / intervalMillis;
+        if (newTokens == 0) {
+            return current;
+        }
+
+        long total = tokens + newTokens;
+        if (total >= maxPermits) {
+            return pack(now, maxPermits);
+        }
+
+        // Avança o relógio apenas pelo tempo "consumido" pelos tokens gerados, preservando a fração restante
+        long consumedMillis = (newTokens * intervalMillis + maxPermits - 1) / maxPermits;
+        return pack(Math.min(now, last + consumedMillis), total);
+    }
+
+    private long millisPerToken() {
+        return Math.max(1, (intervalMillis + maxPermits - 1) / maxPermits);
+    }
+
+    private long nowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nanoTime.getAsLong() - originNanos);
+    }
+
+    private static long pack(long timestampMillis, long tokens) {
+        return (timestampMillis << TOKEN_BITS) | tokens;
+    }
+
+    private static long tokensOf(long packed) {
+        return packed & TOKEN_MASK;
+    }
+
+    private static long timestampOf(long packed) {
+        return packed >>> TOKEN_BITS;
+    }
+
     /**
      * Formata uma duração para exibição legível
      */
     private String formatDuration(Duration duration) {
         long seconds = duration.getSeconds();
         long absSeconds = Math.abs(seconds);
-        
+
         if (absSeconds < 60) {
             return seconds + "s";
         }
-        
+
         long minutes = absSeconds / 60;
         if (minutes < 60) {
             return minutes + "m " + (absSeconds % 60) + "s";
         }
-        
+
         long hours = minutes / 60;
         if (hours < 24) {
             return hours + "h " + (minutes % 60) + "m";
         }
-        
+
         long days = hours / 24;
         return days + "d " + (hours % 24) + "h";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,111 @@
+package com.joel.br.AutoClipster.limiter;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limita quantas chamadas simultâneas cada dependência externa recebe, com um semáforo por dependência.
+ *
+ * Com threads de plataforma o tamanho dos executores de cada estágio já limita a concorrência e estes
+ * limites raramente são atingidos. No modo de threads virtuais (app.executor.virtual-threads) os
+ * executores não limitam mais a concorrência: são estes semáforos que protegem as dependências, e os
+ * clips que esperam por uma vaga não ocupam threads de plataforma.
+ */
+@Component
+public class ConcurrencyLimiter {
+
+    public enum Dependency {
+        /**
+         * Downloads de clips (yt-dlp ou HTTP direto na CDN da Twitch)
+         */
+        DOWNLOAD,
+        GEMINI,
+        YOUTUBE,
+        N8N
+    }
+
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    @FunctionalInterface
+    public interface Action<E extends Exception> {
+        void run() throws E;
+    }
+
+    private final Map<Dependency, Semaphore> semaphores = new EnumMap<>(Dependency.class);
+    private final Map<Dependency, Integer> limits = new EnumMap<>(Dependency.class);
+
+    public ConcurrencyLimiter(@Value("${app.limits.download.max-concurrent:16}") int downloads,
+                              @Value("${app.limits.gemini.max-concurrent:8}") int gemini,
+                              @Value("${app.limits.youtube.max-concurrent:2}") int youtube,
+                              @Value("${app.limits.n8n.max-concurrent:16}") int n8n) {
+        register(Dependency.DOWNLOAD, downloads);
+        register(Dependency.GEMINI, gemini);
+        register(Dependency.YOUTUBE, youtube);
+        register(Dependency.N8N, n8n);
+    }
+
+    /**
+     * Executa a chamada quando houver vaga para a dependência, esperando a vez (na ordem de chegada)
+     */
+    public <T, E extends Exception> T call(Dependency dependency, Call<T, E> call) throws E {
+        Semaphore semaphore = semaphores.get(dependency);
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando vaga para " + dependency, e);
+        }
+        try {
+            return call.call();
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    public <E extends Exception> void run(Dependency dependency, Action<E> action) throws E {
+        call(dependency, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public List<Usage> getUsage() {
+        return Arrays.stream(Dependency.values())
+                .map(dependency -> {
+                    Semaphore semaphore = semaphores.get(dependency);
+                    int limit = limits.get(dependency);
+                    return new Usage(dependency.name(), limit, limit - semaphore.availablePermits(),
+                            semaphore.getQueueLength());
+                })
+                .toList();
+    }
+
+    private void register(Dependency dependency, int maxConcurrent) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("Limite de chamadas simultâneas para " + dependency
+                    + " deve ser positivo: " + maxConcurrent);
+        }
+        semaphores.put(dependency, new Semaphore(maxConcurrent, true));
+        limits.put(dependency, maxConcurrent);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Usage {
+        private final String dependency;
+        private final int maxConcurrent;
+        private final int inUse;
+        private final int waiting;
+    }
+}
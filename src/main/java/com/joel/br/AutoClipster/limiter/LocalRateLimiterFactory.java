@@ -0,0 +1,19 @@
+package com.joel.br.AutoClipster.limiter;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Limitadores em memória, por JVM. Padrão quando app.rate-limit.backend não é configurado.
+ */
+@Component
+@ConditionalOnProperty(name = "app.rate-limit.backend", havingValue = "local", matchIfMissing = true)
+public class LocalRateLimiterFactory implements RateLimiterFactory {
+
+    @Override
+    public RateLimiter create(String apiKey, int maxPermits, Duration interval) {
+        return new ApiRateLimiter(apiKey, maxPermits, interval);
+    }
+}
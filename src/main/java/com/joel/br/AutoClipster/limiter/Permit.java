@@ -0,0 +1,30 @@
+package com.joel.br.AutoClipster.limiter;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Permissão concedida pelo limitador reativo para executar uma requisição
+ */
+@Getter
+@AllArgsConstructor
+public class Permit {
+
+    /**
+     * Identificador da API para a qual a permissão foi concedida
+     */
+    private final String apiKey;
+
+    /**
+     * Instante em que a permissão foi concedida
+     */
+    private final Instant grantedAt;
+
+    /**
+     * Tempo aguardado até a permissão ser concedida
+     */
+    private final Duration waited;
+}
@@ -0,0 +1,128 @@
+package com.joel.br.AutoClipster.limiter;
+
+import com.joel.br.AutoClipster.services.RateLimitService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Filtro de WebClient que alimenta o {@link RateLimiter} da API com os cabeçalhos
+ * Ratelimit-Limit, Ratelimit-Remaining e Ratelimit-Reset devolvidos pela API.
+ * Respostas 429 pausam o limitador até o reset e a requisição é reenviada
+ * assim que uma nova permissão for concedida, em vez de falhar o fluxo.
+ */
+@Slf4j
+public class RateLimitHeadersFilter implements ExchangeFilterFunction {
+
+    public static final String LIMIT_HEADER = "Ratelimit-Limit";
+    public static final String REMAINING_HEADER = "Ratelimit-Remaining";
+    public static final String RESET_HEADER = "Ratelimit-Reset";
+
+    /**
+     * Pausa usada em um 429 sem Ratelimit-Reset nem Retry-After
+     */
+    private static final Duration DEFAULT_PAUSE = Duration.ofSeconds(5);
+
+    private final RateLimitService rateLimitService;
+    private final String apiKey;
+    private final int maxRequestsPerInterval;
+    private final Duration interval;
+    private final int reserve;
+    private final int maxRetries;
+
+    /**
+     * @param rateLimitService Serviço que mantém os limitadores
+     * @param apiKey Identificador da API (ex: "twitch-api")
+     * @param maxRequestsPerInterval Limite inicial, usado até o servidor informar o real
+     * @param interval Intervalo do limite
+     * @param reserve Requisições a preservar antes de pausar até o reset
+     * @param maxRetries Máximo de reenvios após respostas 429
+     */
+    public RateLimitHeadersFilter(RateLimitService rateLimitService, String apiKey, int maxRequestsPerInterval,
+                                  Duration interval, int reserve, int maxRetries) {
+        this.rateLimitService = rateLimitService;
+        this.apiKey = apiKey;
+        this.maxRequestsPerInterval = maxRequestsPerInterval;
+        this.interval = interval;
+        this.reserve = reserve;
+        this.maxRetries = maxRetries;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return exchange(request, next, 0);
+    }
+
+    private Mono<ClientResponse> exchange(ClientRequest request, ExchangeFunction next, int attempt) {
+        return next.exchange(request)
+                .flatMap(response -> {
+                    HttpHeaders headers = response.headers().asHttpHeaders();
+                    Duration resetDelay = resetDelay(headers);
+
+                    rateLimitService.applyServerBudget(apiKey,
+                            intHeader(headers, LIMIT_HEADER),
+                            intHeader(headers, REMAINING_HEADER),
+                            resetDelay,
+                            reserve);
+
+                    if (response.statusCode().value() != HttpStatus.TOO_MANY_REQUESTS.value() || attempt >= maxRetries) {
+                        return Mono.just(response);
+                    }
+
+                    Duration pause = resetDelay.isZero() || resetDelay.isNegative() ? retryAfter(headers) : resetDelay;
+                    log.warn("429 recebido de {} ({}), aguardando {}ms antes da tentativa {}/{}",
+                            apiKey, request.url().getPath(), pause.toMillis(), attempt + 1, maxRetries);
+                    rateLimitService.pause(apiKey, pause);
+
+                    return response.releaseBody()
+                            .then(rateLimitService.acquirePermit(apiKey, maxRequestsPerInterval, interval))
+                            .then(exchange(request, next, attempt + 1));
+                });
+    }
+
+    /**
+     * Ratelimit-Reset é um timestamp epoch em segundos
+     */
+    private Duration resetDelay(HttpHeaders headers) {
+        String reset = headers.getFirst(RESET_HEADER);
+        if (reset == null) {
+            return Duration.ZERO;
+        }
+        try {
+            return Duration.ofMillis(Long.parseLong(reset.trim()) * 1000 - System.currentTimeMillis());
+        } catch (NumberFormatException e) {
+            return Duration.ZERO;
+        }
+    }
+
+    private Duration retryAfter(HttpHeaders headers) {
+        String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter != null) {
+            try {
+                return Duration.ofSeconds(Long.parseLong(retryAfter.trim()));
+            } catch (NumberFormatException ignored) {
+                // Retry-After em formato de data não é usado pela Twitch
+            }
+        }
+        return DEFAULT_PAUSE;
+    }
+
+    private int intHeader(HttpHeaders headers, String name) {
+        String value = headers.getFirst(name);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.joel.br.AutoClipster.limiter;
+
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Contrato comum dos limitadores de taxa, independente de onde o estado do bucket é mantido
+ * (memória local em {@link ApiRateLimiter} ou Redis em {@link RedisRateLimiter}).
+ */
+public interface RateLimiter {
+
+    String getApiKey();
+
+    int getMaxPermits();
+
+    /**
+     * Tenta adquirir uma permissão sem esperar por reabastecimento
+     *
+     * @return true se a permissão foi adquirida, false se o limite foi atingido
+     */
+    boolean tryAcquire();
+
+    /**
+     * Retorna o número de permissões disponíveis atualmente
+     */
+    int getAvailablePermits();
+
+    /**
+     * Retorna o tempo estimado de espera para a próxima permissão disponível
+     */
+    Duration getEstimatedWaitTime();
+
+    /**
+     * Ajusta o limitador ao orçamento real informado pela API
+     *
+     * @see ApiRateLimiter#applyServerBudget(int, int, Duration, int)
+     */
+    void applyServerBudget(int limit, int remaining, Duration resetDelay, int reserve);
+
+    /**
+     * Zera as permissões e suspende o reabastecimento pelo tempo informado
+     */
+    void pause(Duration delay);
+
+    /**
+     * Retorna um relatório de status do limitador
+     */
+    String getStatusReport();
+
+    /**
+     * Indica se {@link #tryAcquire()} pode fazer I/O (ex: chamada ao Redis) e portanto
+     * não deve ser executado em uma thread de event loop
+     */
+    default boolean mayBlock() {
+        return false;
+    }
+
+    /**
+     * Verifica se o limitador está atualmente saturado (sem permissões disponíveis)
+     */
+    default boolean isRateLimited() {
+        return getAvailablePermits() == 0;
+    }
+
+    /**
+     * Tenta adquirir uma permissão, bloqueando até que esteja disponível
+     *
+     * @throws InterruptedException se a thread for interrompida enquanto aguarda
+     */
+    default void acquire() throws InterruptedException {
+        while (!tryAcquire()) {
+            parkFor(getEstimatedWaitTime());
+        }
+    }
+
+    /**
+     * Tenta adquirir uma permissão, aguardando apenas pelo tempo especificado
+     *
+     * @param timeout Tempo máximo de espera
+     * @return true se a permissão foi adquirida, false caso contrário
+     * @throws InterruptedException se a thread for interrompida enquanto aguarda
+     */
+    default boolean tryAcquire(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        while (!tryAcquire()) {
+            Duration wait = getEstimatedWaitTime();
+            if (System.nanoTime() + wait.toNanos() > deadline) {
+                return false;
+            }
+            parkFor(wait);
+        }
+
+        return true;
+    }
+
+    private void parkFor(Duration wait) throws InterruptedException {
+        LockSupport.parkNanos(this, Math.max(wait.toNanos(), 1_000_000L));
+        if (Thread.interrupted()) {
+            throw new InterruptedException("Interrompido ao aguardar permissão para " + getApiKey());
+        }
+    }
+}
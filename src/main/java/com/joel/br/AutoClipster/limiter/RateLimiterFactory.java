@@ -0,0 +1,12 @@
+package com.joel.br.AutoClipster.limiter;
+
+import java.time.Duration;
+
+/**
+ * Cria os limitadores usados pelo RateLimitService. A implementação ativa é escolhida
+ * pela propriedade app.rate-limit.backend ("local" ou "redis").
+ */
+public interface RateLimiterFactory {
+
+    RateLimiter create(String apiKey, int maxPermits, Duration interval);
+}
@@ -0,0 +1,308 @@
+package com.joel.br.AutoClipster.limiter;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket distribuído: o estado do bucket fica em um hash no Redis e é atualizado
+ * atomicamente por scripts Lua, usando o relógio do próprio Redis (TIME) para que todas
+ * as réplicas compartilhem a mesma cota.
+ *
+ * Para evitar uma ida ao Redis por requisição, cada nó reserva um pequeno lote de tokens
+ * por vez e o consome localmente. Tokens reservados e não usados expiram após um intervalo.
+ * Nenhum lock é mantido durante a ida ao Redis: threads sem token local reservam cada uma o seu
+ * lote, e o script garante que a soma nunca passa da cota.
+ *
+ * Se o Redis ficar indisponível, o nó passa a usar um {@link ApiRateLimiter} local com a sua parte da
+ * cota (maxPermits / fallbackReplicas) e volta a tentar o Redis a cada {@link #REDIS_RETRY_MILLIS} ms.
+ */
+@Slf4j
+public class RedisRateLimiter implements RateLimiter {
+
+    /**
+     * Intervalo entre novas tentativas de usar o Redis enquanto o limitador local está em uso
+     */
+    static final long REDIS_RETRY_MILLIS = 5_000;
+
+    /**
+     * Reabastece o bucket e tenta retirar até ARGV[3] tokens.
+     * Retorna {tokens concedidos, espera em ms até o próximo token, tokens restantes}.
+     */
+    private static final RedisScript<List> ACQUIRE_SCRIPT = new DefaultRedisScript<>("""
+            local capacity = tonumber(ARGV[1])
+            local interval = tonumber(ARGV[2])
+            local requested = tonumber(ARGV[3])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(state[1])
+            local ts = tonumber(state[2])
+            if tokens == nil or ts == nil then
+              tokens = capacity
+              ts = now
+            end
+            if now < ts then
+              return {0, ts - now, 0}
+            end
+            tokens = math.min(capacity, tokens + (now - ts) * capacity / interval)
+            local granted = math.min(requested, math.floor(tokens))
+            tokens = tokens - granted
+            local wait = 0
+            if granted == 0 then
+              wait = math.ceil((1 - tokens) * interval / capacity)
+            end
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))
+            redis.call('PEXPIRE', KEYS[1], interval * 2)
+            return {granted, wait, math.floor(tokens)}
+            """, List.class);
+
+    /**
+     * Zera o bucket e adia o reabastecimento por ARGV[1] ms, sem encurtar uma pausa maior já ativa
+     */
+    private static final RedisScript<Long> PAUSE_SCRIPT = new DefaultRedisScript<>("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local resumeAt = now + tonumber(ARGV[1])
+            local ts = tonumber(redis.call('HGET', KEYS[1], 'ts'))
+            if ts ~= nil and ts > resumeAt then
+              resumeAt = ts
+            end
+            redis.call('HSET', KEYS[1], 'tokens', '0', 'ts', tostring(resumeAt))
+            redis.call('PEXPIRE', KEYS[1], resumeAt - now + tonumber(ARGV[2]) * 2)
+            return resumeAt - now
+            """, Long.class);
+
+    /**
+     * Garante que o bucket não tenha mais tokens que os restantes informados pelo servidor
+     */
+    private static final RedisScript<Long> CLAMP_SCRIPT = new DefaultRedisScript<>("""
+            local remaining = tonumber(ARGV[1])
+            local tokens = tonumber(redis.call('HGET', KEYS[1], 'tokens'))
+            if tokens ~= nil and tokens > remaining then
+              redis.call('HSET', KEYS[1], 'tokens', tostring(remaining))
+            end
+            return remaining
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String redisKey;
+    private final long intervalMillis;
+    private final int prefetch;
+
+    @Getter
+    private final String apiKey;
+
+    @Getter
+    private volatile int maxPermits;
+
+    private final AtomicInteger localTokens = new AtomicInteger();
+    private final AtomicLong totalRequestsMade = new AtomicLong();
+    private final ApiRateLimiter fallback;
+    private volatile long localTokensExpireAt;
+    private volatile long redisRetryAt;
+    private volatile long lastKnownRemoteTokens;
+    private volatile long nextTokenAt;
+
+    /**
+     * @param redisTemplate Template usado para executar os scripts
+     * @param redisKey Chave do hash que guarda o bucket
+     * @param apiKey Identificador da API
+     * @param maxPermits Número máximo de requisições permitidas no intervalo, somando todos os nós
+     * @param interval Intervalo de tempo para o limite de requisições
+     * @param prefetch Máximo de tokens reservados localmente por ida ao Redis
+     * @param fallbackReplicas Réplicas que dividem a cota enquanto o Redis estiver fora
+     */
+    public RedisRateLimiter(StringRedisTemplate redisTemplate, String redisKey, String apiKey,
+                            int maxPermits, Duration interval, int prefetch, int fallbackReplicas) {
+        this.redisTemplate = redisTemplate;
+        this.redisKey = redisKey;
+        this.apiKey = apiKey;
+        this.maxPermits = maxPermits;
+        this.intervalMillis = interval.toMillis();
+        this.prefetch = Math.max(1, prefetch);
+        this.lastKnownRemoteTokens = maxPermits;
+        this.fallback = new ApiRateLimiter(apiKey, Math.max(1, maxPermits / Math.max(1, fallbackReplicas)), interval);
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        if (takeLocalToken()) {
+            return true;
+        }
+        if (usingFallback()) {
+            return acquireFallback();
+        }
+
+        List<?> result;
+        try {
+            result = redisTemplate.execute(ACQUIRE_SCRIPT, List.of(redisKey),
+                    String.valueOf(maxPermits), String.valueOf(intervalMillis), String.valueOf(batchSize()));
+        } catch (DataAccessException e) {
+            redisUnavailable(e);
+            return acquireFallback();
+        }
+        long granted = toLong(result, 0);
+        long waitMillis = toLong(result, 1);
+        lastKnownRemoteTokens = toLong(result, 2);
+
+        if (granted == 0) {
+            nextTokenAt = System.currentTimeMillis() + waitMillis;
+            log.trace("Sem tokens no Redis para {}, próximo em {}ms", apiKey, waitMillis);
+            return false;
+        }
+
+        if (granted > 1) {
+            // Outras threads podem ter reservado lotes ao mesmo tempo; as sobras se somam
+            localTokensExpireAt = System.currentTimeMillis() + intervalMillis;
+            localTokens.addAndGet((int) granted - 1);
+        }
+        totalRequestsMade.incrementAndGet();
+        log.trace("Reservados {} tokens do Redis para {}", granted, apiKey);
+        return true;
+    }
+
+    @Override
+    public int getAvailablePermits() {
+        if (usingFallback()) {
+            return Math.max(0, localTokens.get()) + fallback.getAvailablePermits();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, localTokens.get()) + lastKnownRemoteTokens);
+    }
+
+    @Override
+    public Duration getEstimatedWaitTime() {
+        if (localTokens.get() > 0) {
+            return Duration.ZERO;
+        }
+        if (usingFallback()) {
+            return fallback.getEstimatedWaitTime();
+        }
+        return Duration.ofMillis(Math.max(0, nextTokenAt - System.currentTimeMillis()));
+    }
+
+    @Override
+    public void applyServerBudget(int limit, int remaining, Duration resetDelay, int reserve) {
+        if (limit > 0 && limit != maxPermits) {
+            log.info("Ajustando limite distribuído de {} de {} para {} requisições", apiKey, maxPermits, limit);
+            maxPermits = limit;
+        }
+
+        if (remaining < 0) {
+            return;
+        }
+
+        if (remaining <= reserve && !resetDelay.isNegative() && !resetDelay.isZero()) {
+            pause(resetDelay);
+            return;
+        }
+
+        // O servidor conta todas as réplicas: o limitador local também não deve passar do que resta
+        fallback.applyServerBudget(-1, remaining, resetDelay, reserve);
+        if (usingFallback()) {
+            return;
+        }
+        try {
+            redisTemplate.execute(CLAMP_SCRIPT, List.of(redisKey), String.valueOf(remaining));
+        } catch (DataAccessException e) {
+            redisUnavailable(e);
+        }
+    }
+
+    @Override
+    public void pause(Duration delay) {
+        localTokens.set(0);
+        fallback.pause(delay);
+        nextTokenAt = System.currentTimeMillis() + delay.toMillis();
+        lastKnownRemoteTokens = 0;
+        if (usingFallback()) {
+            return;
+        }
+        try {
+            Long pausedFor = redisTemplate.execute(PAUSE_SCRIPT, List.of(redisKey),
+                    String.valueOf(delay.toMillis()), String.valueOf(intervalMillis));
+            if (pausedFor != null) {
+                nextTokenAt = System.currentTimeMillis() + pausedFor;
+            }
+        } catch (DataAccessException e) {
+            redisUnavailable(e);
+        }
+    }
+
+    @Override
+    public boolean mayBlock() {
+        return true;
+    }
+
+    @Override
+    public String getStatusReport() {
+        return String.format(
+            "API: %s (%s), Permits: local %d, remote ~%d, max %d, Requests: %d",
+            apiKey,
+            usingFallback() ? "fallback local, Redis indisponível" : "redis",
+            Math.max(0, localTokens.get()),
+            lastKnownRemoteTokens,
+            maxPermits,
+            totalRequestsMade.get()
+        );
+    }
+
+    private boolean takeLocalToken() {
+        if (System.currentTimeMillis() >= localTokensExpireAt) {
+            localTokens.set(0);
+            return false;
+        }
+        while (true) {
+            int available = localTokens.get();
+            if (available <= 0) {
+                return false;
+            }
+            if (localTokens.compareAndSet(available, available - 1)) {
+                totalRequestsMade.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    private boolean usingFallback() {
+        return System.currentTimeMillis() < redisRetryAt;
+    }
+
+    private boolean acquireFallback() {
+        if (fallback.tryAcquire()) {
+            totalRequestsMade.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private void redisUnavailable(DataAccessException e) {
+        if (!usingFallback()) {
+            log.warn("Redis indisponível para o limitador de {}, usando o limite local por {}ms: {}",
+                    apiKey, REDIS_RETRY_MILLIS, e.getMessage());
+        }
+        redisRetryAt = System.currentTimeMillis() + REDIS_RETRY_MILLIS;
+    }
+
+    /**
+     * Lote reservado por ida ao Redis, limitado a 5% da capacidade para não concentrar a cota em um nó
+     */
+    private int batchSize() {
+        return Math.max(1, Math.min(prefetch, maxPermits / 20));
+    }
+
+    private long toLong(List<?> result, int index) {
+        if (result == null || result.size() <= index || result.get(index) == null) {
+            return 0;
+        }
+        return ((Number) result.get(index)).longValue();
+    }
+}
@@ -0,0 +1,40 @@
+package com.joel.br.AutoClipster.limiter;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Limitadores compartilhados entre todas as réplicas através do Redis.
+ * Ativado com app.rate-limit.backend=redis.
+ */
+@Component
+@ConditionalOnProperty(name = "app.rate-limit.backend", havingValue = "redis")
+@RequiredArgsConstructor
+@Slf4j
+public class RedisRateLimiterFactory implements RateLimiterFactory {
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${app.rate-limit.redis.key-prefix:autoclipster:rate-limit:}")
+    private String keyPrefix;
+
+    @Value("${app.rate-limit.redis.prefetch:5}")
+    private int prefetch;
+
+    @Value("${app.rate-limit.redis.fallback-replicas:1}")
+    private int fallbackReplicas;
+
+    @Override
+    public RateLimiter create(String apiKey, int maxPermits, Duration interval) {
+        log.info("Criando limitador distribuído (Redis) para {}: {} requisições por {}s",
+                apiKey, maxPermits, interval.getSeconds());
+        return new RedisRateLimiter(redisTemplate, keyPrefix + apiKey, apiKey, maxPermits, interval, prefetch,
+                fallbackReplicas);
+    }
+}
@@ -0,0 +1,49 @@
+package com.joel.br.AutoClipster.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Arquivo de vídeo armazenado por conteúdo (SHA-256), compartilhado por todos os
+ * DownloadedClip com o mesmo contentHash
+ */
+@Entity
+@Data
+@Table(name = "clip_blobs")
+@AllArgsConstructor
+@NoArgsConstructor
+public class ClipBlob {
+
+    @Id
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    @Column(name = "file_path", nullable = false)
+    private String filePath;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+
+    // Quantidade de DownloadedClip que apontam para este arquivo
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Última referência registrada; a recontagem não toca arquivos com referências recentes, que podem
+    // ainda não ter o DownloadedClip salvo
+    @Column(name = "acquired_at")
+    private LocalDateTime acquiredAt;
+
+    // Usados na escolha do que remover quando o disco enche (LRU, com desempate por LFU)
+    @Column(name = "last_accessed_at")
+    private LocalDateTime lastAccessedAt;
+
+    @Column(name = "access_count", nullable = false, columnDefinition = "integer not null default 0")
+    private int accessCount;
+}
@@ -5,12 +5,19 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 
 @Entity
 @Data
-@Table(name = "downloaded_clips")
+@Table(name = "downloaded_clips",
+        uniqueConstraints = @UniqueConstraint(name = "uk_downloaded_clips_clip_id", columnNames = "clip_id"),
+        indexes = {
+                @Index(name = "idx_downloaded_clips_original_url", columnList = "original_url"),
+                @Index(name = "idx_downloaded_clips_content_hash", columnList = "content_hash"),
+                @Index(name = "idx_downloaded_clips_processed", columnList = "processed, id")
+        })
 @AllArgsConstructor
 @NoArgsConstructor
 public class DownloadedClip {
@@ -27,6 +34,10 @@ public class DownloadedClip {
     private String broadcasterName;
     private LocalDateTime downloadDate;
     private String filePath;
+
+    // SHA-256 do arquivo em clip_blobs; clips com o mesmo conteúdo compartilham o mesmo filePath
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
     private String gameName;
     private Double duration;
     private String originalUrl;
@@ -37,6 +48,23 @@ public class DownloadedClip {
     // Status opcional para tracking
     private String processingStatus;
 
+    // Fim da reserva do clip pelo worker que o analisa (processingStatus ANALYZING), renovado pelo
+    // heartbeat do worker; depois disso outro worker pode reservá-lo
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    // Identifica a reserva (nó + reserva); só quem a detém renova ou conclui a análise
+    @Column(name = "lease_owner", length = 128)
+    private String leaseOwner;
+
+    // Análises iniciadas; a cada falha a próxima tentativa só ocorre após next_attempt_at
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
     // YouTubeId será preenchido após o upload
     private String youtubeId;
 }
\ No newline at end of file
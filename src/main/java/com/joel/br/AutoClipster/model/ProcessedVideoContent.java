@@ -65,6 +65,18 @@ public class ProcessedVideoContent {
     @Column(columnDefinition = "TEXT")
     private String processingLogs; // Logs do processamento
 
+    /**
+     * Preenche os dados técnicos do arquivo processado a partir do ffprobe
+     */
+    public void applyMetadata(VideoMetadata metadata) {
+        videoWidth = metadata.getWidth();
+        videoHeight = metadata.getHeight();
+        fileSizeBytes = metadata.getSizeBytes();
+        if (metadata.getDurationSeconds() != null) {
+            videoDuration = (int) Math.round(metadata.getDurationSeconds());
+        }
+    }
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
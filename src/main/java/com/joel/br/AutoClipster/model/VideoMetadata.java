@@ -0,0 +1,77 @@
+package com.joel.br.AutoClipster.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Metadados técnicos de um arquivo de vídeo, extraídos uma única vez pelo ffprobe.
+ * Indexado pelo SHA-256 do conteúdo, então clips com o mesmo arquivo compartilham o registro.
+ */
+@Entity
+@Table(name = "video_metadata")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VideoMetadata {
+
+    @Id
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    @Column(name = "format_name")
+    private String formatName; // ex: mov,mp4,m4a,3gp,3g2,mj2
+
+    @Column(name = "duration_seconds")
+    private Double durationSeconds;
+
+    @Column(name = "size_bytes")
+    private Long sizeBytes;
+
+    @Column(name = "bit_rate")
+    private Long bitRate; // Taxa total do arquivo, em bits/s
+
+    @Column(name = "video_codec", length = 32)
+    private String videoCodec;
+
+    @Column(name = "video_profile", length = 64)
+    private String videoProfile;
+
+    @Column(name = "pixel_format", length = 32)
+    private String pixelFormat;
+
+    @Column(name = "width")
+    private Integer width;
+
+    @Column(name = "height")
+    private Integer height;
+
+    @Column(name = "frame_rate")
+    private Double frameRate;
+
+    @Column(name = "video_bit_rate")
+    private Long videoBitRate;
+
+    @Column(name = "audio_codec", length = 32)
+    private String audioCodec;
+
+    @Column(name = "audio_channels")
+    private Integer audioChannels;
+
+    @Column(name = "audio_channel_layout", length = 32)
+    private String audioChannelLayout; // ex: stereo, 5.1
+
+    @Column(name = "audio_sample_rate")
+    private Integer audioSampleRate;
+
+    @Column(name = "audio_bit_rate")
+    private Long audioBitRate;
+
+    @Column(name = "probed_at", nullable = false)
+    private LocalDateTime probedAt;
+}
@@ -0,0 +1,232 @@
+package com.joel.br.AutoClipster.pipeline;
+
+import com.joel.br.AutoClipster.DTO.ClipProgress.Stage;
+import com.joel.br.AutoClipster.DTO.ClipProgress.Status;
+import com.joel.br.AutoClipster.DTO.TwitchClipDTO;
+import com.joel.br.AutoClipster.DTO.TwitchUserDTO;
+import com.joel.br.AutoClipster.model.DownloadedClip;
+import com.joel.br.AutoClipster.services.AutomatedClipProcessingService;
+import com.joel.br.AutoClipster.services.ClipDownloadService;
+import com.joel.br.AutoClipster.services.GeminiAnalysisService.ClipAnalysis;
+import com.joel.br.AutoClipster.services.TwitchService;
+import com.joel.br.AutoClipster.services.VideoProbeService;
+import com.joel.br.AutoClipster.services.YouTubeUploadService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pipeline do workflow de um canal: busca na Twitch → download → ffprobe → análise com Gemini → upload.
+ *
+ * Cada estágio tem seu próprio limite de clips simultâneos (app.pipeline.*.concurrency) e entre um
+ * estágio e o próximo há um buffer limitado (app.pipeline.buffer-size). Quando um estágio fica para
+ * trás o buffer anterior enche e a demanda para de subir, então o estágio mais rápido não acumula
+ * trabalho na frente do mais lento. Os limites são por execução; os executores de cada estágio
+ * (AsyncConfig) continuam limitando o total entre execuções.
+ *
+ * O andamento de cada clip fica em {@link PipelineRun}, consultável enquanto a execução está em curso.
+ */
+@Service
+@Slf4j
+public class ClipPipeline {
+
+    private static final int MAX_FINISHED_RUNS = 20;
+
+    private final TwitchService twitchService;
+    private final ClipDownloadService clipDownloadService;
+    private final VideoProbeService videoProbeService;
+    private final AutomatedClipProcessingService processingService;
+    private final YouTubeUploadService uploadService;
+
+    private final Map<String, PipelineRun> runs = new ConcurrentHashMap<>();
+    private final Deque<String> finishedRuns = new ArrayDeque<>();
+
+    @Value("${app.pipeline.download.concurrency:3}")
+    private int downloadConcurrency;
+
+    @Value("${app.pipeline.probe.concurrency:2}")
+    private int probeConcurrency;
+
+    @Value("${app.pipeline.analysis.concurrency:2}")
+    private int analysisConcurrency;
+
+    @Value("${app.pipeline.upload.concurrency:1}")
+    private int uploadConcurrency;
+
+    @Value("${app.pipeline.buffer-size:4}")
+    private int bufferSize;
+
+    @Value("${automation.auto-upload.user-id:}")
+    private String uploadUserId;
+
+    public ClipPipeline(TwitchService twitchService,
+                        ClipDownloadService clipDownloadService,
+                        VideoProbeService videoProbeService,
+                        AutomatedClipProcessingService processingService,
+                        YouTubeUploadService uploadService) {
+        this.twitchService = twitchService;
+        this.clipDownloadService = clipDownloadService;
+        this.videoProbeService = videoProbeService;
+        this.processingService = processingService;
+        this.uploadService = uploadService;
+    }
+
+    /**
+     * Executa o pipeline para os melhores clips do canal
+     *
+     * @return a execução, emitida quando todos os clips terminaram (com sucesso ou não)
+     */
+    public Mono<PipelineRun> run(String channelName, TwitchUserDTO user, int clipLimit, int daysBack) {
+        PipelineRun run = new PipelineRun(channelName, user.getId());
+        runs.put(run.getRunId(), run);
+
+        Flux<TwitchClipDTO> fetched = twitchService.getClipsFromChannelExtended(user.getId(), daysBack);
+
+        return clipDownloadService.selectTopClips(fetched, clipLimit)
+                .doOnNext(run::addClips)
+                .flatMapMany(Flux::fromIterable)
+                .flatMap(clip -> download(run, clip), downloadConcurrency, 1)
+                .limitRate(bufferSize)
+                .flatMap(item -> probe(run, item), probeConcurrency, 1)
+                .limitRate(bufferSize)
+                .flatMap(item -> analyze(run, item), analysisConcurrency, 1)
+                .limitRate(bufferSize)
+                .flatMap(item -> upload(run, item), uploadConcurrency, 1)
+                .then(Mono.fromRunnable(() -> run.finish(null)))
+                .onErrorResume(error -> {
+                    log.error("❌ Erro no pipeline do canal {}: {}", channelName, error.getMessage(), error);
+                    run.finish(error.getMessage());
+                    return Mono.empty();
+                })
+                .doFinally(signal -> retire(run))
+                .thenReturn(run);
+    }
+
+    public Optional<PipelineRun> getRun(String runId) {
+        return Optional.ofNullable(runs.get(runId));
+    }
+
+    /**
+     * Execuções em curso e as últimas concluídas
+     */
+    public List<PipelineRun> getRuns() {
+        return runs.values().stream()
+                .sorted(Comparator.comparing(PipelineRun::isFinished))
+                .toList();
+    }
+
+    private Mono<PipelineItem> download(PipelineRun run, TwitchClipDTO clip) {
+        run.update(clip.getId(), Stage.DOWNLOAD, Status.RUNNING, null);
+        return clipDownloadService.download(clip)
+                .map(downloaded -> {
+                    run.update(clip.getId(), Stage.PROBE, Status.PENDING, null);
+                    return new PipelineItem(clip.getId(), downloaded);
+                })
+                .switchIfEmpty(Mono.fromRunnable(() ->
+                        run.update(clip.getId(), Stage.DOWNLOAD, Status.SKIPPED, "Clip já baixado anteriormente")))
+                .onErrorResume(error -> {
+                    run.update(clip.getId(), Stage.DOWNLOAD, Status.FAILED, error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Os metadados técnicos não são obrigatórios para a análise: uma falha do ffprobe fica registrada
+     * no andamento e o clip segue adiante
+     */
+    private Mono<PipelineItem> probe(PipelineRun run, PipelineItem item) {
+        DownloadedClip clip = item.downloaded;
+        run.update(item.clipId, Stage.PROBE, Status.RUNNING, null);
+        return Mono.fromFuture(() -> videoProbeService.probe(clip.getContentHash(), Paths.get(clip.getFilePath())))
+                .then(Mono.fromRunnable(() -> run.update(item.clipId, Stage.ANALYSIS, Status.PENDING, null)))
+                .onErrorResume(error -> {
+                    log.warn("Não foi possível analisar o arquivo do clip {} com ffprobe: {}",
+                            item.clipId, error.getMessage());
+                    run.update(item.clipId, Stage.ANALYSIS, Status.PENDING, "ffprobe: " + error.getMessage());
+                    return Mono.empty();
+                })
+                .thenReturn(item);
+    }
+
+    private Mono<PipelineItem> analyze(PipelineRun run, PipelineItem item) {
+        run.update(item.clipId, Stage.ANALYSIS, Status.RUNNING, null);
+        return Mono.fromFuture(() -> processingService.processNewlyDownloadedClip(item.downloaded))
+                .flatMap(analysis -> {
+                    item.analysis = analysis;
+                    boolean upload = processingService.qualifiesForAutoUpload(analysis) && !uploadUserId.isBlank();
+                    run.update(item.clipId, builder -> builder
+                            .stage(upload ? Stage.UPLOAD : Stage.ANALYSIS)
+                            .status(upload ? Status.PENDING : Status.COMPLETED)
+                            .message(upload ? null : "Pronto para upload")
+                            .viralScore(analysis.getViralScore())
+                            .estimatedViews(analysis.getEstimatedViews()));
+                    return upload ? Mono.just(item) : Mono.<PipelineItem>empty();
+                })
+                // Sem análise: reprovado no filtro de qualidade (SKIPPED), falha (FAILED) ou o clip
+                // foi reservado por outro worker
+                .switchIfEmpty(Mono.fromRunnable(() -> {
+                    if (item.analysis == null) {
+                        String status = item.downloaded.getProcessingStatus();
+                        if ("FAILED".equals(status)) {
+                            run.update(item.clipId, Stage.ANALYSIS, Status.FAILED, status);
+                        } else if ("SKIPPED".equals(status)) {
+                            run.update(item.clipId, Stage.ANALYSIS, Status.SKIPPED, status);
+                        } else {
+                            run.update(item.clipId, Stage.ANALYSIS, Status.SKIPPED, "Em análise por outro worker");
+                        }
+                    }
+                }))
+                .onErrorResume(error -> {
+                    run.update(item.clipId, Stage.ANALYSIS, Status.FAILED, error.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<PipelineItem> upload(PipelineRun run, PipelineItem item) {
+        run.update(item.clipId, Stage.UPLOAD, Status.RUNNING, null);
+        return Mono.fromFuture(() -> uploadService.autoUploadFromAnalysis(item.downloaded.getId(), uploadUserId))
+                .doOnNext(response -> run.update(item.clipId, builder -> builder
+                        .status(response.isSuccess() ? Status.COMPLETED : Status.FAILED)
+                        .message(response.getMessage())
+                        .youtubeId(response.getYoutubeId())))
+                .onErrorResume(error -> {
+                    run.update(item.clipId, Stage.UPLOAD, Status.FAILED, error.getMessage());
+                    return Mono.empty();
+                })
+                .thenReturn(item);
+    }
+
+    private void retire(PipelineRun run) {
+        synchronized (finishedRuns) {
+            finishedRuns.addLast(run.getRunId());
+            while (finishedRuns.size() > MAX_FINISHED_RUNS) {
+                runs.remove(finishedRuns.removeFirst());
+            }
+        }
+    }
+
+    /**
+     * Clip passando pelos estágios depois do download
+     */
+    private static final class PipelineItem {
+        private final String clipId;
+        private final DownloadedClip downloaded;
+        private ClipAnalysis analysis;
+
+        private PipelineItem(String clipId, DownloadedClip downloaded) {
+            this.clipId = clipId;
+            this.downloaded = downloaded;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.joel.br.AutoClipster.pipeline;
+
+import com.joel.br.AutoClipster.DTO.ClipProgress;
+import com.joel.br.AutoClipster.DTO.ClipProgress.Stage;
+import com.joel.br.AutoClipster.DTO.ClipProgress.Status;
+import com.joel.br.AutoClipster.DTO.TwitchClipDTO;
+import com.joel.br.AutoClipster.DTO.WorkflowResult;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.UnaryOperator;
+
+/**
+ * Execução do pipeline para um canal, com o andamento de cada clip selecionado.
+ *
+ * Os estágios atualizam o andamento de threads diferentes; cada atualização troca o
+ * {@link ClipProgress} inteiro, então quem consulta sempre vê um estado consistente por clip.
+ */
+public class PipelineRun {
+
+    private final String runId = UUID.randomUUID().toString();
+    private final String channelName;
+    private final String channelId;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private final Map<String, ClipProgress> progress = new ConcurrentHashMap<>();
+    // Ordem de ranqueamento, para listar os clips do melhor para o pior
+    private final List<String> clipIds = new CopyOnWriteArrayList<>();
+
+    private volatile LocalDateTime completedAt;
+    private volatile String errorMessage;
+
+    PipelineRun(String channelName, String channelId) {
+        this.channelName = channelName;
+        this.channelId = channelId;
+    }
+
+    public String getRunId() {
+        return runId;
+    }
+
+    public boolean isFinished() {
+        return completedAt != null;
+    }
+
+    void addClips(List<TwitchClipDTO> clips) {
+        for (TwitchClipDTO clip : clips) {
+            progress.put(clip.getId(), ClipProgress.builder()
+                    .clipId(clip.getId())
+                    .title(clip.getTitle())
+                    .viewCount(clip.getViewCount())
+                    .stage(Stage.DOWNLOAD)
+                    .status(Status.PENDING)
+                    .updatedAt(LocalDateTime.now())
+                    .build());
+            clipIds.add(clip.getId());
+        }
+    }
+
+    void update(String clipId, Stage stage, Status status, String message) {
+        update(clipId, builder -> builder.stage(stage).status(status).message(message));
+    }
+
+    void update(String clipId, UnaryOperator<ClipProgress.ClipProgressBuilder> change) {
+        progress.computeIfPresent(clipId, (id, current) ->
+                change.apply(current.toBuilder()).updatedAt(LocalDateTime.now()).build());
+    }
+
+    void finish(String errorMessage) {
+        this.errorMessage = errorMessage;
+        this.completedAt = LocalDateTime.now();
+    }
+
+    public List<ClipProgress> getClips() {
+        return clipIds.stream()
+                .map(progress::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Resultado com os totais calculados a partir do andamento de cada clip desta execução
+     */
+    public WorkflowResult toResult() {
+        List<ClipProgress> clips = getClips();
+
+        int downloaded = 0;
+        int processed = 0;
+        int uploaded = 0;
+        double scoreSum = 0;
+        int scored = 0;
+        int estimatedViews = 0;
+        List<String> readyTitles = new ArrayList<>();
+
+        for (ClipProgress clip : clips) {
+            if (clip.getStage() != Stage.DOWNLOAD) {
+                downloaded++;
+            }
+            // Analisado: aprovado (COMPLETED ou seguiu para upload) ou reprovado no filtro de qualidade (SKIPPED)
+            boolean analyzed = clip.getStage() == Stage.UPLOAD
+                    || (clip.getStage() == Stage.ANALYSIS
+                        && (clip.getStatus() == Status.COMPLETED || clip.getStatus() == Status.SKIPPED));
+            if (analyzed) {
+                processed++;
+            }
+            if (clip.getStage() == Stage.UPLOAD && clip.getStatus() == Status.COMPLETED) {
+                uploaded++;
+            }
+            if (clip.getViralScore() != null) {
+                scoreSum += clip.getViralScore();
+                scored++;
+                readyTitles.add(clip.getTitle());
+            }
+            if (clip.getEstimatedViews() != null) {
+                estimatedViews += clip.getEstimatedViews();
+            }
+        }
+
+        String status;
+        if (errorMessage != null) {
+            status = "FAILED";
+        } else {
+            status = isFinished() ? "COMPLETED" : "IN_PROGRESS";
+        }
+
+        return WorkflowResult.builder()
+                .runId(runId)
+                .channelName(channelName)
+                .channelId(channelId)
+                .clipsDownloaded(downloaded)
+                .clipsProcessed(processed)
+                .clipsUploaded(uploaded)
+                .status(status)
+                .errorMessage(errorMessage)
+                .startedAt(startedAt)
+                .completedAt(completedAt)
+                .processedClipTitles(readyTitles)
+                .averageViralScore(scored > 0 ? scoreSum / scored : null)
+                .totalEstimatedViews(estimatedViews)
+                .clips(clips)
+                .build();
+    }
+}
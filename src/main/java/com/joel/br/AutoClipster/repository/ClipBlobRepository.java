@@ -0,0 +1,99 @@
+package com.joel.br.AutoClipster.repository;
+
+import com.joel.br.AutoClipster.model.ClipBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ClipBlobRepository extends JpaRepository<ClipBlob, String> {
+
+    /**
+     * Registra uma nova referência ao arquivo, criando o registro na primeira vez (upsert atômico)
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO clip_blobs (sha256, file_path, size_bytes, ref_count, created_at, acquired_at, last_accessed_at, access_count) " +
+            "VALUES (:sha256, :filePath, :sizeBytes, 1, now(), now(), now(), 0) " +
+            "ON CONFLICT (sha256) DO UPDATE SET ref_count = clip_blobs.ref_count + 1, file_path = :filePath, " +
+            "acquired_at = now(), last_accessed_at = now()",
+            nativeQuery = true)
+    int acquire(@Param("sha256") String sha256, @Param("filePath") String filePath, @Param("sizeBytes") long sizeBytes);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ClipBlob b SET b.refCount = b.refCount - 1 WHERE b.sha256 = :sha256 AND b.refCount > 0")
+    int decrement(@Param("sha256") String sha256);
+
+    /**
+     * @return 1 se o registro foi removido por não ter mais referências
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ClipBlob b WHERE b.sha256 = :sha256 AND b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("sha256") String sha256);
+
+    /**
+     * Recalcula as referências a partir dos DownloadedClip (corrige contagens após uma queda), só dos
+     * arquivos sem nenhuma referência registrada desde {@code acquiredBefore}: um store() em andamento já
+     * contou a referência, mas o DownloadedClip dele ainda não foi salvo
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE clip_blobs SET ref_count = " +
+            "(SELECT count(*) FROM downloaded_clips d WHERE d.content_hash = clip_blobs.sha256) " +
+            "WHERE COALESCE(acquired_at, created_at) < :acquiredBefore",
+            nativeQuery = true)
+    int recountReferences(@Param("acquiredBefore") LocalDateTime acquiredBefore);
+
+    @Query("SELECT b FROM ClipBlob b WHERE b.refCount <= 0 AND COALESCE(b.acquiredAt, b.createdAt) < :acquiredBefore")
+    List<ClipBlob> findUnreferenced(@Param("acquiredBefore") LocalDateTime acquiredBefore);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ClipBlob b SET b.lastAccessedAt = :accessedAt, b.accessCount = b.accessCount + :count WHERE b.sha256 = :sha256")
+    int recordAccess(@Param("sha256") String sha256, @Param("accessedAt") LocalDateTime accessedAt,
+                     @Param("count") int count);
+
+    @Query("SELECT COALESCE(SUM(b.sizeBytes), 0) FROM ClipBlob b")
+    long sumSizeBytes();
+
+    /**
+     * Arquivos na ordem em que devem ser removidos quando o orçamento de disco estoura: primeiro os
+     * que só pertencem a clips já enviados ao YouTube ou ignorados (SKIPPED), depois os demais; dentro
+     * de cada grupo, o acessado há mais tempo e, no empate, o menos acessado. Arquivos de clips em
+     * análise e os criados depois de {@code createdBefore} nunca são escolhidos.
+     */
+    @Query(value = "SELECT b.* FROM clip_blobs b " +
+            "WHERE b.created_at < :createdBefore " +
+            "AND NOT EXISTS (SELECT 1 FROM downloaded_clips d WHERE d.content_hash = b.sha256 " +
+            "AND d.processing_status = 'ANALYZING') " +
+            "ORDER BY CASE WHEN EXISTS (SELECT 1 FROM downloaded_clips d WHERE d.content_hash = b.sha256 " +
+            "AND d.youtube_id IS NULL AND (d.processing_status IS NULL OR d.processing_status <> 'SKIPPED')) " +
+            "THEN 1 ELSE 0 END, COALESCE(b.last_accessed_at, b.created_at), b.access_count " +
+            "LIMIT :limit",
+            nativeQuery = true)
+    List<ClipBlob> findEvictionCandidates(@Param("createdBefore") LocalDateTime createdBefore, @Param("limit") int limit);
+
+    /**
+     * Arquivos sem uso desde {@code usedBefore}, exceto os de clips em análise. O último uso é o mais
+     * recente entre a leitura do arquivo, a nova referência e o download mais novo que aponta para ele:
+     * um conteúdo antigo baixado de novo por outro clip não expira junto com o primeiro.
+     */
+    @Query(value = "SELECT b.* FROM clip_blobs b " +
+            "CROSS JOIN LATERAL (SELECT GREATEST(b.created_at, b.acquired_at, b.last_accessed_at, " +
+            "(SELECT max(d.download_date) FROM downloaded_clips d WHERE d.content_hash = b.sha256)) AS last_used) u " +
+            "WHERE u.last_used < :usedBefore " +
+            "AND NOT EXISTS (SELECT 1 FROM downloaded_clips d WHERE d.content_hash = b.sha256 " +
+            "AND d.processing_status = 'ANALYZING') " +
+            "ORDER BY u.last_used " +
+            "LIMIT :limit",
+            nativeQuery = true)
+    List<ClipBlob> findExpired(@Param("usedBefore") LocalDateTime usedBefore, @Param("limit") int limit);
+}
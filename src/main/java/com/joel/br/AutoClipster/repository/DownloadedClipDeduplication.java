@@ -0,0 +1,119 @@
+package com.joel.br.AutoClipster.repository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Remove os registros duplicados de downloaded_clips antes de o Hibernate (ddl-auto=update) criar a
+ * restrição única uk_downloaded_clips_clip_id: com duplicatas o ALTER TABLE falha e a restrição não é criada.
+ *
+ * Em cada grupo com o mesmo clip_id fica o registro já processado mais antigo (ou o mais antigo); os
+ * vídeos do YouTube dos demais passam a apontar para ele. As contagens de referência dos arquivos são
+ * refeitas pela reconciliação na inicialização. É uma migração de dados única: só roda em Postgres,
+ * com a tabela existente e sem a restrição, e registra no log cada registro removido.
+ */
+@Component
+@Slf4j
+public class DownloadedClipDeduplication {
+
+    static final String CONSTRAINT = "uk_downloaded_clips_clip_id";
+
+    private static final String DUPLICATES = """
+            SELECT id, FIRST_VALUE(id) OVER (PARTITION BY clip_id ORDER BY processed DESC, id) AS keep_id
+            FROM downloaded_clips""";
+
+    private final DataSource dataSource;
+
+    public DownloadedClipDeduplication(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    public void deduplicate() {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!needsDeduplication(connection)) {
+                return;
+            }
+
+            log.info("Restrição {} ausente em downloaded_clips; procurando registros duplicados", CONSTRAINT);
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                int repointed = 0;
+                if (tableExists(connection, "youtube_videos")) {
+                    repointed = statement.executeUpdate("WITH ranked AS (" + DUPLICATES + ") "
+                            + "UPDATE youtube_videos v SET clip_id = r.keep_id FROM ranked r "
+                            + "WHERE v.clip_id = r.id AND r.id <> r.keep_id");
+                }
+                int deleted = 0;
+                try (ResultSet removed = statement.executeQuery("WITH ranked AS (" + DUPLICATES + ") "
+                        + "DELETE FROM downloaded_clips d USING ranked r WHERE d.id = r.id AND r.id <> r.keep_id "
+                        + "RETURNING d.id, d.clip_id, d.file_path, r.keep_id")) {
+                    while (removed.next()) {
+                        deleted++;
+                        log.warn("Removido registro duplicado de downloaded_clips: id={} clip_id={} arquivo={} "
+                                        + "(mantido id={})", removed.getLong(1), removed.getString(2),
+                                removed.getString(3), removed.getLong(4));
+                    }
+                }
+                connection.commit();
+                if (deleted > 0) {
+                    log.warn("Removidos {} registros duplicados de downloaded_clips ({} vídeos reapontados) "
+                            + "antes de criar {}", deleted, repointed, CONSTRAINT);
+                }
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            // Sem permissão ou tabela com outro formato: o Hibernate segue como antes
+            log.warn("Não foi possível remover duplicatas de downloaded_clips: {}", e.getMessage());
+        }
+    }
+
+    private boolean needsDeduplication(Connection connection) throws SQLException {
+        // As consultas usam o catálogo e a sintaxe do Postgres; outros bancos (ex: H2 local) ficam de fora
+        if (!"PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())
+                || !tableExists(connection, "downloaded_clips")) {
+            return false;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = ? AND conrelid = to_regclass('downloaded_clips'))")) {
+            statement.setString(1, CONSTRAINT);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() && !result.getBoolean(1);
+            }
+        }
+    }
+
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT to_regclass(?) IS NOT NULL")) {
+            statement.setString(1, table);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() && result.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Faz o EntityManagerFactory (e a atualização do esquema) esperar pela deduplicação
+     */
+    @Component
+    static class EntityManagerFactoryDependency extends EntityManagerFactoryDependsOnPostProcessor {
+
+        EntityManagerFactoryDependency() {
+            super(DownloadedClipDeduplication.class);
+        }
+    }
+}
@@ -1,17 +1,178 @@
 package com.joel.br.AutoClipster.repository;
 
 import com.joel.br.AutoClipster.model.DownloadedClip;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface DownloadedClipRepository extends JpaRepository<DownloadedClip, Long> {
-    List<DownloadedClip> findByProcessedFalse();
     List<DownloadedClip> findByClipId(String clipId);
 
+    boolean existsByClipId(String clipId);
+
+    /**
+     * Retorna, dentre os IDs informados, os que já foram baixados (usa o índice único de clip_id)
+     */
+    @Query("SELECT d.clipId FROM DownloadedClip d WHERE d.clipId IN :clipIds")
+    List<String> findExistingClipIds(@Param("clipIds") Collection<String> clipIds);
+
+    /**
+     * IDs dos clips registrados depois do registro {@code afterId}, em ordem, sem carregar as entidades
+     */
+    @Query("SELECT d.id AS id, d.clipId AS clipId FROM DownloadedClip d WHERE d.id > :afterId ORDER BY d.id")
+    List<ClipIdView> findClipIdsAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    /**
+     * Pagina os clips em ordem de ID, sem a consulta de contagem de um Page
+     */
+    @Query("SELECT d FROM DownloadedClip d ORDER BY d.id")
+    Slice<DownloadedClip> findAllOrderById(Pageable pageable);
+
+    List<DownloadedClip> findByDownloadDateBefore(LocalDateTime downloadDate);
+
+    /**
+     * Desassocia os clips de um arquivo removido do disco; o registro é mantido para que o clip
+     * não volte a ser baixado
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE DownloadedClip d SET d.filePath = NULL, d.contentHash = NULL WHERE d.contentHash = :contentHash")
+    int clearContent(@Param("contentHash") String contentHash);
+
+    @Query("SELECT d.clipId FROM DownloadedClip d WHERE d.contentHash = :contentHash")
+    List<String> findClipIdsByContentHash(@Param("contentHash") String contentHash);
+
+    /**
+     * Clips com arquivo no diretório antigo (fora do armazenamento por conteúdo), em ordem de ID
+     */
+    @Query("SELECT d FROM DownloadedClip d WHERE d.contentHash IS NULL AND d.filePath IS NOT NULL " +
+            "AND d.id > :afterId ORDER BY d.id")
+    List<DownloadedClip> findLegacyFiles(@Param("afterId") long afterId, Pageable pageable);
+
+    /**
+     * Atualiza apenas o arquivo, sem sobrescrever alterações concorrentes nos demais campos
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE DownloadedClip d SET d.filePath = :filePath, d.contentHash = :contentHash WHERE d.id = :id")
+    int updateContent(@Param("id") Long id, @Param("filePath") String filePath, @Param("contentHash") String contentHash);
+
+    /**
+     * Reserva o clip para análise por um worker: só tem efeito se ele ainda não foi processado, não
+     * está reservado (ou a reserva expirou, ex: o nó caiu), não esgotou as tentativas e não está
+     * aguardando o backoff de uma falha. O UPDATE condicional é atômico, então apenas um entre vários
+     * workers concorrentes consegue a reserva.
+     *
+     * @return 1 se a reserva foi obtida, 0 se o clip já foi processado ou está com outro worker
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE DownloadedClip d SET d.processingStatus = 'ANALYZING', d.leaseOwner = :owner, " +
+            "d.leaseUntil = :leaseUntil, d.attempts = d.attempts + 1 " +
+            "WHERE d.id = :id AND d.processed = false AND d.attempts < :maxAttempts " +
+            "AND (d.nextAttemptAt IS NULL OR d.nextAttemptAt <= :now) " +
+            "AND (d.processingStatus IS NULL OR d.processingStatus <> 'ANALYZING' " +
+            "OR d.leaseUntil IS NULL OR d.leaseUntil < :now)")
+    int claimForAnalysis(@Param("id") Long id, @Param("owner") String owner,
+                         @Param("leaseUntil") LocalDateTime leaseUntil, @Param("now") LocalDateTime now,
+                         @Param("maxAttempts") int maxAttempts);
+
+    /**
+     * Próximos clips disponíveis para análise (mesmas condições de claimForAnalysis), bloqueados até o
+     * fim da transação. SKIP LOCKED pula as linhas que outro nó está reservando no mesmo instante, então
+     * nós concorrentes pegam lotes diferentes sem esperar uns pelos outros.
+     */
+    @Query(value = "SELECT * FROM downloaded_clips " +
+            "WHERE processed = false AND attempts < :maxAttempts " +
+            "AND (download_date IS NULL OR download_date < :readyBefore) " +
+            "AND (next_attempt_at IS NULL OR next_attempt_at <= :now) " +
+            "AND (processing_status IS NULL OR processing_status <> 'ANALYZING' " +
+            "OR lease_until IS NULL OR lease_until < :now) " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<DownloadedClip> lockNextForAnalysis(@Param("readyBefore") LocalDateTime readyBefore,
+                                             @Param("now") LocalDateTime now,
+                                             @Param("maxAttempts") int maxAttempts,
+                                             @Param("limit") int limit);
+
+    /**
+     * Heartbeat: estende as reservas ainda detidas pelo worker
+     *
+     * @return quantas reservas foram renovadas
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE DownloadedClip d SET d.leaseUntil = :leaseUntil " +
+            "WHERE d.leaseOwner IN :owners AND d.processingStatus = 'ANALYZING'")
+    int renewLeases(@Param("owners") Collection<String> owners, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Grava o resultado da análise e libera a reserva, desde que ela ainda seja do worker; uma reserva
+     * expirada e tomada por outro worker não é sobrescrita
+     *
+     * @return 0 se a reserva não pertence mais ao worker
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE DownloadedClip d SET d.processingStatus = :status, d.processed = true, " +
+            "d.leaseUntil = NULL, d.leaseOwner = NULL " +
+            "WHERE d.id = :id AND d.processingStatus = 'ANALYZING' AND d.leaseOwner = :owner")
+    int completeAnalysis(@Param("id") Long id, @Param("status") String status, @Param("owner") String owner);
+
+    /**
+     * Libera a reserva de uma análise que falhou, deixando o clip pendente até nextAttemptAt
+     *
+     * @return 0 se a reserva não pertence mais ao worker
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE DownloadedClip d SET d.processingStatus = :status, d.nextAttemptAt = :nextAttemptAt, " +
+            "d.leaseUntil = NULL, d.leaseOwner = NULL " +
+            "WHERE d.id = :id AND d.processingStatus = 'ANALYZING' AND d.leaseOwner = :owner")
+    int scheduleRetry(@Param("id") Long id, @Param("status") String status, @Param("owner") String owner,
+                      @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    /**
+     * Marca como FAILED os clips que esgotaram as tentativas e não têm reserva ativa, como o de um nó
+     * que caiu durante a última tentativa (nem a reserva nem a fila voltariam a pegá-lo)
+     *
+     * @return quantos clips foram marcados
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE DownloadedClip d SET d.processingStatus = 'FAILED', d.processed = true, " +
+            "d.leaseUntil = NULL, d.leaseOwner = NULL " +
+            "WHERE d.processed = false AND d.attempts >= :maxAttempts " +
+            "AND (d.processingStatus IS NULL OR d.processingStatus <> 'ANALYZING' " +
+            "OR d.leaseUntil IS NULL OR d.leaseUntil < :now)")
+    int failExhausted(@Param("maxAttempts") int maxAttempts, @Param("now") LocalDateTime now);
+
+    /**
+     * Devolve à fila um clip reservado que não chegou a ser analisado, sem contar a tentativa
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE DownloadedClip d SET d.processingStatus = NULL, d.attempts = d.attempts - 1, " +
+            "d.leaseUntil = NULL, d.leaseOwner = NULL " +
+            "WHERE d.id = :id AND d.processingStatus = 'ANALYZING' AND d.leaseOwner = :owner")
+    int releaseClaim(@Param("id") Long id, @Param("owner") String owner);
+
     long countByProcessedTrue();
 
     long countByProcessedFalse();
+
+    interface ClipIdView {
+        Long getId();
+
+        String getClipId();
+    }
 }
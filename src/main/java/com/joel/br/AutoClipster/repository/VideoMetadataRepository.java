@@ -0,0 +1,9 @@
+package com.joel.br.AutoClipster.repository;
+
+import com.joel.br.AutoClipster.model.VideoMetadata;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface VideoMetadataRepository extends JpaRepository<VideoMetadata, String> {
+}
@@ -1,20 +1,21 @@
 package com.joel.br.AutoClipster.services;
 
+import com.joel.br.AutoClipster.config.AsyncConfig;
 import com.joel.br.AutoClipster.model.DownloadedClip;
 import com.joel.br.AutoClipster.repository.DownloadedClipRepository;
 import com.joel.br.AutoClipster.services.GeminiAnalysisService.ClipAnalysis;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Serviço responsável pelo processamento automático de clips
@@ -22,11 +23,12 @@ import java.util.concurrent.CompletableFuture;
  */
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class AutomatedClipProcessingService {
 
     private final DownloadedClipRepository downloadedClipRepository;
     private final GeminiAnalysisService geminiAnalysisService;
+    private final ClipAnalysisQueue clipAnalysisQueue;
+    private final Executor analysisExecutor;
 
     @Value("${automation.quality.min-viral-score:6.0}")
     private Double minViralScore;
@@ -46,78 +48,107 @@ public class AutomatedClipProcessingService {
     @Value("${automation.auto-upload.min-score:8.0}")
     private Double autoUploadMinScore;
 
+    public AutomatedClipProcessingService(DownloadedClipRepository downloadedClipRepository,
+                                          GeminiAnalysisService geminiAnalysisService,
+                                          ClipAnalysisQueue clipAnalysisQueue,
+                                          @Qualifier(AsyncConfig.ANALYSIS_EXECUTOR) Executor analysisExecutor) {
+        this.downloadedClipRepository = downloadedClipRepository;
+        this.geminiAnalysisService = geminiAnalysisService;
+        this.clipAnalysisQueue = clipAnalysisQueue;
+        this.analysisExecutor = analysisExecutor;
+    }
+
+    /**
+     * Processa um clip recém-baixado de forma assíncrona, no executor de análise.
+     *
+     * O clip é reservado antes da análise: o evento de download, o job agendado e o pipeline podem
+     * pedir o mesmo clip, mas só quem obtiver a reserva chama o Gemini. Sem transação em volta, para
+     * não segurar uma conexão do banco durante as chamadas ao Gemini.
+     *
+     * @return a análise do clip, ou null se ele não passou no filtro de qualidade, a análise falhou
+     *         (o motivo fica em processingStatus) ou o clip já estava processado ou reservado
+     */
+    @Async(AsyncConfig.ANALYSIS_EXECUTOR)
+    public CompletableFuture<ClipAnalysis> processNewlyDownloadedClip(DownloadedClip downloadedClip) {
+        if (!clipAnalysisQueue.claim(downloadedClip)) {
+            log.debug("Clip '{}' já processado, em análise por outro worker ou aguardando nova tentativa",
+                    downloadedClip.getTitle());
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.completedFuture(analyzeClaimedClip(downloadedClip));
+    }
+
     /**
-     * Processa um clip recém-baixado de forma assíncrona
+     * Analisa um clip já reservado por este worker e grava o resultado, liberando a reserva
      */
-    @Async
-    @Transactional
-    public CompletableFuture<Void> processNewlyDownloadedClip(DownloadedClip downloadedClip) {
+    private ClipAnalysis analyzeClaimedClip(DownloadedClip downloadedClip) {
         log.info("🔄 Iniciando processamento automático do clip: {}", downloadedClip.getTitle());
         
         try {
-            // 1. Marcar como processando
-            downloadedClip.setProcessingStatus("ANALYZING");
-            downloadedClipRepository.save(downloadedClip);
-            
-            // 2. Executar análise completa com Gemini
+            // 1. Executar análise completa com Gemini
             ClipAnalysis analysis = performFullGeminiAnalysis(downloadedClip);
             
-            // 3. Aplicar filtros de qualidade
+            // 2. Aplicar filtros de qualidade
             if (!passesQualityFilter(analysis, downloadedClip)) {
                 log.info("❌ Clip '{}' não passou no filtro de qualidade", downloadedClip.getTitle());
-                downloadedClip.setProcessingStatus("SKIPPED");
-                downloadedClip.setProcessed(true);
-                downloadedClipRepository.save(downloadedClip);
-                return CompletableFuture.completedFuture(null);
+                clipAnalysisQueue.complete(downloadedClip, "SKIPPED");
+                return null;
             }
             
-            // 4. Salvar resultados da análise
+            // 3. Salvar resultados da análise
             saveAnalysisResults(downloadedClip, analysis);
             
-            // 5. Marcar como processado com sucesso
-            downloadedClip.setProcessingStatus("READY_FOR_UPLOAD");
-            downloadedClip.setProcessed(true);
-            downloadedClipRepository.save(downloadedClip);
+            // 4. Marcar como processado com sucesso
+            clipAnalysisQueue.complete(downloadedClip, "READY_FOR_UPLOAD");
             
             log.info("✅ Processamento automático concluído para: {} (Score: {})", 
                     downloadedClip.getTitle(), analysis.getViralScore());
+            return analysis;
             
         } catch (Exception e) {
             log.error("❌ Erro no processamento automático do clip {}: {}", 
                      downloadedClip.getTitle(), e.getMessage());
-            downloadedClip.setProcessingStatus("FAILED");
-            downloadedClip.setProcessed(true);
-            downloadedClipRepository.save(downloadedClip);
+            // Volta para a fila com backoff, ou FAILED se esgotou as tentativas
+            clipAnalysisQueue.fail(downloadedClip);
         }
         
-        return CompletableFuture.completedFuture(null);
+        return null;
     }
 
     /**
-     * Job agendado para processar clips pendentes a cada 5 minutos
+     * Indica se o clip analisado deve ser enviado ao YouTube automaticamente
+     * (automation.auto-upload.enabled e score viral mínimo automation.auto-upload.min-score)
      */
-    @Scheduled(fixedDelay = 300000) // 5 minutos
-    @Transactional
+    public boolean qualifiesForAutoUpload(ClipAnalysis analysis) {
+        return Boolean.TRUE.equals(autoUploadEnabled)
+                && analysis != null
+                && analysis.getViralScore() >= autoUploadMinScore;
+    }
+
+    /**
+     * Job agendado que reserva o próximo lote de clips pendentes na fila do banco e os analisa neste
+     * nó; com várias réplicas, cada uma pega lotes diferentes (automation.queue.*)
+     */
+    @Scheduled(fixedDelayString = "${automation.queue.poll-interval-ms:30000}")
     public void processUnprocessedClips() {
         log.debug("🔍 Verificando clips não processados...");
         
-        List<DownloadedClip> unprocessedClips = downloadedClipRepository.findByProcessedFalse();
+        List<DownloadedClip> claimedClips = clipAnalysisQueue.dequeue();
         
-        if (unprocessedClips.isEmpty()) {
+        if (claimedClips.isEmpty()) {
             log.debug("✅ Nenhum clip pendente para processamento");
             return;
         }
         
-        log.info("📦 Encontrados {} clips para processamento automático", unprocessedClips.size());
+        log.info("📦 {} clips reservados para processamento automático", claimedClips.size());
         
-        for (DownloadedClip clip : unprocessedClips) {
-            // Evitar processar clips muito recentes (dar tempo para o download finalizar)
-            if (clip.getDownloadDate().isAfter(LocalDateTime.now().minusMinutes(2))) {
-                log.debug("⏳ Clip muito recente, aguardando: {}", clip.getTitle());
-                continue;
+        for (DownloadedClip clip : claimedClips) {
+            try {
+                analysisExecutor.execute(() -> analyzeClaimedClip(clip));
+            } catch (RejectedExecutionException e) {
+                log.warn("⚠️ Executor de análise cheio; clip '{}' devolvido à fila", clip.getTitle());
+                clipAnalysisQueue.release(clip);
             }
-            
-            processNewlyDownloadedClip(clip);
         }
     }
 
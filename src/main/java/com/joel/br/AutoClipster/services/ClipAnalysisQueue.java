@@ -0,0 +1,246 @@
+package com.joel.br.AutoClipster.services;
+
+import com.joel.br.AutoClipster.DTO.QueueStats;
+import com.joel.br.AutoClipster.model.DownloadedClip;
+import com.joel.br.AutoClipster.repository.DownloadedClipRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fila de análise de clips no banco, compartilhada entre as réplicas.
+ *
+ * Cada nó reserva lotes com SELECT ... FOR UPDATE SKIP LOCKED, só até o número de análises que ele
+ * comporta (automation.queue.max-in-flight), então a vazão cresce com o número de nós. A reserva tem
+ * prazo e é renovada pelo heartbeat enquanto a análise roda; se o nó cair, ela expira e outro nó retoma
+ * o clip. Falhas voltam para a fila com backoff exponencial até automation.queue.max-attempts; um clip
+ * cuja última tentativa foi interrompida (nó caiu) é marcado como FAILED quando a reserva expira.
+ */
+@Service
+@Slf4j
+public class ClipAnalysisQueue {
+
+    private final DownloadedClipRepository downloadedClipRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String workerId;
+
+    // Reservas detidas por este nó: ID do clip → dono da reserva
+    private final Map<Long, String> leases = new ConcurrentHashMap<>();
+
+    @Value("${automation.analysis.lease-minutes:2}")
+    private long leaseMinutes;
+
+    @Value("${automation.queue.max-in-flight:4}")
+    private int maxInFlight;
+
+    @Value("${automation.queue.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${automation.queue.retry.backoff-seconds:60}")
+    private long backoffSeconds;
+
+    @Value("${automation.queue.retry.max-backoff-seconds:3600}")
+    private long maxBackoffSeconds;
+
+    @Value("${automation.queue.ready-after-seconds:120}")
+    private long readyAfterSeconds;
+
+    public ClipAnalysisQueue(DownloadedClipRepository downloadedClipRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${automation.queue.worker-id:}") String workerId) {
+        this.downloadedClipRepository = downloadedClipRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workerId = workerId.isBlank() ? defaultWorkerId() : workerId;
+    }
+
+    /**
+     * Reserva um clip específico (evento de download, pipeline, reprocessamento manual)
+     *
+     * @return false se o clip já foi processado, está com outro worker ou aguarda nova tentativa
+     */
+    public boolean claim(DownloadedClip clip) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseUntil = now.plusMinutes(leaseMinutes);
+        String owner = newOwner();
+        if (downloadedClipRepository.claimForAnalysis(clip.getId(), owner, leaseUntil, now, maxAttempts) == 0) {
+            return false;
+        }
+        hold(clip, owner, leaseUntil);
+        return true;
+    }
+
+    /**
+     * Reserva o próximo lote de clips pendentes, do tamanho da capacidade livre deste nó. Os clips
+     * baixados há menos de automation.queue.ready-after-seconds ficam com o evento de download ou o
+     * pipeline que os baixou.
+     */
+    public List<DownloadedClip> dequeue() {
+        int capacity = maxInFlight - leases.size();
+        if (capacity <= 0) {
+            return List.of();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseUntil = now.plusMinutes(leaseMinutes);
+        // As linhas ficam bloqueadas só até o commit; a partir daí é a reserva que as protege
+        List<DownloadedClip> clips = transactionTemplate.execute(status -> {
+            List<DownloadedClip> locked = downloadedClipRepository.lockNextForAnalysis(
+                    now.minusSeconds(readyAfterSeconds), now, maxAttempts, capacity);
+            locked.forEach(clip -> {
+                clip.setProcessingStatus("ANALYZING");
+                clip.setLeaseOwner(newOwner());
+                clip.setLeaseUntil(leaseUntil);
+                clip.setAttempts(clip.getAttempts() + 1);
+            });
+            return locked;
+        });
+        if (clips == null) {
+            return List.of();
+        }
+        clips.forEach(clip -> leases.put(clip.getId(), clip.getLeaseOwner()));
+        return clips;
+    }
+
+    /**
+     * Grava o status final e libera a reserva; se ela expirou e outro worker reservou o clip, o
+     * resultado deste worker é descartado
+     *
+     * @return false se a reserva não pertencia mais a este worker
+     */
+    public boolean complete(DownloadedClip clip, String status) {
+        int updated = downloadedClipRepository.completeAnalysis(clip.getId(), status, clip.getLeaseOwner());
+        leases.remove(clip.getId());
+        clip.setProcessingStatus(status);
+        clip.setProcessed(true);
+        clip.setLeaseOwner(null);
+        clip.setLeaseUntil(null);
+        if (updated == 0) {
+            log.warn("⚠️ Reserva do clip '{}' expirou durante a análise; resultado {} descartado",
+                    clip.getTitle(), status);
+        }
+        return updated > 0;
+    }
+
+    /**
+     * Registra uma análise que falhou: o clip volta para a fila após o backoff ou, esgotadas as
+     * tentativas, é marcado como FAILED
+     *
+     * @return true se haverá nova tentativa
+     */
+    public boolean fail(DownloadedClip clip) {
+        if (clip.getAttempts() >= maxAttempts) {
+            complete(clip, "FAILED");
+            return false;
+        }
+
+        LocalDateTime nextAttemptAt = LocalDateTime.now().plusSeconds(backoffSeconds(clip.getAttempts()));
+        int updated = downloadedClipRepository.scheduleRetry(clip.getId(), "RETRY_SCHEDULED",
+                clip.getLeaseOwner(), nextAttemptAt);
+        leases.remove(clip.getId());
+        clip.setProcessingStatus("RETRY_SCHEDULED");
+        clip.setNextAttemptAt(nextAttemptAt);
+        clip.setLeaseOwner(null);
+        clip.setLeaseUntil(null);
+        if (updated == 0) {
+            log.warn("⚠️ Reserva do clip '{}' expirou durante a análise; falha descartada", clip.getTitle());
+            return false;
+        }
+        log.info("🔁 Nova tentativa do clip '{}' ({}/{}) em {}", clip.getTitle(), clip.getAttempts() + 1,
+                maxAttempts, nextAttemptAt);
+        return true;
+    }
+
+    /**
+     * Devolve à fila um clip reservado que não chegou a ser analisado (ex: executor cheio)
+     */
+    public void release(DownloadedClip clip) {
+        downloadedClipRepository.releaseClaim(clip.getId(), clip.getLeaseOwner());
+        leases.remove(clip.getId());
+        clip.setProcessingStatus(null);
+        clip.setAttempts(clip.getAttempts() - 1);
+        clip.setLeaseOwner(null);
+        clip.setLeaseUntil(null);
+    }
+
+    /**
+     * Renova as reservas das análises em andamento neste nó, bem antes de expirarem
+     */
+    @Scheduled(fixedDelayString = "${automation.queue.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        List<String> owners = List.copyOf(leases.values());
+        if (owners.isEmpty()) {
+            return;
+        }
+        int renewed = downloadedClipRepository.renewLeases(owners, LocalDateTime.now().plusMinutes(leaseMinutes));
+        if (renewed < owners.size()) {
+            // Análises concluídas desde a cópia também entram aqui; as realmente perdidas são
+            // descartadas ao concluir
+            log.debug("{} de {} reservas não renovadas", owners.size() - renewed, owners.size());
+        }
+    }
+
+    /**
+     * Encerra como FAILED os clips com as tentativas esgotadas cuja reserva expirou; executado em
+     * todos os nós, o UPDATE é idempotente
+     */
+    @Scheduled(fixedDelayString = "${automation.queue.poll-interval-ms:30000}")
+    public void failExhausted() {
+        int failed = downloadedClipRepository.failExhausted(maxAttempts, LocalDateTime.now());
+        if (failed > 0) {
+            log.warn("❌ {} clips esgotaram as {} tentativas sem concluir a análise e foram marcados como FAILED",
+                    failed, maxAttempts);
+        }
+    }
+
+    public QueueStats getStats() {
+        return QueueStats.builder()
+                .workerId(workerId)
+                .inFlight(leases.size())
+                .maxInFlight(maxInFlight)
+                .maxAttempts(maxAttempts)
+                .pending(downloadedClipRepository.countByProcessedFalse())
+                .build();
+    }
+
+    /**
+     * Espera antes da próxima tentativa: backoff-seconds dobrando a cada falha, até max-backoff-seconds
+     */
+    long backoffSeconds(int attempts) {
+        int exponent = Math.min(Math.max(attempts - 1, 0), 30);
+        return Math.min(backoffSeconds << exponent, maxBackoffSeconds);
+    }
+
+    private void hold(DownloadedClip clip, String owner, LocalDateTime leaseUntil) {
+        leases.put(clip.getId(), owner);
+        clip.setProcessingStatus("ANALYZING");
+        clip.setLeaseOwner(owner);
+        clip.setLeaseUntil(leaseUntil);
+        clip.setAttempts(clip.getAttempts() + 1);
+    }
+
+    private String newOwner() {
+        return workerId + "/" + UUID.randomUUID();
+    }
+
+    private static String defaultWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        String id = host + "-" + ProcessHandle.current().pid();
+        return id.length() > 80 ? id.substring(0, 80) : id;
+    }
+}
@@ -0,0 +1,90 @@
+package com.joel.br.AutoClipster.services;
+
+import com.joel.br.AutoClipster.repository.DownloadedClipRepository;
+import com.joel.br.AutoClipster.storage.ClipContentStore;
+import com.joel.br.AutoClipster.storage.ClipPathIndex;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+
+/**
+ * Localiza o arquivo de vídeo de um clip para ser servido por HTTP
+ */
+@Service
+@RequiredArgsConstructor
+public class ClipContentService {
+
+    private final ClipPathIndex clipPathIndex;
+    private final ClipContentStore clipContentStore;
+    private final DownloadedClipRepository downloadedClipRepository;
+
+    /**
+     * Procura primeiro no índice em memória e só consulta o banco para clips fora dele
+     *
+     * @param clipId ID do clip na Twitch
+     */
+    public Optional<ClipContent> find(String clipId) {
+        Path path = clipPathIndex.get(clipId)
+                .filter(Files::exists)
+                .or(() -> downloadedClipRepository.findByClipId(clipId).stream()
+                        .map(clipPathIndex::resolve)
+                        .filter(candidate -> candidate != null && Files.exists(candidate))
+                        .findFirst())
+                .orElse(null);
+        if (path == null) {
+            return Optional.empty();
+        }
+
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            return Optional.of(new ClipContent(path, attributes.size(), lastModified,
+                    eTag(path, attributes.size(), lastModified)));
+        } catch (IOException e) {
+            // Removido entre a verificação e a leitura dos atributos
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Registra a leitura para a ordem de despejo do armazenamento
+     */
+    public void recordAccess(ClipContent content) {
+        if (clipContentStore.isBlob(content.getPath())) {
+            clipContentStore.recordAccess(hashOf(content.getPath()));
+        }
+    }
+
+    /**
+     * No armazenamento por conteúdo o nome do arquivo já é o SHA-256, um ETag forte sem custo;
+     * arquivos antigos usam tamanho e data de modificação
+     */
+    private String eTag(Path path, long size, long lastModified) {
+        if (clipContentStore.isBlob(path)) {
+            return "\"" + hashOf(path) + "\"";
+        }
+        return "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    private String hashOf(Path blob) {
+        String name = blob.getFileName().toString();
+        int dot = name.indexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class ClipContent {
+        private final Path path;
+        private final long size;
+        private final long lastModified;
+        private final String eTag;
+    }
+}
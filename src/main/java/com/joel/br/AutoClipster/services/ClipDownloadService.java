@@ -1,65 +1,116 @@
 // Serviço para baixar clips da Twitch
 package com.joel.br.AutoClipster.services;
 
+import com.joel.br.AutoClipster.DTO.DownloadProgress;
+import com.joel.br.AutoClipster.DTO.DownloadResult;
 import com.joel.br.AutoClipster.DTO.TwitchClipDTO;
+import com.joel.br.AutoClipster.config.AsyncConfig;
+import com.joel.br.AutoClipster.config.InstrumentedTaskExecutor;
+import com.joel.br.AutoClipster.download.ClipDownloader;
+import com.joel.br.AutoClipster.download.DownloadedFile;
 import com.joel.br.AutoClipster.events.ClipDownloadedEvent;
+import com.joel.br.AutoClipster.limiter.ConcurrencyLimiter;
+import com.joel.br.AutoClipster.limiter.ConcurrencyLimiter.Dependency;
 import com.joel.br.AutoClipster.model.DownloadedClip;
 import com.joel.br.AutoClipster.repository.DownloadedClipRepository;
+import com.joel.br.AutoClipster.storage.ClipContentStore;
+import com.joel.br.AutoClipster.storage.ClipPathIndex;
+import com.joel.br.AutoClipster.storage.StorageOwnership;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 import jakarta.annotation.PostConstruct;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @Slf4j
 public class ClipDownloadService {
 
+    private static final int DEDUP_BATCH_SIZE = 500;
+    private static final String STAGING_DIR = ".staging";
+
     private final DownloadedClipRepository downloadedClipRepository;
-    private final ResourceLoader resourceLoader;
+    private final KnownClipsService knownClipsService;
+    private final ClipDownloader clipDownloader;
+    private final ClipContentStore clipContentStore;
+    private final ClipPathIndex clipPathIndex;
+    private final StorageOwnership storageOwnership;
+    private final VideoProbeService videoProbeService;
+    private final InstrumentedTaskExecutor downloadExecutor;
+    private final ConcurrencyLimiter concurrencyLimiter;
     private final ApplicationEventPublisher eventPublisher;
     
     @Value("${app.clips.download-path:./downloads}")
     private String downloadPath;
     
-    @Value("${app.download.timeout:300}")
-    private int downloadTimeout;
+    @Value("${app.download.max-per-channel:2}")
+    private int maxDownloadsPerChannel;
     
-    private String ytDlpPath;
+    /**
+     * Scheduler sobre o executor de downloads (app.download.max-concurrent threads), o limite
+     * global de downloads simultâneos
+     */
+    private Scheduler downloadScheduler;
+
+    /**
+     * Downloads em andamento por clipId. Os caminhos de preparação (.staging, .part, diário, saída do
+     * yt-dlp) são determinísticos, então dois downloads do mesmo clip (dois workflows, dois canais ou o
+     * pipeline e um pedido manual) não podem rodar juntos; só o nó dono baixa, então basta este processo.
+     */
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
 
     public ClipDownloadService(DownloadedClipRepository downloadedClipRepository, 
-                              ResourceLoader resourceLoader,
+                              KnownClipsService knownClipsService,
+                              ClipDownloader clipDownloader,
+                              ClipContentStore clipContentStore,
+                              ClipPathIndex clipPathIndex,
+                              StorageOwnership storageOwnership,
+                              VideoProbeService videoProbeService,
+                              @Qualifier(AsyncConfig.DOWNLOAD_EXECUTOR) InstrumentedTaskExecutor downloadExecutor,
+                              ConcurrencyLimiter concurrencyLimiter,
                               ApplicationEventPublisher eventPublisher) {
         this.downloadedClipRepository = downloadedClipRepository;
-        this.resourceLoader = resourceLoader;
+        this.knownClipsService = knownClipsService;
+        this.clipDownloader = clipDownloader;
+        this.clipContentStore = clipContentStore;
+        this.clipPathIndex = clipPathIndex;
+        this.storageOwnership = storageOwnership;
+        this.videoProbeService = videoProbeService;
+        this.downloadExecutor = downloadExecutor;
+        this.concurrencyLimiter = concurrencyLimiter;
         this.eventPublisher = eventPublisher;
     }
     
     @PostConstruct
     public void initialize() {
+        downloadScheduler = Schedulers.fromExecutorService(downloadExecutor.getThreadPoolExecutor(), "clip-download");
+        
         // Garantir que o diretório de download existe
         try {
             Files.createDirectories(Paths.get(downloadPath));
-            setupYtDlp();
             log.info("ClipDownloadService inicializado com sucesso. Download path: {}", downloadPath);
         } catch (IOException e) {
             log.error("Erro ao inicializar ClipDownloadService: {}", e.getMessage());
@@ -67,151 +118,210 @@ public class ClipDownloadService {
     }
     
     /**
-     * Configura o yt-dlp.exe, copiando-o do classpath para um local temporário se necessário
-     */
-    private void setupYtDlp() throws IOException {
-        // Tentar usar o yt-dlp.exe do classpath
-        Resource ytDlpResource = resourceLoader.getResource("classpath:yt-dlp.exe");
-        if (ytDlpResource.exists()) {
-            File tempDir = new File(System.getProperty("java.io.tmpdir"), "autoclipster");
-            tempDir.mkdirs();
-            
-            File ytDlpFile = new File(tempDir, "yt-dlp.exe");
-            Files.copy(ytDlpResource.getInputStream(), ytDlpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-            ytDlpFile.setExecutable(true);
-            
-            ytDlpPath = ytDlpFile.getAbsolutePath();
-            log.info("yt-dlp.exe configurado em: {}", ytDlpPath);
-        } else {
-            // Fallback para 'yt-dlp' no PATH
-            ytDlpPath = "yt-dlp";
-            log.warn("yt-dlp.exe não encontrado no classpath, usando comando 'yt-dlp' do PATH");
-        }
-    }
-    
-    /**
-     * Baixa os N primeiros clipes, ordenados por visualizações
+     * Baixa os N primeiros clipes, ordenados por visualizações (ou data de criação, quando não houver)
      */
     public Mono<Integer> downloadTopClips(Flux<TwitchClipDTO> clipsFlux, int limit) {
         log.info("Iniciando download dos {} melhores clips", limit);
 
-        return clipsFlux
-                .collectList()
-                .flatMap(clips -> {
-                    log.info("Total de clips recebidos: {}", clips.size());
-                    
-                    if (clips.isEmpty()) {
-                        log.warn("Nenhum clip foi fornecido para download");
+        return selectTopClips(clipsFlux, limit)
+                .flatMap(topClips -> {
+                    if (topClips.isEmpty()) {
                         return Mono.just(0);
                     }
 
-                    // Log detalhado dos clips recebidos
-                    clips.forEach(clip -> {
-                        if (clip.getViewCount() == null) {
-                            log.warn("Clip '{}' tem viewCount null", clip.getTitle());
-                        } else {
-                            log.debug("Clip '{}' tem {} visualizações", clip.getTitle(), clip.getViewCount());
-                        }
-                    });
+                    log.info("Iniciando download de {} clips", topClips.size());
 
-                    // Buscar clips já baixados de forma síncrona
-                    List<DownloadedClip> existingClips = downloadedClipRepository.findAll();
-                    List<String> existingUrls = existingClips.stream()
-                            .map(DownloadedClip::getOriginalUrl)
-                            .toList();
+                    // Baixar clips em paralelo (app.download.max-concurrent)
+                    return downloadClips(Flux.fromIterable(topClips))
+                            .filter(DownloadResult::isSuccess)
+                            .count()
+                            .map(Long::intValue)
+                            .doOnNext(downloadedCount -> log.info("Download concluído para {} clips", downloadedCount));
+                })
+                .onErrorResume(error -> {
+                    log.error("Erro durante o processo de download: {}", error.getMessage(), error);
+                    return Mono.just(0);
+                });
+    }
 
-                    // Filtrar clips que ainda não foram baixados
-                    List<TwitchClipDTO> newClips = clips.stream()
-                            .filter(clip -> !existingUrls.contains(clip.getUrl()))
-                            .toList();
+    /**
+     * Seleciona os N melhores clips ainda não baixados, ordenados por visualizações (ou data de criação).
+     * O fluxo é consumido em streaming: clips já baixados são descartados em lotes e apenas os N
+     * melhores ficam em memória.
+     */
+    public Mono<List<TwitchClipDTO>> selectTopClips(Flux<TwitchClipDTO> clipsFlux, int limit) {
+        AtomicInteger received = new AtomicInteger();
+        AtomicInteger alreadyDownloaded = new AtomicInteger();
 
-                    log.info("Clips não baixados: {}", newClips.size());
+        Flux<TwitchClipDTO> newClips = clipsFlux
+                .doOnNext(clip -> {
+                    received.incrementAndGet();
+                    if (clip.getViewCount() == null) {
+                        log.warn("Clip '{}' tem viewCount null", clip.getTitle());
+                    }
+                })
+                .buffer(DEDUP_BATCH_SIZE)
+                // A verificação de clips conhecidos pode consultar o banco
+                .publishOn(Schedulers.boundedElastic())
+                .concatMapIterable(batch -> {
+                    // Verificar em lote quais clips já foram baixados (filtro de Bloom + consulta IN)
+                    Set<String> knownIds = knownClipsService.findKnown(
+                            batch.stream().map(TwitchClipDTO::getId).toList());
+                    alreadyDownloaded.addAndGet(knownIds.size());
+                    return batch.stream()
+                            .filter(clip -> !knownIds.contains(clip.getId()))
+                            .toList();
+                });
 
-                    if (newClips.isEmpty()) {
-                        log.info("Todos os clips já foram baixados anteriormente");
-                        return Mono.just(0);
+        return ClipRanking.topK(newClips, limit)
+                .doOnNext(topClips -> {
+                    log.info("Total de clips recebidos: {} ({} já baixados anteriormente)",
+                            received.get(), alreadyDownloaded.get());
+                    if (topClips.isEmpty()) {
+                        log.warn("Nenhum clip disponível para download após filtragem");
                     }
+                });
+    }
 
-                    // Separar clips com e sem viewCount
-                    List<TwitchClipDTO> clipsWithViewCount = newClips.stream()
-                            .filter(clip -> clip.getViewCount() != null)
-                            .toList();
-                    
-                    List<TwitchClipDTO> clipsWithoutViewCount = newClips.stream()
-                            .filter(clip -> clip.getViewCount() == null)
-                            .toList();
+    /**
+     * Baixa um clip no executor de downloads sem disparar a análise automática nem o ffprobe;
+     * usado pelo pipeline, que executa esses estágios ele mesmo
+     *
+     * @return o registro salvo, ou vazio se o clip já havia sido baixado
+     */
+    public Mono<DownloadedClip> download(TwitchClipDTO clip) {
+        return Mono.fromCallable(() -> downloadClip(clip, false))
+                .subscribeOn(downloadScheduler);
+    }
 
-                    log.info("Clips com viewCount válido: {}", clipsWithViewCount.size());
-                    log.info("Clips com viewCount null: {}", clipsWithoutViewCount.size());
+    /**
+     * Baixa os clips em paralelo, até app.download.max-concurrent downloads ao mesmo tempo e no máximo
+     * app.download.max-per-channel do mesmo canal, para que um canal com muitos clips não monopolize os slots.
+     * Cada resultado é emitido assim que o respectivo download termina.
+     */
+    public Flux<DownloadResult> downloadClips(Flux<TwitchClipDTO> clips) {
+        return clips
+                .groupBy(clip -> clip.getBroadcasterId() != null ? clip.getBroadcasterId() : "")
+                // Um grupo por canal; a concorrência real é limitada pelo downloadScheduler
+                .flatMap(channelClips -> channelClips.flatMap(
+                        clip -> Mono.fromCallable(() -> downloadClipForResult(clip))
+                                .subscribeOn(downloadScheduler)
+                                // Fila do executor de downloads cheia: apenas este clip falha
+                                .onErrorResume(RejectedExecutionException.class, error -> Mono.just(rejected(clip))),
+                        maxDownloadsPerChannel), Integer.MAX_VALUE);
+    }
 
-                    List<TwitchClipDTO> sortedClips;
-                    
-                    if (!clipsWithViewCount.isEmpty()) {
-                        // Priorizar clips com viewCount válido
-                        sortedClips = clipsWithViewCount.stream()
-                                .sorted((c1, c2) -> Integer.compare(c2.getViewCount(), c1.getViewCount()))
-                                .limit(limit)
-                                .toList();
-                        
-                        log.info("Usando {} clips com viewCount válido para download", sortedClips.size());
-                    } else {
-                        // Se todos têm viewCount null, usar ordenação por data (mais recentes primeiro)
-                        log.warn("Todos os clips têm viewCount null, ordenando por data de criação");
-                        sortedClips = clipsWithoutViewCount.stream()
-                                .sorted((c1, c2) -> c2.getCreatedAt().compareTo(c1.getCreatedAt()))
-                                .limit(limit)
-                                .toList();
-                    }
+    private DownloadResult rejected(TwitchClipDTO clip) {
+        log.warn("Download do clip '{}' recusado: fila de downloads cheia", clip.getTitle());
+        return DownloadResult.builder()
+                .clipId(clip.getId())
+                .title(clip.getTitle())
+                .broadcasterId(clip.getBroadcasterId())
+                .success(false)
+                .errorMessage("Fila de downloads cheia")
+                .elapsed(Duration.ZERO)
+                .build();
+    }
 
-                    if (sortedClips.isEmpty()) {
-                        log.warn("Nenhum clip disponível para download após filtragem");
-                        return Mono.just(0);
-                    }
+    private DownloadResult downloadClipForResult(TwitchClipDTO clip) {
+        long start = System.nanoTime();
+        DownloadResult.DownloadResultBuilder result = DownloadResult.builder()
+                .clipId(clip.getId())
+                .title(clip.getTitle())
+                .broadcasterId(clip.getBroadcasterId());
 
-                    log.info("Iniciando download de {} clips", sortedClips.size());
+        try {
+            log.info("Baixando clip: '{}' (URL: {})", clip.getTitle(), clip.getUrl());
+            DownloadedClip downloadedClip = downloadClip(clip);
+            log.info("Clip baixado com sucesso: '{}'", clip.getTitle());
 
-                    // Baixar clips
-                    int downloadedCount = 0;
-                    for (TwitchClipDTO clip : sortedClips) {
-                        try {
-                            log.info("Baixando clip: '{}' (URL: {})", clip.getTitle(), clip.getUrl());
-                            downloadClip(clip);
-                            downloadedCount++;
-                            log.info("Clip baixado com sucesso: '{}'", clip.getTitle());
-                        } catch (Exception e) {
-                            log.error("Erro ao baixar clip '{}': {}", clip.getTitle(), e.getMessage());
-                        }
-                    }
+            result.success(true)
+                    .alreadyDownloaded(downloadedClip == null);
+            if (downloadedClip != null) {
+                result.downloadedClipId(downloadedClip.getId())
+                        .filePath(downloadedClip.getFilePath());
+            }
+        } catch (Exception e) {
+            log.error("Erro ao baixar clip '{}': {}", clip.getTitle(), e.getMessage());
+            result.success(false)
+                    .errorMessage(e.getMessage());
+        }
 
-                    log.info("Download concluído para {} clips", downloadedCount);
-                    return Mono.just(downloadedCount);
-                })
-                .onErrorResume(error -> {
-                    log.error("Erro durante o processo de download: {}", error.getMessage(), error);
-                    return Mono.just(0);
-                });
+        return result.elapsed(Duration.ofNanos(System.nanoTime() - start)).build();
     }
 
     /**
-     * Baixa um único clip da Twitch usando yt-dlp
+     * Baixa um único clip da Twitch usando o {@link ClipDownloader} configurado
+     *
+     * @return o registro salvo, ou null se o clip já havia sido baixado
      */
-    public void downloadClip(TwitchClipDTO clip) {
+    public DownloadedClip downloadClip(TwitchClipDTO clip) {
+        return downloadClip(clip, true);
+    }
+
+    /**
+     * @param startProcessing se verdadeiro, dispara o ffprobe e publica o {@link ClipDownloadedEvent}
+     *                        (que inicia a análise automática)
+     */
+    private DownloadedClip downloadClip(TwitchClipDTO clip, boolean startProcessing) {
+        // Só o nó dono grava no diretório de downloads
+        storageOwnership.requireOwner();
+
+        CompletableFuture<Void> claim = new CompletableFuture<>();
+        CompletableFuture<Void> running;
+        while ((running = inFlight.putIfAbsent(clip.getId(), claim)) != null) {
+            // Espera o download em curso; se ele der certo, o clip passa a ser conhecido e este retorna null
+            log.info("Clip {} já está sendo baixado, aguardando o download em curso", clip.getId());
+            awaitDownload(clip, running);
+        }
+        try {
+            return downloadClaimedClip(clip, startProcessing);
+        } finally {
+            inFlight.remove(clip.getId(), claim);
+            claim.complete(null);
+        }
+    }
+
+    private void awaitDownload(TwitchClipDTO clip, CompletableFuture<Void> running) {
+        try {
+            running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando o download do clip " + clip.getId(), e);
+        } catch (ExecutionException e) {
+            // Nunca completado com erro: quem baixa sempre libera com complete(null)
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Deve ser chamado com o clip reservado em {@link #inFlight}
+     */
+    private DownloadedClip downloadClaimedClip(TwitchClipDTO clip, boolean startProcessing) {
         log.info("Iniciando download do clip: {} ({})", clip.getTitle(), clip.getUrl());
         
         // Verificar se o clip já existe
-        List<DownloadedClip> existingClips = downloadedClipRepository.findByClipId(clip.getId());
-        if (!existingClips.isEmpty()) {
+        if (knownClipsService.isKnown(clip.getId())) {
             log.info("Clip já baixado anteriormente: {}", clip.getId());
-            return;
+            return null;
         }
         
-        // Gerar um nome de arquivo único baseado no ID do clip
+        // Gerar um nome de arquivo único baseado no ID do clip; o arquivo só fica na área de
+        // preparação até ser movido para o armazenamento por conteúdo
         String outputFileName = sanitizeFileName(clip.getTitle()) + "_" + clip.getId() + ".mp4";
-        Path outputPath = Paths.get(downloadPath, outputFileName);
+        Path outputPath = Paths.get(downloadPath, STAGING_DIR, outputFileName);
         
-        boolean successful = downloadUsingYtDlpSync(clip.getUrl(), outputPath.toString());
+        DownloadedFile downloaded = downloadToFile(clip, outputPath);
         
-        if (successful) {
+        if (downloaded != null) {
+            // Mover para o armazenamento por conteúdo; clips com vídeo idêntico compartilham o arquivo
+            ClipContentStore.StoredContent content;
+            try {
+                content = clipContentStore.store(downloaded.getPath(), downloaded.getSha256());
+            } catch (IOException e) {
+                throw new RuntimeException("Falha ao armazenar clip " + clip.getId() + ": " + e.getMessage(), e);
+            }
+
             // Criar e salvar o objeto DownloadedClip
             DownloadedClip downloadedClip = new DownloadedClip();
             downloadedClip.setClipId(clip.getId());
@@ -220,14 +330,33 @@ public class ClipDownloadService {
             downloadedClip.setCreatorName(clip.getCreatorName());
             downloadedClip.setBroadcasterName(clip.getBroadcasterName());
             downloadedClip.setDownloadDate(LocalDateTime.now());
-            downloadedClip.setFilePath(outputPath.toString());
+            downloadedClip.setFilePath(content.getPath().toString());
+            downloadedClip.setContentHash(content.getSha256());
             downloadedClip.setGameName(clip.getGameName());
             downloadedClip.setDuration(clip.getDuration());
             downloadedClip.setOriginalUrl(clip.getUrl());
             downloadedClip.setProcessed(false);
             
-            downloadedClipRepository.save(downloadedClip);
+            try {
+                downloadedClipRepository.save(downloadedClip);
+            } catch (RuntimeException e) {
+                clipContentStore.release(content.getSha256());
+                throw e;
+            }
+            clipPathIndex.put(clip.getId(), content.getPath());
+            knownClipsService.markKnown(clip.getId());
             log.info("Clip salvo no banco de dados: {}", clip.getTitle());
+            if (!startProcessing) {
+                return downloadedClip;
+            }
+
+            // Extrair metadados técnicos em segundo plano (uma vez por conteúdo)
+            videoProbeService.probe(content.getSha256(), content.getPath())
+                    .exceptionally(error -> {
+                        log.warn("Não foi possível analisar o arquivo do clip {} com ffprobe: {}",
+                                clip.getId(), error.getMessage());
+                        return null;
+                    });
 
             // Publicar evento ClipDownloadedEvent
             ClipDownloadedEvent event = new ClipDownloadedEvent(
@@ -237,11 +366,19 @@ public class ClipDownloadService {
             );
             eventPublisher.publishEvent(event);
             log.info("📡 Evento ClipDownloadedEvent publicado para: {}", clip.getTitle());
+            return downloadedClip;
         } else {
             throw new RuntimeException("Falha ao baixar clip: " + clip.getUrl());
         }
     }
     
+    /**
+     * Andamento dos downloads enfileirados ou em curso
+     */
+    public List<DownloadProgress> getActiveDownloads() {
+        return clipDownloader.getActiveDownloads();
+    }
+    
     /**
      * Sanitiza o nome do arquivo removendo caracteres inválidos
      */
@@ -250,63 +387,25 @@ public class ClipDownloadService {
     }
 
     /**
-     * Executa yt-dlp para baixar o clip (versão síncrona)
+     * Baixa o arquivo do clip e confere se ele não ficou vazio
+     *
+     * @return o arquivo baixado e o seu hash, ou null se o download falhou
      */
-    private boolean downloadUsingYtDlpSync(String clipUrl, String outputPath) {
+    private DownloadedFile downloadToFile(TwitchClipDTO clip, Path outputPath) {
+        DownloadedFile downloaded;
         try {
-            log.info("Executando yt-dlp para baixar: {} para {}", clipUrl, outputPath);
-            
-            // Preparar o comando
-            ProcessBuilder pb = new ProcessBuilder(
-                ytDlpPath,
-                "--format", "bestvideo[ext=mp4]+bestaudio[ext=m4a]/best[ext=mp4]/best", // Melhor qualidade possível com preferência por MP4
-                "-o", outputPath,   // Caminho de saída
-                "--no-playlist",    // Não baixar playlists
-                clipUrl             // URL do clip
-            );
-            
-            // Redirecionar erro para saída padrão
-            pb.redirectErrorStream(true);
-            
-            // Iniciar o processo
-            Process process = pb.start();
-            
-            // Ler a saída do processo
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    log.debug("yt-dlp output: {}", line);
-                }
-            }
-            
-            // Aguardar a conclusão com timeout
-            boolean completed = process.waitFor(downloadTimeout, TimeUnit.SECONDS);
-            if (!completed) {
-                log.error("Timeout ao baixar clip: {}", clipUrl);
-                process.destroy();
-                return false;
-            }
-            
-            // Verificar código de saída
-            int exitCode = process.exitValue();
-            if (exitCode != 0) {
-                log.error("yt-dlp falhou com código de saída {}: {}", exitCode, clipUrl);
-                return false;
-            }
-            
-            // Verificar se o arquivo foi criado
-            File outputFile = new File(outputPath);
-            if (!outputFile.exists() || outputFile.length() == 0) {
-                log.error("Arquivo de saída não encontrado ou vazio: {}", outputPath);
-                return false;
-            }
-            
-            log.info("Download concluído com sucesso: {}", outputPath);
-            return true;
-        } catch (Exception e) {
-            log.error("Erro ao executar yt-dlp: {}", e.getMessage(), e);
-            return false;
+            downloaded = concurrencyLimiter.call(Dependency.DOWNLOAD, () -> clipDownloader.download(clip, outputPath));
+        } catch (IOException e) {
+            log.error("Erro ao baixar {}: {}", clip.getUrl(), e.getMessage());
+            return null;
+        }
+
+        // Verificar se o arquivo foi criado
+        File outputFile = downloaded.getPath().toFile();
+        if (!outputFile.exists() || outputFile.length() == 0) {
+            log.error("Arquivo de saída não encontrado ou vazio: {}", downloaded.getPath());
+            return null;
         }
+        return downloaded;
     }
-}
\ No newline at end of file
+}
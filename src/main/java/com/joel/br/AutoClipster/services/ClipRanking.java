@@ -0,0 +1,70 @@
+package com.joel.br.AutoClipster.services;
+
+import com.joel.br.AutoClipster.DTO.TwitchClipDTO;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Ranqueamento de clips em streaming, sem materializar o fluxo inteiro
+ */
+public final class ClipRanking {
+
+    /**
+     * O tamanho do fluxo não é conhecido: o heap começa pequeno e cresce até K conforme os elementos
+     * chegam, em vez de alocar K posições de saída (K pode ser bem maior que o fluxo)
+     */
+    private static final int INITIAL_HEAP_CAPACITY = 64;
+
+    /**
+     * Mais visualizações primeiro; clips sem viewCount ficam depois dos que têm.
+     * Empates (e clips sem viewCount) são decididos pela data de criação, mais recentes primeiro.
+     */
+    public static final Comparator<TwitchClipDTO> BY_VIEWS_THEN_RECENT = Comparator
+            .comparing(TwitchClipDTO::getViewCount, Comparator.nullsLast(Comparator.<Integer>reverseOrder()))
+            .thenComparing(TwitchClipDTO::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private ClipRanking() {
+    }
+
+    /**
+     * Seleciona os K melhores clips segundo {@link #BY_VIEWS_THEN_RECENT}
+     */
+    public static Mono<List<TwitchClipDTO>> topK(Flux<TwitchClipDTO> clips, int k) {
+        return topK(clips, k, BY_VIEWS_THEN_RECENT);
+    }
+
+    /**
+     * Seleciona os K primeiros elementos segundo o comparador, usando um heap limitado a K itens.
+     * A memória é O(K) independentemente do tamanho do fluxo.
+     *
+     * @param ranking Comparador em que os melhores elementos vêm primeiro
+     * @return Os K melhores elementos, do melhor para o pior
+     */
+    public static <T> Mono<List<T>> topK(Flux<T> elements, int k, Comparator<T> ranking) {
+        if (k <= 0) {
+            // Sem assinar o fluxo: drená-lo só gastaria cota da API para uma resposta vazia
+            return Mono.just(List.of());
+        }
+
+        // Heap com o pior elemento no topo, para ser descartado quando chegar um melhor
+        return elements
+                .collect(() -> new PriorityQueue<T>(Math.min(k, INITIAL_HEAP_CAPACITY), ranking.reversed()), (heap, element) -> {
+                    if (heap.size() < k) {
+                        heap.offer(element);
+                    } else if (ranking.compare(element, heap.peek()) < 0) {
+                        heap.poll();
+                        heap.offer(element);
+                    }
+                })
+                .map(heap -> {
+                    List<T> best = new ArrayList<>(heap);
+                    best.sort(ranking);
+                    return best;
+                });
+    }
+}
@@ -0,0 +1,207 @@
+package com.joel.br.AutoClipster.services;
+
+import com.joel.br.AutoClipster.model.DownloadedClip;
+import com.joel.br.AutoClipster.repository.DownloadedClipRepository;
+import com.joel.br.AutoClipster.storage.ClipContentStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Reconcilia, na inicialização, os arquivos do diretório de downloads com os registros de DownloadedClip.
+ *
+ * - Downloads concluídos que ficaram na área de preparação sem registro (a JVM caiu entre o download e o
+ *   save) são removidos; o clip volta a ser baixado.
+ * - Registros de clips ainda não processados cujo arquivo sumiu são apenas contados, ou removidos com
+ *   app.download.reconcile.delete-missing-rows=true para que o clip volte a ser baixado.
+ * - Arquivos parciais (.part, diários, estado do yt-dlp) são mantidos para retomada, a menos que estejam
+ *   parados há mais de app.download.reconcile.stale-part-hours.
+ * - As referências do armazenamento por conteúdo são recontadas e os arquivos sem nenhum clip são removidos.
+ *
+ * Só são apagados arquivos nos diretórios da própria aplicação (.staging e .yt-dlp) e com os nomes que ela
+ * gera; o restante do diretório de downloads nunca é tocado.
+ *
+ * Executada na inicialização pelo {@link com.joel.br.AutoClipster.storage.StorageMigrationService}, antes
+ * da migração do diretório antigo, que move arquivos e não pode correr ao mesmo tempo.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DownloadReconciliationService {
+
+    private static final int PAGE_SIZE = 1_000;
+    private static final String YT_DLP_WORK_DIR = ".yt-dlp";
+    private static final String STAGING_DIR = ".staging";
+    private static final String JOURNAL_SUFFIX = ".journal";
+
+    /**
+     * Nome dado aos downloads pelo {@link ClipDownloadService}: título sanitizado + "_" + ID do clip
+     */
+    private static final Pattern DOWNLOAD_FILE_NAME = Pattern.compile("[A-Za-z0-9._-]*_[A-Za-z0-9_-]+\\.mp4");
+
+    private final DownloadedClipRepository downloadedClipRepository;
+    private final ClipContentStore clipContentStore;
+
+    @Value("${app.clips.download-path:./downloads}")
+    private String downloadPath;
+
+    @Value("${app.download.reconcile.stale-part-hours:24}")
+    private int stalePartHours;
+
+    @Value("${app.download.reconcile.orphan-grace-minutes:10}")
+    private int orphanGraceMinutes;
+
+    @Value("${app.download.reconcile.delete-missing-rows:false}")
+    private boolean deleteMissingRows;
+
+    public void reconcile() {
+        Path root = Paths.get(downloadPath).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            Set<Path> registered = reconcileRows();
+            int unreferenced = clipContentStore.collectGarbage(LocalDateTime.now().minusMinutes(orphanGraceMinutes));
+            if (unreferenced > 0) {
+                log.info("Removidos {} arquivos de conteúdo sem nenhum clip associado", unreferenced);
+            }
+            reconcileFiles(root, registered);
+            log.info("Reconciliação de downloads concluída em {}ms", System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Erro na reconciliação de downloads: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Percorre os registros, contando (ou removendo, se habilitado) os não processados cujo arquivo não
+     * existe mais
+     *
+     * @return Caminhos (absolutos) dos arquivos registrados que existem
+     */
+    private Set<Path> reconcileRows() {
+        Set<Path> registered = new HashSet<>();
+        List<Long> missing = new ArrayList<>();
+        long missingProcessed = 0;
+
+        Pageable page = PageRequest.of(0, PAGE_SIZE);
+        Slice<DownloadedClip> slice;
+        do {
+            slice = downloadedClipRepository.findAllOrderById(page);
+            for (DownloadedClip clip : slice) {
+                if (clip.getFilePath() == null) {
+                    continue;
+                }
+                Path file = Paths.get(clip.getFilePath()).toAbsolutePath().normalize();
+                if (Files.exists(file)) {
+                    registered.add(file);
+                } else if (!clip.isProcessed()) {
+                    missing.add(clip.getId());
+                } else {
+                    missingProcessed++;
+                }
+            }
+            page = slice.nextPageable();
+        } while (slice.hasNext());
+
+        if (missingProcessed > 0) {
+            log.warn("{} clips já processados não têm mais o arquivo no disco", missingProcessed);
+        }
+
+        if (!missing.isEmpty()) {
+            // Nenhum arquivo encontrado costuma indicar diretório errado ou disco não montado, não perda real
+            if (registered.isEmpty()) {
+                log.warn("Nenhum arquivo registrado foi encontrado em {}; mantendo {} registros sem arquivo",
+                        downloadPath, missing.size());
+            } else if (!deleteMissingRows) {
+                log.warn("{} clips não processados não têm mais o arquivo no disco; mantidos "
+                        + "(app.download.reconcile.delete-missing-rows=false)", missing.size());
+            } else {
+                downloadedClipRepository.deleteAllByIdInBatch(missing);
+                log.warn("Removidos {} registros de clips não processados cujo arquivo não existe mais", missing.size());
+            }
+        }
+
+        return registered;
+    }
+
+    private void reconcileFiles(Path root, Set<Path> registered) throws IOException {
+        Instant staleBefore = Instant.now().minus(Duration.ofHours(stalePartHours));
+        Instant orphanBefore = Instant.now().minus(Duration.ofMinutes(orphanGraceMinutes));
+        Path ytDlpWorkDir = root.resolve(YT_DLP_WORK_DIR);
+        Path stagingDir = root.resolve(STAGING_DIR);
+
+        int resumable = 0;
+        int removed = 0;
+
+        List<Path> files = new ArrayList<>();
+        for (Path dir : List.of(stagingDir, ytDlpWorkDir)) {
+            if (Files.isDirectory(dir)) {
+                try (Stream<Path> walk = Files.walk(dir)) {
+                    files.addAll(walk.filter(Files::isRegularFile).toList());
+                }
+            }
+        }
+
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            Instant modified = Files.getLastModifiedTime(file).toInstant();
+
+            if (name.endsWith(JOURNAL_SUFFIX + ".tmp")) {
+                removed += delete(file, "diário incompleto");
+            } else if (name.endsWith(JOURNAL_SUFFIX)) {
+                Path part = file.resolveSibling(name.substring(0, name.length() - JOURNAL_SUFFIX.length()));
+                if (!Files.exists(part)) {
+                    removed += delete(file, "diário sem arquivo parcial");
+                }
+            } else if (file.startsWith(ytDlpWorkDir) || name.endsWith(".part")) {
+                // Downloads em andamento: retomados no próximo pedido do mesmo clip
+                if (modified.isBefore(staleBefore)) {
+                    removed += delete(file, "download parcial abandonado");
+                    removed += deleteIfExists(file.resolveSibling(name + JOURNAL_SUFFIX));
+                } else {
+                    resumable++;
+                }
+            } else if (DOWNLOAD_FILE_NAME.matcher(name).matches()
+                    && !registered.contains(file.toAbsolutePath().normalize()) && modified.isBefore(orphanBefore)) {
+                removed += delete(file, "download sem registro no banco");
+            }
+        }
+
+        log.info("Downloads: {} arquivos registrados, {} parciais para retomar, {} arquivos órfãos removidos",
+                registered.size(), resumable, removed);
+    }
+
+    private int delete(Path file, String reason) {
+        log.info("Removendo {} ({})", file, reason);
+        return deleteIfExists(file);
+    }
+
+    private int deleteIfExists(Path file) {
+        try {
+            return Files.deleteIfExists(file) ? 1 : 0;
+        } catch (IOException e) {
+            log.warn("Não foi possível remover {}: {}", file, e.getMessage());
+            return 0;
+        }
+    }
+}
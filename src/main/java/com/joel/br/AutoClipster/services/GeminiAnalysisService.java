@@ -8,6 +8,8 @@ import com.google.genai.types.Part;
 import com.google.genai.types.Schema;
 import com.google.genai.types.Type;
 import com.joel.br.AutoClipster.config.GeminiSettings;
+import com.joel.br.AutoClipster.limiter.ConcurrencyLimiter;
+import com.joel.br.AutoClipster.limiter.ConcurrencyLimiter.Dependency;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.collect.ImmutableMap;
@@ -31,6 +33,7 @@ public class GeminiAnalysisService {
 
     private final Client geminiClient;
     private final GeminiSettings geminiSettings;
+    private final ConcurrencyLimiter concurrencyLimiter;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
@@ -68,7 +71,7 @@ public class GeminiAnalysisService {
                 .build();
 
             // Usando a API correta: client.models.generateContent
-            GenerateContentResponse response = geminiClient.models.generateContent(
+            GenerateContentResponse response = generateContent(
                 geminiSettings.getModelName(),
                 prompt,
                 config
@@ -158,7 +161,7 @@ public class GeminiAnalysisService {
                 """, originalTitle, streamerName, gameName);
 
             // Usando client.models.generateContent
-            GenerateContentResponse response = geminiClient.models.generateContent(
+            GenerateContentResponse response = generateContent(
                 geminiSettings.getModelName(),
                 prompt,
                 null
@@ -195,7 +198,7 @@ public class GeminiAnalysisService {
                 """, clipTitle, streamerName, gameName);
 
             // Usando client.models.generateContent
-            GenerateContentResponse response = geminiClient.models.generateContent(
+            GenerateContentResponse response = generateContent(
                 geminiSettings.getModelName(),
                 prompt,
                 null
@@ -237,7 +240,7 @@ public class GeminiAnalysisService {
                 """, clipTitle, clipDescription);
 
             // Usando client.models.generateContent
-            GenerateContentResponse response = geminiClient.models.generateContent(
+            GenerateContentResponse response = generateContent(
                 geminiSettings.getModelName(),
                 prompt,
                 null
@@ -303,7 +306,7 @@ public class GeminiAnalysisService {
                 Inclua os resultados obtidos e suas interpretações sobre o potencial do clip.
                 """, clipTitle, clipDescription, streamerName, gameName);
 
-            GenerateContentResponse response = geminiClient.models.generateContent(
+            GenerateContentResponse response = generateContent(
                 geminiSettings.getModelName(),
                 prompt,
                 config
@@ -651,6 +654,17 @@ public class GeminiAnalysisService {
         }
     }
 
+    /**
+     * Chamada síncrona ao Gemini, limitada a app.limits.gemini.max-concurrent chamadas simultâneas
+     */
+    private GenerateContentResponse generateContent(String model, String prompt, GenerateContentConfig config) {
+        return concurrencyLimiter.call(Dependency.GEMINI, () -> geminiClient.models.generateContent(model, prompt, config));
+    }
+
+    private GenerateContentResponse generateContent(String model, Content content, GenerateContentConfig config) {
+        return concurrencyLimiter.call(Dependency.GEMINI, () -> geminiClient.models.generateContent(model, content, config));
+    }
+
     // Classes de dados para as respostas
     
     public static class ClipAnalysis {
@@ -863,7 +877,7 @@ public class GeminiAnalysisService {
                 .build();
 
             // Usando content multimodal conforme documentação
-            GenerateContentResponse response = geminiClient.models.generateContent(
+            GenerateContentResponse response = generateContent(
                 geminiSettings.getModelName(),
                 content,
                 config
@@ -979,7 +993,7 @@ public class GeminiAnalysisService {
                 Baseado nas informações encontradas, gere um título e descrição otimizados.
                 """, clipTitle, clipDescription, streamerName, gameName, gameName);
 
-            GenerateContentResponse response = geminiClient.models.generateContent(
+            GenerateContentResponse response = generateContent(
                 geminiSettings.getModelName(),
                 prompt,
                 config
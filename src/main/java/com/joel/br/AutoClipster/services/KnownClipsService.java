@@ -0,0 +1,140 @@
+package com.joel.br.AutoClipster.services;
+
+import com.joel.br.AutoClipster.cache.BloomFilter;
+import com.joel.br.AutoClipster.repository.DownloadedClipRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Responde rapidamente se um clip já foi baixado.
+ * Um filtro de Bloom em memória, aquecido na inicialização, descarta a maioria dos clips novos
+ * sem consultar o banco; apenas os possíveis conhecidos são confirmados por uma consulta IN em lote.
+ *
+ * O filtro só conhece o que este nó registrou e o que leu do banco, então é atualizado periodicamente com
+ * os clips registrados desde a última leitura (inclusive por outras réplicas). Até lá, um clip recém-baixado
+ * em outro lugar pode passar pelo filtro em {@link #findKnown}; por isso {@link #isKnown}, usado antes de
+ * cada download, sempre consulta o banco.
+ */
+@Service
+@Slf4j
+public class KnownClipsService {
+
+    private static final int WARMUP_PAGE_SIZE = 10_000;
+    private static final int QUERY_BATCH_SIZE = 1_000;
+
+    private final DownloadedClipRepository downloadedClipRepository;
+    private final BloomFilter knownClipIds;
+
+    /**
+     * Até o aquecimento terminar, todos os clips são tratados como "possivelmente conhecidos"
+     */
+    private volatile boolean warmedUp = false;
+
+    /**
+     * Maior ID de registro já carregado no filtro
+     */
+    private volatile long loadedUpToId = 0;
+
+    public KnownClipsService(DownloadedClipRepository downloadedClipRepository,
+                             @Value("${app.clips.bloom.expected-insertions:1000000}") long expectedInsertions,
+                             @Value("${app.clips.bloom.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.downloadedClipRepository = downloadedClipRepository;
+        this.knownClipIds = new BloomFilter(expectedInsertions, falsePositiveRate);
+    }
+
+    /**
+     * Carrega os IDs já baixados no filtro, página por página
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+
+        try {
+            long loaded = loadNewClipIds();
+            warmedUp = true;
+            log.info("Filtro de clips conhecidos aquecido com {} IDs em {}ms ({} bits, {} hashes)",
+                    loaded, System.currentTimeMillis() - start, knownClipIds.getBitCount(), knownClipIds.getHashFunctions());
+        } catch (Exception e) {
+            log.error("Erro ao aquecer filtro de clips conhecidos, usando apenas o banco: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Acrescenta ao filtro os clips registrados desde a última leitura
+     */
+    @Scheduled(fixedDelayString = "${app.clips.bloom.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (!warmedUp) {
+            return;
+        }
+        try {
+            long loaded = loadNewClipIds();
+            if (loaded > 0) {
+                log.debug("Filtro de clips conhecidos atualizado com {} IDs", loaded);
+            }
+        } catch (Exception e) {
+            log.warn("Erro ao atualizar filtro de clips conhecidos: {}", e.getMessage());
+        }
+    }
+
+    private long loadNewClipIds() {
+        long loaded = 0;
+        List<DownloadedClipRepository.ClipIdView> page;
+        do {
+            page = downloadedClipRepository.findClipIdsAfter(loadedUpToId, PageRequest.ofSize(WARMUP_PAGE_SIZE));
+            for (DownloadedClipRepository.ClipIdView row : page) {
+                knownClipIds.put(row.getClipId());
+                loadedUpToId = row.getId();
+            }
+            loaded += page.size();
+        } while (page.size() == WARMUP_PAGE_SIZE);
+        return loaded;
+    }
+
+    /**
+     * Registra um clip recém-baixado
+     */
+    public void markKnown(String clipId) {
+        knownClipIds.put(clipId);
+    }
+
+    /**
+     * Retorna, dentre os IDs informados, os que já foram baixados
+     */
+    public Set<String> findKnown(Collection<String> clipIds) {
+        List<String> candidates = new ArrayList<>();
+        for (String clipId : clipIds) {
+            if (!warmedUp || knownClipIds.mightContain(clipId)) {
+                candidates.add(clipId);
+            }
+        }
+
+        Set<String> known = new HashSet<>();
+        for (int i = 0; i < candidates.size(); i += QUERY_BATCH_SIZE) {
+            known.addAll(downloadedClipRepository.findExistingClipIds(
+                    candidates.subList(i, Math.min(i + QUERY_BATCH_SIZE, candidates.size()))));
+        }
+
+        log.debug("Verificação de clips conhecidos: {} IDs, {} consultados no banco, {} já baixados",
+                clipIds.size(), candidates.size(), known.size());
+        return known;
+    }
+
+    /**
+     * Confirma no banco se o clip já foi baixado; uma consulta por download, sem depender do filtro
+     */
+    public boolean isKnown(String clipId) {
+        return downloadedClipRepository.existsByClipId(clipId);
+    }
+}
@@ -1,6 +1,9 @@
 package com.joel.br.AutoClipster.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joel.br.AutoClipster.config.AsyncConfig;
+import com.joel.br.AutoClipster.limiter.ConcurrencyLimiter;
+import com.joel.br.AutoClipster.limiter.ConcurrencyLimiter.Dependency;
 import com.joel.br.AutoClipster.model.DownloadedClip;
 import com.joel.br.AutoClipster.model.N8nWebhookPayload;
 import com.joel.br.AutoClipster.model.YouTubeVideo;
@@ -30,6 +33,7 @@ public class N8nWebhookService {
     private final ObjectMapper objectMapper;
     private final RateLimitService rateLimitService;
     private final RestTemplate restTemplate;
+    private final ConcurrencyLimiter concurrencyLimiter;
 
     @Value("${n8n.webhook.url:}")
     private String webhookUrl;
@@ -58,7 +62,7 @@ public class N8nWebhookService {
     /**
      * Notifica quando um clip é baixado
      */
-    @Async
+    @Async(AsyncConfig.WEBHOOK_EXECUTOR)
     public CompletableFuture<Boolean> notifyClipDownloaded(DownloadedClip clip) {
         if (!isEnabled()) {
             return CompletableFuture.completedFuture(false);
@@ -71,7 +75,7 @@ public class N8nWebhookService {
     /**
      * Notifica quando um clip é analisado
      */
-    @Async
+    @Async(AsyncConfig.WEBHOOK_EXECUTOR)
     public CompletableFuture<Boolean> notifyClipAnalyzed(DownloadedClip clip, String optimizedTitle, 
                                                         String optimizedDescription, String[] tags) {
         if (!isEnabled()) {
@@ -85,7 +89,7 @@ public class N8nWebhookService {
     /**
      * Notifica quando um vídeo é enviado para o YouTube
      */
-    @Async
+    @Async(AsyncConfig.WEBHOOK_EXECUTOR)
     public CompletableFuture<Boolean> notifyYouTubeUploaded(DownloadedClip clip, YouTubeVideo video) {
         if (!isEnabled()) {
             return CompletableFuture.completedFuture(false);
@@ -98,7 +102,7 @@ public class N8nWebhookService {
     /**
      * Notifica quando um workflow é completado
      */
-    @Async
+    @Async(AsyncConfig.WEBHOOK_EXECUTOR)
     public CompletableFuture<Boolean> notifyWorkflowCompleted(DownloadedClip clip, YouTubeVideo video) {
         if (!isEnabled()) {
             return CompletableFuture.completedFuture(false);
@@ -111,7 +115,7 @@ public class N8nWebhookService {
     /**
      * Notifica erros
      */
-    @Async
+    @Async(AsyncConfig.WEBHOOK_EXECUTOR)
     public CompletableFuture<Boolean> notifyError(String errorType, String errorMessage, Map<String, Object> context) {
         if (!isEnabled()) {
             return CompletableFuture.completedFuture(false);
@@ -124,7 +128,7 @@ public class N8nWebhookService {
     /**
      * Envia evento customizado
      */
-    @Async
+    @Async(AsyncConfig.WEBHOOK_EXECUTOR)
     public CompletableFuture<Boolean> sendCustomEvent(String eventName, Map<String, Object> data) {
         if (!isEnabled()) {
             return CompletableFuture.completedFuture(false);
@@ -163,12 +167,12 @@ public class N8nWebhookService {
             
             HttpEntity<N8nWebhookPayload> request = new HttpEntity<>(payload, headers);
             
-            ResponseEntity<String> response = restTemplate.exchange(
+            ResponseEntity<String> response = concurrencyLimiter.call(Dependency.N8N, () -> restTemplate.exchange(
                     webhookUrl,
                     HttpMethod.POST,
                     request,
                     String.class
-            );
+            ));
             
             if (response.getStatusCode().is2xxSuccessful()) {
                 log.info("Webhook n8n enviado com sucesso: {}", payload.getEvent());
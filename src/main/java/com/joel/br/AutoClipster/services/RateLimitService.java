@@ -1,15 +1,22 @@
 package com.joel.br.AutoClipster.services;
 
 import com.joel.br.AutoClipster.execption.RateLimitExceededException;
-import com.joel.br.AutoClipster.limiter.ApiRateLimiter;
+import com.joel.br.AutoClipster.limiter.Permit;
+import com.joel.br.AutoClipster.limiter.RateLimiter;
+import com.joel.br.AutoClipster.limiter.RateLimiterFactory;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Serviço para controle de taxa de requisições (rate limiting)
@@ -17,13 +24,24 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 @Service
 @Slf4j
+@RequiredArgsConstructor
 public class RateLimitService {
 
+    /**
+     * Fração máxima da espera estimada somada aleatoriamente a cada nova tentativa
+     */
+    private static final double RETRY_JITTER = 0.5;
+
     /**
      * Armazena os limitadores para diferentes APIs
      * A chave é o identificador da API
      */
-    private final Map<String, ApiRateLimiter> rateLimiters = new ConcurrentHashMap<>();
+    private final Map<String, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+
+    /**
+     * Backend dos limitadores: memória local ou Redis (app.rate-limit.backend)
+     */
+    private final RateLimiterFactory rateLimiterFactory;
 
     /**
      * Adquire uma permissão para executar uma operação em uma API específica
@@ -35,8 +53,8 @@ public class RateLimitService {
      * @param timeout Tempo máximo de espera por uma permissão (opcional)
      */
     public void acquirePermission(String apiKey, int maxRequestsPerInterval, Duration interval, Duration timeout) {
-        ApiRateLimiter limiter = rateLimiters.computeIfAbsent(apiKey, 
-                k -> new ApiRateLimiter(k, maxRequestsPerInterval, interval));
+        RateLimiter limiter = rateLimiters.computeIfAbsent(apiKey, 
+                k -> rateLimiterFactory.create(k, maxRequestsPerInterval, interval));
         
         try {
             boolean acquired;
@@ -52,10 +70,6 @@ public class RateLimitService {
                 throw new RateLimitExceededException("Limite de taxa excedido para " + apiKey);
             }
             
-            // Agenda a liberação da permissão após o intervalo dividido pelo número máximo de requests
-            long releaseDelayMs = interval.toMillis() / maxRequestsPerInterval;
-            schedulePermissionRelease(limiter, releaseDelayMs);
-            
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new RateLimitExceededException("Interrompido ao aguardar permissão para " + apiKey, e);
@@ -70,22 +84,89 @@ public class RateLimitService {
     }
 
     /**
-     * Agenda a liberação de uma permissão após um atraso específico
+     * Versão reativa e não bloqueante de {@link #acquirePermission(String, int, Duration)}.
+     * Quando não há permissão disponível, aguarda com {@link Mono#delay(Duration)} no timer do Reactor
+     * e tenta novamente, sem nunca estacionar a thread do chamador (ex: event loop do Reactor Netty).
+     * A nova tentativa, e o que vier depois dela na cadeia, roda no scheduler paralelo, e não em uma
+     * única thread compartilhada por todos os que esperam. A espera recebe um acréscimo aleatório
+     * (ver {@link #retryDelay(Duration)}) para que os que esperam não voltem todos no mesmo instante.
+     *
+     * @param apiKey Identificador único da API (ex: "twitch-api", "youtube-upload")
+     * @param maxRequestsPerInterval Máximo de requisições permitidas no intervalo
+     * @param interval Intervalo de tempo para o limite de requisições
+     * @return Mono que emite a permissão assim que ela for concedida
      */
-    private void schedulePermissionRelease(ApiRateLimiter limiter, long delayMs) {
-        Thread releaseThread = new Thread(() -> {
-            try {
-                Thread.sleep(delayMs);
-                limiter.release();
-                log.trace("Permissão liberada para {}. Permissões disponíveis: {}", 
-                        limiter.getApiKey(), limiter.getAvailablePermits());
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.warn("Interrompido ao liberar permissão para {}", limiter.getApiKey());
-            }
+    public Mono<Permit> acquirePermit(String apiKey, int maxRequestsPerInterval, Duration interval) {
+        return Mono.defer(() -> {
+            RateLimiter limiter = rateLimiters.computeIfAbsent(apiKey, 
+                    k -> rateLimiterFactory.create(k, maxRequestsPerInterval, interval));
+            Instant requestedAt = Instant.now();
+            
+            return Mono.fromSupplier(() -> {
+                        if (!limiter.tryAcquire()) {
+                            return null;
+                        }
+                        Instant grantedAt = Instant.now();
+                        return new Permit(apiKey, grantedAt, Duration.between(requestedAt, grantedAt));
+                    })
+                    // Limitadores remotos fazem I/O em tryAcquire; nunca executá-los no event loop
+                    .subscribeOn(limiter.mayBlock() ? Schedulers.boundedElastic() : Schedulers.immediate())
+                    .repeatWhenEmpty(attempts -> attempts.concatMap(attempt -> {
+                        Duration wait = limiter.getEstimatedWaitTime();
+                        log.trace("Sem permissões para {}, nova tentativa em {}ms", apiKey, wait.toMillis());
+                        return Mono.delay(retryDelay(wait), Schedulers.parallel());
+                    }));
         });
-        releaseThread.setDaemon(true);
-        releaseThread.start();
+    }
+
+    /**
+     * Espera até a próxima tentativa: a estimada do limitador (no mínimo 1ms) mais até
+     * {@link #RETRY_JITTER} dela, sorteado, para espalhar as novas tentativas de quem espera pelo mesmo token
+     */
+    static Duration retryDelay(Duration estimatedWait) {
+        long waitMillis = Math.max(1, estimatedWait.toMillis());
+        long jitterMillis = ThreadLocalRandom.current().nextLong((long) (waitMillis * RETRY_JITTER) + 1);
+        return Duration.ofMillis(waitMillis + jitterMillis);
+    }
+
+    /**
+     * Versão reativa com tempo máximo de espera
+     *
+     * @throws RateLimitExceededException (sinalizada no Mono) se a permissão não for concedida dentro do timeout
+     */
+    public Mono<Permit> acquirePermit(String apiKey, int maxRequestsPerInterval, Duration interval, Duration timeout) {
+        return acquirePermit(apiKey, maxRequestsPerInterval, interval)
+                .timeout(timeout, Mono.error(() -> new RateLimitExceededException("Limite de taxa excedido para " + apiKey)));
+    }
+
+    /**
+     * Atualiza o limitador de uma API com o orçamento informado pelo servidor
+     *
+     * @param apiKey Identificador da API
+     * @param limit Limite total informado pelo servidor
+     * @param remaining Requisições restantes na janela atual
+     * @param resetDelay Tempo até o reset da janela
+     * @param reserve Requisições a preservar antes de pausar até o reset
+     */
+    public void applyServerBudget(String apiKey, int limit, int remaining, Duration resetDelay, int reserve) {
+        RateLimiter limiter = rateLimiters.get(apiKey);
+        if (limiter != null) {
+            limiter.applyServerBudget(limit, remaining, resetDelay, reserve);
+        }
+    }
+
+    /**
+     * Suspende todas as permissões de uma API pelo tempo informado (ex: após um 429)
+     *
+     * @param apiKey Identificador da API
+     * @param delay Duração da pausa
+     */
+    public void pause(String apiKey, Duration delay) {
+        RateLimiter limiter = rateLimiters.get(apiKey);
+        if (limiter != null) {
+            log.warn("Pausando requisições para {} por {}ms", apiKey, delay.toMillis());
+            limiter.pause(delay);
+        }
     }
 
     /**
@@ -95,7 +176,7 @@ public class RateLimitService {
      * @return true se não houver permissões disponíveis
      */
     public boolean isRateLimited(String apiKey) {
-        ApiRateLimiter limiter = rateLimiters.get(apiKey);
+        RateLimiter limiter = rateLimiters.get(apiKey);
         return limiter != null && limiter.isRateLimited();
     }
 
@@ -106,7 +187,7 @@ public class RateLimitService {
      * @return número de permissões disponíveis ou -1 se a API não estiver registrada
      */
     public int getAvailablePermits(String apiKey) {
-        ApiRateLimiter limiter = rateLimiters.get(apiKey);
+        RateLimiter limiter = rateLimiters.get(apiKey);
         return limiter != null ? limiter.getAvailablePermits() : -1;
     }
     
@@ -117,7 +198,7 @@ public class RateLimitService {
      * @return Duração estimada de espera ou null se a API não estiver registrada
      */
     public Duration getEstimatedWaitTime(String apiKey) {
-        ApiRateLimiter limiter = rateLimiters.get(apiKey);
+        RateLimiter limiter = rateLimiters.get(apiKey);
         return limiter != null ? limiter.getEstimatedWaitTime() : null;
     }
     
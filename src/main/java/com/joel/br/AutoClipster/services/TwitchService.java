@@ -2,23 +2,37 @@ package com.joel.br.AutoClipster.services;
 
 import com.joel.br.AutoClipster.DTO.TwitchClipDTO;
 import com.joel.br.AutoClipster.DTO.TwitchUserDTO;
+import com.joel.br.AutoClipster.cache.ExpiringLruCache;
+import com.joel.br.AutoClipster.limiter.RateLimitHeadersFilter;
 import com.joel.br.AutoClipster.model.TwitchClip;
 import com.joel.br.AutoClipster.model.TwitchUser;
 import com.joel.br.AutoClipster.response.TwitchClipsResponse;
-import com.joel.br.AutoClipster.response.TwitchTokenResponse;
 import com.joel.br.AutoClipster.response.TwitchUsersResponse;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.Month;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 @Slf4j
@@ -27,126 +41,220 @@ public class TwitchService {
 
     private final WebClient webClient;
     private final RateLimitService rateLimitService;
+    private final TwitchTokenManager tokenManager;
 
 
     private final String TWITCH_API_URL = "https://api.twitch.tv/helix/";
 
+    private static final String RATE_LIMIT_KEY = "twitch-api";
+
+    private static final int RATE_LIMIT_REQUESTS = 100;
+
+    private static final int CLIPS_PAGE_SIZE = 100;
+
+    private static final int USERS_BATCH_SIZE = 100;
+
+    // Consultas individuais aguardando um lote; acima disso getUserByName falha na hora
+    private static final int USER_LOOKUP_QUEUE_SIZE = 1024;
+
 
     @Value("${twitch.clientId}")
     private String clientId;
 
-    @Value("${twitch.clientSecret}")
-    private String clientSecret;
+    @Value("${twitch.clips.max-pages:50}")
+    private int maxClipPages;
+
+    @Value("${twitch.clips.shard-window-hours:24}")
+    private int shardWindowHours;
+
+    @Value("${twitch.clips.min-shard-minutes:15}")
+    private int minShardMinutes;
 
+    @Value("${twitch.clips.shard-concurrency:4}")
+    private int shardConcurrency;
 
-    private String accessToken;
-    private LocalDateTime tokenExpiresAt;
+    @Value("${twitch.users.batch-window-ms:50}")
+    private int userLookupWindowMs;
 
-    public TwitchService(WebClient.Builder webClientBuilder, RateLimitService rateLimitService) {
-        this.webClient = webClientBuilder.baseUrl("https://api.twitch.tv/helix").build();
+
+    private final ExpiringLruCache<String, TwitchUserDTO> userCache;
+    // autoCancel desligado: se o consumidor falhar, ele se reinscreve na mesma fila (ver startUserLookupBatcher)
+    private final Sinks.Many<UserLookup> userLookups =
+            Sinks.many().multicast().onBackpressureBuffer(USER_LOOKUP_QUEUE_SIZE, false);
+    private final ReentrantLock userLookupsLock = new ReentrantLock();
+
+    public TwitchService(WebClient.Builder webClientBuilder, RateLimitService rateLimitService,
+                         TwitchTokenManager tokenManager,
+                         @Value("${twitch.users.cache-ttl-minutes:60}") int userCacheTtlMinutes,
+                         @Value("${twitch.users.cache-max-size:10000}") int userCacheMaxSize,
+                         @Value("${twitch.rate-limit.reserve:5}") int rateLimitReserve,
+                         @Value("${twitch.rate-limit.max-retries:3}") int rateLimitMaxRetries) {
+        this.webClient = webClientBuilder
+                .baseUrl("https://api.twitch.tv/helix")
+                .filter(new RateLimitHeadersFilter(rateLimitService, RATE_LIMIT_KEY, RATE_LIMIT_REQUESTS,
+                        Duration.ofMinutes(1), rateLimitReserve, rateLimitMaxRetries))
+                .filter(tokenManager.refreshOnUnauthorized())
+                .build();
         this.rateLimitService = rateLimitService;
+        this.tokenManager = tokenManager;
+        this.userCache = new ExpiringLruCache<>(Duration.ofMinutes(userCacheTtlMinutes), userCacheMaxSize);
     }
 
     public Flux<TwitchClipDTO> getsClipsFromChannel(String channelId, LocalDateTime startedAt, LocalDateTime endedAt){
 
-
-        return ensureTokenIsValid()
-                .flatMapMany(token -> {
-                    // Aplica rate limiting (100 requests por minuto para Twitch API)
-                    rateLimitService.acquirePermission("twitch-api", 100, Duration.ofMinutes(1));
-
-                    return webClient.get()
-                            .uri(uriBuilder -> uriBuilder
-                                    .path("/clips")
-                                    .queryParam("broadcaster_id", channelId)
-                                    .queryParam("started_at", startedAt.format(DateTimeFormatter.ISO_INSTANT))
-                                    .queryParam("ended_at", endedAt.format(DateTimeFormatter.ISO_INSTANT))
-                                    .queryParam("first", 100) // Máximo por request
-                                    .build())
-                            .header("Authorization", "Bearer " + token)
-                            .header("Client-Id", clientId)
-                            .retrieve()
-                            .bodyToMono(TwitchClipsResponse.class)
-                            .flatMapMany(response -> Flux.fromIterable(response.getData()))
-                            .map(this::convertToDTO);
-                })
+        return streamClipsFromChannel(channelId, startedAt, endedAt)
                 .doOnError(error -> log.error("Erro ao buscar clipes do canal {}: {}", channelId, error.getMessage()));
 
 
     }
 
 
+    /**
+     * Busca um usuário pelo login. Consultas concorrentes que chegam dentro da janela
+     * twitch.users.batch-window-ms são agrupadas em uma única chamada /users, e o
+     * resultado fica em cache por twitch.users.cache-ttl-minutes.
+     */
     public Mono<TwitchUserDTO> getUserByName(String username) {
         log.info("Buscando usuário por nome: {}", username);
-        
-        return ensureTokenIsValid()
-                .flatMap(token -> {
-                    rateLimitService.acquirePermission("twitch-api", 100, Duration.ofMinutes(1));
-
-                    return webClient.get()
-                            .uri(uriBuilder -> uriBuilder
-                                    .path("/users")
-                                    .queryParam("login", username)
-                                    .build())
-                            .header("Authorization", "Bearer " + token)
-                            .header("Client-Id", clientId)
-                            .retrieve()
-                            .bodyToMono(TwitchUsersResponse.class)
-                            .flatMap(response -> {
-                                if (response.getData() == null || response.getData().isEmpty()) {
-                                    log.warn("Usuário não encontrado: {}", username);
-                                    return Mono.empty();
-                                }
-                                log.info("Usuário encontrado: {} (ID: {})", 
-                                        response.getData().get(0).getDisplayName(),
-                                        response.getData().get(0).getTwitchId());
-                                return Mono.just(convertUserToDTO(response.getData().get(0)));
-                            });
+
+        String login = username.toLowerCase(Locale.ROOT);
+        TwitchUserDTO cached = userCache.get(login);
+        if (cached != null) {
+            log.debug("Usuário {} encontrado no cache (ID: {})", login, cached.getId());
+            return Mono.just(cached);
+        }
+
+        return Mono.defer(() -> {
+                    Sinks.One<TwitchUserDTO> result = Sinks.one();
+                    Sinks.EmitResult emitted = enqueueUserLookup(new UserLookup(login, result));
+                    if (emitted.isFailure()) {
+                        return Mono.error(new IllegalStateException(
+                                "Fila de consultas de usuários indisponível (" + emitted + ")"));
+                    }
+                    return result.asMono();
                 })
+                .doOnNext(user -> log.info("Usuário encontrado: {} (ID: {})", user.getDisplayName(), user.getId()))
+                .switchIfEmpty(Mono.fromRunnable(() -> log.warn("Usuário não encontrado: {}", username)))
                 .doOnError(error -> log.error("Erro ao buscar usuário {}: {}", username, error.getMessage()));
     }
 
+    /**
+     * Busca vários usuários de uma vez, em lotes de até 100 logins por chamada /users.
+     * Logins já presentes no cache não geram requisição.
+     *
+     * @return Mapa de login (minúsculo) para usuário; logins inexistentes ficam de fora
+     */
+    public Mono<Map<String, TwitchUserDTO>> getUsersByNames(Collection<String> usernames) {
+        Map<String, TwitchUserDTO> found = new ConcurrentHashMap<>();
+        List<String> missing = new ArrayList<>();
+
+        usernames.stream()
+                .map(username -> username.toLowerCase(Locale.ROOT))
+                .distinct()
+                .forEach(login -> {
+                    TwitchUserDTO cached = userCache.get(login);
+                    if (cached != null) {
+                        found.put(login, cached);
+                    } else {
+                        missing.add(login);
+                    }
+                });
+
+        log.info("Buscando {} usuários ({} no cache, {} via API)", found.size() + missing.size(), found.size(), missing.size());
+
+        return Flux.fromIterable(missing)
+                .buffer(USERS_BATCH_SIZE)
+                .concatMap(this::fetchUsersByLogins)
+                .doOnNext(found::putAll)
+                .then(Mono.fromSupplier(() -> found));
+    }
+
+    /**
+     * Emite na fila sem espera ativa: o lock só serializa emissões concorrentes (o sink não aceita
+     * emissões simultâneas) e é mantido apenas durante o tryEmitNext
+     */
+    private Sinks.EmitResult enqueueUserLookup(UserLookup lookup) {
+        userLookupsLock.lock();
+        try {
+            return userLookups.tryEmitNext(lookup);
+        } finally {
+            userLookupsLock.unlock();
+        }
+    }
+
+    /**
+     * Consome a fila de consultas individuais, agrupando-as por tamanho ou janela de tempo.
+     * Com backpressure justo, lotes fechados pela janela esperam enquanto um lote anterior aguarda
+     * o rate limit, em vez de estourar o buffer; se o consumidor falhar mesmo assim, as consultas
+     * pendentes recebem o erro e ele se reinscreve.
+     */
+    @PostConstruct
+    void startUserLookupBatcher() {
+        userLookups.asFlux()
+                .bufferTimeout(USERS_BATCH_SIZE, Duration.ofMillis(userLookupWindowMs), true)
+                .concatMap(this::resolveUserLookups)
+                .doOnDiscard(UserLookup.class, lookup -> lookup.getResult().tryEmitError(
+                        new IllegalStateException("Lote de consultas de usuários descartado")))
+                .doOnError(error -> log.error("Erro no agrupamento de consultas de usuários, reiniciando: {}",
+                        error.getMessage()))
+                .retry()
+                .subscribe();
+    }
+
+    private Mono<Void> resolveUserLookups(List<UserLookup> lookups) {
+        List<String> logins = lookups.stream().map(UserLookup::getLogin).distinct().toList();
+        log.debug("Resolvendo lote de {} logins em uma chamada /users", logins.size());
+
+        return fetchUsersByLogins(logins)
+                .doOnNext(users -> lookups.forEach(lookup -> {
+                    TwitchUserDTO user = users.get(lookup.getLogin());
+                    if (user != null) {
+                        lookup.getResult().tryEmitValue(user);
+                    } else {
+                        lookup.getResult().tryEmitEmpty();
+                    }
+                }))
+                .doOnError(error -> lookups.forEach(lookup -> lookup.getResult().tryEmitError(error)))
+                .then()
+                .onErrorResume(error -> Mono.empty());
+    }
+
+    /**
+     * Executa uma única chamada /users com até 100 parâmetros login e popula o cache
+     */
+    private Mono<Map<String, TwitchUserDTO>> fetchUsersByLogins(List<String> logins) {
+        return authorize()
+                .flatMap(token -> webClient.get()
+                        .uri(uriBuilder -> {
+                            uriBuilder.path("/users");
+                            logins.forEach(login -> uriBuilder.queryParam("login", login));
+                            return uriBuilder.build();
+                        })
+                        .header("Authorization", "Bearer " + token)
+                        .header("Client-Id", clientId)
+                        .retrieve()
+                        .bodyToMono(TwitchUsersResponse.class))
+                .map(response -> {
+                    Map<String, TwitchUserDTO> users = new HashMap<>();
+                    if (response.getData() != null) {
+                        response.getData().forEach(twitchUser -> {
+                            TwitchUserDTO dto = convertUserToDTO(twitchUser);
+                            String login = dto.getLogin().toLowerCase(Locale.ROOT);
+                            userCache.put(login, dto);
+                            users.put(login, dto);
+                        });
+                    }
+                    return users;
+                })
+                .doOnError(error -> log.error("Erro ao buscar usuários {}: {}", logins, error.getMessage()));
+    }
+
 
     public Flux<TwitchClipDTO> getClipsFromChannel(String channelId, LocalDateTime startedAt, LocalDateTime endedAt) {
         log.info("Buscando clipes para canal ID: {}, de {} até {}", 
                  channelId, startedAt, endedAt);
         
-        return ensureTokenIsValid()
-            .flatMapMany(token -> {
-                log.info("Token válido obtido: {}", token.substring(0, 10) + "...");
-                
-                // Aplicar rate limiting
-                rateLimitService.acquirePermission("twitch-api", 100, Duration.ofMinutes(1));
-                
-                // Formatar as datas no formato ISO 8601 que a Twitch espera
-                String startedAtFormatted = startedAt.atZone(ZoneOffset.UTC)
-                    .format(DateTimeFormatter.ISO_INSTANT);
-                String endedAtFormatted = endedAt.atZone(ZoneOffset.UTC)
-                    .format(DateTimeFormatter.ISO_INSTANT);
-                
-                return webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                        .path("/clips")
-                        .queryParam("broadcaster_id", channelId)
-                        .queryParam("started_at", startedAtFormatted)
-                        .queryParam("ended_at", endedAtFormatted)
-                        .queryParam("first", 100) // Máximo por request
-                        .build())
-                    .header("Authorization", "Bearer " + token)
-                    .header("Client-Id", clientId)
-                    .retrieve()
-                    .bodyToMono(TwitchClipsResponse.class)
-                    .doOnNext(response -> {
-                        if (response.getData() == null || response.getData().isEmpty()) {
-                            log.warn("Nenhum clipe encontrado para o canal {} no período especificado", channelId);
-                        } else {
-                            log.info("Encontrados {} clipes para o canal {}", 
-                                    response.getData().size(), channelId);
-                        }
-                    })
-                    .flatMapMany(response -> Flux.fromIterable(response.getData()))
-                    .map(this::convertToDTO);
-            })
+        return streamClipsFromChannel(channelId, startedAt, endedAt)
             .doOnError(error -> log.error("Erro ao buscar clipes do canal {}: {}", 
                                          channelId, error.getMessage()));
     }
@@ -157,13 +265,10 @@ public class TwitchService {
     public Mono<TwitchClipDTO> getClipById(String clipId) {
         log.info("Buscando clip por ID: {}", clipId);
         
-        return ensureTokenIsValid()
+        return authorize()
             .flatMap(token -> {
                 log.info("Token válido obtido: {}", token.substring(0, 10) + "...");
                 
-                // Aplicar rate limiting
-                rateLimitService.acquirePermission("twitch-api", 100, Duration.ofMinutes(1));
-                
                 return webClient.get()
                     .uri(uriBuilder -> uriBuilder
                         .path("/clips")
@@ -190,82 +295,179 @@ public class TwitchService {
     public Flux<TwitchClipDTO> getClipsFromChannelExtended(String channelId, int days) {
         log.info("Buscando clips do canal {} dos últimos {} dias", channelId, days);
         
-        return ensureTokenIsValid()
-                .flatMapMany(token -> {
-                    // Buscar clips de diferentes períodos para aumentar a chance de encontrar clips válidos
-                    LocalDateTime endDate = LocalDateTime.now();
-                    LocalDateTime startDate = endDate.minusDays(days);
-                    
-                    // Aplicar rate limiting
-                    rateLimitService.acquirePermission("twitch-api", 100, Duration.ofMinutes(1));
-                    
-                    // Formatar as datas no formato ISO 8601 que a Twitch espera
-                    String startedAtFormatted = startDate.atZone(ZoneOffset.UTC)
-                            .format(DateTimeFormatter.ISO_INSTANT);
-                    String endedAtFormatted = endDate.atZone(ZoneOffset.UTC)
-                            .format(DateTimeFormatter.ISO_INSTANT);
-                    
-                    return webClient.get()
-                            .uri(uriBuilder -> uriBuilder
-                                    .path("/clips")
-                                    .queryParam("broadcaster_id", channelId)
-                                    .queryParam("started_at", startedAtFormatted)
-                                    .queryParam("ended_at", endedAtFormatted)
-                                    .queryParam("first", 100)
-                                    .build())
-                            .header("Authorization", "Bearer " + token)
-                            .header("Client-Id", clientId)
-                            .retrieve()
-                            .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
-                                    response -> response.bodyToMono(String.class)
-                                            .flatMap(body -> {
-                                                log.error("Erro na API da Twitch: {}", body);
-                                                return Mono.error(new RuntimeException("Erro na API da Twitch: " + body));
-                                            }))
-                            .bodyToMono(TwitchClipsResponse.class)
-                            .flatMapMany(response -> {
-                                log.info("Encontrados {} clips no período de {} dias", 
-                                        response.getData().size(), days);
-                                
-                                return Flux.fromIterable(response.getData());
-                            })
-                            .map(this::convertToDTO)
-                            .doOnNext(clip -> log.debug("Clip encontrado: {} com {} visualizações", 
-                                    clip.getTitle(), clip.getViewCount()));
-                })
+        LocalDateTime endDate = LocalDateTime.now();
+        LocalDateTime startDate = endDate.minusDays(days);
+
+        return getClipsFromChannelSharded(channelId, startDate, endDate)
+                .doOnNext(clip -> log.debug("Clip encontrado: {} com {} visualizações", 
+                        clip.getTitle(), clip.getViewCount()))
                 .onErrorResume(error -> {
                     log.error("Erro ao buscar clips do canal {}: {}", channelId, error.getMessage());
                     return Flux.empty();
                 });
     }
 
-    private Mono<String> ensureTokenIsValid() {
+    /**
+     * Busca os clipes de um canal seguindo o cursor de paginação da Twitch sob demanda.
+     * Cada página só é requisitada quando o consumidor pede mais elementos, então operadores
+     * como take() encerram a busca sem baixar páginas que ninguém vai ler.
+     */
+    public Flux<TwitchClipDTO> streamClipsFromChannel(String channelId, LocalDateTime startedAt, LocalDateTime endedAt) {
+        // Formatar as datas no formato ISO 8601 que a Twitch espera
+        String startedAtFormatted = startedAt.atZone(ZoneOffset.UTC)
+                .format(DateTimeFormatter.ISO_INSTANT);
+        String endedAtFormatted = endedAt.atZone(ZoneOffset.UTC)
+                .format(DateTimeFormatter.ISO_INSTANT);
+
+        return followCursor(channelId, startedAtFormatted, endedAtFormatted,
+                fetchClipsPage(channelId, startedAtFormatted, endedAtFormatted, null));
+    }
 
-        if(accessToken != null && tokenExpiresAt !=null && LocalDateTime.now().isBefore(tokenExpiresAt)){
-            return Mono.just(accessToken);
-        }
+    /**
+     * Busca os clipes de um intervalo longo dividindo-o em janelas menores buscadas em paralelo.
+     * Janelas que devolvem uma página cheia são divididas ao meio até o tamanho mínimo configurado;
+     * só então o cursor é seguido, a partir da primeira página já buscada. Todas as janelas compartilham
+     * o mesmo rate limit "twitch-api".
+     *
+     * As janelas são fechadas, alinhadas ao segundo (a precisão do created_at da Twitch) e disjuntas,
+     * então nenhum clipe aparece em duas delas e o resultado dispensa deduplicação em memória. Qualquer
+     * que seja a profundidade da divisão, ficam em andamento no máximo duas páginas por janela sendo
+     * dividida (até twitch.clips.shard-concurrency janelas) e twitch.clips.shard-concurrency cursores.
+     */
+    public Flux<TwitchClipDTO> getClipsFromChannelSharded(String channelId, LocalDateTime startedAt, LocalDateTime endedAt) {
+        LocalDateTime start = startedAt.truncatedTo(ChronoUnit.SECONDS);
+        LocalDateTime end = endedAt.truncatedTo(ChronoUnit.SECONDS);
+        Duration shardWindow = Duration.ofHours(shardWindowHours);
+        long shards = Math.max(1, (Duration.between(start, end).toMillis() + shardWindow.toMillis() - 1)
+                / shardWindow.toMillis());
+
+        log.info("Buscando clipes do canal {} em {} janelas de até {}h (concorrência: {})",
+                channelId, shards, shardWindowHours, shardConcurrency);
+
+        return Flux.range(0, (int) shards)
+                .map(i -> start.plus(shardWindow.multipliedBy(i)))
+                .flatMap(windowStart -> {
+                    LocalDateTime windowEnd = windowStart.plus(shardWindow).minusSeconds(1);
+                    return splitWindow(channelId, windowStart, windowEnd.isAfter(end) ? end : windowEnd);
+                }, shardConcurrency)
+                .flatMap(window -> followCursor(channelId, format(window.getFrom()), format(window.getTo()),
+                        Mono.just(window.getFirstPage())), shardConcurrency);
+    }
+
+    /**
+     * Busca a primeira página da janela, subdividindo-a enquanto a página vier cheia, e emite as janelas
+     * finais junto com a primeira página delas
+     */
+    private Flux<ClipWindow> splitWindow(String channelId, LocalDateTime from, LocalDateTime to) {
+        // expand (em largura) assina uma expansão por vez: no máximo as duas metades em andamento
+        return fetchWindow(channelId, from, to)
+                .expand(window -> {
+                    if (!shouldSplit(window)) {
+                        return Flux.empty();
+                    }
+                    LocalDateTime middle = window.getFrom()
+                            .plus(Duration.between(window.getFrom(), window.getTo()).plusSeconds(1).dividedBy(2))
+                            .truncatedTo(ChronoUnit.SECONDS);
+                    log.debug("Janela {} - {} do canal {} veio cheia, dividindo em {}",
+                            window.getFrom(), window.getTo(), channelId, middle);
+                    return Flux.merge(
+                            fetchWindow(channelId, window.getFrom(), middle.minusSeconds(1)),
+                            fetchWindow(channelId, middle, window.getTo()));
+                })
+                .filter(window -> !shouldSplit(window));
+    }
+
+    private Mono<ClipWindow> fetchWindow(String channelId, LocalDateTime from, LocalDateTime to) {
+        return fetchClipsPage(channelId, format(from), format(to), null)
+                .map(firstPage -> new ClipWindow(from, to, firstPage));
+    }
+
+    /**
+     * Uma janela com a primeira página cheia é dividida se cada metade tiver pelo menos o tamanho mínimo
+     */
+    private boolean shouldSplit(ClipWindow window) {
+        List<TwitchClip> clips = window.getFirstPage().getData();
+        Duration span = Duration.between(window.getFrom(), window.getTo()).plusSeconds(1);
+        return clips != null && clips.size() >= CLIPS_PAGE_SIZE
+                && span.compareTo(Duration.ofMinutes(minShardMinutes).multipliedBy(2)) >= 0;
+    }
 
+    private static String format(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneOffset.UTC).format(DateTimeFormatter.ISO_INSTANT);
+    }
+
+    /**
+     * Segue o cursor a partir da primeira página informada, emitindo os clipes sob demanda
+     */
+    private Flux<TwitchClipDTO> followCursor(String channelId, String startedAt, String endedAt,
+                                             Mono<TwitchClipsResponse> firstPage) {
+        return firstPage
+                .expand(page -> hasNextPage(page)
+                        ? fetchClipsPage(channelId, startedAt, endedAt, page.getPagination().getCursor())
+                        : Mono.empty())
+                .take(maxClipPages)
+                // prefetch de 1 página: a próxima só é buscada quando a atual for consumida
+                .concatMapIterable(page -> page.getData() != null ? page.getData() : List.<TwitchClip>of(), 1)
+                .map(this::convertToDTO);
+    }
+
+    /**
+     * Busca uma única página do endpoint /clips, a partir do cursor informado (null para a primeira)
+     */
+    private Mono<TwitchClipsResponse> fetchClipsPage(String channelId, String startedAt, String endedAt, String cursor) {
+        return authorize()
+                .flatMap(token -> webClient.get()
+                        .uri(uriBuilder -> {
+                            uriBuilder
+                                    .path("/clips")
+                                    .queryParam("broadcaster_id", channelId)
+                                    .queryParam("started_at", startedAt)
+                                    .queryParam("ended_at", endedAt)
+                                    .queryParam("first", CLIPS_PAGE_SIZE); // Máximo por request
+                            if (cursor != null) {
+                                uriBuilder.queryParam("after", cursor);
+                            }
+                            return uriBuilder.build();
+                        })
+                        .header("Authorization", "Bearer " + token)
+                        .header("Client-Id", clientId)
+                        .retrieve()
+                        .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                                response -> response.bodyToMono(String.class)
+                                        .flatMap(body -> {
+                                            log.error("Erro na API da Twitch: {}", body);
+                                            return Mono.error(new RuntimeException("Erro na API da Twitch: " + body));
+                                        }))
+                        .bodyToMono(TwitchClipsResponse.class))
+                .doOnNext(page -> log.debug("Página de clipes do canal {} recebida: {} clipes (cursor: {})",
+                        channelId, page.getData() != null ? page.getData().size() : 0, cursor));
+    }
+
+    private boolean hasNextPage(TwitchClipsResponse page) {
+        return page.getData() != null && !page.getData().isEmpty()
+                && page.getPagination() != null
+                && page.getPagination().getCursor() != null
+                && !page.getPagination().getCursor().isEmpty();
+    }
+
+    /**
+     * Aguarda uma permissão do rate limit da Twitch sem bloquear e então devolve um token válido.
+     * O limite começa em 100 requests por minuto e é ajustado pelos cabeçalhos Ratelimit-*
+     * das respostas (ver {@link RateLimitHeadersFilter}). O token só é obtido depois da permissão,
+     * para não usar um token lido antes de uma longa espera na fila.
+     */
+    private Mono<String> authorize() {
+        return rateLimitService.acquirePermit(RATE_LIMIT_KEY, RATE_LIMIT_REQUESTS, Duration.ofMinutes(1))
+                .then(Mono.defer(this::ensureTokenIsValid));
+    }
 
-        return refreshAccessToken();
+    private Mono<String> ensureTokenIsValid() {
+        return tokenManager.getValidToken();
     }
 
 
     public Mono<String> refreshAccessToken() {
-        return webClient.post()
-                .uri("https://id.twitch.tv/oauth2/token")
-                .header("Content-Type", "application/x-www-form-urlencoded")
-                .bodyValue("client_id=" + clientId +
-                        "&client_secret=" + clientSecret +
-                        "&grant_type=client_credentials")
-                .retrieve()
-                .bodyToMono(TwitchTokenResponse.class)
-                .map(response -> {
-                    this.accessToken = response.getAccessToken();
-                    this.tokenExpiresAt = LocalDateTime.now().plusSeconds(response.getExpiresIn() - 300); // 5 min buffer
-                    log.info("Token da Twitch atualizado com sucesso");
-                    return accessToken;
-                })
-                .doOnError(error -> log.error("Erro ao atualizar token da Twitch: {}", error.getMessage()));
+        return tokenManager.refreshAccessToken();
     }
 
 
@@ -332,4 +534,25 @@ public class TwitchService {
                 .build();
     }
 
+    /**
+     * Janela de tempo fechada [from, to] e a primeira página de clipes dela
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class ClipWindow {
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final TwitchClipsResponse firstPage;
+    }
+
+    /**
+     * Consulta individual de usuário aguardando o próximo lote
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class UserLookup {
+        private final String login;
+        private final Sinks.One<TwitchUserDTO> result;
+    }
+
 }
@@ -0,0 +1,205 @@
+package com.joel.br.AutoClipster.services;
+
+import com.joel.br.AutoClipster.response.TwitchTokenResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Gerencia o app access token da Twitch (client credentials).
+ * A leitura do token é lock-free; quando ele expira, apenas uma requisição de renovação
+ * fica em andamento e todos os chamadores concorrentes aguardam o mesmo resultado.
+ * O token também é renovado proativamente antes de expirar, em um scheduler próprio, e
+ * descartado quando a API responde 401 (ver {@link #refreshOnUnauthorized()}).
+ */
+@Service
+@Slf4j
+public class TwitchTokenManager {
+
+    private static final String TOKEN_URL = "https://id.twitch.tv/oauth2/token";
+
+    private final WebClient webClient;
+    private final Scheduler refreshScheduler = Schedulers.newSingle("twitch-token-refresh", true);
+
+    @Value("${twitch.clientId}")
+    private String clientId;
+
+    @Value("${twitch.clientSecret}")
+    private String clientSecret;
+
+    @Value("${twitch.token.expiry-buffer-seconds:300}")
+    private int expiryBufferSeconds;
+
+    @Value("${twitch.token.refresh-ahead-seconds:300}")
+    private int refreshAheadSeconds;
+
+    /**
+     * Token atual e seu instante de expiração, trocados atomicamente em conjunto
+     */
+    private final AtomicReference<CachedToken> currentToken = new AtomicReference<>();
+
+    /**
+     * Renovação em andamento, compartilhada por todos os chamadores
+     */
+    private final AtomicReference<Mono<String>> inFlightRefresh = new AtomicReference<>();
+
+    private volatile Disposable scheduledRefresh;
+
+    public TwitchTokenManager(WebClient.Builder webClientBuilder) {
+        this.webClient = webClientBuilder.build();
+    }
+
+    /**
+     * Retorna um token válido, renovando-o apenas se necessário
+     */
+    public Mono<String> getValidToken() {
+        CachedToken token = currentToken.get();
+        if (token != null && token.isValid()) {
+            return Mono.just(token.value);
+        }
+        return refreshAccessToken();
+    }
+
+    /**
+     * Solicita um novo token. Se já existir uma renovação em andamento, reutiliza o mesmo resultado.
+     */
+    public Mono<String> refreshAccessToken() {
+        return Mono.defer(() -> {
+            while (true) {
+                Mono<String> existing = inFlightRefresh.get();
+                if (existing != null) {
+                    return existing;
+                }
+
+                Sinks.One<String> result = Sinks.one();
+                Mono<String> shared = result.asMono();
+                if (inFlightRefresh.compareAndSet(null, shared)) {
+                    // Libera a vaga antes de emitir, para que quem reagir ao resultado possa renovar de novo;
+                    // o doFinally cobre qualquer outro término
+                    requestNewToken()
+                            .switchIfEmpty(Mono.error(() -> new IllegalStateException(
+                                    "Resposta vazia ao renovar o token da Twitch")))
+                            .doFinally(signal -> inFlightRefresh.compareAndSet(shared, null))
+                            .subscribe(
+                                    token -> {
+                                        inFlightRefresh.compareAndSet(shared, null);
+                                        result.tryEmitValue(token);
+                                    },
+                                    error -> {
+                                        inFlightRefresh.compareAndSet(shared, null);
+                                        result.tryEmitError(error);
+                                    });
+                    return shared;
+                }
+            }
+        });
+    }
+
+    /**
+     * Descarta o token informado, forçando uma renovação na próxima chamada. Se ele já foi
+     * substituído (ex: outra requisição recebeu 401 e renovou), o token novo é mantido.
+     */
+    public void invalidate(String token) {
+        CachedToken current = currentToken.get();
+        if (current != null && current.value.equals(token)) {
+            currentToken.compareAndSet(current, null);
+        }
+    }
+
+    /**
+     * Filtro de WebClient para as chamadas autenticadas: em um 401 o token enviado é descartado
+     * e a requisição é reenviada uma única vez com um token válido
+     */
+    public ExchangeFilterFunction refreshOnUnauthorized() {
+        return (request, next) -> next.exchange(request)
+                .flatMap(response -> {
+                    if (response.statusCode().value() != HttpStatus.UNAUTHORIZED.value()) {
+                        return Mono.just(response);
+                    }
+                    log.warn("401 da API da Twitch ({}), renovando o token", request.url().getPath());
+                    invalidate(bearerToken(request));
+                    return response.releaseBody()
+                            .then(getValidToken())
+                            .flatMap(token -> next.exchange(ClientRequest.from(request)
+                                    .headers(headers -> headers.setBearerAuth(token))
+                                    .build()));
+                });
+    }
+
+    private static String bearerToken(ClientRequest request) {
+        String authorization = request.headers().getFirst(HttpHeaders.AUTHORIZATION);
+        return authorization != null && authorization.startsWith("Bearer ")
+                ? authorization.substring("Bearer ".length())
+                : null;
+    }
+
+    private Mono<String> requestNewToken() {
+        return webClient.post()
+                .uri(TOKEN_URL)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .bodyValue("client_id=" + clientId +
+                        "&client_secret=" + clientSecret +
+                        "&grant_type=client_credentials")
+                .retrieve()
+                .bodyToMono(TwitchTokenResponse.class)
+                .map(response -> {
+                    Instant expiresAt = Instant.now().plusSeconds(response.getExpiresIn() - expiryBufferSeconds);
+                    currentToken.set(new CachedToken(response.getAccessToken(), expiresAt));
+                    scheduleProactiveRefresh(expiresAt);
+                    log.info("Token da Twitch atualizado com sucesso (expira em {})", expiresAt);
+                    return response.getAccessToken();
+                })
+                .doOnError(error -> log.error("Erro ao atualizar token da Twitch: {}", error.getMessage()));
+    }
+
+    /**
+     * Agenda a renovação do token um pouco antes da expiração, fora do caminho das requisições
+     */
+    private void scheduleProactiveRefresh(Instant expiresAt) {
+        Disposable previous = scheduledRefresh;
+        if (previous != null) {
+            previous.dispose();
+        }
+
+        long delayMs = Math.max(0, Duration.between(Instant.now(), expiresAt).toMillis() - refreshAheadSeconds * 1000L);
+        scheduledRefresh = refreshScheduler.schedule(() -> refreshAccessToken().subscribe(
+                token -> log.debug("Renovação proativa do token da Twitch concluída"),
+                error -> log.warn("Falha na renovação proativa do token da Twitch: {}", error.getMessage())),
+                delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshScheduler.dispose();
+    }
+
+    private static class CachedToken {
+        private final String value;
+        private final Instant expiresAt;
+
+        private CachedToken(String value, Instant expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isValid() {
+            return Instant.now().isBefore(expiresAt);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.joel.br.AutoClipster.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joel.br.AutoClipster.download.ProcessSupervisor;
+import com.joel.br.AutoClipster.model.VideoMetadata;
+import com.joel.br.AutoClipster.repository.VideoMetadataRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Extrai codec, resolução, taxa de bits, frame rate e áudio dos vídeos baixados com o ffprobe.
+ *
+ * Cada conteúdo (SHA-256) é analisado uma única vez: o resultado fica em video_metadata e pedidos
+ * simultâneos para o mesmo arquivo compartilham a mesma execução. As execuções rodam em um pool
+ * limitado (app.probe.workers) com fila limitada (app.probe.queue-capacity); com a fila cheia o
+ * pedido é recusado em vez de acumular processos.
+ */
+@Service
+@Slf4j
+public class VideoProbeService {
+
+    private final VideoMetadataRepository videoMetadataRepository;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, CompletableFuture<VideoMetadata>> inFlight = new ConcurrentHashMap<>();
+
+    @Value("${app.probe.ffprobe-path:ffprobe}")
+    private String ffprobePath;
+
+    @Value("${app.probe.workers:2}")
+    private int workers;
+
+    @Value("${app.probe.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${app.probe.timeout-seconds:30}")
+    private int timeoutSeconds;
+
+    private ThreadPoolExecutor executor;
+    private ProcessSupervisor supervisor;
+
+    public VideoProbeService(VideoMetadataRepository videoMetadataRepository) {
+        this.videoMetadataRepository = videoMetadataRepository;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "video-probe-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        supervisor = new ProcessSupervisor();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (supervisor != null) {
+            supervisor.close();
+        }
+    }
+
+    /**
+     * Metadados do conteúdo, executando o ffprobe apenas se ele ainda não foi analisado
+     *
+     * @param sha256 Hash do conteúdo (ClipContentStore)
+     * @param file Arquivo a analisar
+     * @return Future que falha com RejectedExecutionException se a fila estiver cheia
+     */
+    public CompletableFuture<VideoMetadata> probe(String sha256, Path file) {
+        Optional<VideoMetadata> existing = videoMetadataRepository.findById(sha256);
+        if (existing.isPresent()) {
+            return CompletableFuture.completedFuture(existing.get());
+        }
+
+        CompletableFuture<VideoMetadata> created = new CompletableFuture<>();
+        CompletableFuture<VideoMetadata> running = inFlight.putIfAbsent(sha256, created);
+        if (running != null) {
+            return running;
+        }
+
+        created.whenComplete((metadata, error) -> inFlight.remove(sha256, created));
+        try {
+            executor.execute(() -> {
+                try {
+                    created.complete(videoMetadataRepository.save(runFfprobe(sha256, file)));
+                } catch (Throwable e) {
+                    created.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    public Optional<VideoMetadata> findMetadata(String sha256) {
+        return sha256 != null ? videoMetadataRepository.findById(sha256) : Optional.empty();
+    }
+
+    private VideoMetadata runFfprobe(String sha256, Path file) throws Exception {
+        ProcessBuilder builder = new ProcessBuilder(ffprobePath,
+                "-v", "quiet",
+                "-print_format", "json",
+                "-show_format",
+                "-show_streams",
+                file.toAbsolutePath().toString());
+
+        StringBuilder output = new StringBuilder();
+        Duration timeout = Duration.ofSeconds(timeoutSeconds);
+        ProcessSupervisor.SupervisedProcess process = supervisor.start(builder,
+                line -> output.append(line).append('\n'), timeout, timeout);
+        ProcessSupervisor.Outcome outcome = process.onExit().get();
+
+        if (outcome.isKilled()) {
+            throw new IOException("ffprobe encerrado (" + outcome.getTermination() + ") para " + file);
+        }
+        if (outcome.getExitCode() != 0) {
+            throw new IOException("ffprobe terminou com código " + outcome.getExitCode() + " para " + file);
+        }
+
+        VideoMetadata metadata = parse(objectMapper.readTree(output.toString()));
+        metadata.setSha256(sha256);
+        if (metadata.getSizeBytes() == null) {
+            metadata.setSizeBytes(Files.size(file));
+        }
+        log.info("ffprobe {}: {} {}x{} {} fps, {} kb/s, áudio {} {}", file.getFileName(),
+                metadata.getVideoCodec(), metadata.getWidth(), metadata.getHeight(), metadata.getFrameRate(),
+                metadata.getBitRate() != null ? metadata.getBitRate() / 1000 : null,
+                metadata.getAudioCodec(), metadata.getAudioChannelLayout());
+        return metadata;
+    }
+
+    /**
+     * Converte a saída de {@code ffprobe -print_format json -show_format -show_streams}
+     */
+    static VideoMetadata parse(JsonNode root) {
+        VideoMetadata.VideoMetadataBuilder metadata = VideoMetadata.builder()
+                .probedAt(LocalDateTime.now());
+
+        JsonNode format = root.path("format");
+        metadata.formatName(text(format, "format_name"))
+                .durationSeconds(decimal(format, "duration"))
+                .sizeBytes(integer(format, "size"))
+                .bitRate(integer(format, "bit_rate"));
+
+        boolean videoFound = false;
+        boolean audioFound = false;
+        for (JsonNode stream : root.path("streams")) {
+            String type = stream.path("codec_type").asText();
+            if ("video".equals(type) && !videoFound && !isAttachedPicture(stream)) {
+                videoFound = true;
+                Long width = integer(stream, "width");
+                Long height = integer(stream, "height");
+                Double frameRate = frameRate(text(stream, "avg_frame_rate"));
+                metadata.videoCodec(text(stream, "codec_name"))
+                        .videoProfile(text(stream, "profile"))
+                        .pixelFormat(text(stream, "pix_fmt"))
+                        .width(width != null ? width.intValue() : null)
+                        .height(height != null ? height.intValue() : null)
+                        .frameRate(frameRate != null ? frameRate : frameRate(text(stream, "r_frame_rate")))
+                        .videoBitRate(integer(stream, "bit_rate"));
+            } else if ("audio".equals(type) && !audioFound) {
+                audioFound = true;
+                Long channels = integer(stream, "channels");
+                Long sampleRate = integer(stream, "sample_rate");
+                metadata.audioCodec(text(stream, "codec_name"))
+                        .audioChannels(channels != null ? channels.intValue() : null)
+                        .audioChannelLayout(text(stream, "channel_layout"))
+                        .audioSampleRate(sampleRate != null ? sampleRate.intValue() : null)
+                        .audioBitRate(integer(stream, "bit_rate"));
+            }
+        }
+        return metadata.build();
+    }
+
+    /**
+     * Capas embutidas aparecem como streams de vídeo com um único quadro
+     */
+    private static boolean isAttachedPicture(JsonNode stream) {
+        return stream.path("disposition").path("attached_pic").asInt(0) == 1;
+    }
+
+    /**
+     * Frame rate no formato racional do ffprobe (ex: 30000/1001); "0/0" significa desconhecido
+     */
+    static Double frameRate(String rational) {
+        if (rational == null) {
+            return null;
+        }
+        int slash = rational.indexOf('/');
+        try {
+            if (slash < 0) {
+                return Double.parseDouble(rational);
+            }
+            double numerator = Double.parseDouble(rational.substring(0, slash));
+            double denominator = Double.parseDouble(rational.substring(slash + 1));
+            return denominator > 0 && numerator > 0 ? numerator / denominator : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() || value.asText().isEmpty() ? null : value.asText();
+    }
+
+    /**
+     * O ffprobe escreve a maioria dos números como strings
+     */
+    private static Long integer(JsonNode node, String field) {
+        String value = text(node, field);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Double decimal(JsonNode node, String field) {
+        String value = text(node, field);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -1,23 +1,29 @@
 package com.joel.br.AutoClipster.services;
 
-import com.joel.br.AutoClipster.DTO.TwitchClipDTO;
-import com.joel.br.AutoClipster.DTO.TwitchUserDTO;
 import com.joel.br.AutoClipster.DTO.WorkflowResult;
+import com.joel.br.AutoClipster.config.AsyncConfig;
+import com.joel.br.AutoClipster.pipeline.ClipPipeline;
+import com.joel.br.AutoClipster.pipeline.PipelineRun;
 import com.joel.br.AutoClipster.repository.DownloadedClipRepository;
+import com.joel.br.AutoClipster.storage.ClipContentStore;
+import com.joel.br.AutoClipster.storage.ClipPathIndex;
+import com.joel.br.AutoClipster.storage.StorageOwnership;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 /**
  * Orquestra o workflow completo de processamento de clips
- * Canal → Buscar Clips → Download → Análise Automática
+ * Canal → Buscar Clips → Download → ffprobe → Análise Automática → Upload
  */
 @Service
 @Slf4j
@@ -25,14 +31,20 @@ import java.util.concurrent.CompletableFuture;
 public class WorkflowOrchestrationService {
 
     private final TwitchService twitchService;
-    private final ClipDownloadService clipDownloadService;
+    private final ClipPipeline clipPipeline;
     private final AutomatedClipProcessingService processingService;
     private final DownloadedClipRepository downloadedClipRepository;
+    private final ClipContentStore clipContentStore;
+    private final ClipPathIndex clipPathIndex;
+    private final StorageOwnership storageOwnership;
+
+    @Value("${app.pipeline.max-concurrent-channels:2}")
+    private int maxConcurrentChannels;
 
     /**
-     * Executa o workflow completo de forma assíncrona
+     * Executa o workflow completo sem bloquear: o canal é resolvido e os clips passam pelo
+     * {@link ClipPipeline}; o future completa quando todos os clips terminaram
      */
-    @Async
     public CompletableFuture<WorkflowResult> executeCompleteWorkflow(
             String channelName, 
             int clipLimit, 
@@ -42,86 +54,29 @@ public class WorkflowOrchestrationService {
         log.info("🚀 Iniciando workflow completo para canal: {} ({} clips, {} dias)", 
                 channelName, clipLimit, daysBack);
         
-        try {
-            // 1. BUSCAR CANAL
-            log.info("🔍 Buscando canal: {}", channelName);
-            TwitchUserDTO user = twitchService.getUserByName(channelName).block();
-            
-            if (user == null) {
-                return CompletableFuture.completedFuture(
-                    WorkflowResult.builder()
-                        .channelName(channelName)
-                        .status("FAILED")
-                        .errorMessage("Canal não encontrado: " + channelName)
-                        .startedAt(startTime)
-                        .completedAt(LocalDateTime.now())
-                        .build()
-                );
-            }
-            
-            log.info("✅ Canal encontrado: {} (ID: {})", user.getDisplayName(), user.getId());
-            
-            // 2. BUSCAR CLIPS DO CANAL
-            log.info("🎬 Buscando clips dos últimos {} dias...", daysBack);
-            Flux<TwitchClipDTO> clipsFlux = twitchService.getClipsFromChannelExtended(user.getId(), daysBack);
-            
-            // 3. DOWNLOAD AUTOMÁTICO DOS MELHORES CLIPS
-            log.info("📥 Iniciando download dos {} melhores clips...", clipLimit);
-            Integer downloadedCount = clipDownloadService.downloadTopClips(clipsFlux, clipLimit).block();
-            
-            if (downloadedCount == null) {
-                downloadedCount = 0;
-            }
-            
-            log.info("✅ Download concluído: {} clips baixados", downloadedCount);
-            
-            // 4. AGUARDAR UM POUCO PARA O PROCESSAMENTO AUTOMÁTICO INICIAR
-            if (downloadedCount > 0) {
-                log.info("⏳ Aguardando início do processamento automático...");
-                Thread.sleep(5000); // 5 segundos
-            }
-            
-            // 5. COLETAR ESTATÍSTICAS
-            long totalProcessed = downloadedClipRepository.countByProcessedTrue();
-            
-            // 6. PREPARAR RESULTADO
-            WorkflowResult result = WorkflowResult.builder()
-                .channelName(channelName)
-                .channelId(user.getId())
-                .clipsDownloaded(downloadedCount)
-                .clipsProcessed(Math.toIntExact(totalProcessed))
-                .status("COMPLETED")
-                .startedAt(startTime)
-                .completedAt(LocalDateTime.now())
-                .processedClipTitles(new ArrayList<>()) // Poderia buscar os títulos se necessário
-                .build();
-            
-            log.info("🎉 Workflow concluído com sucesso para canal: {}", channelName);
-            logWorkflowSummary(result);
-            
-            return CompletableFuture.completedFuture(result);
-            
-        } catch (Exception e) {
-            log.error("❌ Erro no workflow para canal {}: {}", channelName, e.getMessage());
-            
-            return CompletableFuture.completedFuture(
-                WorkflowResult.builder()
-                    .channelName(channelName)
-                    .status("FAILED")
-                    .errorMessage(e.getMessage())
-                    .startedAt(startTime)
-                    .completedAt(LocalDateTime.now())
-                    .clipsDownloaded(0)
-                    .clipsProcessed(0)
-                    .build()
-            );
-        }
+        return twitchService.getUserByName(channelName)
+                .flatMap(user -> {
+                    log.info("✅ Canal encontrado: {} (ID: {})", user.getDisplayName(), user.getId());
+                    return clipPipeline.run(channelName, user, clipLimit, daysBack);
+                })
+                .map(run -> {
+                    WorkflowResult result = run.toResult();
+                    log.info("🎉 Workflow concluído para canal: {}", channelName);
+                    logWorkflowSummary(result);
+                    return result;
+                })
+                .switchIfEmpty(Mono.fromSupplier(() ->
+                        failedResult(channelName, startTime, "Canal não encontrado: " + channelName)))
+                .onErrorResume(e -> {
+                    log.error("❌ Erro no workflow para canal {}: {}", channelName, e.getMessage());
+                    return Mono.just(failedResult(channelName, startTime, e.getMessage()));
+                })
+                .toFuture();
     }
 
     /**
-     * Executa workflow para múltiplos canais
+     * Executa workflow para múltiplos canais, até app.pipeline.max-concurrent-channels ao mesmo tempo
      */
-    @Async
     public CompletableFuture<List<WorkflowResult>> executeMultipleChannelsWorkflow(
             List<String> channelNames, 
             int clipLimitPerChannel, 
@@ -129,26 +84,46 @@ public class WorkflowOrchestrationService {
         
         log.info("🚀 Iniciando workflow para múltiplos canais: {} canais", channelNames.size());
         
-        List<CompletableFuture<WorkflowResult>> futures = new ArrayList<>();
-        
-        for (String channelName : channelNames) {
-            CompletableFuture<WorkflowResult> future = executeCompleteWorkflow(
-                channelName, clipLimitPerChannel, daysBack);
-            futures.add(future);
-            
-            try {
-                // Delay entre canais para evitar rate limiting
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                log.warn("Interrompido durante delay entre canais");
-            }
-        }
-        
-        // Aguardar todos os workflows
-        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-            .thenApply(v -> futures.stream()
-                .map(CompletableFuture::join)
-                .toList());
+        // Resolver todos os canais em lote (até 100 logins por chamada) e aquecer o cache
+        // usado por getUserByName; o rate limit da Twitch é controlado pelo RateLimitService
+        return twitchService.getUsersByNames(channelNames)
+                .onErrorResume(e -> {
+                    log.warn("Falha ao resolver canais em lote, seguindo com buscas individuais: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .thenMany(Flux.fromIterable(channelNames))
+                .flatMapSequential(channelName -> Mono.fromFuture(() ->
+                        executeCompleteWorkflow(channelName, clipLimitPerChannel, daysBack)), maxConcurrentChannels)
+                .collectList()
+                .toFuture();
+    }
+
+    /**
+     * Andamento por clip de uma execução do pipeline (em curso ou recente)
+     */
+    public Optional<WorkflowResult> getWorkflowRun(String runId) {
+        return clipPipeline.getRun(runId).map(PipelineRun::toResult);
+    }
+
+    /**
+     * Execuções do pipeline em curso e as últimas concluídas
+     */
+    public List<WorkflowResult> getWorkflowRuns() {
+        return clipPipeline.getRuns().stream()
+                .map(PipelineRun::toResult)
+                .toList();
+    }
+
+    private WorkflowResult failedResult(String channelName, LocalDateTime startTime, String errorMessage) {
+        return WorkflowResult.builder()
+                .channelName(channelName)
+                .status("FAILED")
+                .errorMessage(errorMessage)
+                .startedAt(startTime)
+                .completedAt(LocalDateTime.now())
+                .clipsDownloaded(0)
+                .clipsProcessed(0)
+                .build();
     }
 
     /**
@@ -170,7 +145,7 @@ public class WorkflowOrchestrationService {
     /**
      * Força o reprocessamento de clips que falharam
      */
-    @Async
+    @Async(AsyncConfig.WORKFLOW_EXECUTOR)
     public CompletableFuture<Integer> retryFailedClips() {
         log.info("🔄 Iniciando reprocessamento de clips que falharam...");
         
@@ -187,6 +162,8 @@ public class WorkflowOrchestrationService {
             try {
                 clip.setProcessed(false);
                 clip.setProcessingStatus("RETRY");
+                clip.setAttempts(0);
+                clip.setNextAttemptAt(null);
                 downloadedClipRepository.save(clip);
                 
                 processingService.processNewlyDownloadedClip(clip);
@@ -220,16 +197,20 @@ public class WorkflowOrchestrationService {
      * Limpa clips antigos baseado em configuração
      */
     public void cleanupOldClips(int daysToKeep) {
+        storageOwnership.requireOwner();
         LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysToKeep);
         
         List<com.joel.br.AutoClipster.model.DownloadedClip> oldClips = 
-            downloadedClipRepository.findAll().stream()
-                .filter(clip -> clip.getDownloadDate().isBefore(cutoffDate))
-                .toList();
+            downloadedClipRepository.findByDownloadDateBefore(cutoffDate);
         
         if (!oldClips.isEmpty()) {
             log.info("🧹 Limpando {} clips antigos (mais de {} dias)", oldClips.size(), daysToKeep);
             downloadedClipRepository.deleteAll(oldClips);
+            // O arquivo só é apagado quando nenhum outro clip compartilha o mesmo conteúdo
+            oldClips.forEach(clip -> {
+                clipPathIndex.remove(clip.getClipId());
+                clipContentStore.release(clip.getContentHash());
+            });
         }
     }
 } 
\ No newline at end of file
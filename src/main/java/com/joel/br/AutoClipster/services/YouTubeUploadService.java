@@ -7,13 +7,18 @@ import com.google.api.services.youtube.YouTube;
 import com.google.api.services.youtube.model.*;
 import com.joel.br.AutoClipster.DTO.YouTubeUploadRequest;
 import com.joel.br.AutoClipster.DTO.YouTubeUploadResponse;
+import com.joel.br.AutoClipster.config.AsyncConfig;
 import com.joel.br.AutoClipster.config.YouTubeConfig;
+import com.joel.br.AutoClipster.limiter.ConcurrencyLimiter;
+import com.joel.br.AutoClipster.limiter.ConcurrencyLimiter.Dependency;
 import com.joel.br.AutoClipster.model.DownloadedClip;
 import com.joel.br.AutoClipster.model.YouTubeVideo;
 import com.joel.br.AutoClipster.model.YouTubeVideo.UploadStatus;
 import com.joel.br.AutoClipster.model.YouTubeVideo.PrivacyStatus;
 import com.joel.br.AutoClipster.repository.DownloadedClipRepository;
 import com.joel.br.AutoClipster.repository.YouTubeVideoRepository;
+import com.joel.br.AutoClipster.storage.ClipContentStore;
+import com.joel.br.AutoClipster.storage.ClipPathIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -24,6 +29,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Arrays;
@@ -41,6 +47,9 @@ public class YouTubeUploadService {
     private final DownloadedClipRepository clipRepository;
     private final YouTubeConfig youTubeConfig;
     private final RateLimitService rateLimitService;
+    private final ClipContentStore clipContentStore;
+    private final ClipPathIndex clipPathIndex;
+    private final ConcurrencyLimiter concurrencyLimiter;
 
     @Value("${youtube.auto-upload:false}")
     private boolean autoUploadEnabled;
@@ -51,7 +60,7 @@ public class YouTubeUploadService {
     /**
      * Upload de vídeo para o YouTube
      */
-    @Async
+    @Async(AsyncConfig.UPLOAD_EXECUTOR)
     @Transactional
     public CompletableFuture<YouTubeUploadResponse> uploadVideo(YouTubeUploadRequest request) {
         try {
@@ -171,10 +180,12 @@ public class YouTubeUploadService {
             videoMetadata.setSnippet(snippet);
 
             // Preparar arquivo para upload
-            File videoFile = new File(clip.getFilePath());
-            if (!videoFile.exists()) {
+            Path videoPath = clipPathIndex.resolve(clip);
+            File videoFile = videoPath != null ? videoPath.toFile() : null;
+            if (videoFile == null || !videoFile.exists()) {
                 throw new RuntimeException("Arquivo de vídeo não encontrado: " + clip.getFilePath());
             }
+            clipContentStore.recordAccess(clip.getContentHash());
 
             InputStreamContent mediaContent = new InputStreamContent(VIDEO_MIME_TYPE, new FileInputStream(videoFile));
             mediaContent.setLength(videoFile.length());
@@ -183,8 +194,8 @@ public class YouTubeUploadService {
             YouTube.Videos.Insert videoInsert = youtubeService.videos()
                     .insert(Arrays.asList("snippet", "statistics", "status"), videoMetadata, mediaContent);
 
-            // Executar upload
-            Video uploadedVideo = videoInsert.execute();
+            // Executar upload (no máximo app.limits.youtube.max-concurrent ao mesmo tempo)
+            Video uploadedVideo = concurrencyLimiter.call(Dependency.YOUTUBE, videoInsert::execute);
 
             // Atualizar informações do vídeo
             video.setYoutubeId(uploadedVideo.getId());
@@ -213,7 +224,7 @@ public class YouTubeUploadService {
     /**
      * Upload automático baseado em análise do Gemini
      */
-    @Async
+    @Async(AsyncConfig.UPLOAD_EXECUTOR)
     public CompletableFuture<YouTubeUploadResponse> autoUploadFromAnalysis(Long clipId, String userId) {
         if (!autoUploadEnabled) {
             return CompletableFuture.completedFuture(
@@ -0,0 +1,310 @@
+package com.joel.br.AutoClipster.storage;
+
+import com.joel.br.AutoClipster.download.ContentDigest;
+import com.joel.br.AutoClipster.download.DurableFiles;
+import com.joel.br.AutoClipster.model.ClipBlob;
+import com.joel.br.AutoClipster.repository.ClipBlobRepository;
+import com.joel.br.AutoClipster.repository.DownloadedClipRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Armazenamento endereçado por conteúdo dos vídeos baixados.
+ *
+ * Cada arquivo é guardado uma única vez em {@code <download-path>/blobs/ab/cd/<sha256>.mp4}; clips
+ * diferentes com o mesmo conteúdo (o mesmo momento clipado por várias pessoas) apontam para o mesmo
+ * arquivo, e o registro em clip_blobs conta quantos DownloadedClip o referenciam. O arquivo só é
+ * apagado quando a última referência é liberada, ou quando o {@link StorageManager} o despeja.
+ *
+ * O total de bytes armazenados é mantido em memória e atualizado a cada inclusão e remoção,
+ * sem precisar percorrer o diretório. As leituras também são acumuladas em memória e gravadas em lote
+ * (app.clips.storage.access-flush-interval-ms), com no máximo uma atualização por arquivo a cada intervalo.
+ */
+@Service
+@Slf4j
+public class ClipContentStore {
+
+    static final String BLOBS_DIR = "blobs";
+    private static final String BLOB_EXTENSION = ".mp4";
+    private static final int LOCK_STRIPES = 64;
+
+    private final ClipBlobRepository clipBlobRepository;
+    private final DownloadedClipRepository downloadedClipRepository;
+    private final ClipPathIndex clipPathIndex;
+    private final Path blobsRoot;
+    private final AtomicLong storedBytes = new AtomicLong();
+
+    // Leituras ainda não gravadas, por hash
+    private final Map<String, Integer> pendingAccesses = new ConcurrentHashMap<>();
+
+    /**
+     * Serializa, por hash, a criação e a remoção do arquivo com a atualização da contagem
+     */
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public ClipContentStore(ClipBlobRepository clipBlobRepository,
+                            DownloadedClipRepository downloadedClipRepository,
+                            ClipPathIndex clipPathIndex,
+                            @Value("${app.clips.download-path:./downloads}") String downloadPath) {
+        this.clipBlobRepository = clipBlobRepository;
+        this.downloadedClipRepository = downloadedClipRepository;
+        this.clipPathIndex = clipPathIndex;
+        this.blobsRoot = Paths.get(downloadPath).toAbsolutePath().normalize().resolve(BLOBS_DIR);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void initializeUsage() {
+        try {
+            storedBytes.set(clipBlobRepository.sumSizeBytes());
+            log.info("Armazenamento de clips: {} MB em uso", storedBytes.get() / (1024 * 1024));
+        } catch (Exception e) {
+            log.error("Erro ao calcular o uso do armazenamento de clips: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Calcula o hash do arquivo e o armazena; para arquivos que não vieram de um download (ex: migração)
+     *
+     * @see #store(Path, String)
+     */
+    public StoredContent store(Path downloaded) throws IOException {
+        return store(downloaded, sha256(downloaded));
+    }
+
+    /**
+     * Move o arquivo baixado para o armazenamento e registra uma referência a ele. Se já existir um
+     * arquivo com o mesmo conteúdo, o baixado é descartado e o existente é reaproveitado.
+     *
+     * @param downloaded Arquivo completo, no mesmo sistema de arquivos do download-path
+     * @param sha256 SHA-256 do arquivo, calculado pelo downloader enquanto os bytes chegavam
+     * @return Hash e caminho definitivo do conteúdo
+     */
+    public StoredContent store(Path downloaded, String sha256) throws IOException {
+        long size = Files.size(downloaded);
+        Path blob = blobPath(sha256);
+
+        ReentrantLock lock = lockFor(sha256);
+        lock.lock();
+        try {
+            boolean duplicate = Files.exists(blob);
+            if (!duplicate) {
+                DurableFiles.moveDurably(downloaded, blob);
+                storedBytes.addAndGet(size);
+            }
+            try {
+                clipBlobRepository.acquire(sha256, blob.toString(), size);
+            } catch (RuntimeException e) {
+                if (!duplicate) {
+                    // Sem registro em clip_blobs o arquivo ficaria órfão e contado no uso
+                    deleteBlobFile(blob);
+                    storedBytes.addAndGet(-size);
+                }
+                throw e;
+            }
+
+            if (duplicate) {
+                // Só depois de registrar a referência: se o registro falhar, o arquivo baixado continua lá
+                Files.delete(downloaded);
+                log.info("Conteúdo duplicado ({}), reaproveitando {} e liberando {} bytes", sha256, blob, size);
+            }
+            return new StoredContent(sha256, blob, size, duplicate);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Libera uma referência ao conteúdo, apagando o arquivo se ela era a última
+     *
+     * @return true se o arquivo foi apagado
+     */
+    public boolean release(String sha256) {
+        if (sha256 == null) {
+            return false;
+        }
+
+        ReentrantLock lock = lockFor(sha256);
+        lock.lock();
+        try {
+            clipBlobRepository.decrement(sha256);
+            return deleteIfUnreferenced(sha256);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Recalcula as contagens a partir dos DownloadedClip e remove os arquivos sem nenhuma referência,
+     * como os gravados logo antes de uma queda que impediu o registro do clip. Pode rodar com downloads em
+     * andamento: arquivos referenciados depois de {@code acquiredBefore} não são recontados nem removidos,
+     * e a remoção confere a contagem de novo sob o lock do hash.
+     *
+     * @param acquiredBefore Arquivos com referências mais novas que isso são mantidos (podem pertencer a
+     *                       um download cujo clip ainda não foi salvo)
+     * @return Quantidade de arquivos removidos
+     */
+    public int collectGarbage(LocalDateTime acquiredBefore) {
+        clipBlobRepository.recountReferences(acquiredBefore);
+
+        List<ClipBlob> unreferenced = clipBlobRepository.findUnreferenced(acquiredBefore);
+        int removed = 0;
+        for (ClipBlob blob : unreferenced) {
+            ReentrantLock lock = lockFor(blob.getSha256());
+            lock.lock();
+            try {
+                if (deleteIfUnreferenced(blob.getSha256())) {
+                    removed++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Remove o arquivo do disco mesmo que ainda seja referenciado. Os clips que apontavam para ele
+     * continuam registrados, sem arquivo, para não serem baixados de novo.
+     *
+     * @return Bytes liberados
+     */
+    public long evict(String sha256) {
+        ReentrantLock lock = lockFor(sha256);
+        lock.lock();
+        try {
+            Optional<ClipBlob> blob = clipBlobRepository.findById(sha256);
+            if (blob.isEmpty()) {
+                return 0;
+            }
+            downloadedClipRepository.findClipIdsByContentHash(sha256).forEach(clipPathIndex::remove);
+            int clips = downloadedClipRepository.clearContent(sha256);
+            clipBlobRepository.deleteById(sha256);
+            deleteBlobFile(blobPath(sha256));
+            storedBytes.addAndGet(-blob.get().getSizeBytes());
+            log.info("Conteúdo {} despejado ({} bytes, {} clips)", sha256, blob.get().getSizeBytes(), clips);
+            return blob.get().getSizeBytes();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registra a leitura do arquivo, usada na ordem de despejo. Só conta em memória; o banco é
+     * atualizado por {@link #flushAccesses()}.
+     */
+    public void recordAccess(String sha256) {
+        if (sha256 != null) {
+            pendingAccesses.merge(sha256, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Grava as leituras acumuladas desde a última execução, uma atualização por arquivo
+     */
+    @Scheduled(fixedDelayString = "${app.clips.storage.access-flush-interval-ms:30000}")
+    @PreDestroy
+    public void flushAccesses() {
+        LocalDateTime now = LocalDateTime.now();
+        for (String sha256 : pendingAccesses.keySet()) {
+            Integer count = pendingAccesses.remove(sha256);
+            if (count == null) {
+                continue;
+            }
+            try {
+                clipBlobRepository.recordAccess(sha256, now, count);
+            } catch (Exception e) {
+                log.warn("Não foi possível registrar o acesso a {}: {}", sha256, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return Total de bytes no armazenamento por conteúdo
+     */
+    public long getStoredBytes() {
+        return storedBytes.get();
+    }
+
+    /**
+     * @return true se o arquivo pertence ao armazenamento por conteúdo
+     */
+    public boolean isBlob(Path file) {
+        return file.toAbsolutePath().normalize().startsWith(blobsRoot);
+    }
+
+    /**
+     * Caminho do conteúdo, dividido em dois níveis de diretório pelos primeiros bytes do hash
+     * para que nenhum diretório acumule arquivos demais
+     */
+    Path blobPath(String sha256) {
+        return blobsRoot
+                .resolve(sha256.substring(0, 2))
+                .resolve(sha256.substring(2, 4))
+                .resolve(sha256 + BLOB_EXTENSION);
+    }
+
+    /**
+     * Calcula o SHA-256 lendo o arquivo sequencialmente, em blocos, sem carregá-lo na memória
+     */
+    static String sha256(Path file) throws IOException {
+        return ContentDigest.of(file);
+    }
+
+    /**
+     * Deve ser chamado com o lock do hash
+     */
+    private boolean deleteIfUnreferenced(String sha256) {
+        Optional<ClipBlob> blob = clipBlobRepository.findById(sha256);
+        if (blob.isEmpty() || clipBlobRepository.deleteIfUnreferenced(sha256) == 0) {
+            return false;
+        }
+        deleteBlobFile(blobPath(sha256));
+        storedBytes.addAndGet(-blob.get().getSizeBytes());
+        return true;
+    }
+
+    private ReentrantLock lockFor(String sha256) {
+        return locks[Math.floorMod(sha256.hashCode(), LOCK_STRIPES)];
+    }
+
+    private void deleteBlobFile(Path blob) {
+        try {
+            Files.deleteIfExists(blob);
+            log.debug("Arquivo de conteúdo removido: {}", blob);
+        } catch (IOException e) {
+            log.warn("Não foi possível remover {}: {}", blob, e.getMessage());
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class StoredContent {
+        private final String sha256;
+        private final Path path;
+        private final long sizeBytes;
+
+        // true se o conteúdo já existia e o arquivo baixado foi descartado
+        private final boolean duplicate;
+    }
+}
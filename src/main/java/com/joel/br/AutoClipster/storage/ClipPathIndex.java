@@ -0,0 +1,218 @@
+package com.joel.br.AutoClipster.storage;
+
+import com.joel.br.AutoClipster.download.DurableFiles;
+import com.joel.br.AutoClipster.model.DownloadedClip;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Índice em disco de ID do clip para caminho do arquivo, em {@code <download-path>/clip-index.tsv}.
+ *
+ * O arquivo é um log de linhas {@code clipId<TAB>caminho} (caminho vazio marca remoção) carregado
+ * para um mapa na inicialização; consultas não tocam no disco nem no banco. Quando o log acumula
+ * linhas demais em relação às entradas vivas, ele é reescrito. O índice pode ser reconstruído a
+ * partir dos DownloadedClip, então as escritas não são sincronizadas com o disco uma a uma.
+ *
+ * As escritas são serializadas por um ReentrantLock, e não por synchronized, para que threads virtuais
+ * esperando o disco (inclusive na compactação) não prendam a thread portadora.
+ */
+@Component
+@Slf4j
+public class ClipPathIndex {
+
+    static final String INDEX_FILE = "clip-index.tsv";
+    private static final int MIN_COMPACTION_LINES = 10_000;
+
+    private final Path indexFile;
+    private final Map<String, Path> paths = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private BufferedWriter writer;
+    private long lines;
+    private boolean existed;
+
+    public ClipPathIndex(@Value("${app.clips.download-path:./downloads}") String downloadPath) {
+        this.indexFile = Paths.get(downloadPath).toAbsolutePath().normalize().resolve(INDEX_FILE);
+    }
+
+    @PostConstruct
+    public void load() {
+        lock.lock();
+        try {
+            Files.createDirectories(indexFile.getParent());
+            existed = Files.exists(indexFile);
+            if (existed) {
+                try (BufferedReader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        apply(line);
+                        lines++;
+                    }
+                }
+            }
+            writer = openWriter();
+            log.info("Índice de clips carregado: {} entradas ({} linhas)", paths.size(), lines);
+        } catch (IOException e) {
+            log.error("Erro ao carregar o índice de clips {}: {}", indexFile, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            closeWriter();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return false se o arquivo do índice não existia na inicialização e precisa ser reconstruído
+     */
+    public boolean existed() {
+        return existed;
+    }
+
+    public Optional<Path> get(String clipId) {
+        return Optional.ofNullable(paths.get(clipId));
+    }
+
+    /**
+     * Caminho atual do arquivo do clip: o do índice, se existir no disco, senão o registrado no banco
+     * (o arquivo pode ter sido movido pela migração depois que o registro foi carregado)
+     */
+    public Path resolve(DownloadedClip clip) {
+        Path indexed = paths.get(clip.getClipId());
+        if (indexed != null && Files.exists(indexed)) {
+            return indexed;
+        }
+        return clip.getFilePath() != null ? Paths.get(clip.getFilePath()) : null;
+    }
+
+    public void put(String clipId, Path path) {
+        Path normalized = path.toAbsolutePath().normalize();
+        lock.lock();
+        try {
+            if (normalized.equals(paths.put(clipId, normalized))) {
+                return;
+            }
+            append(clipId + "\t" + normalized);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(String clipId) {
+        lock.lock();
+        try {
+            if (paths.remove(clipId) != null) {
+                append(clipId + "\t");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        return paths.size();
+    }
+
+    /**
+     * Reescreve o log apenas com as entradas vivas, trocando o arquivo de forma atômica
+     */
+    void compact() throws IOException {
+        lock.lock();
+        try {
+            rewrite();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deve ser chamado com o lock
+     */
+    private void rewrite() throws IOException {
+        Path tmp = indexFile.resolveSibling(INDEX_FILE + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Path> entry : paths.entrySet()) {
+                out.write(entry.getKey() + "\t" + entry.getValue());
+                out.newLine();
+            }
+        }
+        closeWriter();
+        try {
+            DurableFiles.moveDurably(tmp, indexFile);
+            lines = paths.size();
+            log.info("Índice de clips compactado: {} entradas", lines);
+        } finally {
+            writer = openWriter();
+        }
+    }
+
+    private void append(String line) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(line);
+            writer.newLine();
+            writer.flush();
+            lines++;
+            if (lines > MIN_COMPACTION_LINES && lines > 2L * paths.size()) {
+                rewrite();
+            }
+        } catch (IOException e) {
+            log.warn("Erro ao gravar no índice de clips: {}", e.getMessage());
+        }
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Erro ao fechar o índice de clips: {}", e.getMessage());
+            }
+            writer = null;
+        }
+    }
+
+    private void apply(String line) {
+        int tab = line.indexOf('\t');
+        if (tab <= 0) {
+            return;
+        }
+        String clipId = line.substring(0, tab);
+        String path = line.substring(tab + 1);
+        if (path.isEmpty()) {
+            paths.remove(clipId);
+        } else {
+            paths.put(clipId, Paths.get(path));
+        }
+    }
+
+    private BufferedWriter openWriter() throws IOException {
+        return Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,197 @@
+package com.joel.br.AutoClipster.storage;
+
+import com.joel.br.AutoClipster.model.ClipBlob;
+import com.joel.br.AutoClipster.repository.ClipBlobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mantém o diretório de downloads dentro de um orçamento de disco e de idade.
+ *
+ * Uma thread em segundo plano compara, a cada app.clips.storage.check-interval-seconds, o uso
+ * mantido pelo {@link ClipContentStore} com o orçamento (sem percorrer o diretório). Ao estourar,
+ * despeja arquivos até chegar à marca inferior, começando pelos de clips já enviados ou ignorados e,
+ * dentro deles, pelos usados há mais tempo. Arquivos sem uso (leitura ou novo download que aponte
+ * para eles) há mais que app.clips.storage-days são despejados periodicamente. Só roda no nó dono do armazenamento ({@link StorageOwnership}).
+ */
+@Service
+@Slf4j
+public class StorageManager {
+
+    private static final int EVICTION_BATCH_SIZE = 100;
+    private static final long GIB = 1024L * 1024 * 1024;
+
+    /**
+     * Um arquivo recém-armazenado pode ainda não ter o DownloadedClip salvo
+     */
+    private static final Duration EVICTION_GRACE = Duration.ofMinutes(10);
+
+    private final ClipContentStore clipContentStore;
+    private final ClipBlobRepository clipBlobRepository;
+    private final StorageOwnership storageOwnership;
+    private final Path downloadPath;
+
+    @Value("${app.clips.storage-days:30}")
+    private int storageDays;
+
+    @Value("${app.clips.storage.max-gb:50}")
+    private double maxGigabytes;
+
+    @Value("${app.clips.storage.min-free-gb:5}")
+    private double minFreeGigabytes;
+
+    @Value("${app.clips.storage.low-watermark-percent:90}")
+    private int lowWatermarkPercent;
+
+    @Value("${app.clips.storage.check-interval-seconds:10}")
+    private int checkIntervalSeconds;
+
+    @Value("${app.clips.storage.age-sweep-minutes:60}")
+    private int ageSweepMinutes;
+
+    private ScheduledExecutorService compactor;
+    private volatile long nextAgeSweep;
+
+    public StorageManager(ClipContentStore clipContentStore,
+                          ClipBlobRepository clipBlobRepository,
+                          StorageOwnership storageOwnership,
+                          @Value("${app.clips.download-path:./downloads}") String downloadPath) {
+        this.clipContentStore = clipContentStore;
+        this.clipBlobRepository = clipBlobRepository;
+        this.storageOwnership = storageOwnership;
+        this.downloadPath = Paths.get(downloadPath).toAbsolutePath().normalize();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!storageOwnership.isOwner()) {
+            log.info("StorageManager desativado: este nó não é o dono do armazenamento");
+            return;
+        }
+        nextAgeSweep = System.nanoTime();
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "storage-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactQuietly, checkIntervalSeconds, checkIntervalSeconds, TimeUnit.SECONDS);
+        log.info("StorageManager iniciado: orçamento de {} GB, mínimo de {} GB livres, retenção de {} dias",
+                maxGigabytes, minFreeGigabytes, storageDays);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+    }
+
+    /**
+     * Despeja o necessário para voltar ao orçamento e, se for a hora, os arquivos expirados
+     */
+    public synchronized void compact() {
+        long budget = effectiveBudget();
+        long used = clipContentStore.getStoredBytes();
+        if (used > budget) {
+            long target = budget / 100 * lowWatermarkPercent;
+            log.warn("Armazenamento acima do orçamento ({} MB de {} MB), despejando até {} MB",
+                    used / (1024 * 1024), budget / (1024 * 1024), target / (1024 * 1024));
+            evictDownTo(target);
+        }
+
+        if (System.nanoTime() - nextAgeSweep >= 0) {
+            evictOlderThan(Duration.ofDays(storageDays));
+            nextAgeSweep = System.nanoTime() + TimeUnit.MINUTES.toNanos(ageSweepMinutes);
+        }
+    }
+
+    /**
+     * Despeja os arquivos sem uso há mais que {@code maxAge}
+     *
+     * @return Bytes liberados
+     */
+    public synchronized long evictOlderThan(Duration maxAge) {
+        LocalDateTime cutoff = LocalDateTime.now().minus(maxAge);
+        long freed = 0;
+        int evicted = 0;
+
+        List<ClipBlob> expired;
+        do {
+            expired = clipBlobRepository.findExpired(cutoff, EVICTION_BATCH_SIZE);
+            for (ClipBlob blob : expired) {
+                freed += clipContentStore.evict(blob.getSha256());
+                evicted++;
+            }
+        } while (expired.size() == EVICTION_BATCH_SIZE);
+
+        if (evicted > 0) {
+            log.info("Despejados {} arquivos sem uso há mais de {} dias ({} MB)", evicted, maxAge.toDays(), freed / (1024 * 1024));
+        }
+        return freed;
+    }
+
+    /**
+     * Orçamento configurado, reduzido se o disco não tiver espaço livre para alcançá-lo
+     */
+    long effectiveBudget() {
+        long configured = maxGigabytes > 0 ? (long) (maxGigabytes * GIB) : Long.MAX_VALUE;
+        long used = clipContentStore.getStoredBytes();
+        try {
+            long usable = Files.getFileStore(Files.exists(downloadPath) ? downloadPath : downloadPath.getRoot())
+                    .getUsableSpace();
+            long reachable = used + usable - (long) (minFreeGigabytes * GIB);
+            return Math.max(0, Math.min(configured, reachable));
+        } catch (IOException e) {
+            log.debug("Não foi possível consultar o espaço livre em {}: {}", downloadPath, e.getMessage());
+            return configured;
+        }
+    }
+
+    private void evictDownTo(long target) {
+        long freed = 0;
+        int evicted = 0;
+        LocalDateTime createdBefore = LocalDateTime.now().minus(EVICTION_GRACE);
+
+        while (clipContentStore.getStoredBytes() > target) {
+            List<ClipBlob> candidates = clipBlobRepository.findEvictionCandidates(createdBefore, EVICTION_BATCH_SIZE);
+            if (candidates.isEmpty()) {
+                log.warn("Nenhum arquivo pode ser despejado; uso continua em {} MB",
+                        clipContentStore.getStoredBytes() / (1024 * 1024));
+                break;
+            }
+            for (ClipBlob blob : candidates) {
+                freed += clipContentStore.evict(blob.getSha256());
+                evicted++;
+                if (clipContentStore.getStoredBytes() <= target) {
+                    break;
+                }
+            }
+        }
+
+        if (evicted > 0) {
+            log.info("Despejados {} arquivos ({} MB) para respeitar o orçamento de disco", evicted, freed / (1024 * 1024));
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (Exception e) {
+            log.error("Erro na compactação do armazenamento: {}", e.getMessage(), e);
+        }
+    }
+}
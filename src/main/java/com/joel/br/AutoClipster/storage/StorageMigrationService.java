@@ -0,0 +1,137 @@
+package com.joel.br.AutoClipster.storage;
+
+import com.joel.br.AutoClipster.model.DownloadedClip;
+import com.joel.br.AutoClipster.repository.DownloadedClipRepository;
+import com.joel.br.AutoClipster.services.DownloadReconciliationService;
+import com.joel.br.AutoClipster.services.VideoProbeService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Migra, em segundo plano e com a aplicação em funcionamento, o diretório de downloads antigo
+ * (todos os arquivos em um único diretório) para o armazenamento por conteúdo em diretórios de
+ * dois níveis, e reconstrói o {@link ClipPathIndex} quando ele ainda não existe.
+ *
+ * Cada arquivo é movido e só então o registro é atualizado; quem ainda tiver o caminho antigo
+ * encontra o novo pelo índice. Os metadados técnicos de cada arquivo migrado são extraídos com o ffprobe.
+ *
+ * A migração só começa depois da reconciliação de downloads: enquanto um arquivo é movido, ele
+ * já não está no caminho antigo e o registro ainda não aponta para o novo, e a reconciliação o
+ * trataria como perdido.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageMigrationService {
+
+    private static final int PAGE_SIZE = 100;
+
+    private final DownloadedClipRepository downloadedClipRepository;
+    private final ClipContentStore clipContentStore;
+    private final ClipPathIndex clipPathIndex;
+    private final VideoProbeService videoProbeService;
+    private final DownloadReconciliationService downloadReconciliationService;
+    private final StorageOwnership storageOwnership;
+
+    /**
+     * Reconcilia os downloads (na thread da inicialização) e então inicia a migração em segundo plano;
+     * só no nó dono do armazenamento
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startMigration() {
+        if (!storageOwnership.isOwner()) {
+            return;
+        }
+        downloadReconciliationService.reconcile();
+
+        Thread thread = new Thread(this::migrate, "storage-migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void migrate() {
+        try {
+            if (!clipPathIndex.existed()) {
+                rebuildIndex();
+            }
+            migrateLegacyFiles();
+        } catch (Exception e) {
+            log.error("Erro na migração do diretório de downloads: {}", e.getMessage(), e);
+        }
+    }
+
+    private void rebuildIndex() {
+        Pageable page = PageRequest.of(0, 1_000);
+        Slice<DownloadedClip> slice;
+        do {
+            slice = downloadedClipRepository.findAllOrderById(page);
+            for (DownloadedClip clip : slice) {
+                if (clip.getFilePath() != null) {
+                    clipPathIndex.put(clip.getClipId(), Paths.get(clip.getFilePath()));
+                }
+            }
+            page = slice.nextPageable();
+        } while (slice.hasNext());
+        log.info("Índice de clips reconstruído com {} entradas", clipPathIndex.size());
+    }
+
+    private void migrateLegacyFiles() {
+        long afterId = 0;
+        int migrated = 0;
+        int missing = 0;
+
+        List<DownloadedClip> batch;
+        do {
+            batch = downloadedClipRepository.findLegacyFiles(afterId, PageRequest.of(0, PAGE_SIZE));
+            for (DownloadedClip clip : batch) {
+                afterId = clip.getId();
+                Path file = Paths.get(clip.getFilePath());
+                if (!Files.exists(file)) {
+                    missing++;
+                    continue;
+                }
+                try {
+                    migrate(clip, file);
+                    migrated++;
+                } catch (Exception e) {
+                    log.warn("Não foi possível migrar {}: {}", file, e.getMessage());
+                }
+            }
+        } while (batch.size() == PAGE_SIZE);
+
+        if (migrated > 0 || missing > 0) {
+            log.info("Migração do diretório de downloads concluída: {} arquivos migrados, {} registros sem arquivo",
+                    migrated, missing);
+        }
+    }
+
+    private void migrate(DownloadedClip clip, Path file) throws Exception {
+        ClipContentStore.StoredContent content = clipContentStore.store(file);
+        clipPathIndex.put(clip.getClipId(), content.getPath());
+
+        if (downloadedClipRepository.updateContent(clip.getId(), content.getPath().toString(), content.getSha256()) == 0) {
+            // O registro foi removido durante a migração
+            clipPathIndex.remove(clip.getClipId());
+            clipContentStore.release(content.getSha256());
+            return;
+        }
+
+        // Aguardar o ffprobe limita a migração ao ritmo do pool de análise
+        try {
+            videoProbeService.probe(content.getSha256(), content.getPath()).join();
+        } catch (Exception e) {
+            log.warn("Não foi possível analisar {} com ffprobe: {}", content.getPath(), e.getMessage());
+        }
+    }
+}
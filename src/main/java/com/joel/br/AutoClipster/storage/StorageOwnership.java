@@ -0,0 +1,114 @@
+package com.joel.br.AutoClipster.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Define qual réplica é a dona do diretório de downloads.
+ *
+ * O armazenamento é coordenado só dentro da JVM: os locks por hash e o uso em bytes do
+ * {@link ClipContentStore}, o compactador do {@link StorageManager}, o {@link ClipPathIndex} em arquivo,
+ * o filtro de Bloom de clips conhecidos e a reconciliação na inicialização. Por isso apenas um nó
+ * (app.storage.owner=true) baixa clips e mantém o armazenamento; as demais réplicas
+ * (app.storage.owner=false) apenas consomem a fila de análise no banco.
+ *
+ * O dono mantém um advisory lock do Postgres em uma conexão dedicada enquanto estiver no ar; se outro
+ * nó já o detém, a inicialização falha em vez de haver dois donos.
+ */
+@Component
+@Slf4j
+public class StorageOwnership {
+
+    /**
+     * Chave do advisory lock ("clip" em ASCII)
+     */
+    private static final long LOCK_KEY = 0x636C6970L;
+
+    private final DataSource dataSource;
+    private final boolean configuredOwner;
+
+    private Connection lockConnection;
+    private volatile boolean owner;
+
+    public StorageOwnership(DataSource dataSource,
+                            @Value("${app.storage.owner:true}") boolean configuredOwner) {
+        this.dataSource = dataSource;
+        this.configuredOwner = configuredOwner;
+    }
+
+    @PostConstruct
+    public void acquire() {
+        if (!configuredOwner) {
+            log.info("Este nó não é o dono do armazenamento: downloads e manutenção do disco desativados");
+            return;
+        }
+
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            connection.setAutoCommit(true);
+            boolean locked;
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+                statement.setLong(1, LOCK_KEY);
+                try (ResultSet result = statement.executeQuery()) {
+                    locked = result.next() && result.getBoolean(1);
+                }
+            }
+            if (!locked) {
+                throw new IllegalStateException("Outro nó já é o dono do armazenamento; "
+                        + "defina STORAGE_OWNER=false nas demais réplicas");
+            }
+            lockConnection = connection;
+            connection = null;
+            log.info("Este nó é o dono do armazenamento");
+        } catch (SQLException e) {
+            // Banco sem advisory locks (ex: H2 local): instalação de um nó só
+            log.warn("Não foi possível obter o lock de dono do armazenamento, assumindo nó único: {}", e.getMessage());
+        } finally {
+            closeQuietly(connection);
+        }
+        owner = true;
+    }
+
+    @PreDestroy
+    public void release() {
+        owner = false;
+        // Fechar a sessão libera o advisory lock
+        closeQuietly(lockConnection);
+        lockConnection = null;
+    }
+
+    public boolean isOwner() {
+        return owner;
+    }
+
+    /**
+     * @throws IllegalStateException se este nó não é o dono do armazenamento
+     */
+    public void requireOwner() {
+        if (!owner) {
+            throw new IllegalStateException("Downloads e manutenção do armazenamento só rodam no nó dono "
+                    + "(app.storage.owner=true)");
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Erro ao fechar conexão do lock de armazenamento: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.joel.br.AutoClipster.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @Test
+    void sizesBitsAndHashesForTheExpectedFalsePositiveRate() {
+        BloomFilter filter = new BloomFilter(1_000_000, 0.01);
+
+        // m = -n ln p / (ln 2)^2 ≈ 9,59 bits por elemento; k = m/n ln 2 ≈ 7
+        assertEquals(9_585_059, filter.getBitCount());
+        assertEquals(7, filter.getHashFunctions());
+    }
+
+    @Test
+    void keepsTheMinimumSizeForTinyFilters() {
+        BloomFilter filter = new BloomFilter(0, 0.5);
+
+        assertEquals(64, filter.getBitCount());
+        assertTrue(filter.getHashFunctions() >= 1);
+    }
+
+    @Test
+    void neverReturnsFalseNegativesAndStaysNearTheConfiguredRate() {
+        int inserted = 100_000;
+        BloomFilter filter = new BloomFilter(inserted, 0.01);
+        for (int i = 0; i < inserted; i++) {
+            filter.put("clip-" + i);
+        }
+
+        for (int i = 0; i < inserted; i++) {
+            assertTrue(filter.mightContain("clip-" + i));
+        }
+
+        int probes = 200_000;
+        int falsePositives = 0;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("outro-" + i)) {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate < 0.015, () -> "taxa de falsos positivos: " + rate);
+    }
+}
@@ -0,0 +1,105 @@
+package com.joel.br.AutoClipster.config;
+
+import com.joel.br.AutoClipster.DTO.ExecutorStats;
+import com.joel.br.AutoClipster.config.InstrumentedTaskExecutor.QueueFullPolicy;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InstrumentedTaskExecutorTest {
+
+    @Test
+    void abortRejectsWhenQueueIsFull() throws InterruptedException {
+        InstrumentedTaskExecutor executor = start(QueueFullPolicy.ABORT);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        try {
+            executor.execute(() -> await(release, done));
+            executor.execute(() -> await(release, done));
+
+            assertThrows(TaskRejectedException.class, () -> executor.execute(() -> { }));
+
+            release.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            ExecutorStats stats = executor.getStats();
+            assertEquals(1, stats.getRejected());
+            assertEquals("ABORT", stats.getQueueFullPolicy());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void callerRunsWhenQueueIsFull() {
+        InstrumentedTaskExecutor executor = start(QueueFullPolicy.CALLER_RUNS);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        try {
+            executor.execute(() -> await(release, done));
+            executor.execute(() -> await(release, done));
+
+            AtomicReference<Thread> ranOn = new AtomicReference<>();
+            executor.execute(() -> ranOn.set(Thread.currentThread()));
+
+            assertEquals(Thread.currentThread(), ranOn.get());
+            assertEquals(1, executor.getStats().getRejected());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void virtualThreadsRunEachTaskOnItsOwnThread() throws InterruptedException {
+        InstrumentedTaskExecutor executor = InstrumentedTaskExecutor.virtualThreads("test", 100, QueueFullPolicy.ABORT);
+        executor.initialize();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(50);
+        try {
+            AtomicReference<Thread> thread = new AtomicReference<>();
+            for (int i = 0; i < 50; i++) {
+                executor.execute(() -> {
+                    thread.set(Thread.currentThread());
+                    await(release, done);
+                });
+            }
+
+            // Sem fila: as 50 tarefas bloqueadas estão em andamento ao mesmo tempo
+            ExecutorStats stats = executor.getStats();
+            assertEquals(50, stats.getPoolSize());
+            assertEquals(0, stats.getQueued());
+            assertTrue(stats.isVirtualThreads());
+
+            release.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertTrue(thread.get().isVirtual());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private InstrumentedTaskExecutor start(QueueFullPolicy policy) {
+        InstrumentedTaskExecutor executor = new InstrumentedTaskExecutor("test", 1, 1, policy);
+        executor.initialize();
+        return executor;
+    }
+
+    private static void await(CountDownLatch release, CountDownLatch done) {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            done.countDown();
+        }
+    }
+}
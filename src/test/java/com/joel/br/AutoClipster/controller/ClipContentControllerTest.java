@@ -0,0 +1,116 @@
+package com.joel.br.AutoClipster.controller;
+
+import com.joel.br.AutoClipster.services.ClipContentService;
+import com.joel.br.AutoClipster.services.ClipContentService.ClipContent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ClipContentControllerTest {
+
+    private static final String ETAG = "\"abc123\"";
+    private static final String BODY = "0123456789abcdefghij";
+
+    @TempDir
+    Path tempDir;
+
+    private ClipContentService clipContentService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path file = Files.writeString(tempDir.resolve("clip.mp4"), BODY, StandardCharsets.UTF_8);
+        clipContentService = mock(ClipContentService.class);
+        when(clipContentService.find("clip")).thenReturn(Optional.of(
+                new ClipContent(file, BODY.length(), Files.getLastModifiedTime(file).toMillis(), ETAG)));
+        mockMvc = MockMvcBuilders.standaloneSetup(new ClipContentController(clipContentService)).build();
+    }
+
+    @Test
+    void servesWholeFile() throws Exception {
+        mockMvc.perform(get("/api/clips/clip/content"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "video/mp4"))
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, BODY.length()))
+                .andExpect(content().string(BODY));
+        verify(clipContentService).recordAccess(any());
+    }
+
+    @Test
+    void servesRequestedRange() throws Exception {
+        mockMvc.perform(get("/api/clips/clip/content").header(HttpHeaders.RANGE, "bytes=5-9"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 5-9/20"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 5))
+                .andExpect(content().string("56789"));
+        verify(clipContentService, never()).recordAccess(any());
+    }
+
+    @Test
+    void servesSuffixRange() throws Exception {
+        mockMvc.perform(get("/api/clips/clip/content").header(HttpHeaders.RANGE, "bytes=-4"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 16-19/20"))
+                .andExpect(content().string("ghij"));
+    }
+
+    @Test
+    void rejectsUnsatisfiableRange() throws Exception {
+        mockMvc.perform(get("/api/clips/clip/content").header(HttpHeaders.RANGE, "bytes=50-60"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */20"));
+    }
+
+    @Test
+    void ignoresRangeWhenIfRangeDoesNotMatch() throws Exception {
+        mockMvc.perform(get("/api/clips/clip/content")
+                        .header(HttpHeaders.RANGE, "bytes=5-9")
+                        .header(HttpHeaders.IF_RANGE, "\"outro\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string(BODY));
+    }
+
+    @Test
+    void answersNotModifiedForMatchingETag() throws Exception {
+        mockMvc.perform(get("/api/clips/clip/content").header(HttpHeaders.IF_NONE_MATCH, ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void headReturnsHeadersOnly() throws Exception {
+        mockMvc.perform(head("/api/clips/clip/content"))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, BODY.length()))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void returnsNotFoundForUnknownClip() throws Exception {
+        when(clipContentService.find("missing")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/clips/missing/content"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,61 @@
+package com.joel.br.AutoClipster.download;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentDigestTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final byte[] content = new byte[100_000];
+
+    @Test
+    void outOfOrderWritesHashLikeTheFinishedFile() throws IOException {
+        new Random(7).nextBytes(content);
+        Path file = tempDir.resolve("clip.part");
+        ContentDigest digest = new ContentDigest();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // O segundo trecho chega primeiro: fica à frente do hash e é ignorado
+            channel.write(ByteBuffer.wrap(content, 60_000, 40_000), 60_000);
+            assertFalse(digest.update(60_000, ByteBuffer.wrap(content, 60_000, 40_000)));
+
+            // O primeiro trecho alimenta o hash direto, parte antes e parte depois de ser gravado
+            assertTrue(digest.update(0, ByteBuffer.wrap(content, 0, 30_000)));
+            channel.write(ByteBuffer.wrap(content, 0, 60_000), 0);
+            digest.catchUp(channel, 60_000);
+
+            assertEquals(ContentDigest.of(expectedFile()), digest.finish(channel, content.length));
+        }
+    }
+
+    @Test
+    void finishFailsIfTheFileIsShorterThanExpected() throws IOException {
+        Path file = Files.write(tempDir.resolve("short.part"), Arrays.copyOf(content, 10));
+        ContentDigest digest = new ContentDigest();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertThrows(IOException.class, () -> digest.finish(channel, 20));
+        }
+    }
+
+    private Path expectedFile() throws IOException {
+        return Files.write(tempDir.resolve("expected.mp4"), content);
+    }
+}
@@ -0,0 +1,48 @@
+package com.joel.br.AutoClipster.download;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HttpDownloaderConditionTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withUserConfiguration(Downloaders.class);
+
+    @Test
+    void usesYtDlpByDefault() {
+        runner.run(context -> assertEquals("yt-dlp", context.getBean(String.class)));
+    }
+
+    @Test
+    void fallsBackToYtDlpWhenGqlIsNotConfigured() {
+        runner.withPropertyValues("app.download.downloader=http", "twitch.gql.client-id=", "twitch.gql.clip-query-hash=abc")
+                .run(context -> assertEquals("yt-dlp", context.getBean(String.class)));
+    }
+
+    @Test
+    void usesHttpWhenGqlIsConfigured() {
+        runner.withPropertyValues("app.download.downloader=http", "twitch.gql.client-id=id", "twitch.gql.clip-query-hash=abc")
+                .run(context -> assertEquals("http", context.getBean(String.class)));
+    }
+
+    @Configuration
+    static class Downloaders {
+
+        @Bean
+        @Conditional(HttpDownloaderCondition.class)
+        String http() {
+            return "http";
+        }
+
+        @Bean
+        @Conditional(HttpDownloaderCondition.Fallback.class)
+        String ytDlp() {
+            return "yt-dlp";
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.joel.br.AutoClipster.download;
+
+import com.joel.br.AutoClipster.DTO.TwitchClipDTO;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Usa um HttpServer local no lugar do CDN da Twitch
+ */
+class HttpRangeClipDownloaderTest {
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+    private static final int MIB = 1024 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private final byte[] content = new byte[3 * MIB + 12345];
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+    private final AtomicInteger connectionsToDrop = new AtomicInteger();
+    private volatile boolean rangeSupported = true;
+    private volatile int status = 200;
+    private volatile CountDownLatch hold;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private HttpRangeClipDownloader downloader;
+    private URI source;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        new Random(42).nextBytes(content);
+
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/clip.mp4", this::serve);
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        source = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/clip.mp4");
+        downloader = new HttpRangeClipDownloader(clip -> source, 4, MIB, 3, 30);
+    }
+
+    @AfterEach
+    void tearDown() {
+        downloader.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void downloadsWithParallelRangeRequests() throws IOException {
+        Path output = tempDir.resolve("clip.mp4");
+
+        DownloadedFile downloaded = downloader.download(clip(), output);
+
+        assertArrayEquals(content, Files.readAllBytes(output));
+        assertEquals(output, downloaded.getPath());
+        assertEquals(sha256(content), downloaded.getSha256());
+        assertFalse(Files.exists(tempDir.resolve("clip.mp4.part")));
+        // Requisição de teste do tamanho + 4 trechos
+        assertEquals(5, ranges.size());
+        assertTrue(ranges.contains("bytes=0-0"));
+    }
+
+    @Test
+    void resumesSegmentsFromLastWrittenByte() throws IOException {
+        connectionsToDrop.set(2);
+        Path output = tempDir.resolve("clip.mp4");
+
+        DownloadedFile downloaded = downloader.download(clip(), output);
+
+        assertArrayEquals(content, Files.readAllBytes(output));
+        assertEquals(sha256(content), downloaded.getSha256());
+        // Dois trechos retomados a partir do meio, não do início
+        long resumed = ranges.stream()
+                .filter(range -> !range.equals("bytes=0-0"))
+                .map(RANGE::matcher)
+                .filter(Matcher::matches)
+                .filter(matcher -> Long.parseLong(matcher.group(1)) % (content.length / 4 + 1) != 0)
+                .count();
+        assertEquals(2, resumed);
+    }
+
+    @Test
+    void resumesFromJournalAfterRestart() throws IOException {
+        Path output = tempDir.resolve("clip.mp4");
+        Path part = tempDir.resolve("clip.mp4.part");
+        Path journal = tempDir.resolve("clip.mp4.part.journal");
+
+        // Primeira execução: todas as conexões caem e não há novas tentativas
+        connectionsToDrop.set(Integer.MAX_VALUE);
+        try (HttpRangeClipDownloader interrupted = new HttpRangeClipDownloader(clip -> source, 4, MIB, 0, 30)) {
+            assertThrows(IOException.class, () -> interrupted.download(clip(), output));
+        }
+        assertTrue(Files.exists(part));
+        assertTrue(Files.exists(journal));
+        assertFalse(Files.exists(output));
+
+        // "Reinicialização": nova instância, servidor normal
+        connectionsToDrop.set(0);
+        ranges.clear();
+        DownloadedFile downloaded = downloader.download(clip(), output);
+
+        assertArrayEquals(content, Files.readAllBytes(output));
+        // Os bytes da primeira execução entram no hash lidos do .part
+        assertEquals(sha256(content), downloaded.getSha256());
+        assertFalse(Files.exists(part));
+        assertFalse(Files.exists(journal));
+        long requested = ranges.stream()
+                .map(RANGE::matcher)
+                .filter(Matcher::matches)
+                .mapToLong(matcher -> Long.parseLong(matcher.group(2)) - Long.parseLong(matcher.group(1)) + 1)
+                .sum();
+        assertTrue(requested < content.length, "deveria baixar apenas o que faltava, baixou " + requested);
+    }
+
+    @Test
+    void fallsBackToSingleStreamWithoutRangeSupport() throws IOException {
+        rangeSupported = false;
+        Path output = tempDir.resolve("clip.mp4");
+
+        DownloadedFile downloaded = downloader.download(clip(), output);
+
+        assertArrayEquals(content, Files.readAllBytes(output));
+        assertEquals(sha256(content), downloaded.getSha256());
+    }
+
+    @Test
+    void failsOnHttpErrorWithoutCreatingTheFile() {
+        status = 404;
+        Path output = tempDir.resolve("clip.mp4");
+
+        assertThrows(IOException.class, () -> downloader.download(clip(), output));
+        assertFalse(Files.exists(output));
+    }
+
+    @Test
+    void tracksProgressPerRequestEvenForTheSameUrl() throws Exception {
+        hold = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<DownloadedFile> first = callers.submit(() -> downloader.download(clip(), tempDir.resolve("a.mp4")));
+            Future<DownloadedFile> second = callers.submit(() -> downloader.download(clip(), tempDir.resolve("b.mp4")));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (downloader.getActiveDownloads().size() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, downloader.getActiveDownloads().size());
+
+            hold.countDown();
+            first.get(30, TimeUnit.SECONDS);
+            second.get(30, TimeUnit.SECONDS);
+            assertTrue(downloader.getActiveDownloads().isEmpty());
+        } finally {
+            hold.countDown();
+            callers.shutdownNow();
+        }
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            awaitHold();
+            if (status != 200) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            Matcher matcher = range != null && rangeSupported ? RANGE.matcher(range) : null;
+            if (matcher == null || !matcher.matches()) {
+                exchange.sendResponseHeaders(200, content.length);
+                exchange.getResponseBody().write(content);
+                return;
+            }
+
+            ranges.add(range);
+            int start = Integer.parseInt(matcher.group(1));
+            int end = Math.min(content.length - 1, Integer.parseInt(matcher.group(2)));
+            int length = end - start + 1;
+
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+            exchange.sendResponseHeaders(206, length);
+            OutputStream body = exchange.getResponseBody();
+
+            if (length > MIB / 2 && connectionsToDrop.getAndDecrement() > 0) {
+                // Derruba a conexão no meio do trecho
+                body.write(content, start, length / 2);
+                body.flush();
+                pause();
+                throw new IOException("conexão derrubada pelo teste");
+            }
+            body.write(content, start, length);
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void awaitHold() {
+        CountDownLatch latch = hold;
+        if (latch == null) {
+            return;
+        }
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Dá tempo ao cliente de consumir o que já foi enviado antes da conexão cair
+     */
+    private void pause() {
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private TwitchClipDTO clip() {
+        TwitchClipDTO clip = new TwitchClipDTO();
+        clip.setId("clip");
+        clip.setUrl("https://clips.twitch.tv/clip");
+        return clip;
+    }
+}
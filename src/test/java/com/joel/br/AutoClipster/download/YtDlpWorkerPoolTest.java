@@ -0,0 +1,290 @@
+package com.joel.br.AutoClipster.download;
+
+import com.joel.br.AutoClipster.DTO.DownloadProgress;
+import com.joel.br.AutoClipster.enums.DownloadState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Usa um script que imita o yt-dlp (src/test/resources/download/fake-yt-dlp.sh)
+ */
+@DisabledOnOs(OS.WINDOWS)
+class YtDlpWorkerPoolTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path script;
+    private YtDlpWorkerPool pool;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path binDir = Files.createDirectories(tempDir.resolve("bin"));
+        script = binDir.resolve("yt-dlp");
+        try (InputStream in = getClass().getResourceAsStream("/download/fake-yt-dlp.sh")) {
+            Files.copy(in, script);
+        }
+        script.toFile().setExecutable(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void downloadsConcurrentRequestsInASingleBatch() throws Exception {
+        pool = newPool(1, 10, Duration.ofMillis(300), 1);
+
+        List<CompletableFuture<Path>> downloads = List.of(
+                pool.submit("https://clips.twitch.tv/a", tempDir.resolve("out/a.mp4")),
+                pool.submit("https://clips.twitch.tv/b", tempDir.resolve("out/b.mp4")),
+                pool.submit("https://clips.twitch.tv/c", tempDir.resolve("out/c.mp4")));
+
+        for (CompletableFuture<Path> download : downloads) {
+            Path file = download.get(10, TimeUnit.SECONDS);
+            assertTrue(Files.size(file) > 0);
+        }
+        assertEquals("video b", Files.readString(tempDir.resolve("out/b.mp4")).trim());
+        assertEquals(1, invocations());
+    }
+
+    @Test
+    void idleWorkersTakeConcurrentRequestsInsteadOfBatchingThem() throws Exception {
+        pool = newPool(3, 10, Duration.ofMillis(300), 1);
+
+        List<CompletableFuture<Path>> downloads = List.of(
+                pool.submit("https://clips.twitch.tv/a", tempDir.resolve("out/a.mp4")),
+                pool.submit("https://clips.twitch.tv/b", tempDir.resolve("out/b.mp4")),
+                pool.submit("https://clips.twitch.tv/c", tempDir.resolve("out/c.mp4")));
+
+        for (CompletableFuture<Path> download : downloads) {
+            assertTrue(Files.size(download.get(10, TimeUnit.SECONDS)) > 0);
+        }
+        // Um processo por clip, em paralelo, em vez de um lote sequencial em um único worker
+        assertEquals(3, invocations());
+    }
+
+    @Test
+    void concurrentCallersShareProcessesWithTheDefaultWorkerCount() throws Exception {
+        int callers = 6;
+        int workers = YtDlpClipDownloader.defaultWorkerCount(callers, 5);
+        assertEquals(2, workers);
+        pool = newPool(workers, 5, Duration.ofMillis(300), 1);
+
+        // Cada chamador bloqueia até o seu clip ficar pronto, como as threads do executor de downloads
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Path>> downloads = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                String id = "clip-" + i;
+                downloads.add(executor.submit(() ->
+                        pool.submit("https://clips.twitch.tv/" + id, tempDir.resolve("out/" + id + ".mp4"))
+                                .get(10, TimeUnit.SECONDS)));
+            }
+            for (Future<Path> download : downloads) {
+                assertTrue(Files.size(download.get(20, TimeUnit.SECONDS)) > 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(invocations() < callers, callers + " chamadores usaram " + invocations() + " processos");
+    }
+
+    @Test
+    void startsTheNextProcessBeforeTheBatchArrives() throws Exception {
+        pool = newPool(1, 10, Duration.ofMillis(50), 1);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (lines("started").isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        List<String> started = lines("started");
+        assertEquals(1, started.size());
+        assertEquals(0, invocations());
+
+        pool.submit("https://clips.twitch.tv/a", tempDir.resolve("out/a.mp4")).get(10, TimeUnit.SECONDS);
+
+        // O lote foi entregue ao processo que já estava esperando
+        assertEquals(started, lines("invocations"));
+    }
+
+    @Test
+    void failsOnlyTheUrlThatFailed() throws Exception {
+        pool = newPool(1, 10, Duration.ofMillis(300), 2);
+
+        CompletableFuture<Path> failed = pool.submit("https://clips.twitch.tv/fail-x", tempDir.resolve("out/x.mp4"));
+        CompletableFuture<Path> ok = pool.submit("https://clips.twitch.tv/ok", tempDir.resolve("out/ok.mp4"));
+
+        assertEquals(tempDir.resolve("out/ok.mp4"), ok.get(10, TimeUnit.SECONDS));
+        ExecutionException error = assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+        assertTrue(error.getCause().getMessage().contains("Unable to download"));
+        // Falha comum do yt-dlp não é repetida
+        assertEquals(1, invocations());
+    }
+
+    @Test
+    void restartsCrashedWorkerAndRetriesPendingUrls() throws Exception {
+        pool = newPool(1, 10, Duration.ofMillis(300), 2);
+
+        CompletableFuture<Path> first = pool.submit("https://clips.twitch.tv/first", tempDir.resolve("out/first.mp4"));
+        CompletableFuture<Path> crashing = pool.submit("https://clips.twitch.tv/crash-once-y", tempDir.resolve("out/y.mp4"));
+
+        assertEquals(tempDir.resolve("out/first.mp4"), first.get(10, TimeUnit.SECONDS));
+        assertEquals(tempDir.resolve("out/y.mp4"), crashing.get(10, TimeUnit.SECONDS));
+        assertEquals(2, invocations());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() throws Exception {
+        pool = newPool(1, 10, Duration.ofMillis(50), 1);
+
+        CompletableFuture<Path> crashing = pool.submit("https://clips.twitch.tv/crash-once-z", tempDir.resolve("out/z.mp4"));
+
+        assertThrows(ExecutionException.class, () -> crashing.get(10, TimeUnit.SECONDS));
+        assertEquals(1, invocations());
+    }
+
+    @Test
+    void killsStalledDownloadWithItsChildProcesses() throws Exception {
+        pool = newPool(1, 10, Duration.ofMillis(50), 1, Duration.ofSeconds(30), Duration.ofMillis(500));
+
+        CompletableFuture<Path> stalled = pool.submit("https://clips.twitch.tv/stall-s", tempDir.resolve("out/s.mp4"));
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> stalled.get(10, TimeUnit.SECONDS));
+        assertTrue(error.getCause().getMessage().contains("nenhum progresso"));
+
+        long childPid = Long.parseLong(Files.readString(script.resolveSibling("child-stall-s")).trim());
+        assertFalse(isRunning(childPid));
+    }
+
+    @Test
+    void enforcesWallClockTimeoutEvenWhileProgressing() throws Exception {
+        pool = newPool(1, 10, Duration.ofMillis(50), 1, Duration.ofSeconds(1), Duration.ofSeconds(30));
+
+        CompletableFuture<Path> slow = pool.submit("https://clips.twitch.tv/slow-w", tempDir.resolve("out/w.mp4"));
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> slow.get(10, TimeUnit.SECONDS));
+        assertTrue(error.getCause().getMessage().contains("timeout"));
+    }
+
+    @Test
+    void reportsProgressOfRunningDownloads() throws Exception {
+        pool = newPool(1, 10, Duration.ofMillis(50), 1, Duration.ofSeconds(30), Duration.ofSeconds(30));
+
+        CompletableFuture<Path> slow = pool.submit("https://clips.twitch.tv/slow-p", tempDir.resolve("out/p.mp4"));
+
+        DownloadProgress progress = null;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            List<DownloadProgress> active = pool.getActiveDownloads();
+            if (!active.isEmpty() && active.get(0).getPercent() > 0) {
+                progress = active.get(0);
+                break;
+            }
+            Thread.sleep(50);
+        }
+
+        assertNotNull(progress);
+        assertEquals(DownloadState.DOWNLOADING, progress.getState());
+        assertEquals("https://clips.twitch.tv/slow-p", progress.getUrl());
+
+        pool.close();
+        assertThrows(ExecutionException.class, () -> slow.get(10, TimeUnit.SECONDS));
+        assertTrue(pool.getActiveDownloads().isEmpty());
+    }
+
+    @Test
+    void tracksProgressPerRequestEvenForTheSameUrl() throws Exception {
+        pool = newPool(2, 10, Duration.ofMillis(50), 1, Duration.ofSeconds(30), Duration.ofSeconds(30));
+
+        CompletableFuture<Path> first = pool.submit("https://clips.twitch.tv/slow-d", tempDir.resolve("out/d1.mp4"));
+        CompletableFuture<Path> second = pool.submit("https://clips.twitch.tv/slow-d", tempDir.resolve("out/d2.mp4"));
+
+        // Cada pedido roda no seu processo e reporta o próprio andamento
+        List<DownloadProgress> active = List.of();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            active = pool.getActiveDownloads();
+            if (active.size() == 2 && active.stream().allMatch(download -> download.getPercent() > 0)) {
+                break;
+            }
+            Thread.sleep(50);
+        }
+        assertEquals(2, active.size());
+        assertTrue(active.stream().allMatch(download -> download.getState() == DownloadState.DOWNLOADING));
+        assertEquals(Set.of(tempDir.resolve("out/d1.mp4").toString(), tempDir.resolve("out/d2.mp4").toString()),
+                active.stream().map(DownloadProgress::getOutputPath).collect(Collectors.toSet()));
+
+        // Cancelar um pedido não apaga o andamento do outro com a mesma URL
+        first.cancel(false);
+        assertEquals(List.of(tempDir.resolve("out/d2.mp4").toString()),
+                pool.getActiveDownloads().stream().map(DownloadProgress::getOutputPath).toList());
+
+        pool.close();
+        assertThrows(ExecutionException.class, () -> second.get(10, TimeUnit.SECONDS));
+        assertTrue(pool.getActiveDownloads().isEmpty());
+    }
+
+    private YtDlpWorkerPool newPool(int workers, int batchSize, Duration window, int maxAttempts) throws IOException {
+        return newPool(workers, batchSize, window, maxAttempts, Duration.ofSeconds(30), Duration.ofSeconds(30));
+    }
+
+    private YtDlpWorkerPool newPool(int workers, int batchSize, Duration window, int maxAttempts,
+                                    Duration jobTimeout, Duration stallTimeout) throws IOException {
+        return new YtDlpWorkerPool(script.toString(), tempDir.resolve("work"), workers, batchSize, window,
+                maxAttempts, jobTimeout, stallTimeout);
+    }
+
+    /**
+     * Um processo morto cujo pai também morreu pode ficar como zumbi até ser recolhido pelo init
+     */
+    private boolean isRunning(long pid) throws IOException {
+        Path stat = Path.of("/proc", String.valueOf(pid), "stat");
+        if (!Files.isDirectory(Path.of("/proc"))) {
+            return ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+        }
+        if (!Files.exists(stat)) {
+            return false;
+        }
+        String content = Files.readString(stat);
+        return content.charAt(content.lastIndexOf(')') + 2) != 'Z';
+    }
+
+    private long invocations() throws IOException {
+        return lines("invocations").size();
+    }
+
+    private List<String> lines(String logName) throws IOException {
+        Path log = script.resolveSibling(logName);
+        return Files.exists(log) ? Files.readAllLines(log) : List.of();
+    }
+}
@@ -0,0 +1,151 @@
+package com.joel.br.AutoClipster.limiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ApiRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void refillsOneTokenPerIntervalFractionAndKeepsTheRemainder() {
+        // 10 por segundo: um token a cada 100ms
+        ApiRateLimiter limiter = limiter(10, Duration.ofSeconds(1));
+        drain(limiter, 10);
+        assertFalse(limiter.tryAcquire());
+
+        advance(99);
+        assertEquals(0, limiter.getAvailablePermits());
+        assertEquals(Duration.ofMillis(1), limiter.getEstimatedWaitTime());
+
+        advance(51);
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        // Os 50ms que sobraram do primeiro token contam para o segundo
+        advance(50);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void fullBucketDoesNotAccrueTimeTowardsTheNextToken() {
+        ApiRateLimiter limiter = limiter(10, Duration.ofSeconds(1));
+
+        advance(90);
+        assertTrue(limiter.tryAcquire());
+
+        // O token consumido só volta 100ms depois do consumo, e não do último reabastecimento
+        advance(10);
+        assertEquals(9, limiter.getAvailablePermits());
+        advance(89);
+        assertEquals(9, limiter.getAvailablePermits());
+        advance(1);
+        assertEquals(10, limiter.getAvailablePermits());
+    }
+
+    @Test
+    void refillsToCapacityAfterAWholeInterval() {
+        ApiRateLimiter limiter = limiter(10, Duration.ofSeconds(1));
+        drain(limiter, 10);
+
+        advance(5_000);
+        assertEquals(10, limiter.getAvailablePermits());
+    }
+
+    @Test
+    void clampsTokensWhenTheServerLowersTheCapacity() {
+        ApiRateLimiter limiter = limiter(10, Duration.ofSeconds(1));
+
+        limiter.applyServerBudget(4, -1, Duration.ZERO, 0);
+        assertEquals(4, limiter.getMaxPermits());
+        assertEquals(4, limiter.getAvailablePermits());
+        drain(limiter, 4);
+        assertFalse(limiter.tryAcquire());
+
+        // Com capacidade maior, a taxa de reabastecimento acompanha: 20 por segundo
+        limiter.applyServerBudget(20, -1, Duration.ZERO, 0);
+        advance(100);
+        assertEquals(2, limiter.getAvailablePermits());
+        advance(1_000);
+        assertEquals(20, limiter.getAvailablePermits());
+    }
+
+    @Test
+    void neverGrantsMoreThanTheServerHasLeft() {
+        ApiRateLimiter limiter = limiter(10, Duration.ofSeconds(1));
+
+        limiter.applyServerBudget(10, 3, Duration.ofSeconds(1), 0);
+        assertEquals(3, limiter.getAvailablePermits());
+
+        // Na reserva, pausa até o reset
+        limiter.applyServerBudget(10, 1, Duration.ofMillis(500), 1);
+        assertEquals(0, limiter.getAvailablePermits());
+        advance(499);
+        assertFalse(limiter.tryAcquire());
+        advance(1);
+        assertEquals(Duration.ofMillis(100), limiter.getEstimatedWaitTime());
+        advance(100);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void concurrentAcquiresNeverExceedTheBucket() throws Exception {
+        ApiRateLimiter limiter = limiter(1_000, Duration.ofHours(1));
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<Integer>> granted = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                granted.add(executor.submit(() -> {
+                    start.await();
+                    int count = 0;
+                    for (int attempt = 0; attempt < 200; attempt++) {
+                        if (limiter.tryAcquire()) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }));
+            }
+            start.countDown();
+
+            int total = 0;
+            for (Future<Integer> result : granted) {
+                total += result.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(1_000, total);
+            assertEquals(0, limiter.getAvailablePermits());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ApiRateLimiter limiter(int permits, Duration interval) {
+        return new ApiRateLimiter("test", permits, interval, clock::get);
+    }
+
+    private void drain(ApiRateLimiter limiter, int permits) {
+        for (int i = 0; i < permits; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+    }
+
+    private void advance(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
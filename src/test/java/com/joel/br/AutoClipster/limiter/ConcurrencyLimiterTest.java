@@ -0,0 +1,57 @@
+package com.joel.br.AutoClipster.limiter;
+
+import com.joel.br.AutoClipster.limiter.ConcurrencyLimiter.Dependency;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ConcurrencyLimiterTest {
+
+    @Test
+    void limitsConcurrentCallsPerDependencyOnVirtualThreads() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(16, 3, 2, 16);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<Future<Integer>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 200; i++) {
+                int value = i;
+                results.add(executor.submit(() -> limiter.call(Dependency.GEMINI, () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(2);
+                    running.decrementAndGet();
+                    return value;
+                })));
+            }
+        }
+
+        int sum = 0;
+        for (Future<Integer> result : results) {
+            sum += result.get();
+        }
+        assertEquals(199 * 200 / 2, sum);
+        assertEquals(3, maxRunning.get());
+        assertEquals(0, limiter.getUsage().get(Dependency.GEMINI.ordinal()).getInUse());
+    }
+
+    @Test
+    void releasesPermitWhenCallFails() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 1);
+
+        assertThrows(IOException.class, () -> limiter.run(Dependency.YOUTUBE, () -> {
+            throw new IOException("quota");
+        }));
+
+        assertEquals("ok", limiter.call(Dependency.YOUTUBE, () -> "ok"));
+    }
+}
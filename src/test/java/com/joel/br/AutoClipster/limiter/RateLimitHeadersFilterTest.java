@@ -0,0 +1,131 @@
+package com.joel.br.AutoClipster.limiter;
+
+import com.joel.br.AutoClipster.services.RateLimitService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RateLimitHeadersFilterTest {
+
+    private static final String API = "twitch-api";
+
+    private final RateLimitService rateLimitService = mock(RateLimitService.class);
+    private final ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("https://api.twitch.tv/helix/clips")).build();
+    private final Deque<ClientResponse> responses = new ArrayDeque<>();
+    private final AtomicInteger exchanges = new AtomicInteger();
+    private final ExchangeFunction next = sent -> {
+        exchanges.incrementAndGet();
+        return Mono.just(responses.removeFirst());
+    };
+
+    private RateLimitHeadersFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new RateLimitHeadersFilter(rateLimitService, API, 800, Duration.ofMinutes(1), 5, 2);
+        when(rateLimitService.acquirePermit(API, 800, Duration.ofMinutes(1)))
+                .thenReturn(Mono.just(new Permit(API, Instant.now(), Duration.ZERO)));
+    }
+
+    @Test
+    void feedsTheServerBudgetToTheLimiter() {
+        long reset = Instant.now().plusSeconds(30).getEpochSecond();
+        responses.add(response(HttpStatus.OK, "Ratelimit-Limit", "800", "Ratelimit-Remaining", " 799 ",
+                "Ratelimit-Reset", String.valueOf(reset)));
+
+        assertEquals(HttpStatus.OK, filter.filter(request, next).block().statusCode());
+
+        ArgumentCaptor<Duration> resetDelay = ArgumentCaptor.forClass(Duration.class);
+        verify(rateLimitService).applyServerBudget(eq(API), eq(800), eq(799), resetDelay.capture(), eq(5));
+        assertBetween(Duration.ofSeconds(28), resetDelay.getValue(), Duration.ofSeconds(30));
+        verify(rateLimitService, never()).pause(any(), any());
+    }
+
+    @Test
+    void missingOrMalformedHeadersAreIgnored() {
+        responses.add(response(HttpStatus.OK, "Ratelimit-Limit", "lots", "Ratelimit-Reset", "soon"));
+
+        filter.filter(request, next).block();
+
+        verify(rateLimitService).applyServerBudget(API, -1, -1, Duration.ZERO, 5);
+    }
+
+    @Test
+    void tooManyRequestsPausesUntilTheResetAndRetries() {
+        long reset = Instant.now().plusSeconds(10).getEpochSecond();
+        responses.add(response(HttpStatus.TOO_MANY_REQUESTS, "Ratelimit-Limit", "800", "Ratelimit-Remaining", "0",
+                "Ratelimit-Reset", String.valueOf(reset)));
+        responses.add(response(HttpStatus.OK));
+
+        assertEquals(HttpStatus.OK, filter.filter(request, next).block().statusCode());
+
+        assertEquals(2, exchanges.get());
+        ArgumentCaptor<Duration> pause = ArgumentCaptor.forClass(Duration.class);
+        verify(rateLimitService).pause(eq(API), pause.capture());
+        assertBetween(Duration.ofSeconds(8), pause.getValue(), Duration.ofSeconds(10));
+        verify(rateLimitService).acquirePermit(API, 800, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void tooManyRequestsWithoutResetFallsBackToRetryAfter() {
+        responses.add(response(HttpStatus.TOO_MANY_REQUESTS, "Retry-After", "7"));
+        responses.add(response(HttpStatus.TOO_MANY_REQUESTS));
+        responses.add(response(HttpStatus.OK));
+
+        filter.filter(request, next).block();
+
+        verify(rateLimitService).pause(API, Duration.ofSeconds(7));
+        // Sem nenhum dos cabeçalhos, a pausa padrão
+        verify(rateLimitService).pause(API, Duration.ofSeconds(5));
+    }
+
+    @Test
+    void givesUpAfterMaxRetriesAndReturnsTheLastResponse() {
+        for (int i = 0; i < 3; i++) {
+            responses.add(response(HttpStatus.TOO_MANY_REQUESTS, "Retry-After", "1"));
+        }
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, filter.filter(request, next).block().statusCode());
+
+        assertEquals(3, exchanges.get());
+        verify(rateLimitService, times(2)).pause(API, Duration.ofSeconds(1));
+        verify(rateLimitService, times(3)).applyServerBudget(eq(API), anyInt(), anyInt(), any(), eq(5));
+    }
+
+    private static ClientResponse response(HttpStatus status, String... headers) {
+        ClientResponse.Builder builder = ClientResponse.create(status);
+        for (int i = 0; i < headers.length; i += 2) {
+            builder.header(headers[i], headers[i + 1]);
+        }
+        return builder.build();
+    }
+
+    private static void assertBetween(Duration min, Duration actual, Duration max) {
+        assertTrue(actual.compareTo(min) >= 0 && actual.compareTo(max) <= 0,
+                actual + " fora de [" + min + ", " + max + "]");
+    }
+}
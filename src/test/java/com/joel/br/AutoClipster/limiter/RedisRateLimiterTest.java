@@ -0,0 +1,203 @@
+package com.joel.br.AutoClipster.limiter;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.GenericContainer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Os testes marcados com {@code redisAvailable} rodam contra um contêiner Redis do Testcontainers, ou
+ * contra o Redis de REDIS_HOST/REDIS_PORT quando definido; sem nenhum dos dois são ignorados.
+ */
+class RedisRateLimiterTest {
+
+    private static final String EXTERNAL_HOST = System.getenv("REDIS_HOST");
+
+    private static GenericContainer<?> redis;
+
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+    private String key;
+
+    static boolean redisAvailable() {
+        return EXTERNAL_HOST != null || DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    @BeforeEach
+    void setUp() {
+        key = "test:rate-limit:" + UUID.randomUUID();
+        if (!redisAvailable()) {
+            return;
+        }
+
+        String host = EXTERNAL_HOST;
+        int port = Integer.parseInt(System.getenv().getOrDefault("REDIS_PORT", "6379"));
+        if (host == null) {
+            if (redis == null) {
+                redis = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+                redis.start();
+            }
+            host = redis.getHost();
+            port = redis.getMappedPort(6379);
+        }
+
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (redisTemplate != null) {
+            redisTemplate.delete(key);
+        }
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @AfterAll
+    static void stop() {
+        if (redis != null) {
+            redis.stop();
+        }
+    }
+
+    @Test
+    @EnabledIf("redisAvailable")
+    void nodesShareTheSameBudget() {
+        RedisRateLimiter nodeA = limiter(10, 1);
+        RedisRateLimiter nodeB = limiter(10, 1);
+
+        int acquired = 0;
+        for (int i = 0; i < 10; i++) {
+            if ((i % 2 == 0 ? nodeA : nodeB).tryAcquire()) {
+                acquired++;
+            }
+        }
+
+        assertEquals(10, acquired);
+        assertFalse(nodeA.tryAcquire());
+        assertFalse(nodeB.tryAcquire());
+        assertTrue(nodeB.getEstimatedWaitTime().toMillis() > 0);
+    }
+
+    @Test
+    @EnabledIf("redisAvailable")
+    void prefetchedTokensAreConsumedLocally() {
+        RedisRateLimiter limiter = limiter(100, 5);
+
+        assertTrue(limiter.tryAcquire());
+
+        // Um lote de 5 foi reservado: restam 95 no Redis e 4 neste nó
+        assertEquals("95", remoteTokens());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertEquals("95", remoteTokens());
+    }
+
+    @Test
+    @EnabledIf("redisAvailable")
+    void concurrentFetchesNeverExceedTheSharedBudget() throws Exception {
+        RedisRateLimiter nodeA = limiter(200, 5);
+        RedisRateLimiter nodeB = limiter(200, 5);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<Integer>> granted = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            for (int i = 0; i < 16; i++) {
+                RedisRateLimiter node = i % 2 == 0 ? nodeA : nodeB;
+                granted.add(executor.submit(() -> {
+                    start.await();
+                    int count = 0;
+                    for (int attempt = 0; attempt < 50; attempt++) {
+                        if (node.tryAcquire()) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }));
+            }
+            start.countDown();
+
+            int total = 0;
+            for (Future<Integer> result : granted) {
+                total += result.get(30, TimeUnit.SECONDS);
+            }
+            assertTrue(total <= 200, "concedidas " + total);
+            assertTrue(total >= 150, "concedidas " + total);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @EnabledIf("redisAvailable")
+    void pauseBlocksEveryNode() {
+        RedisRateLimiter nodeA = limiter(100, 1);
+        RedisRateLimiter nodeB = limiter(100, 1);
+
+        assertTrue(nodeA.tryAcquire());
+        nodeA.pause(Duration.ofSeconds(30));
+
+        assertFalse(nodeB.tryAcquire());
+        assertTrue(nodeB.getEstimatedWaitTime().toSeconds() >= 25);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void fallsBackToTheLocalShareWhileRedisIsDown() {
+        StringRedisTemplate downTemplate = mock(StringRedisTemplate.class);
+        when(downTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenThrow(new RedisConnectionFailureException("Connection refused"));
+        // 10 por minuto divididos entre 2 réplicas
+        RedisRateLimiter limiter = new RedisRateLimiter(downTemplate, key, "test-api", 10, Duration.ofMinutes(1), 5, 2);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+        assertTrue(limiter.getEstimatedWaitTime().toMillis() > 0);
+
+        // Só a primeira falha chega ao Redis; as seguintes esperam REDIS_RETRY_MILLIS
+        verify(downTemplate, times(1)).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+
+    private RedisRateLimiter limiter(int maxPermits, int prefetch) {
+        return new RedisRateLimiter(redisTemplate, key, "test-api", maxPermits, Duration.ofMinutes(1), prefetch, 1);
+    }
+
+    private String remoteTokens() {
+        return redisTemplate.<String, String>opsForHash().get(key, "tokens").split("\\.")[0];
+    }
+}
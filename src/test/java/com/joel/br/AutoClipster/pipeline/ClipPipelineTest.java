@@ -0,0 +1,158 @@
+package com.joel.br.AutoClipster.pipeline;
+
+import com.joel.br.AutoClipster.DTO.ClipProgress;
+import com.joel.br.AutoClipster.DTO.ClipProgress.Stage;
+import com.joel.br.AutoClipster.DTO.ClipProgress.Status;
+import com.joel.br.AutoClipster.DTO.TwitchClipDTO;
+import com.joel.br.AutoClipster.DTO.TwitchUserDTO;
+import com.joel.br.AutoClipster.DTO.WorkflowResult;
+import com.joel.br.AutoClipster.model.DownloadedClip;
+import com.joel.br.AutoClipster.services.AutomatedClipProcessingService;
+import com.joel.br.AutoClipster.services.ClipDownloadService;
+import com.joel.br.AutoClipster.services.GeminiAnalysisService.ClipAnalysis;
+import com.joel.br.AutoClipster.services.TwitchService;
+import com.joel.br.AutoClipster.services.VideoProbeService;
+import com.joel.br.AutoClipster.services.YouTubeUploadService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ClipPipelineTest {
+
+    private final ExecutorService analysisThreads = Executors.newFixedThreadPool(8);
+
+    private final TwitchService twitchService = mock(TwitchService.class);
+    private final ClipDownloadService downloadService = mock(ClipDownloadService.class);
+    private final VideoProbeService probeService = mock(VideoProbeService.class);
+    private final AutomatedClipProcessingService processingService = mock(AutomatedClipProcessingService.class);
+
+    @AfterEach
+    void shutdown() {
+        analysisThreads.shutdownNow();
+    }
+
+    @Test
+    void reportsOutcomePerClipAndLimitsAnalysisConcurrency() {
+        List<TwitchClipDTO> clips = IntStream.range(0, 8)
+                .mapToObj(i -> TwitchClipDTO.builder().id("clip" + i).title("Clip " + i).viewCount(100 - i).build())
+                .toList();
+        when(twitchService.getClipsFromChannelExtended(anyString(), anyInt())).thenReturn(Flux.fromIterable(clips));
+        when(downloadService.selectTopClips(any(), anyInt())).thenReturn(Mono.just(clips));
+        when(downloadService.download(any())).thenAnswer(invocation -> {
+            TwitchClipDTO clip = invocation.getArgument(0);
+            if (clip.getId().equals("clip1")) {
+                return Mono.empty();
+            }
+            if (clip.getId().equals("clip2")) {
+                return Mono.error(new RuntimeException("timeout"));
+            }
+            return Mono.fromCallable(() -> downloaded(clip)).subscribeOn(Schedulers.boundedElastic());
+        });
+        when(probeService.probe(anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        AtomicInteger analyzing = new AtomicInteger();
+        AtomicInteger maxAnalyzing = new AtomicInteger();
+        when(processingService.processNewlyDownloadedClip(any())).thenAnswer(invocation -> {
+            DownloadedClip clip = invocation.getArgument(0);
+            return CompletableFuture.supplyAsync(() -> {
+                maxAnalyzing.accumulateAndGet(analyzing.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                analyzing.decrementAndGet();
+                if (clip.getClipId().equals("clip3")) {
+                    clip.setProcessingStatus("SKIPPED");
+                    return null;
+                }
+                return ClipAnalysis.builder().viralScore(7.0).estimatedViews(1000).build();
+            }, analysisThreads);
+        });
+
+        ClipPipeline pipeline = pipeline();
+        PipelineRun run = pipeline.run("canal", user(), clips.size(), 7).block(Duration.ofSeconds(10));
+
+        Map<String, ClipProgress> progress = run.getClips().stream()
+                .collect(Collectors.toMap(ClipProgress::getClipId, Function.identity()));
+        assertEquals(Status.SKIPPED, progress.get("clip1").getStatus());
+        assertEquals(Stage.DOWNLOAD, progress.get("clip1").getStage());
+        assertEquals(Status.FAILED, progress.get("clip2").getStatus());
+        assertEquals("timeout", progress.get("clip2").getMessage());
+        assertEquals(Status.SKIPPED, progress.get("clip3").getStatus());
+        assertEquals(Stage.ANALYSIS, progress.get("clip3").getStage());
+        assertEquals(Status.COMPLETED, progress.get("clip0").getStatus());
+        assertEquals(7.0, progress.get("clip0").getViralScore());
+
+        assertTrue(maxAnalyzing.get() <= 2, "análises simultâneas: " + maxAnalyzing.get());
+
+        WorkflowResult result = run.toResult();
+        assertEquals("COMPLETED", result.getStatus());
+        assertEquals(6, result.getClipsDownloaded());
+        assertEquals(6, result.getClipsProcessed());
+        assertEquals(5, result.getProcessedClipTitles().size());
+        assertEquals(pipeline.getRun(run.getRunId()).orElseThrow(), run);
+    }
+
+    @Test
+    void fetchFailureFinishesRunAsFailed() {
+        when(twitchService.getClipsFromChannelExtended(anyString(), anyInt())).thenReturn(Flux.empty());
+        when(downloadService.selectTopClips(any(), anyInt())).thenReturn(Mono.error(new RuntimeException("401")));
+
+        PipelineRun run = pipeline().run("canal", user(), 5, 7).block(Duration.ofSeconds(10));
+
+        WorkflowResult result = run.toResult();
+        assertEquals("FAILED", result.getStatus());
+        assertEquals("401", result.getErrorMessage());
+        assertTrue(run.isFinished());
+    }
+
+    private ClipPipeline pipeline() {
+        ClipPipeline pipeline = new ClipPipeline(twitchService, downloadService, probeService, processingService,
+                mock(YouTubeUploadService.class));
+        ReflectionTestUtils.setField(pipeline, "downloadConcurrency", 3);
+        ReflectionTestUtils.setField(pipeline, "probeConcurrency", 2);
+        ReflectionTestUtils.setField(pipeline, "analysisConcurrency", 2);
+        ReflectionTestUtils.setField(pipeline, "uploadConcurrency", 1);
+        ReflectionTestUtils.setField(pipeline, "bufferSize", 2);
+        ReflectionTestUtils.setField(pipeline, "uploadUserId", "");
+        return pipeline;
+    }
+
+    private static TwitchUserDTO user() {
+        TwitchUserDTO user = new TwitchUserDTO();
+        user.setId("123");
+        return user;
+    }
+
+    private static DownloadedClip downloaded(TwitchClipDTO clip) {
+        DownloadedClip downloaded = new DownloadedClip();
+        downloaded.setClipId(clip.getId());
+        downloaded.setTitle(clip.getTitle());
+        downloaded.setContentHash("hash-" + clip.getId());
+        downloaded.setFilePath("/tmp/" + clip.getId() + ".mp4");
+        return downloaded;
+    }
+}
@@ -0,0 +1,110 @@
+package com.joel.br.AutoClipster.repository;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Consultas nativas de clip_blobs contra um Postgres real, em um schema próprio. Usa um contêiner do
+ * Testcontainers, ou o banco de TEST_DATABASE_URL quando definido; sem nenhum dos dois é ignorado.
+ */
+@EnabledIf("databaseAvailable")
+class ClipBlobRepositoryPostgresTest {
+
+    private static final String EXTERNAL_URL = System.getenv("TEST_DATABASE_URL");
+
+    private static PostgreSQLContainer<?> postgres;
+    private static SingleConnectionDataSource dataSource;
+    private static JdbcTemplate jdbc;
+
+    static boolean databaseAvailable() {
+        return EXTERNAL_URL != null || DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    @BeforeAll
+    static void database() {
+        if (EXTERNAL_URL != null) {
+            dataSource = new SingleConnectionDataSource(EXTERNAL_URL,
+                    System.getenv().getOrDefault("TEST_DATABASE_USERNAME", "postgres"),
+                    System.getenv().getOrDefault("TEST_DATABASE_PASSWORD", ""), true);
+        } else {
+            postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+            postgres.start();
+            dataSource = new SingleConnectionDataSource(postgres.getJdbcUrl(), postgres.getUsername(),
+                    postgres.getPassword(), true);
+        }
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("DROP SCHEMA IF EXISTS clip_blobs_test CASCADE");
+        jdbc.execute("CREATE SCHEMA clip_blobs_test");
+        jdbc.execute("SET search_path TO clip_blobs_test");
+    }
+
+    @AfterAll
+    static void stop() {
+        jdbc.execute("DROP SCHEMA IF EXISTS clip_blobs_test CASCADE");
+        dataSource.destroy();
+        if (postgres != null) {
+            postgres.stop();
+        }
+    }
+
+    @BeforeEach
+    void tables() {
+        jdbc.execute("DROP TABLE IF EXISTS clip_blobs, downloaded_clips");
+        jdbc.execute("CREATE TABLE clip_blobs (sha256 varchar(64) PRIMARY KEY, file_path varchar(255) NOT NULL, "
+                + "size_bytes bigint NOT NULL, ref_count integer NOT NULL, created_at timestamp NOT NULL, "
+                + "acquired_at timestamp, last_accessed_at timestamp, access_count integer NOT NULL DEFAULT 0)");
+        jdbc.execute("CREATE TABLE downloaded_clips (id bigint PRIMARY KEY, content_hash varchar(64), "
+                + "download_date timestamp, processing_status varchar(255))");
+    }
+
+    @Test
+    void expiresByLastUseInsteadOfCreation() throws NoSuchMethodException {
+        LocalDateTime now = LocalDateTime.now();
+        blob("stale", now.minusDays(40), null);
+        blob("read", now.minusDays(40), now.minusDays(1));
+        blob("redownloaded", now.minusDays(40), null);
+        blob("analyzing", now.minusDays(40), null);
+        blob("older", now.minusDays(50), null);
+        clip(1, "stale", now.minusDays(40), null);
+        clip(2, "redownloaded", now.minusDays(40), null);
+        clip(3, "redownloaded", now.minusDays(2), null);
+        clip(4, "analyzing", now.minusDays(40), "ANALYZING");
+
+        List<String> expired = new NamedParameterJdbcTemplate(jdbc).queryForList(
+                query("findExpired", LocalDateTime.class, int.class),
+                new MapSqlParameterSource("usedBefore", now.minusDays(30)).addValue("limit", 10),
+                String.class);
+
+        // Só o sha256 de cada linha, do uso mais antigo para o mais novo
+        assertEquals(List.of("older", "stale"), expired);
+    }
+
+    private static String query(String method, Class<?>... parameters) throws NoSuchMethodException {
+        return ClipBlobRepository.class.getMethod(method, parameters).getAnnotation(Query.class).value()
+                .replace("SELECT b.*", "SELECT b.sha256");
+    }
+
+    private void blob(String sha256, LocalDateTime createdAt, LocalDateTime lastAccessedAt) {
+        jdbc.update("INSERT INTO clip_blobs (sha256, file_path, size_bytes, ref_count, created_at, last_accessed_at) "
+                + "VALUES (?, ?, 1, 1, ?, ?)", sha256, sha256 + ".mp4", createdAt, lastAccessedAt);
+    }
+
+    private void clip(long id, String contentHash, LocalDateTime downloadDate, String status) {
+        jdbc.update("INSERT INTO downloaded_clips VALUES (?, ?, ?, ?)", id, contentHash, downloadDate, status);
+    }
+}
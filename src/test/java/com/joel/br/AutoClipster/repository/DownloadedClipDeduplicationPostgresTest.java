@@ -0,0 +1,99 @@
+package com.joel.br.AutoClipster.repository;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Deduplicação de downloaded_clips contra um Postgres real, em um schema próprio. Usa um contêiner do
+ * Testcontainers, ou o banco de TEST_DATABASE_URL quando definido; sem nenhum dos dois é ignorado.
+ */
+@EnabledIf("databaseAvailable")
+class DownloadedClipDeduplicationPostgresTest {
+
+    private static final String EXTERNAL_URL = System.getenv("TEST_DATABASE_URL");
+
+    private static PostgreSQLContainer<?> postgres;
+    private static SingleConnectionDataSource dataSource;
+    private static JdbcTemplate jdbc;
+
+    static boolean databaseAvailable() {
+        return EXTERNAL_URL != null || DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    @BeforeAll
+    static void database() {
+        if (EXTERNAL_URL != null) {
+            dataSource = new SingleConnectionDataSource(EXTERNAL_URL,
+                    System.getenv().getOrDefault("TEST_DATABASE_USERNAME", "postgres"),
+                    System.getenv().getOrDefault("TEST_DATABASE_PASSWORD", ""), true);
+        } else {
+            postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+            postgres.start();
+            dataSource = new SingleConnectionDataSource(postgres.getJdbcUrl(), postgres.getUsername(),
+                    postgres.getPassword(), true);
+        }
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("DROP SCHEMA IF EXISTS dedup_test CASCADE");
+        jdbc.execute("CREATE SCHEMA dedup_test");
+        jdbc.execute("SET search_path TO dedup_test");
+    }
+
+    @AfterAll
+    static void stop() {
+        jdbc.execute("DROP SCHEMA IF EXISTS dedup_test CASCADE");
+        dataSource.destroy();
+        if (postgres != null) {
+            postgres.stop();
+        }
+    }
+
+    @BeforeEach
+    void tables() {
+        jdbc.execute("DROP TABLE IF EXISTS youtube_videos, downloaded_clips");
+        jdbc.execute("CREATE TABLE downloaded_clips (id bigint PRIMARY KEY, clip_id varchar(255) NOT NULL, file_path varchar(255), processed boolean NOT NULL)");
+        jdbc.execute("CREATE TABLE youtube_videos (id bigint PRIMARY KEY, clip_id bigint NOT NULL REFERENCES downloaded_clips (id))");
+    }
+
+    @Test
+    void keepsOneRowPerClipAndRepointsItsVideos() {
+        jdbc.update("INSERT INTO downloaded_clips (id, clip_id, processed) VALUES (1, 'a', false), (2, 'a', true), (3, 'a', false), (4, 'b', false)");
+        jdbc.update("INSERT INTO youtube_videos VALUES (10, 3), (11, 4)");
+
+        new DownloadedClipDeduplication(dataSource).deduplicate();
+
+        // Fica o registro processado de 'a'; o vídeo do registro removido passa para ele
+        assertEquals(List.of(2L, 4L), jdbc.queryForList("SELECT id FROM downloaded_clips ORDER BY id", Long.class));
+        assertEquals(List.of(2L, 4L), jdbc.queryForList("SELECT clip_id FROM youtube_videos ORDER BY id", Long.class));
+        jdbc.execute("ALTER TABLE downloaded_clips ADD CONSTRAINT " + DownloadedClipDeduplication.CONSTRAINT
+                + " UNIQUE (clip_id)");
+    }
+
+    @Test
+    void doesNothingOnceTheConstraintExists() {
+        jdbc.execute("ALTER TABLE downloaded_clips ADD CONSTRAINT " + DownloadedClipDeduplication.CONSTRAINT
+                + " UNIQUE (clip_id)");
+        jdbc.update("INSERT INTO downloaded_clips (id, clip_id, processed) VALUES (1, 'a', false), (2, 'b', false)");
+
+        new DownloadedClipDeduplication(dataSource).deduplicate();
+
+        assertEquals(2, jdbc.queryForObject("SELECT count(*) FROM downloaded_clips", Long.class));
+    }
+
+    @Test
+    void skipsAFreshDatabase() {
+        jdbc.execute("DROP TABLE youtube_videos, downloaded_clips");
+
+        new DownloadedClipDeduplication(dataSource).deduplicate();
+    }
+}
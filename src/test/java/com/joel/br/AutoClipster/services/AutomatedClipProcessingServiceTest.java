@@ -0,0 +1,128 @@
+package com.joel.br.AutoClipster.services;
+
+import com.joel.br.AutoClipster.model.DownloadedClip;
+import com.joel.br.AutoClipster.repository.DownloadedClipRepository;
+import com.joel.br.AutoClipster.services.GeminiAnalysisService.ClipAnalysis;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class AutomatedClipProcessingServiceTest {
+
+    private final GeminiAnalysisService gemini = mock(GeminiAnalysisService.class);
+    private final ClipAnalysisQueue queue = mock(ClipAnalysisQueue.class);
+
+    @Test
+    void skipsGeminiWhenClipIsAlreadyClaimed() {
+        DownloadedClip clip = clip();
+        when(queue.claim(clip)).thenReturn(false);
+
+        assertNull(service(Runnable::run).processNewlyDownloadedClip(clip).join());
+
+        verifyNoInteractions(gemini);
+        verify(queue, never()).complete(any(), anyString());
+    }
+
+    @Test
+    void completesClaimedClip() {
+        DownloadedClip clip = clip();
+        when(queue.claim(clip)).thenReturn(true);
+        stubAnalysis();
+
+        ClipAnalysis result = service(Runnable::run).processNewlyDownloadedClip(clip).join();
+
+        assertNotNull(result);
+        verify(queue).complete(clip, "READY_FOR_UPLOAD");
+        verify(queue, never()).fail(any());
+    }
+
+    @Test
+    void failureIsHandedBackToTheQueue() {
+        DownloadedClip clip = clip();
+        when(queue.claim(clip)).thenReturn(true);
+        when(gemini.analyzeClipWithFunctionCalling(any(), any(), any(), any()))
+                .thenThrow(new RuntimeException("quota"));
+
+        assertNull(service(Runnable::run).processNewlyDownloadedClip(clip).join());
+
+        verify(queue).fail(clip);
+        verify(queue, never()).complete(any(), anyString());
+    }
+
+    @Test
+    void scheduledJobAnalyzesDequeuedBatchWithoutClaimingAgain() {
+        DownloadedClip first = clip();
+        DownloadedClip second = clip();
+        second.setId(2L);
+        when(queue.dequeue()).thenReturn(List.of(first, second));
+        stubAnalysis();
+
+        service(Runnable::run).processUnprocessedClips();
+
+        verify(queue).complete(first, "READY_FOR_UPLOAD");
+        verify(queue).complete(second, "READY_FOR_UPLOAD");
+        verify(queue, never()).claim(any());
+    }
+
+    @Test
+    void rejectedClipIsReleased() {
+        DownloadedClip clip = clip();
+        when(queue.dequeue()).thenReturn(List.of(clip));
+
+        service(task -> {
+            throw new RejectedExecutionException("cheio");
+        }).processUnprocessedClips();
+
+        verify(queue).release(clip);
+        verifyNoInteractions(gemini);
+    }
+
+    private void stubAnalysis() {
+        when(gemini.analyzeClipWithFunctionCalling(any(), any(), any(), any())).thenAnswer(invocation -> analysis());
+        when(gemini.analyzeClipWithGoogleSearch(any(), any(), any(), any())).thenAnswer(invocation -> analysis());
+    }
+
+    private AutomatedClipProcessingService service(Executor executor) {
+        AutomatedClipProcessingService service = new AutomatedClipProcessingService(
+                mock(DownloadedClipRepository.class), gemini, queue, executor);
+        ReflectionTestUtils.setField(service, "minViralScore", 6.0);
+        ReflectionTestUtils.setField(service, "minDuration", 10);
+        ReflectionTestUtils.setField(service, "maxDuration", 180);
+        ReflectionTestUtils.setField(service, "minViews", 100);
+        return service;
+    }
+
+    private static DownloadedClip clip() {
+        DownloadedClip clip = new DownloadedClip();
+        clip.setId(1L);
+        clip.setClipId("clip");
+        clip.setTitle("Clip");
+        clip.setDuration(30.0);
+        clip.setViewCount(1000);
+        return clip;
+    }
+
+    private static ClipAnalysis analysis() {
+        return ClipAnalysis.builder()
+                .optimizedTitle("Jogada incrível")
+                .optimizedDescription("Descrição")
+                .tags(new ArrayList<>(List.of("gaming", "clip", "twitch")))
+                .viralScore(8.0)
+                .estimatedViews(1000)
+                .build();
+    }
+}
@@ -0,0 +1,212 @@
+package com.joel.br.AutoClipster.services;
+
+import com.joel.br.AutoClipster.model.DownloadedClip;
+import com.joel.br.AutoClipster.repository.DownloadedClipRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fila de análise contra um Postgres real: o FOR UPDATE SKIP LOCKED e as condições de reserva só
+ * existem no SQL. Usa um contêiner do Testcontainers, ou o banco de TEST_DATABASE_URL
+ * (com TEST_DATABASE_USERNAME e TEST_DATABASE_PASSWORD) quando definido; sem nenhum dos dois é ignorado.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIf("databaseAvailable")
+class ClipAnalysisQueuePostgresTest {
+
+    private static final String EXTERNAL_URL = System.getenv("TEST_DATABASE_URL");
+
+    private static PostgreSQLContainer<?> postgres;
+
+    @Autowired
+    private DownloadedClipRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    static boolean databaseAvailable() {
+        return EXTERNAL_URL != null || DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        if (EXTERNAL_URL != null) {
+            registry.add("spring.datasource.url", () -> EXTERNAL_URL);
+            registry.add("spring.datasource.username", () -> System.getenv().getOrDefault("TEST_DATABASE_USERNAME", "postgres"));
+            registry.add("spring.datasource.password", () -> System.getenv().getOrDefault("TEST_DATABASE_PASSWORD", ""));
+        } else {
+            if (postgres == null) {
+                postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+                postgres.start();
+            }
+            registry.add("spring.datasource.url", postgres::getJdbcUrl);
+            registry.add("spring.datasource.username", postgres::getUsername);
+            registry.add("spring.datasource.password", postgres::getPassword);
+        }
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+    }
+
+    @BeforeEach
+    void clean() {
+        repository.deleteAllInBatch();
+    }
+
+    @Test
+    void rowsLockedByOneNodeAreSkippedByTheOther() {
+        save(IntStream.range(0, 10).mapToObj(i -> pending("clip" + i)).toList());
+        ClipAnalysisQueue nodeB = queue("node-b", 5);
+
+        // O nó A está no meio do dequeue: as 5 primeiras linhas seguem bloqueadas até o commit dele
+        List<Long> lockedByA = new TransactionTemplate(transactionManager).execute(status -> {
+            List<Long> locked = ids(repository.lockNextForAnalysis(
+                    LocalDateTime.now(), LocalDateTime.now(), 3, 5));
+            List<Long> takenByB = ids(CompletableFuture.supplyAsync(nodeB::dequeue).join());
+
+            assertEquals(5, takenByB.size());
+            assertTrue(Collections.disjoint(locked, takenByB), () -> locked + " e " + takenByB);
+            return locked;
+        });
+
+        assertEquals(5, lockedByA.size());
+    }
+
+    @Test
+    void concurrentNodesNeverClaimTheSameClip() throws Exception {
+        List<Long> ids = ids(save(IntStream.range(0, 60).mapToObj(i -> pending("clip" + i)).toList()));
+        List<ClipAnalysisQueue> nodes = List.of(queue("node-a", 7), queue("node-b", 7), queue("node-c", 7));
+        Map<Long, Integer> claims = new ConcurrentHashMap<>();
+
+        ExecutorService threads = Executors.newFixedThreadPool(nodes.size());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (ClipAnalysisQueue node : nodes) {
+            workers.add(threads.submit(() -> {
+                start.await();
+                List<DownloadedClip> batch;
+                while (!(batch = node.dequeue()).isEmpty()) {
+                    for (DownloadedClip clip : batch) {
+                        claims.merge(clip.getId(), 1, Integer::sum);
+                        assertTrue(node.complete(clip, "READY_FOR_UPLOAD"));
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(30, TimeUnit.SECONDS);
+        }
+        threads.shutdown();
+
+        assertEquals(ids.size(), claims.size());
+        assertTrue(claims.keySet().containsAll(ids));
+        assertTrue(claims.values().stream().allMatch(count -> count == 1), claims::toString);
+        assertEquals(0, repository.countByProcessedFalse());
+    }
+
+    @Test
+    void expiredLeaseIsTakenOverAndTheOldOwnerIsFencedOut() {
+        DownloadedClip abandoned = pending("abandonado");
+        abandoned.setProcessingStatus("ANALYZING");
+        abandoned.setLeaseOwner("node-a/morto");
+        abandoned.setLeaseUntil(LocalDateTime.now().minusMinutes(1));
+        abandoned.setAttempts(1);
+        DownloadedClip live = pending("em-analise");
+        live.setProcessingStatus("ANALYZING");
+        live.setLeaseOwner("node-a/vivo");
+        live.setLeaseUntil(LocalDateTime.now().plusMinutes(5));
+        live.setAttempts(1);
+        save(List.of(abandoned, live));
+
+        ClipAnalysisQueue nodeB = queue("node-b", 5);
+        List<DownloadedClip> batch = nodeB.dequeue();
+
+        assertEquals(List.of(abandoned.getId()), ids(batch));
+        assertEquals(2, repository.findById(abandoned.getId()).orElseThrow().getAttempts());
+        assertEquals(0, repository.completeAnalysis(abandoned.getId(), "READY_FOR_UPLOAD", "node-a/morto"));
+        assertTrue(nodeB.complete(batch.get(0), "READY_FOR_UPLOAD"));
+        assertEquals("READY_FOR_UPLOAD", repository.findById(abandoned.getId()).orElseThrow().getProcessingStatus());
+    }
+
+    @Test
+    void retryWaitsForBackoffAndExhaustedLeaseIsFailed() {
+        DownloadedClip clip = save(List.of(pending("falha"))).get(0);
+        ClipAnalysisQueue node = queue("node-a", 5);
+
+        assertTrue(node.claim(clip));
+        assertTrue(node.fail(clip));
+        assertTrue(node.dequeue().isEmpty(), "clip aguardando o backoff não pode ser reservado");
+
+        DownloadedClip interrupted = repository.findById(clip.getId()).orElseThrow();
+        interrupted.setProcessingStatus("ANALYZING");
+        interrupted.setLeaseOwner("node-a/morto");
+        interrupted.setLeaseUntil(LocalDateTime.now().minusMinutes(1));
+        interrupted.setAttempts(3);
+        repository.save(interrupted);
+
+        node.failExhausted();
+
+        DownloadedClip failed = repository.findById(clip.getId()).orElseThrow();
+        assertEquals("FAILED", failed.getProcessingStatus());
+        assertTrue(failed.isProcessed());
+    }
+
+    private ClipAnalysisQueue queue(String workerId, int maxInFlight) {
+        ClipAnalysisQueue queue = new ClipAnalysisQueue(repository, transactionManager, workerId);
+        ReflectionTestUtils.setField(queue, "leaseMinutes", 2L);
+        ReflectionTestUtils.setField(queue, "maxInFlight", maxInFlight);
+        ReflectionTestUtils.setField(queue, "maxAttempts", 3);
+        ReflectionTestUtils.setField(queue, "backoffSeconds", 60L);
+        ReflectionTestUtils.setField(queue, "maxBackoffSeconds", 3600L);
+        ReflectionTestUtils.setField(queue, "readyAfterSeconds", 120L);
+        return queue;
+    }
+
+    private List<DownloadedClip> save(List<DownloadedClip> clips) {
+        return repository.saveAll(clips);
+    }
+
+    private static DownloadedClip pending(String clipId) {
+        DownloadedClip clip = new DownloadedClip();
+        clip.setClipId(clipId);
+        clip.setTitle(clipId);
+        clip.setDownloadDate(LocalDateTime.now().minusHours(1));
+        return clip;
+    }
+
+    private static List<Long> ids(List<DownloadedClip> clips) {
+        return clips.stream().map(DownloadedClip::getId).toList();
+    }
+}
@@ -0,0 +1,131 @@
+package com.joel.br.AutoClipster.services;
+
+import com.joel.br.AutoClipster.model.DownloadedClip;
+import com.joel.br.AutoClipster.repository.DownloadedClipRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ClipAnalysisQueueTest {
+
+    private final DownloadedClipRepository repository = mock(DownloadedClipRepository.class);
+    private final ClipAnalysisQueue queue = queue();
+
+    @Test
+    void dequeueTakesOnlyFreeCapacityAndHeartbeatRenewsHeldLeases() {
+        DownloadedClip first = clip(1L);
+        DownloadedClip second = clip(2L);
+        when(repository.lockNextForAnalysis(any(), any(), eq(3), eq(3))).thenReturn(List.of(first, second));
+
+        List<DownloadedClip> batch = queue.dequeue();
+
+        assertEquals(2, batch.size());
+        assertEquals("ANALYZING", first.getProcessingStatus());
+        assertEquals(1, first.getAttempts());
+        assertTrue(first.getLeaseOwner().startsWith("node-a/"));
+        assertNotEquals(first.getLeaseOwner(), second.getLeaseOwner());
+
+        // Só resta uma vaga neste nó
+        when(repository.lockNextForAnalysis(any(), any(), eq(3), eq(1))).thenReturn(List.of());
+        queue.dequeue();
+        verify(repository).lockNextForAnalysis(any(), any(), eq(3), eq(1));
+
+        when(repository.completeAnalysis(eq(1L), anyString(), anyString())).thenReturn(1);
+        queue.complete(first, "READY_FOR_UPLOAD");
+        queue.heartbeat();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> owners = ArgumentCaptor.forClass(Collection.class);
+        verify(repository).renewLeases(owners.capture(), any());
+        assertEquals(List.of(second.getLeaseOwner()), List.copyOf(owners.getValue()));
+    }
+
+    @Test
+    void failureIsRetriedWithBackoffUntilAttemptsRunOut() {
+        DownloadedClip clip = clip(1L);
+        when(repository.claimForAnalysis(eq(1L), anyString(), any(), any(), eq(3))).thenReturn(1);
+        when(repository.scheduleRetry(eq(1L), anyString(), anyString(), any())).thenReturn(1);
+
+        assertTrue(queue.claim(clip));
+        String owner = clip.getLeaseOwner();
+        LocalDateTime before = LocalDateTime.now();
+
+        assertTrue(queue.fail(clip));
+        verify(repository).scheduleRetry(eq(1L), eq("RETRY_SCHEDULED"), eq(owner), any());
+        assertFalse(clip.isProcessed());
+        assertTrue(clip.getNextAttemptAt().isAfter(before.plusSeconds(59)));
+        assertEquals(0, queue.getStats().getInFlight());
+
+        clip.setAttempts(3);
+        clip.setLeaseOwner("node-a/outra");
+        assertFalse(queue.fail(clip));
+        verify(repository).completeAnalysis(1L, "FAILED", "node-a/outra");
+        assertTrue(clip.isProcessed());
+    }
+
+    @Test
+    void unclaimedClipIsNotHeld() {
+        DownloadedClip clip = clip(1L);
+        when(repository.claimForAnalysis(eq(1L), anyString(), any(), any(), eq(3))).thenReturn(0);
+
+        assertFalse(queue.claim(clip));
+
+        queue.heartbeat();
+        verify(repository, never()).renewLeases(any(), any());
+        assertEquals(0, clip.getAttempts());
+    }
+
+    @Test
+    void sweepFailsClipsWhoseLastAttemptLeaseExpired() {
+        when(repository.failExhausted(eq(3), any())).thenReturn(2);
+
+        queue.failExhausted();
+
+        verify(repository).failExhausted(eq(3), any());
+    }
+
+    @Test
+    void backoffDoublesUpToTheMaximum() {
+        assertEquals(60, queue.backoffSeconds(1));
+        assertEquals(120, queue.backoffSeconds(2));
+        assertEquals(240, queue.backoffSeconds(3));
+        assertEquals(3600, queue.backoffSeconds(20));
+        assertEquals(3600, queue.backoffSeconds(Integer.MAX_VALUE));
+    }
+
+    private ClipAnalysisQueue queue() {
+        ClipAnalysisQueue queue = new ClipAnalysisQueue(repository, mock(PlatformTransactionManager.class), "node-a");
+        ReflectionTestUtils.setField(queue, "leaseMinutes", 2L);
+        ReflectionTestUtils.setField(queue, "maxInFlight", 3);
+        ReflectionTestUtils.setField(queue, "maxAttempts", 3);
+        ReflectionTestUtils.setField(queue, "backoffSeconds", 60L);
+        ReflectionTestUtils.setField(queue, "maxBackoffSeconds", 3600L);
+        ReflectionTestUtils.setField(queue, "readyAfterSeconds", 120L);
+        return queue;
+    }
+
+    private static DownloadedClip clip(Long id) {
+        DownloadedClip clip = new DownloadedClip();
+        clip.setId(id);
+        clip.setClipId("clip" + id);
+        clip.setTitle("Clip " + id);
+        return clip;
+    }
+}
@@ -0,0 +1,148 @@
+package com.joel.br.AutoClipster.services;
+
+import com.joel.br.AutoClipster.DTO.TwitchClipDTO;
+import com.joel.br.AutoClipster.config.InstrumentedTaskExecutor;
+import com.joel.br.AutoClipster.download.ClipDownloader;
+import com.joel.br.AutoClipster.download.DownloadedFile;
+import com.joel.br.AutoClipster.limiter.ConcurrencyLimiter;
+import com.joel.br.AutoClipster.model.DownloadedClip;
+import com.joel.br.AutoClipster.repository.DownloadedClipRepository;
+import com.joel.br.AutoClipster.storage.ClipContentStore;
+import com.joel.br.AutoClipster.storage.ClipPathIndex;
+import com.joel.br.AutoClipster.storage.StorageOwnership;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ClipDownloadServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final Set<String> known = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger downloads = new AtomicInteger();
+    private final CountDownLatch downloadStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseDownload = new CountDownLatch(1);
+    private volatile boolean failDownloads;
+
+    private ClipDownloadService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        KnownClipsService knownClipsService = mock(KnownClipsService.class);
+        when(knownClipsService.isKnown(anyString())).thenAnswer(invocation -> known.contains(invocation.<String>getArgument(0)));
+        doAnswer(invocation -> known.add(invocation.getArgument(0)))
+                .when(knownClipsService).markKnown(anyString());
+
+        ClipDownloader clipDownloader = mock(ClipDownloader.class);
+        when(clipDownloader.download(any(), any())).thenAnswer(invocation -> {
+            downloads.incrementAndGet();
+            downloadStarted.countDown();
+            releaseDownload.await(10, TimeUnit.SECONDS);
+            if (failDownloads) {
+                throw new IOException("falha de teste");
+            }
+            Path output = invocation.getArgument(1);
+            Files.createDirectories(output.getParent());
+            Files.writeString(output, "video");
+            return new DownloadedFile(output, "hash");
+        });
+
+        ClipContentStore clipContentStore = mock(ClipContentStore.class);
+        when(clipContentStore.store(any(), anyString())).thenAnswer(invocation ->
+                new ClipContentStore.StoredContent("hash", invocation.getArgument(0), 5, false));
+        VideoProbeService videoProbeService = mock(VideoProbeService.class);
+        when(videoProbeService.probe(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        service = new ClipDownloadService(mock(DownloadedClipRepository.class), knownClipsService, clipDownloader,
+                clipContentStore, mock(ClipPathIndex.class), mock(StorageOwnership.class), videoProbeService,
+                mock(InstrumentedTaskExecutor.class), new ConcurrencyLimiter(16, 8, 2, 16),
+                mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(service, "downloadPath", tempDir.toString());
+    }
+
+    @Test
+    void concurrentRequestsForTheSameClipDownloadItOnce() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<DownloadedClip> first = callers.submit(() -> service.downloadClip(clip()));
+            assertTrue(downloadStarted.await(10, TimeUnit.SECONDS));
+            Future<DownloadedClip> second = callers.submit(() -> service.downloadClip(clip()));
+
+            // O segundo espera o primeiro em vez de gravar nos mesmos arquivos de preparação
+            Thread.sleep(200);
+            assertEquals(1, downloads.get());
+            releaseDownload.countDown();
+
+            assertNotNull(first.get(10, TimeUnit.SECONDS));
+            assertNull(second.get(10, TimeUnit.SECONDS));
+            assertEquals(1, downloads.get());
+        } finally {
+            releaseDownload.countDown();
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void aWaitingRequestRetriesIfTheRunningDownloadFails() throws Exception {
+        failDownloads = true;
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<DownloadedClip> first = callers.submit(() -> service.downloadClip(clip()));
+            assertTrue(downloadStarted.await(10, TimeUnit.SECONDS));
+            Future<DownloadedClip> second = callers.submit(() -> {
+                DownloadedClip result = null;
+                try {
+                    result = service.downloadClip(clip());
+                } catch (RuntimeException expected) {
+                    // Também falha, mas só depois de tentar por conta própria
+                }
+                return result;
+            });
+
+            Thread.sleep(200);
+            releaseDownload.countDown();
+
+            assertThrows(Exception.class, () -> first.get(10, TimeUnit.SECONDS));
+            assertNull(second.get(10, TimeUnit.SECONDS));
+            assertEquals(2, downloads.get());
+        } finally {
+            releaseDownload.countDown();
+            callers.shutdownNow();
+        }
+    }
+
+    private TwitchClipDTO clip() {
+        TwitchClipDTO clip = new TwitchClipDTO();
+        clip.setId("clip-1");
+        clip.setTitle("Clip 1");
+        clip.setUrl("https://clips.twitch.tv/clip-1");
+        return clip;
+    }
+}
@@ -0,0 +1,78 @@
+package com.joel.br.AutoClipster.services;
+
+import com.joel.br.AutoClipster.DTO.TwitchClipDTO;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ClipRankingTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @Test
+    void keepsTheMostViewedFromBestToWorst() {
+        Flux<TwitchClipDTO> clips = Flux.just(clip("a", 10, 0), clip("b", 500, 0), clip("c", 30, 0),
+                clip("d", 200, 0), clip("e", 1, 0));
+
+        assertEquals(List.of("b", "d", "c"), ids(ClipRanking.topK(clips, 3).block()));
+    }
+
+    @Test
+    void tiesAreBrokenByTheMostRecent() {
+        Flux<TwitchClipDTO> clips = Flux.just(clip("old", 100, 3), clip("new", 100, 1), clip("middle", 100, 2),
+                clip("top", 101, 9));
+
+        assertEquals(List.of("top", "new", "middle"), ids(ClipRanking.topK(clips, 3).block()));
+    }
+
+    @Test
+    void clipsWithoutViewCountComeLast() {
+        Flux<TwitchClipDTO> clips = Flux.just(clip("unknown-new", null, 0), clip("few", 1, 5),
+                clip("unknown-old", null, 8), clip("many", 50, 5));
+
+        assertEquals(List.of("many", "few", "unknown-new", "unknown-old"), ids(ClipRanking.topK(clips, 10).block()));
+        assertEquals(List.of("many", "few"), ids(ClipRanking.topK(clips, 2).block()));
+    }
+
+    @Test
+    void kLargerThanTheStreamReturnsEverythingWithoutPreallocating() {
+        Flux<Integer> numbers = Flux.fromStream(IntStream.range(0, 1_000).boxed());
+
+        List<Integer> top = ClipRanking.topK(numbers, Integer.MAX_VALUE, Comparator.<Integer>reverseOrder()).block();
+
+        assertEquals(1_000, top.size());
+        assertEquals(999, top.get(0));
+        assertEquals(0, top.get(999));
+    }
+
+    @Test
+    void nonPositiveKOrEmptyStreamYieldsNothing() {
+        assertEquals(List.of(), ClipRanking.topK(Flux.just(clip("a", 1, 0)), 0).block());
+        assertEquals(List.of(), ClipRanking.topK(Flux.empty(), 5).block());
+    }
+
+    @Test
+    void nonPositiveKNeverSubscribesToTheClips() {
+        AtomicBoolean subscribed = new AtomicBoolean();
+        Flux<TwitchClipDTO> clips = Flux.just(clip("a", 1, 0)).doOnSubscribe(subscription -> subscribed.set(true));
+
+        assertEquals(List.of(), ClipRanking.topK(clips, 0).block());
+        assertFalse(subscribed.get());
+    }
+
+    private static TwitchClipDTO clip(String id, Integer views, int hoursAgo) {
+        return TwitchClipDTO.builder().id(id).viewCount(views).createdAt(NOW.minusHours(hoursAgo)).build();
+    }
+
+    private static List<String> ids(List<TwitchClipDTO> clips) {
+        return clips.stream().map(TwitchClipDTO::getId).toList();
+    }
+}
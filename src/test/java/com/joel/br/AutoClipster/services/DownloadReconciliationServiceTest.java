@@ -0,0 +1,94 @@
+package com.joel.br.AutoClipster.services;
+
+import com.joel.br.AutoClipster.model.DownloadedClip;
+import com.joel.br.AutoClipster.repository.DownloadedClipRepository;
+import com.joel.br.AutoClipster.storage.ClipContentStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DownloadReconciliationServiceTest {
+
+    @TempDir
+    Path root;
+
+    private final DownloadedClipRepository repository = mock(DownloadedClipRepository.class);
+    private final ClipContentStore clipContentStore = mock(ClipContentStore.class);
+    private DownloadReconciliationService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        service = new DownloadReconciliationService(repository, clipContentStore);
+        ReflectionTestUtils.setField(service, "downloadPath", root.toString());
+        ReflectionTestUtils.setField(service, "stalePartHours", 24);
+        ReflectionTestUtils.setField(service, "orphanGraceMinutes", 10);
+
+        // Um clip com arquivo e um clip não processado cujo arquivo sumiu
+        Path registered = file(root.resolve("blobs/ab/cd/abcd.mp4"), Duration.ofDays(1));
+        when(repository.findAllOrderById(any())).thenReturn(new SliceImpl<>(List.of(
+                clip(1L, registered), clip(2L, root.resolve("blobs/ef/gh/efgh.mp4"))), PageRequest.of(0, 1000), false));
+    }
+
+    @Test
+    void removesOnlyUnregisteredDownloadsInTheApplicationDirectories() throws IOException {
+        Path stagedOrphan = file(root.resolve(".staging/Titulo_do_clip_AbcDef-123.mp4"), Duration.ofHours(1));
+        Path stagedRecent = file(root.resolve(".staging/Outro_clip_Xyz.mp4"), Duration.ZERO);
+        Path stagedForeign = file(root.resolve(".staging/notas do usuario.mp4"), Duration.ofHours(1));
+        Path userFile = file(root.resolve("Meu_video_123.mp4"), Duration.ofDays(10));
+        Path userFolder = file(root.resolve("edicoes/final_cut.mp4"), Duration.ofDays(10));
+        Path userPart = file(root.resolve("edicoes/render.mp4.part"), Duration.ofDays(10));
+
+        service.reconcile();
+
+        assertFalse(Files.exists(stagedOrphan));
+        assertTrue(Files.exists(stagedRecent), "dentro da carência");
+        assertTrue(Files.exists(stagedForeign), "nome que a aplicação não gera");
+        assertTrue(Files.exists(userFile));
+        assertTrue(Files.exists(userFolder));
+        assertTrue(Files.exists(userPart));
+    }
+
+    @Test
+    void keepsRowsWithMissingFilesUnlessEnabled() {
+        service.reconcile();
+        verify(repository, never()).deleteAllByIdInBatch(any());
+
+        ReflectionTestUtils.setField(service, "deleteMissingRows", true);
+        service.reconcile();
+        verify(repository).deleteAllByIdInBatch(List.of(2L));
+    }
+
+    private static Path file(Path path, Duration age) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, "video");
+        Files.setLastModifiedTime(path, FileTime.from(Instant.now().minus(age)));
+        return path;
+    }
+
+    private static DownloadedClip clip(Long id, Path file) {
+        DownloadedClip clip = new DownloadedClip();
+        clip.setId(id);
+        clip.setClipId("clip" + id);
+        clip.setFilePath(file.toString());
+        return clip;
+    }
+}
@@ -0,0 +1,78 @@
+package com.joel.br.AutoClipster.services;
+
+import com.joel.br.AutoClipster.repository.DownloadedClipRepository;
+import com.joel.br.AutoClipster.repository.DownloadedClipRepository.ClipIdView;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KnownClipsServiceTest {
+
+    private final DownloadedClipRepository repository = mock(DownloadedClipRepository.class);
+    private final KnownClipsService service = new KnownClipsService(repository, 10_000, 0.01);
+
+    @Test
+    void onlyPossiblyKnownClipsAreConfirmedInTheDatabase() {
+        when(repository.findClipIdsAfter(eq(0L), any())).thenReturn(rows(1, 100));
+        when(repository.findExistingClipIds(anyCollection()))
+                .thenAnswer(invocation -> List.copyOf(invocation.<Collection<String>>getArgument(0)));
+        service.warmUp();
+
+        List<String> batch = IntStream.rangeClosed(51, 150).mapToObj(i -> "clip" + i).toList();
+        Set<String> known = service.findKnown(batch);
+
+        assertEquals(50, known.size());
+        verify(repository).findExistingClipIds(argThat(ids -> ids.size() < 60));
+    }
+
+    @Test
+    void refreshLoadsClipsRegisteredAfterTheWarmUp() {
+        when(repository.findClipIdsAfter(eq(0L), any())).thenReturn(rows(1, 10));
+        service.warmUp();
+        // Registrados por outra réplica depois do aquecimento
+        when(repository.findClipIdsAfter(eq(10L), any())).thenReturn(rows(11, 20));
+        when(repository.findExistingClipIds(anyCollection()))
+                .thenAnswer(invocation -> List.copyOf(invocation.<Collection<String>>getArgument(0)));
+
+        service.refresh();
+
+        assertTrue(service.findKnown(List.of("clip15")).contains("clip15"));
+        verify(repository).findClipIdsAfter(eq(10L), any());
+    }
+
+    @Test
+    void singleClipCheckAlwaysAsksTheDatabase() {
+        when(repository.findClipIdsAfter(eq(0L), any())).thenReturn(List.of());
+        service.warmUp();
+        when(repository.existsByClipId("de-outra-replica")).thenReturn(true);
+
+        assertTrue(service.isKnown("de-outra-replica"));
+    }
+
+    private static List<ClipIdView> rows(int from, int to) {
+        return IntStream.rangeClosed(from, to).<ClipIdView>mapToObj(i -> new ClipIdView() {
+            @Override
+            public Long getId() {
+                return (long) i;
+            }
+
+            @Override
+            public String getClipId() {
+                return "clip" + i;
+            }
+        }).toList();
+    }
+}
@@ -0,0 +1,33 @@
+package com.joel.br.AutoClipster.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitServiceTest {
+
+    @Test
+    void retryDelaysAreSpreadAboveTheEstimatedWait() {
+        Set<Duration> delays = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            Duration delay = RateLimitService.retryDelay(Duration.ofMillis(100));
+            assertTrue(delay.toMillis() >= 100 && delay.toMillis() <= 150, "espera " + delay);
+            delays.add(delay);
+        }
+
+        // Quem espera pelo mesmo token não volta todo no mesmo instante
+        assertTrue(delays.size() > 10, "esperas distintas: " + delays.size());
+    }
+
+    @Test
+    void zeroWaitStillDelaysAtLeastOneMillisecond() {
+        for (int i = 0; i < 50; i++) {
+            long millis = RateLimitService.retryDelay(Duration.ZERO).toMillis();
+            assertTrue(millis >= 1 && millis <= 2, "espera " + millis);
+        }
+    }
+}
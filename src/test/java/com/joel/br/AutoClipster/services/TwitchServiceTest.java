@@ -0,0 +1,206 @@
+package com.joel.br.AutoClipster.services;
+
+import com.joel.br.AutoClipster.DTO.TwitchClipDTO;
+import com.joel.br.AutoClipster.DTO.TwitchUserDTO;
+import com.joel.br.AutoClipster.limiter.Permit;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TwitchServiceTest {
+
+    private final RateLimitService rateLimitService = mock(RateLimitService.class);
+    private final TwitchTokenManager tokenManager = mock(TwitchTokenManager.class);
+    private final List<ClientRequest> requests = new CopyOnWriteArrayList<>();
+
+    @Test
+    void userLookupsQueuedBehindTheRateLimitAreBatchedAndAllResolved() {
+        // Cada chamada /users espera 20ms pelo rate limit, enquanto a janela de 1ms fecha lotes sem parar
+        when(rateLimitService.acquirePermit(anyString(), anyInt(), any()))
+                .thenAnswer(invocation -> Mono.delay(Duration.ofMillis(20)).then(Mono.<Permit>empty()));
+        TwitchService service = service(request -> {
+            List<String> logins = UriComponentsBuilder.fromUri(request.url()).build().getQueryParams().get("login");
+            String users = logins.stream()
+                    .filter(login -> !login.startsWith("missing"))
+                    .map(login -> "{\"id\":\"id-" + login + "\",\"login\":\"" + login + "\",\"display_name\":\"" + login + "\"}")
+                    .collect(Collectors.joining(","));
+            return Mono.just(json("{\"data\":[" + users + "]}"));
+        });
+
+        List<TwitchUserDTO> users = Flux.range(0, 2000)
+                .delayElements(Duration.ofNanos(200_000))
+                .flatMap(i -> service.getUserByName(i % 100 == 0 ? "missing" + i : "User" + i), 2000)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        assertEquals(1980, users.size());
+        assertTrue(users.stream().allMatch(user -> user.getId().equals("id-" + user.getLogin())));
+        assertTrue(requests.size() < 2000);
+        assertTrue(requests.stream().allMatch(request ->
+                UriComponentsBuilder.fromUri(request.url()).build().getQueryParams().get("login").size() <= 100));
+
+        // O agrupador continua ativo depois da rajada
+        assertEquals("id-depois", service.getUserByName("Depois").block(Duration.ofSeconds(5)).getId());
+    }
+
+    @Test
+    void fullWindowsAreSplitWithBoundedConcurrencyAndEveryClipIsFetchedOnce() {
+        when(rateLimitService.acquirePermit(anyString(), anyInt(), any())).thenReturn(Mono.empty());
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<LocalDateTime> clips = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            clips.add(start.plusSeconds(28L * i));
+        }
+        // Exatamente no ponto da primeira divisão: só pode cair em uma das metades
+        clips.add(start.plusHours(12));
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        TwitchService service = service(clipsApi(clips, inFlight, maxInFlight));
+
+        List<String> ids = service.getClipsFromChannelSharded("canal", start, start.plusHours(24))
+                .map(TwitchClipDTO::getId)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        assertEquals(clips.size(), ids.size());
+        assertEquals(clips.size(), Set.copyOf(ids).size());
+        List<String> pages = requests.stream().map(request -> request.url().getQuery()).toList();
+        assertEquals(pages.size(), Set.copyOf(pages).size(), "nenhuma página pode ser buscada duas vezes");
+        assertTrue(requests.size() > 1);
+        // Duas páginas da janela em divisão e até shard-concurrency cursores, qualquer que seja a profundidade
+        assertTrue(maxInFlight.get() <= 2 + 4, () -> "requisições simultâneas: " + maxInFlight.get());
+    }
+
+    @Test
+    void windowThatCannotBeSplitFollowsTheCursorFromItsFirstPage() {
+        when(rateLimitService.acquirePermit(anyString(), anyInt(), any())).thenReturn(Mono.empty());
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<LocalDateTime> clips = IntStream.range(0, 250).mapToObj(i -> start.plusSeconds(2L * i)).toList();
+        TwitchService service = service(clipsApi(clips, new AtomicInteger(), new AtomicInteger()));
+
+        List<String> ids = service.getClipsFromChannelSharded("canal", start, start.plusMinutes(20))
+                .map(TwitchClipDTO::getId)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(250, Set.copyOf(ids).size());
+        List<String> cursors = requests.stream()
+                .map(request -> UriComponentsBuilder.fromUri(request.url()).build().getQueryParams().getFirst("after"))
+                .toList();
+        assertEquals(Arrays.asList(null, "100", "200"), cursors);
+    }
+
+    @Test
+    void tokenIsOnlyRequestedOnceTheRateLimitGrantsAPermit() {
+        Sinks.One<Permit> permit = Sinks.one();
+        when(rateLimitService.acquirePermit(anyString(), anyInt(), any())).thenReturn(permit.asMono());
+        TwitchService service = service(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"data\":[]}")
+                .build()));
+        // getClipById registra o início do token
+        when(tokenManager.getValidToken()).thenReturn(Mono.just("token-de-teste"));
+
+        Mono<TwitchClipDTO> clip = service.getClipById("clip").cache();
+        clip.subscribe();
+        verify(tokenManager, never()).getValidToken();
+
+        permit.tryEmitValue(new Permit("twitch-api", Instant.now(), Duration.ZERO));
+        clip.block(Duration.ofSeconds(5));
+        verify(tokenManager).getValidToken();
+    }
+
+    private TwitchService service(ExchangeFunction api) {
+        when(tokenManager.getValidToken()).thenReturn(Mono.just("token"));
+        when(tokenManager.refreshOnUnauthorized()).thenReturn((request, next) -> next.exchange(request));
+        WebClient.Builder builder = WebClient.builder().exchangeFunction(request -> {
+            requests.add(request);
+            return api.exchange(request);
+        });
+
+        TwitchService service = new TwitchService(builder, rateLimitService, tokenManager, 60, 10000, 5, 3);
+        ReflectionTestUtils.setField(service, "clientId", "client");
+        ReflectionTestUtils.setField(service, "maxClipPages", 50);
+        ReflectionTestUtils.setField(service, "shardWindowHours", 24);
+        ReflectionTestUtils.setField(service, "minShardMinutes", 15);
+        ReflectionTestUtils.setField(service, "shardConcurrency", 4);
+        ReflectionTestUtils.setField(service, "userLookupWindowMs", 1);
+        service.startUserLookupBatcher();
+        return service;
+    }
+
+    /**
+     * API /clips simulada: clipes nos instantes informados, filtrados pela janela fechada
+     * [started_at, ended_at] e paginados de 100 em 100 pelo cursor (o deslocamento)
+     */
+    private static ExchangeFunction clipsApi(List<LocalDateTime> createdAt, AtomicInteger inFlight, AtomicInteger maxInFlight) {
+        return request -> {
+            MultiValueMap<String, String> query = UriComponentsBuilder.fromUri(request.url()).build().getQueryParams();
+            LocalDateTime from = LocalDateTime.ofInstant(Instant.parse(decode(query.getFirst("started_at"))), ZoneOffset.UTC);
+            LocalDateTime to = LocalDateTime.ofInstant(Instant.parse(decode(query.getFirst("ended_at"))), ZoneOffset.UTC);
+            int offset = query.containsKey("after") ? Integer.parseInt(query.getFirst("after")) : 0;
+
+            List<Integer> matching = IntStream.range(0, createdAt.size())
+                    .filter(i -> !createdAt.get(i).isBefore(from) && !createdAt.get(i).isAfter(to))
+                    .boxed()
+                    .toList();
+            List<Integer> page = matching.subList(Math.min(offset, matching.size()), Math.min(offset + 100, matching.size()));
+            String data = page.stream()
+                    .map(i -> "{\"id\":\"clip-" + i + "\",\"title\":\"clip " + i + "\",\"view_count\":" + i + "}")
+                    .collect(Collectors.joining(","));
+            String cursor = offset + 100 < matching.size() ? "\"" + (offset + 100) + "\"" : "null";
+
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return Mono.delay(Duration.ofMillis(5))
+                    .map(ignored -> json("{\"data\":[" + data + "],\"pagination\":{\"cursor\":" + cursor + "}}"))
+                    .doFinally(signal -> inFlight.decrementAndGet());
+        };
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    private static ClientResponse json(String body) {
+        return ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build();
+    }
+}
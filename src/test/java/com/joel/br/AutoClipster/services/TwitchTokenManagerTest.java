@@ -0,0 +1,101 @@
+package com.joel.br.AutoClipster.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TwitchTokenManagerTest {
+
+    private final AtomicInteger tokenRequests = new AtomicInteger();
+
+    @Test
+    void concurrentCallersShareASingleRefresh() {
+        TwitchTokenManager manager = manager(request -> {
+            int n = tokenRequests.incrementAndGet();
+            return Mono.delay(Duration.ofMillis(100)).map(ignored -> tokenResponse("token-" + n));
+        });
+
+        List<String> tokens = Flux.range(0, 64)
+                .flatMap(i -> manager.getValidToken().subscribeOn(Schedulers.parallel()), 64)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(64, tokens.size());
+        assertEquals(List.of("token-1"), tokens.stream().distinct().toList());
+        assertEquals(1, tokenRequests.get());
+        manager.shutdown();
+    }
+
+    @Test
+    void emptyTokenResponseFailsCallersAndAllowsANewRefresh() {
+        TwitchTokenManager manager = manager(request -> tokenRequests.incrementAndGet() == 1
+                ? Mono.just(ClientResponse.create(HttpStatus.NO_CONTENT).build())
+                : Mono.just(tokenResponse("token-2")));
+
+        assertThrows(IllegalStateException.class, () -> manager.getValidToken().block(Duration.ofSeconds(5)));
+
+        assertEquals("token-2", manager.getValidToken().block(Duration.ofSeconds(5)));
+        assertEquals(2, tokenRequests.get());
+        manager.shutdown();
+    }
+
+    @Test
+    void unauthorizedResponseRefreshesTokenAndRetriesOnce() {
+        TwitchTokenManager manager = manager(request ->
+                Mono.just(tokenResponse("token-" + tokenRequests.incrementAndGet())));
+        List<String> sentTokens = new CopyOnWriteArrayList<>();
+        WebClient api = WebClient.builder()
+                .filter(manager.refreshOnUnauthorized())
+                .exchangeFunction(request -> {
+                    String authorization = request.headers().getFirst(HttpHeaders.AUTHORIZATION);
+                    sentTokens.add(authorization);
+                    HttpStatus status = authorization.equals("Bearer token-1") ? HttpStatus.UNAUTHORIZED : HttpStatus.OK;
+                    return Mono.just(ClientResponse.create(status).body("ok").build());
+                })
+                .build();
+
+        String token = manager.getValidToken().block(Duration.ofSeconds(5));
+        String body = api.get().uri("https://api.twitch.tv/helix/users")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .retrieve()
+                .bodyToMono(String.class)
+                .block(Duration.ofSeconds(5));
+
+        assertEquals("ok", body);
+        assertEquals(List.of("Bearer token-1", "Bearer token-2"), sentTokens);
+        assertEquals(2, tokenRequests.get());
+        manager.shutdown();
+    }
+
+    private TwitchTokenManager manager(ExchangeFunction tokenEndpoint) {
+        TwitchTokenManager manager = new TwitchTokenManager(WebClient.builder().exchangeFunction(tokenEndpoint));
+        ReflectionTestUtils.setField(manager, "clientId", "client");
+        ReflectionTestUtils.setField(manager, "clientSecret", "secret");
+        ReflectionTestUtils.setField(manager, "expiryBufferSeconds", 300);
+        ReflectionTestUtils.setField(manager, "refreshAheadSeconds", 300);
+        return manager;
+    }
+
+    private static ClientResponse tokenResponse(String token) {
+        return ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"access_token\":\"" + token + "\",\"expires_in\":3600,\"token_type\":\"bearer\"}")
+                .build();
+    }
+}
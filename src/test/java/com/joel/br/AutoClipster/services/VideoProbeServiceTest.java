@@ -0,0 +1,112 @@
+package com.joel.br.AutoClipster.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joel.br.AutoClipster.model.VideoMetadata;
+import com.joel.br.AutoClipster.repository.VideoMetadataRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VideoProbeServiceTest {
+
+    private static final String FFPROBE_OUTPUT = """
+            {
+              "streams": [
+                {"index": 0, "codec_name": "h264", "profile": "High", "codec_type": "video",
+                 "width": 1920, "height": 1080, "pix_fmt": "yuv420p",
+                 "r_frame_rate": "60/1", "avg_frame_rate": "60000/1001", "bit_rate": "5800000",
+                 "disposition": {"attached_pic": 0}},
+                {"index": 1, "codec_name": "aac", "codec_type": "audio", "sample_rate": "48000",
+                 "channels": 2, "channel_layout": "stereo", "bit_rate": "160000"}
+              ],
+              "format": {"format_name": "mov,mp4,m4a,3gp,3g2,mj2", "duration": "29.983000",
+                         "size": "22345678", "bit_rate": "5962000"}
+            }
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private VideoProbeService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void parsesFfprobeJson() throws Exception {
+        VideoMetadata metadata = VideoProbeService.parse(new ObjectMapper().readTree(FFPROBE_OUTPUT));
+
+        assertEquals("h264", metadata.getVideoCodec());
+        assertEquals("High", metadata.getVideoProfile());
+        assertEquals(1920, metadata.getWidth());
+        assertEquals(1080, metadata.getHeight());
+        assertEquals(59.94, metadata.getFrameRate(), 0.01);
+        assertEquals(5_800_000L, metadata.getVideoBitRate());
+        assertEquals(5_962_000L, metadata.getBitRate());
+        assertEquals(22_345_678L, metadata.getSizeBytes());
+        assertEquals(29.983, metadata.getDurationSeconds(), 0.001);
+        assertEquals("aac", metadata.getAudioCodec());
+        assertEquals("stereo", metadata.getAudioChannelLayout());
+        assertEquals(2, metadata.getAudioChannels());
+        assertEquals(48_000, metadata.getAudioSampleRate());
+    }
+
+    @Test
+    void parsesRationalFrameRates() {
+        assertEquals(30.0, VideoProbeService.frameRate("30/1"));
+        assertEquals(29.97, VideoProbeService.frameRate("30000/1001"), 0.001);
+        assertNull(VideoProbeService.frameRate("0/0"));
+        assertNull(VideoProbeService.frameRate(null));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void probesEachContentOnlyOnce() throws Exception {
+        Path invocations = tempDir.resolve("invocations");
+        Path ffprobe = tempDir.resolve("ffprobe");
+        Files.writeString(ffprobe, "#!/bin/sh\necho run >> " + invocations + "\nsleep 0.3\ncat <<'JSON'\n"
+                + FFPROBE_OUTPUT + "JSON\n");
+        ffprobe.toFile().setExecutable(true);
+        Path video = Files.writeString(tempDir.resolve("clip.mp4"), "video");
+
+        VideoMetadataRepository repository = mock(VideoMetadataRepository.class);
+        when(repository.findById("abc")).thenReturn(Optional.empty());
+        when(repository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service = new VideoProbeService(repository);
+        ReflectionTestUtils.setField(service, "ffprobePath", ffprobe.toString());
+        ReflectionTestUtils.setField(service, "workers", 2);
+        ReflectionTestUtils.setField(service, "queueCapacity", 10);
+        ReflectionTestUtils.setField(service, "timeoutSeconds", 10);
+        service.initialize();
+
+        CompletableFuture<VideoMetadata> first = service.probe("abc", video);
+        CompletableFuture<VideoMetadata> second = service.probe("abc", video);
+
+        assertSame(first, second);
+        VideoMetadata metadata = first.get(10, TimeUnit.SECONDS);
+        assertEquals("abc", metadata.getSha256());
+        assertEquals(1080, metadata.getHeight());
+        assertEquals(1, Files.readAllLines(invocations).size());
+    }
+}
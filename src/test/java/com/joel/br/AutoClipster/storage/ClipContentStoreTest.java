@@ -0,0 +1,192 @@
+package com.joel.br.AutoClipster.storage;
+
+import com.joel.br.AutoClipster.model.ClipBlob;
+import com.joel.br.AutoClipster.repository.ClipBlobRepository;
+import com.joel.br.AutoClipster.repository.DownloadedClipRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ClipContentStoreTest {
+
+    // SHA-256 de "video a"
+    private static final String VIDEO_A_SHA256 = "b1ef7fe9e00955598db0fe7cac4741107f7a90567b75cd30dc685d0deb520e9f";
+
+    @TempDir
+    Path tempDir;
+
+    private ClipBlobRepository repository;
+    private ClipContentStore store;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ClipBlobRepository.class);
+        store = new ClipContentStore(repository, mock(DownloadedClipRepository.class),
+                mock(ClipPathIndex.class), tempDir.toString());
+    }
+
+    @Test
+    void storesIdenticalContentOnce() throws IOException {
+        Path first = write("first.mp4", "video a");
+        Path second = write("second.mp4", "video a");
+
+        ClipContentStore.StoredContent stored = store.store(first);
+        ClipContentStore.StoredContent duplicate = store.store(second);
+
+        assertEquals(stored.getPath(), duplicate.getPath());
+        assertFalse(stored.isDuplicate());
+        assertTrue(duplicate.isDuplicate());
+        assertFalse(Files.exists(first));
+        assertFalse(Files.exists(second));
+        assertEquals("video a", Files.readString(stored.getPath()));
+        verify(repository, times(2)).acquire(stored.getSha256(), stored.getPath().toString(), 7);
+    }
+
+    @Test
+    void shardsBlobsByHashPrefix() throws IOException {
+        ClipContentStore.StoredContent stored = store.store(write("clip.mp4", "video a"));
+
+        assertEquals(VIDEO_A_SHA256, stored.getSha256());
+        assertEquals(tempDir.resolve("blobs/b1/ef/" + VIDEO_A_SHA256 + ".mp4").toAbsolutePath().normalize(),
+                stored.getPath());
+        assertTrue(store.isBlob(stored.getPath()));
+    }
+
+    @Test
+    void deletesFileOnlyWhenLastReferenceIsReleased() throws IOException {
+        ClipContentStore.StoredContent stored = store.store(write("clip.mp4", "video a"));
+        when(repository.findById(stored.getSha256())).thenReturn(Optional.of(blob(stored)));
+        when(repository.deleteIfUnreferenced(anyString())).thenReturn(0, 1);
+
+        assertFalse(store.release(stored.getSha256()));
+        assertTrue(Files.exists(stored.getPath()));
+
+        assertTrue(store.release(stored.getSha256()));
+        assertFalse(Files.exists(stored.getPath()));
+        verify(repository, times(2)).decrement(stored.getSha256());
+        assertEquals(0, store.getStoredBytes());
+    }
+
+    @Test
+    void collectsOnlyBlobsWithoutRecentReferences() throws IOException {
+        ClipContentStore.StoredContent stored = store.store(write("clip.mp4", "video a"));
+        LocalDateTime acquiredBefore = LocalDateTime.now().minusMinutes(30);
+        when(repository.findUnreferenced(acquiredBefore)).thenReturn(List.of(blob(stored)));
+        when(repository.findById(stored.getSha256())).thenReturn(Optional.of(blob(stored)));
+        when(repository.deleteIfUnreferenced(stored.getSha256())).thenReturn(1);
+
+        assertEquals(1, store.collectGarbage(acquiredBefore));
+        assertFalse(Files.exists(stored.getPath()));
+        // A recontagem usa a mesma janela, para não zerar referências de um store() cujo clip ainda não foi salvo
+        verify(repository).recountReferences(acquiredBefore);
+        assertEquals(0, store.getStoredBytes());
+    }
+
+    @Test
+    void batchesAccessesIntoOneUpdatePerBlob() {
+        store.recordAccess("a");
+        store.recordAccess("a");
+        store.recordAccess("b");
+        store.recordAccess(null);
+        verifyNoInteractions(repository);
+
+        store.flushAccesses();
+        verify(repository).recordAccess(eq("a"), any(LocalDateTime.class), eq(2));
+        verify(repository).recordAccess(eq("b"), any(LocalDateTime.class), eq(1));
+
+        store.flushAccesses();
+        verify(repository, times(2)).recordAccess(anyString(), any(LocalDateTime.class), anyInt());
+    }
+
+    @Test
+    void tracksStoredBytesIncrementally() throws IOException {
+        ClipContentStore.StoredContent stored = store.store(write("a.mp4", "video a"));
+        store.store(write("a-copy.mp4", "video a"));
+        store.store(write("b.mp4", "video bb"));
+        assertEquals(15, store.getStoredBytes());
+
+        when(repository.findById(stored.getSha256())).thenReturn(Optional.of(blob(stored)));
+        assertEquals(7, store.evict(stored.getSha256()));
+        assertFalse(Files.exists(stored.getPath()));
+        assertEquals(8, store.getStoredBytes());
+    }
+
+    @Test
+    void usesTheHashComputedByTheDownloader() throws IOException {
+        ClipContentStore.StoredContent stored = store.store(write("clip.mp4", "video a"), VIDEO_A_SHA256);
+
+        assertEquals(VIDEO_A_SHA256, stored.getSha256());
+        assertEquals("video a", Files.readString(stored.getPath()));
+    }
+
+    @Test
+    void failedRegistrationRemovesTheNewBlobAndItsBytes() throws IOException {
+        doThrow(new IllegalStateException("banco fora do ar"))
+                .when(repository).acquire(anyString(), anyString(), anyLong());
+
+        assertThrows(IllegalStateException.class, () -> store.store(write("clip.mp4", "video a")));
+
+        assertFalse(Files.exists(store.blobPath(VIDEO_A_SHA256)));
+        assertEquals(0, store.getStoredBytes());
+    }
+
+    @Test
+    void failedRegistrationOfADuplicateKeepsTheDownloadAndTheExistingBlob() throws IOException {
+        ClipContentStore.StoredContent stored = store.store(write("first.mp4", "video a"));
+        doThrow(new IllegalStateException("banco fora do ar"))
+                .when(repository).acquire(anyString(), anyString(), anyLong());
+        Path second = write("second.mp4", "video a");
+
+        assertThrows(IllegalStateException.class, () -> store.store(second));
+
+        assertTrue(Files.exists(second));
+        assertTrue(Files.exists(stored.getPath()));
+        assertEquals(7, store.getStoredBytes());
+    }
+
+    @Test
+    void hashesLargeFilesInChunks() throws IOException {
+        byte[] content = new byte[3 * 1024 * 1024 + 17];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Path file = tempDir.resolve("large.mp4");
+        Files.write(file, content);
+
+        assertEquals(64, ClipContentStore.sha256(file).length());
+        assertEquals(ClipContentStore.sha256(file), ClipContentStore.sha256(Files.copy(file, tempDir.resolve("copy.mp4"))));
+    }
+
+    private ClipBlob blob(ClipContentStore.StoredContent stored) {
+        return new ClipBlob(stored.getSha256(), stored.getPath().toString(), stored.getSizeBytes(), 1,
+                LocalDateTime.now(), LocalDateTime.now(), null, 0);
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(tempDir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+}
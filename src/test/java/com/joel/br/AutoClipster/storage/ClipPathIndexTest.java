@@ -0,0 +1,74 @@
+package com.joel.br.AutoClipster.storage;
+
+import com.joel.br.AutoClipster.model.DownloadedClip;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClipPathIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void survivesRestart() {
+        ClipPathIndex index = open();
+        assertFalse(index.existed());
+        index.put("a", tempDir.resolve("blobs/aa/bb/a.mp4"));
+        index.put("b", tempDir.resolve("blobs/cc/dd/b.mp4"));
+        index.remove("a");
+        index.close();
+
+        ClipPathIndex reopened = open();
+        assertTrue(reopened.existed());
+        assertEquals(Optional.empty(), reopened.get("a"));
+        assertEquals(Optional.of(tempDir.resolve("blobs/cc/dd/b.mp4")), reopened.get("b"));
+        reopened.close();
+    }
+
+    @Test
+    void compactionKeepsOnlyLiveEntries() throws IOException {
+        ClipPathIndex index = open();
+        for (int i = 0; i < 100; i++) {
+            index.put("clip", tempDir.resolve("v" + i + ".mp4"));
+        }
+        index.compact();
+        index.close();
+
+        assertEquals(1, Files.readAllLines(tempDir.resolve(ClipPathIndex.INDEX_FILE)).size());
+        ClipPathIndex reopened = open();
+        assertEquals(Optional.of(tempDir.resolve("v99.mp4")), reopened.get("clip"));
+        reopened.close();
+    }
+
+    @Test
+    void resolvesMovedFileThroughIndex() throws IOException {
+        Path moved = Files.createDirectories(tempDir.resolve("blobs/aa/bb")).resolve("a.mp4");
+        Files.writeString(moved, "video");
+        ClipPathIndex index = open();
+        index.put("a", moved);
+
+        DownloadedClip clip = new DownloadedClip();
+        clip.setClipId("a");
+        clip.setFilePath(tempDir.resolve("old_a.mp4").toString());
+
+        assertEquals(moved, index.resolve(clip));
+        Files.delete(moved);
+        assertEquals(tempDir.resolve("old_a.mp4"), index.resolve(clip));
+        index.close();
+    }
+
+    private ClipPathIndex open() {
+        ClipPathIndex index = new ClipPathIndex(tempDir.toString());
+        index.load();
+        return index;
+    }
+}
@@ -0,0 +1,75 @@
+package com.joel.br.AutoClipster.storage;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Posse do armazenamento contra um Postgres real (advisory lock). Usa um contêiner do Testcontainers,
+ * ou o banco de TEST_DATABASE_URL quando definido; sem nenhum dos dois é ignorado.
+ */
+@EnabledIf("databaseAvailable")
+class StorageOwnershipPostgresTest {
+
+    private static final String EXTERNAL_URL = System.getenv("TEST_DATABASE_URL");
+
+    private static PostgreSQLContainer<?> postgres;
+    private static DriverManagerDataSource dataSource;
+
+    static boolean databaseAvailable() {
+        return EXTERNAL_URL != null || DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    @BeforeAll
+    static void database() {
+        if (EXTERNAL_URL != null) {
+            dataSource = new DriverManagerDataSource(EXTERNAL_URL,
+                    System.getenv().getOrDefault("TEST_DATABASE_USERNAME", "postgres"),
+                    System.getenv().getOrDefault("TEST_DATABASE_PASSWORD", ""));
+        } else {
+            postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+            postgres.start();
+            dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        }
+    }
+
+    @AfterAll
+    static void stop() {
+        if (postgres != null) {
+            postgres.stop();
+        }
+    }
+
+    @Test
+    void onlyOneNodeOwnsTheStorageUntilItStops() {
+        StorageOwnership first = new StorageOwnership(dataSource, true);
+        first.acquire();
+        assertTrue(first.isOwner());
+
+        StorageOwnership second = new StorageOwnership(dataSource, true);
+        assertThrows(IllegalStateException.class, second::acquire);
+        assertFalse(second.isOwner());
+
+        first.release();
+        second.acquire();
+        assertTrue(second.isOwner());
+        second.release();
+    }
+
+    @Test
+    void nonOwnerNodeRejectsStorageWork() {
+        StorageOwnership replica = new StorageOwnership(dataSource, false);
+        replica.acquire();
+
+        assertFalse(replica.isOwner());
+        assertThrows(IllegalStateException.class, replica::requireOwner);
+    }
+}
@@ -0,0 +1,70 @@
+#!/usr/bin/env bash
+# Substituto do yt-dlp para os testes: lê todas as URLs do --batch-file ("-" = entrada padrão) antes de
+# começar, como o yt-dlp, e, para cada uma, grava um arquivo e imprime a linha de conclusão no formato
+# do --print after_move.
+#   .../fail-*       -> imprime ERROR e segue para a próxima URL
+#   .../crash-once-* -> mata o processo na primeira vez em que aparece
+#   .../stall-*      -> reporta 10% e fica parado em um processo filho (pid em "child-<id>")
+#   .../slow-*       -> reporta progresso continuamente, sem nunca terminar
+# Cada processo é registrado em "started" ao iniciar e em "invocations" ao receber um lote não vazio,
+# ambos no diretório do script.
+dir="$(cd "$(dirname "$0")" && pwd)"
+echo "$$" >> "$dir/started"
+
+batch_file=""
+output=""
+while [ $# -gt 0 ]; do
+  case "$1" in
+    --batch-file) batch_file="$2"; shift 2 ;;
+    -o) output="$2"; shift 2 ;;
+    --format|--print) shift 2 ;;
+    *) shift ;;
+  esac
+done
+
+[ "$batch_file" = "-" ] && batch_file=/dev/stdin
+urls=()
+while IFS= read -r url || [ -n "$url" ]; do
+  [ -n "$url" ] && urls+=("$url")
+done < "$batch_file"
+[ ${#urls[@]} -eq 0 ] && exit 0
+echo "$$" >> "$dir/invocations"
+
+status=0
+for url in "${urls[@]}"; do
+  id="${url##*/}"
+  case "$id" in
+    fail-*)
+      echo "ERROR: [twitch:clips] $id: Unable to download clip"
+      status=1
+      continue ;;
+  esac
+  echo "AUTOCLIPSTER_START $url"
+  case "$id" in
+    crash-once-*)
+      if [ ! -e "$dir/crashed-$id" ]; then
+        touch "$dir/crashed-$id"
+        kill -9 $$
+      fi ;;
+    stall-*)
+      echo "[download]  10.0% of 10.00KiB"
+      sleep 30 &
+      echo "$!" > "$dir/child-$id"
+      wait ;;
+    slow-*)
+      i=0
+      while true; do
+        i=$(( (i + 1) % 100 ))
+        echo "[download]  $i.0% of 10.00MiB"
+        sleep 0.1
+      done ;;
+  esac
+  file="${output//%(id)s/$id}"
+  file="${file//%(ext)s/mp4}"
+  echo "[download] Destination: $file"
+  echo "video $id" > "$file"
+  echo "[download] 100% of 10.00KiB"
+  echo "AUTOCLIPSTER_DONE $url $file"
+done
+
+exit $status